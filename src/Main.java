@@ -1,8 +1,28 @@
 import UI.LoginUI;
+import controllers.LibraryContext;
+import java.nio.file.Paths;
+import policy.LoanPolicy;
 
 public class Main {
     public static void main(String[] args) {
-        String dbPath = "./SLMS-DB.accdb";
+        // e.g. -Dslms.db=./data/slms to run on an HSQLDB database instead of Access
+        String dbPath = System.getProperty("slms.db", "./SLMS-DB.accdb");
+
+        // Release pooled connections when the last window exits the JVM
+        Runtime.getRuntime().addShutdownHook(new Thread(LibraryContext::closeAll));
+
+        // e.g. -Dslms.policy=./loan-policy.txt for loan limits, periods and fine rates
+        // by department and category (see LoanPolicy); without it, the default rules
+        String policyFile = System.getProperty("slms.policy");
+        if (policyFile != null) {
+            try {
+                LibraryContext.forDatabase(dbPath).setLoanPolicy(LoanPolicy.load(Paths.get(policyFile)));
+            } catch (Exception e) {
+                System.out.println("Error loading loan policy (using the default rules):");
+                e.printStackTrace();
+            }
+        }
+
         new LoginUI(dbPath).setVisible(true);
     }
 }
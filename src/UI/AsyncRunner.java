@@ -0,0 +1,202 @@
+package UI;
+
+import java.awt.Cursor;
+import java.awt.Dimension;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import javax.swing.JFrame;
+import javax.swing.JOptionPane;
+import javax.swing.JProgressBar;
+import javax.swing.SwingUtilities;
+
+/**
+ * Runs controller calls off the event dispatch thread and hands the result
+ * back on it. Each screen owns one runner. Reads are grouped into named
+ * channels (submit), and a new call on a channel supersedes the one still
+ * running there, so only the latest table load or search ever reaches the
+ * screen. Writes go through execute, which never supersedes: every save,
+ * checkout or payment gets its confirmation or error, however many are in
+ * flight. While anything is pending the runner shows a busy cursor and its
+ * progress bar.
+ *
+ * All methods must be called on the event dispatch thread.
+ */
+public class AsyncRunner {
+
+    private static final ExecutorService EXECUTOR = createExecutor();
+
+    private final JFrame owner;
+    private final JProgressBar progressBar = new JProgressBar();
+
+    // EDT-only state: the live call per channel, and every call whose result is still wanted
+    private final Map<String, Call> latest = new HashMap<>();
+    private final Set<Call> pending = new HashSet<>();
+    private boolean disposed;
+
+    public AsyncRunner(JFrame owner) {
+        this.owner = owner;
+
+        progressBar.setIndeterminate(true);
+        progressBar.setPreferredSize(new Dimension(0, 4));
+        progressBar.setBorderPainted(false);
+        progressBar.setVisible(false);
+
+        // Results arriving after the window is gone are dropped
+        owner.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosed(WindowEvent e) {
+                cancelAll();
+                disposed = true;
+            }
+        });
+    }
+
+    // Screens place this along their bottom edge
+    public JProgressBar getProgressBar() {
+        return progressBar;
+    }
+
+
+    // =========================================================================
+    // SUBMIT: run a read in the background, deliver its result on the EDT
+    // unless a newer call on the same channel has replaced it
+    // =========================================================================
+    public <T> void submit(String channel, Callable<T> work, Consumer<T> onSuccess) {
+        if (disposed) return;
+
+        Call superseded = latest.get(channel);
+        if (superseded != null) cancel(superseded);
+
+        Call call = new Call();
+        latest.put(channel, call);
+        start(channel, call, work, onSuccess);
+    }
+
+    // Fire-and-forget variant for calls whose result the screen does not need
+    public void submit(String channel, Runnable work) {
+        submit(channel, () -> {
+            work.run();
+            return null;
+        }, ignored -> { });
+    }
+
+    // =========================================================================
+    // EXECUTE: run a write in the background; its result is always delivered
+    // (the label only names it in error output)
+    // =========================================================================
+    public <T> void execute(String label, Callable<T> work, Consumer<T> onSuccess) {
+        if (disposed) return;
+        start(label, new Call(), work, onSuccess);
+    }
+
+    private <T> void start(String channel, Call call, Callable<T> work, Consumer<T> onSuccess) {
+        pending.add(call);
+        updateProgress();
+
+        EXECUTOR.execute(() -> {
+            // Superseded before it started: skip the work entirely
+            if (call.cancelled) {
+                SwingUtilities.invokeLater(() -> finish(channel, call));
+                return;
+            }
+
+            try {
+                T result = work.call();
+                SwingUtilities.invokeLater(() -> {
+                    if (finish(channel, call)) onSuccess.accept(result);
+                });
+
+            } catch (Exception e) {
+                System.out.println("Error in background task (" + channel + "):");
+                e.printStackTrace();
+                SwingUtilities.invokeLater(() -> {
+                    if (finish(channel, call)) {
+                        JOptionPane.showMessageDialog(owner, "Operation failed: " + e.getMessage(),
+                                "Error", JOptionPane.ERROR_MESSAGE);
+                    }
+                });
+            }
+        });
+    }
+
+    // Drop whatever is in flight on every channel; writes are never cancelled
+    public void cancelAll() {
+        for (Call call : latest.values()) {
+            cancel(call);
+        }
+        latest.clear();
+    }
+
+    public boolean isBusy() {
+        return !pending.isEmpty();
+    }
+
+
+    // =========================================================================
+    // BOOKKEEPING (EDT only)
+    // =========================================================================
+    // Returns true if the call's result should still be delivered
+    private boolean finish(String channel, Call call) {
+        if (latest.get(channel) == call) latest.remove(channel);
+        boolean wanted = pending.remove(call) && !disposed;
+        updateProgress();
+        return wanted;
+    }
+
+    // No interrupt: a thread stopped inside UCanAccess can close the database file.
+    // The call runs to completion and its result is discarded.
+    private void cancel(Call call) {
+        call.cancelled = true;
+        pending.remove(call);
+        updateProgress();
+    }
+
+    private void updateProgress() {
+        boolean busy = !pending.isEmpty();
+        progressBar.setVisible(busy);
+        owner.setCursor(busy ? Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR) : Cursor.getDefaultCursor());
+    }
+
+    private static final class Call {
+        volatile boolean cancelled;
+    }
+
+
+    // =========================================================================
+    // SHARED EXECUTOR: virtual threads when asked for and available
+    // =========================================================================
+    private static ExecutorService createExecutor() {
+        if (Boolean.getBoolean("slms.ui.virtualThreads")) {
+            try {
+                // Looked up reflectively so the code still compiles and runs on Java 17
+                Method factory = java.util.concurrent.Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+                return (ExecutorService) factory.invoke(null);
+            } catch (ReflectiveOperationException e) {
+                System.out.println("Virtual threads not available on this JVM; using a thread pool");
+            }
+        }
+
+        // Enough to overlap a few screens without crowding the connection pool
+        AtomicInteger counter = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(4, 4, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), r -> {
+                    Thread t = new Thread(r, "slms-ui-worker-" + counter.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+}
@@ -0,0 +1,167 @@
+package UI;
+
+import controllers.AuditLogController;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.swing.table.AbstractTableModel;
+import models.AuditLog;
+
+/**
+ * Virtual table model for the audit log. Only the row count is known up
+ * front; rows are fetched a page at a time when the table first asks for
+ * them, using keyset queries from a neighbouring cached page (or an offset
+ * query after a jump), and the page after each one is prefetched. At most
+ * MAX_CACHED_PAGES pages are held, so memory stays flat however long the
+ * log grows.
+ *
+ * Must only be used on the event dispatch thread.
+ */
+public class AuditLogTableModel extends AbstractTableModel {
+
+    private static final int PAGE_SIZE = 100;
+    private static final int MAX_CACHED_PAGES = 20;
+
+    // A queued page further than this from the latest request is skipped (the user scrolled past it)
+    private static final int STALE_PAGE_DISTANCE = 3;
+
+    private static final String[] COLUMNS = {"Log ID", "User ID", "Action", "Target", "Time"};
+
+    private final AuditLogController controller;
+    private final AsyncRunner runner;
+
+    private final Map<Integer, List<AuditLog>> pages = new LinkedHashMap<Integer, List<AuditLog>>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, List<AuditLog>> eldest) {
+            return size() > MAX_CACHED_PAGES;
+        }
+    };
+    private final Set<Integer> loading = new HashSet<>();
+
+    private Integer userId;
+    private String action;
+    private int rowCount;
+    private int generation;
+    private volatile int lastRequestedPage;
+
+    public AuditLogTableModel(AuditLogController controller, AsyncRunner runner) {
+        this.controller = controller;
+        this.runner = runner;
+    }
+
+
+    // =========================================================================
+    // RELOAD WITH A NEW FILTER (null = any)
+    // =========================================================================
+    public void reload(Integer userId, String action) {
+        this.userId = userId;
+        this.action = action;
+
+        generation++;
+        pages.clear();
+        loading.clear();
+        rowCount = 0;
+        fireTableDataChanged();
+
+        int gen = generation;
+        runner.submit("count", () -> controller.countLogs(userId, action), count -> {
+            if (gen != generation) return;
+            rowCount = count;
+            fireTableDataChanged();
+        });
+    }
+
+
+    // =========================================================================
+    // TABLE MODEL
+    // =========================================================================
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMNS.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMNS[column];
+    }
+
+    @Override
+    public boolean isCellEditable(int row, int column) {
+        return false;
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        int page = row / PAGE_SIZE;
+        List<AuditLog> rows = pages.get(page);
+
+        if (rows == null) {
+            requestPage(page, false);
+            return column == 2 ? "Loading..." : null;
+        }
+
+        int index = row % PAGE_SIZE;
+        if (index >= rows.size()) return null; // log shrank since it was counted
+
+        AuditLog log = rows.get(index);
+        switch (column) {
+            case 0: return log.getLogId();
+            case 1: return log.getUserId();
+            case 2: return log.getAction();
+            case 3: return log.getTargetType();
+            case 4: return log.getLogTime();
+            default: return null;
+        }
+    }
+
+
+    // =========================================================================
+    // PAGE LOADING
+    // =========================================================================
+    private void requestPage(int page, boolean prefetch) {
+        if (loading.contains(page) || pages.containsKey(page)) return;
+        loading.add(page);
+        if (!prefetch) lastRequestedPage = page;
+
+        // Seek from whichever neighbour is cached; otherwise fall back to an offset query
+        List<AuditLog> before = pages.get(page - 1);
+        List<AuditLog> after = pages.get(page + 1);
+        AuditLog olderThan = before != null && !before.isEmpty() ? before.get(before.size() - 1) : null;
+        AuditLog newerThan = after != null && !after.isEmpty() ? after.get(0) : null;
+
+        int gen = generation;
+        Integer userId = this.userId;
+        String action = this.action;
+
+        runner.submit("page:" + page, () -> {
+            if (Math.abs(page - lastRequestedPage) > STALE_PAGE_DISTANCE) return null;
+
+            if (page == 0) return controller.getLogsPage(null, true, userId, action, PAGE_SIZE);
+            if (olderThan != null) return controller.getLogsPage(olderThan, true, userId, action, PAGE_SIZE);
+            if (newerThan != null) return controller.getLogsPage(newerThan, false, userId, action, PAGE_SIZE);
+            return controller.getLogsPageAt(page * PAGE_SIZE, userId, action, PAGE_SIZE);
+
+        }, rows -> {
+            if (gen != generation) return;
+            loading.remove(page);
+            if (rows == null) return; // skipped as stale; asked for again if it comes back into view
+
+            pages.put(page, rows);
+            int first = page * PAGE_SIZE;
+            int last = Math.min(rowCount, first + PAGE_SIZE) - 1;
+            if (last >= first) fireTableRowsUpdated(first, last);
+
+            // Scrolling usually continues downwards; the next page is one cheap keyset query away
+            if (!prefetch && (page + 1) * PAGE_SIZE < rowCount) {
+                requestPage(page + 1, true);
+            }
+        });
+    }
+}
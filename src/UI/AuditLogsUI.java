@@ -1,16 +1,19 @@
 package UI;
 
 import controllers.AuditLogController;
-import models.AuditLog;
+import controllers.LibraryContext;
+import db.TableExporter;
 
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
 import javax.swing.table.JTableHeader;
 import java.awt.*;
 import javax.swing.border.EmptyBorder;
 import javax.swing.border.LineBorder;
 import javax.swing.border.MatteBorder;
-import java.util.List;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.SQLException;
 
 public class AuditLogsUI extends JFrame {
 
@@ -18,9 +21,11 @@ public class AuditLogsUI extends JFrame {
     private JTextField actionField;
 
     private JTable table;
-    private DefaultTableModel tableModel;
+    private AuditLogTableModel tableModel;
 
+    private final LibraryContext context;
     private final AuditLogController logController;
+    private final AsyncRunner runner = new AsyncRunner(this);
 
     // Corporate Palette (from temp UI theme)
     private final Color SIDEBAR_COLOR = new Color(245, 246, 250);
@@ -29,7 +34,8 @@ public class AuditLogsUI extends JFrame {
     private final Color BORDER_COLOR = new Color(210, 218, 226);
 
     public AuditLogsUI(String dbPath) {
-        logController = new AuditLogController(dbPath);
+        context = LibraryContext.forDatabase(dbPath);
+        logController = context.getAuditLogController();
         initializeUI();
         loadAllLogs();
     }
@@ -90,6 +96,11 @@ public class AuditLogsUI extends JFrame {
         gbc.gridy = 6;
         leftPanel.add(resetBtn, gbc);
 
+        JButton exportBtn = createStyledButton("Export...", TEXT_COLOR);
+        exportBtn.setToolTipText("Save the audit log, fines or issue history as CSV or JSON (.gz to compress)");
+        gbc.gridy = 7;
+        leftPanel.add(exportBtn, gbc);
+
         // ================= RIGHT: DATA TABLE =================
         JPanel rightPanel = new JPanel(new BorderLayout());
         rightPanel.setBackground(Color.WHITE);
@@ -100,9 +111,7 @@ public class AuditLogsUI extends JFrame {
         tableLabel.setBorder(new EmptyBorder(0, 0, 15, 0));
         rightPanel.add(tableLabel, BorderLayout.NORTH);
 
-        tableModel = new DefaultTableModel(
-                new String[]{"Log ID", "User ID", "Action", "Target", "Time"}, 0
-        );
+        tableModel = new AuditLogTableModel(logController, runner);
         table = new JTable(tableModel);
         styleTable(table);
         JScrollPane scrollPane = new JScrollPane(table);
@@ -112,6 +121,7 @@ public class AuditLogsUI extends JFrame {
         mainPanel.add(leftPanel, BorderLayout.WEST);
         mainPanel.add(rightPanel, BorderLayout.CENTER);
         add(mainPanel);
+        add(runner.getProgressBar(), BorderLayout.SOUTH);
 
         // ================= EVENTS =================
         loadBtn.addActionListener(e -> applyFilters());
@@ -120,6 +130,7 @@ public class AuditLogsUI extends JFrame {
             actionField.setText("");
             loadAllLogs();
         });
+        exportBtn.addActionListener(e -> exportTable());
     }
 
     // ================= UI HELPERS (STYLE ONLY) =================
@@ -159,42 +170,57 @@ public class AuditLogsUI extends JFrame {
     // ================= LOGIC =================
 
     private void loadAllLogs() {
-        tableModel.setRowCount(0);
-        List<AuditLog> logs = logController.getAllLogs();
-
-        for (AuditLog log : logs) {
-            addRow(log);
-        }
+        tableModel.reload(null, null);
     }
 
     private void applyFilters() {
-        tableModel.setRowCount(0);
-
         String userIdText = userIdField.getText().trim();
         String actionText = actionField.getText().trim();
 
-        List<AuditLog> logs;
-
         if (!userIdText.isEmpty()) {
-            logs = logController.getLogsByUser(Integer.parseInt(userIdText));
+            tableModel.reload(Integer.parseInt(userIdText), null);
         } else if (!actionText.isEmpty()) {
-            logs = logController.getLogsByAction(actionText);
+            tableModel.reload(null, actionText);
         } else {
-            logs = logController.getAllLogs();
-        }
-
-        for (AuditLog log : logs) {
-            addRow(log);
+            loadAllLogs();
         }
     }
 
-    private void addRow(AuditLog log) {
-        tableModel.addRow(new Object[]{
-                log.getLogId(),
-                log.getUserId(),
-                log.getAction(),
-                log.getTargetType(),
-                log.getLogTime()
+    // Streams the chosen table to a file in the background; format and compression follow the file name
+    private void exportTable() {
+        String[] tables = {"AuditLog", "Fines", "IssueTransactions"};
+        String table = (String) JOptionPane.showInputDialog(this, "Table to export:", "Export",
+                JOptionPane.QUESTION_MESSAGE, null, tables, tables[0]);
+        if (table == null) return;
+
+        JFileChooser chooser = new JFileChooser();
+        chooser.setSelectedFile(new File(table + ".csv"));
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) return;
+
+        Path file = chooser.getSelectedFile().toPath();
+        TableExporter.Format format = TableExporter.formatOf(file);
+        boolean gzip = TableExporter.isGzip(file);
+
+        runner.execute("export", () -> table.equals("AuditLog")
+                ? logController.exportLogs(file, format, gzip)
+                : exportOtherTable(table, file, format, gzip), rows -> {
+            if (rows < 0) {
+                JOptionPane.showMessageDialog(this, "Export failed", "Error", JOptionPane.ERROR_MESSAGE);
+            } else {
+                JOptionPane.showMessageDialog(this, rows + " rows written to " + file, "Export Finished",
+                        JOptionPane.INFORMATION_MESSAGE);
+            }
         });
     }
+
+    private long exportOtherTable(String table, Path file, TableExporter.Format format, boolean gzip) {
+        try {
+            return new TableExporter(context.getConnectionPool()).exportTable(table, format, file, gzip);
+
+        } catch (IOException | SQLException e) {
+            System.out.println("Error exporting " + table + ":");
+            e.printStackTrace();
+            return -1;
+        }
+    }
 }
@@ -2,6 +2,7 @@ package UI;
 
 import controllers.BookController;
 import controllers.BookCopyController;
+import controllers.LibraryContext;
 import models.Book;
 import models.BookCopy;
 
@@ -26,6 +27,7 @@ public class BookCopiesUI extends JFrame {
 
     private final BookController bookController;
     private final BookCopyController copyController;
+    private final AsyncRunner runner = new AsyncRunner(this);
 
     private int selectedCopyId = -1;
 
@@ -37,8 +39,9 @@ public class BookCopiesUI extends JFrame {
     private final Color DANGER_RED = new Color(231, 76, 60);
 
     public BookCopiesUI(String dbPath) {
-        bookController = new BookController(dbPath);
-        copyController = new BookCopyController(dbPath);
+        LibraryContext context = LibraryContext.forDatabase(dbPath);
+        bookController = context.getBookController();
+        copyController = context.getBookCopyController();
 
         initializeUI();
         loadBooks();
@@ -116,6 +119,7 @@ public class BookCopiesUI extends JFrame {
         rightPanel.add(scrollPane, BorderLayout.CENTER);
 
         add(rightPanel, BorderLayout.CENTER);
+        add(runner.getProgressBar(), BorderLayout.SOUTH);
 
         // ================= EVENTS =================
         addBtn.addActionListener(e -> addCopy());
@@ -216,36 +220,40 @@ class CopiesLayout extends FlowLayout {
     // ================= LOGIC =================
 
     private void loadBooks() {
-        bookCombo.removeAllItems();
-        List<Book> books = bookController.getAllBooks();
+        runner.submit("books", bookController::getAllBooks, books -> {
+            bookCombo.removeAllItems();
 
-        for (Book b : books) {
-            bookCombo.addItem(b);
-        }
+            for (Book b : books) {
+                bookCombo.addItem(b);
+            }
 
-        if (!books.isEmpty()) {
-            bookCombo.setSelectedIndex(0);
-            loadCopiesForSelectedBook();
-        }
+            if (!books.isEmpty()) {
+                bookCombo.setSelectedIndex(0);
+                loadCopiesForSelectedBook();
+            }
+        });
     }
 
+    // Switching books quickly supersedes the previous load, so only the last selection is shown
     private void loadCopiesForSelectedBook() {
         tableModel.setRowCount(0);
 
         Book selectedBook = (Book) bookCombo.getSelectedItem();
         if (selectedBook == null) return;
 
-        List<BookCopy> copies = copyController.getCopiesOfBook(selectedBook.getBookId());
-
-        for (BookCopy c : copies) {
-            tableModel.addRow(new Object[]{
-                    c.getCopyId(),
-                    c.getCopyNumber(),
-                    c.getBarcode(),
-                    c.getLocation(),
-                    c.getStatus()
-            });
-        }
+        runner.submit("copies", () -> copyController.getCopiesOfBook(selectedBook.getBookId()), copies -> {
+            tableModel.setRowCount(0);
+
+            for (BookCopy c : copies) {
+                tableModel.addRow(new Object[]{
+                        c.getCopyId(),
+                        c.getCopyNumber(),
+                        c.getBarcode(),
+                        c.getLocation(),
+                        c.getStatus()
+                });
+            }
+        });
     }
 
     private void addCopy() {
@@ -255,12 +263,14 @@ class CopiesLayout extends FlowLayout {
         BookCopy c = buildCopyFromForm();
         c.setBookId(book.getBookId());
 
-        if (copyController.createCopy(c)) {
-            loadCopiesForSelectedBook();
-            clearForm();
-        } else {
-            showError("Failed to add copy");
-        }
+        runner.execute("save", () -> copyController.createCopy(c), ok -> {
+            if (ok) {
+                loadCopiesForSelectedBook();
+                clearForm();
+            } else {
+                showError("Failed to add copy");
+            }
+        });
     }
 
     private void updateCopy() {
@@ -274,12 +284,14 @@ class CopiesLayout extends FlowLayout {
         c.setCopyId(selectedCopyId);
         c.setBookId(book.getBookId());
 
-        if (copyController.updateCopy(c)) {
-            loadCopiesForSelectedBook();
-            clearForm();
-        } else {
-            showError("Failed to update copy");
-        }
+        runner.execute("save", () -> copyController.updateCopy(c), ok -> {
+            if (ok) {
+                loadCopiesForSelectedBook();
+                clearForm();
+            } else {
+                showError("Failed to update copy");
+            }
+        });
     }
 
     private void deleteCopy() {
@@ -296,9 +308,11 @@ class CopiesLayout extends FlowLayout {
         );
 
         if (confirm == JOptionPane.YES_OPTION) {
-            copyController.deleteCopy(selectedCopyId);
-            loadCopiesForSelectedBook();
-            clearForm();
+            int copyId = selectedCopyId;
+            runner.execute("save", () -> copyController.deleteCopy(copyId), ok -> {
+                loadCopiesForSelectedBook();
+                clearForm();
+            });
         }
     }
 
@@ -1,14 +1,20 @@
 package UI;
 
 import controllers.BookController;
+import controllers.LibraryContext;
+import importer.CatalogueImporter;
+import importer.ImportConfig;
+import importer.ImportStats;
 import models.Book;
 
 import javax.swing.*;
+import javax.swing.filechooser.FileNameExtensionFilter;
 import javax.swing.table.DefaultTableModel;
 import javax.swing.table.JTableHeader;
 import java.awt.*;
 import javax.swing.border.EmptyBorder;
 import javax.swing.border.LineBorder;
+import java.nio.file.Path;
 import java.util.List;
 
 public class BooksUI extends JFrame {
@@ -26,7 +32,9 @@ public class BooksUI extends JFrame {
     private JTable table;
     private DefaultTableModel tableModel;
 
+    private final LibraryContext context;
     private final BookController bookController;
+    private final AsyncRunner runner = new AsyncRunner(this);
     private int selectedBookId = -1;
 
     // --- Consistent Palette (from temp UI theme) ---
@@ -37,7 +45,8 @@ public class BooksUI extends JFrame {
     private final Color DANGER_RED = new Color(231, 76, 60);
 
     public BooksUI(String dbPath) {
-        bookController = new BookController(dbPath);
+        context = LibraryContext.forDatabase(dbPath);
+        bookController = context.getBookController();
         initializeUI();
         loadBooks();
     }
@@ -135,12 +144,15 @@ public class BooksUI extends JFrame {
             new EmptyBorder(5, 10, 5, 10)
         ));
 
-        JPanel searchBtns = new JPanel(new GridLayout(1, 2, 10, 0));
+        JPanel searchBtns = new JPanel(new GridLayout(1, 3, 10, 0));
         searchBtns.setOpaque(false);
         JButton searchBtn = createBtn("Search", ACCENT_BLUE);
         JButton showAllBtn = createBtn("Show All", new Color(127, 140, 141));
+        JButton importBtn = createBtn("Import...", SIDEBAR_TOP);
+        importBtn.setToolTipText("Add books and copies from a CSV or MARC21 (.mrc) catalogue file");
         searchBtns.add(searchBtn);
         searchBtns.add(showAllBtn);
+        searchBtns.add(importBtn);
 
         JPanel searchLeft = new JPanel(new BorderLayout(8, 0));
         searchLeft.setOpaque(false);
@@ -165,6 +177,7 @@ public class BooksUI extends JFrame {
         rightPanel.add(scrollPane, BorderLayout.CENTER);
 
         add(rightPanel, BorderLayout.CENTER);
+        add(runner.getProgressBar(), BorderLayout.SOUTH);
 
         // ================= EVENTS =================
         addBtn.addActionListener(e -> addBook());
@@ -179,6 +192,7 @@ public class BooksUI extends JFrame {
             table.clearSelection();
             loadBooks();
         });
+        importBtn.addActionListener(e -> importCatalogue());
 
         table.getSelectionModel().addListSelectionListener(e -> fillFormFromTable());
     }
@@ -220,38 +234,26 @@ public class BooksUI extends JFrame {
     // ================= LOGIC =================
 
     private void loadBooks() {
-        tableModel.setRowCount(0);
-        List<Book> books = bookController.getAllBooks();
-
-        for (Book b : books) {
-            tableModel.addRow(new Object[]{
-                    b.getBookId(),
-                    b.getTitle(),
-                    b.getAuthor(),
-                    b.getISBN(),
-                    b.getCategory(),
-                    b.getTotalQuantity(),
-                    b.getAvailableQuantity(),
-                    b.getStatus()
-            });
-        }
+        runner.submit("table", bookController::getAllBooks, this::showBooks);
     }
 
     private void searchBooks() {
         String query = searchField.getText().trim();
 
+        selectedBookId = -1;
+        table.clearSelection();
+
         if (query.isEmpty()) {
-            selectedBookId = -1;
-            table.clearSelection();
             loadBooks();
             return;
         }
 
+        runner.submit("table", () -> bookController.searchBooks(query), this::showBooks);
+    }
+
+    private void showBooks(List<Book> books) {
         tableModel.setRowCount(0);
-        selectedBookId = -1;
-        table.clearSelection();
 
-        List<Book> books = bookController.searchBooks(query);
         for (Book b : books) {
             tableModel.addRow(new Object[]{
                     b.getBookId(),
@@ -269,12 +271,14 @@ public class BooksUI extends JFrame {
     private void addBook() {
         Book b = buildBookFromForm();
 
-        if (bookController.createBook(b)) {
-            loadBooks();
-            clearForm();
-        } else {
-            showError("Failed to add book");
-        }
+        runner.execute("save", () -> bookController.createBook(b), ok -> {
+            if (ok) {
+                loadBooks();
+                clearForm();
+            } else {
+                showError("Failed to add book");
+            }
+        });
     }
 
     private void updateBook() {
@@ -286,12 +290,14 @@ public class BooksUI extends JFrame {
         Book b = buildBookFromForm();
         b.setBookId(selectedBookId);
 
-        if (bookController.updateBook(b)) {
-            loadBooks();
-            clearForm();
-        } else {
-            showError("Failed to update book");
-        }
+        runner.execute("save", () -> bookController.updateBook(b), ok -> {
+            if (ok) {
+                loadBooks();
+                clearForm();
+            } else {
+                showError("Failed to update book");
+            }
+        });
     }
 
     private void deleteBook() {
@@ -308,9 +314,11 @@ public class BooksUI extends JFrame {
         );
 
         if (confirm == JOptionPane.YES_OPTION) {
-            bookController.deleteBook(selectedBookId);
-            loadBooks();
-            clearForm();
+            int bookId = selectedBookId;
+            runner.execute("save", () -> bookController.deleteBook(bookId), ok -> {
+                loadBooks();
+                clearForm();
+            });
         }
     }
 
@@ -340,6 +348,47 @@ public class BooksUI extends JFrame {
         return b;
     }
 
+    // Runs the bulk importer in the background; the window title shows how far it has got
+    private void importCatalogue() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setFileFilter(new FileNameExtensionFilter("Catalogue files (CSV, MARC21)", "csv", "mrc", "marc"));
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) return;
+
+        Path file = chooser.getSelectedFile().toPath();
+        String title = getTitle();
+        CatalogueImporter importer = new CatalogueImporter(context.getConnectionPool(), new ImportConfig());
+
+        runner.execute("import", () -> importer.importFile(file, stats -> SwingUtilities.invokeLater(() ->
+                setTitle(title + " | Importing: " + stats.getRecordsRead() + " records read"))), stats -> {
+            setTitle(title);
+            showImportSummary(stats);
+
+            runner.submit("table", () -> {
+                bookController.buildSearchIndex();
+                return bookController.getAllBooks();
+            }, this::showBooks);
+        });
+    }
+
+    private void showImportSummary(ImportStats stats) {
+        StringBuilder msg = new StringBuilder()
+                .append("Books imported: ").append(stats.getBooksImported())
+                .append("\nCopies created: ").append(stats.getCopiesCreated())
+                .append("\nDuplicate ISBNs skipped: ").append(stats.getDuplicates())
+                .append("\nInvalid records skipped: ").append(stats.getInvalid());
+        if (stats.getResumedAfter() > 0) {
+            msg.append("\n(resumed after record ").append(stats.getResumedAfter()).append(")");
+        }
+
+        int shown = Math.min(10, stats.getProblems().size());
+        if (shown > 0) msg.append("\n\nFirst problems:");
+        for (int i = 0; i < shown; i++) {
+            msg.append("\n  ").append(stats.getProblems().get(i));
+        }
+
+        JOptionPane.showMessageDialog(this, msg.toString(), "Import Finished", JOptionPane.INFORMATION_MESSAGE);
+    }
+
     private void clearForm() {
         selectedBookId = -1;
         titleField.setText("");
@@ -1,6 +1,6 @@
 package UI;
 
-import controllers.AuditLogController;
+import controllers.LibraryContext;
 import java.awt.*;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
@@ -103,9 +103,9 @@ public class DashboardUI extends JFrame {
         add(mainPanel, BorderLayout.CENTER);
 
         // BUTTON FUNCTIONALITY 
-        membersBtn.addActionListener(e -> new MembersUI().setVisible(true));
-        booksBtn.addActionListener(e -> new BooksUI().setVisible(true));
-        copiesBtn.addActionListener(e -> new BookCopiesUI().setVisible(true));
+        membersBtn.addActionListener(e -> new MembersUI(dbPath).setVisible(true));
+        booksBtn.addActionListener(e -> new BooksUI(dbPath).setVisible(true));
+        copiesBtn.addActionListener(e -> new BookCopiesUI(dbPath).setVisible(true));
         issueBtn.addActionListener(e -> new IssueReturnUI(loggedInUser, dbPath).setVisible(true));
         finesBtn.addActionListener(e -> new FinesUI(loggedInUser, dbPath).setVisible(true));
         logsBtn.addActionListener(e -> new AuditLogsUI(dbPath).setVisible(true));
@@ -113,7 +113,7 @@ public class DashboardUI extends JFrame {
 
         logoutBtn.addActionListener(e -> {
             // Log logout before returning to login screen
-            new AuditLogController(dbPath).logAction(loggedInUser.getUserId(), "LOGOUT", "AUTH");
+            LibraryContext.forDatabase(dbPath).getAuditLogController().logAction(loggedInUser.getUserId(), "LOGOUT", "AUTH");
 
             dispose();
             new LoginUI(dbPath).setVisible(true); // Using the passed dbPath
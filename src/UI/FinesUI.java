@@ -2,9 +2,13 @@ package UI;
 
 import controllers.AuditLogController;
 import controllers.FineController;
+import controllers.LibraryContext;
 import controllers.MemberController;
+import controllers.OverdueController;
 import java.awt.*;
+import java.math.BigDecimal;
 import java.util.List;
+import java.util.Map;
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
 import javax.swing.border.LineBorder;
@@ -13,6 +17,7 @@ import javax.swing.table.DefaultTableModel;
 import javax.swing.table.JTableHeader;
 import models.Fine;
 import models.Member;
+import models.PaymentTransaction;
 import models.Users;
 
 public class FinesUI extends JFrame {
@@ -20,11 +25,14 @@ public class FinesUI extends JFrame {
     private JTextField studentIdField;
     private JTable table;
     private DefaultTableModel tableModel;
+    private JLabel balanceLabel;
 
     private final MemberController memberController;
     private final FineController fineController;
+    private final OverdueController overdueController;
     private final AuditLogController auditLogController;
     private final Users loggedInUser;
+    private final AsyncRunner runner = new AsyncRunner(this);
 
     private int selectedFineId = -1;
 
@@ -37,9 +45,11 @@ public class FinesUI extends JFrame {
 
     public FinesUI(Users user, String dbPath) {
         this.loggedInUser = user;
-        memberController = new MemberController(dbPath);
-        fineController = new FineController(dbPath);
-        auditLogController = new AuditLogController(dbPath);
+        LibraryContext context = LibraryContext.forDatabase(dbPath);
+        memberController = context.getMemberController();
+        fineController = context.getFineController();
+        overdueController = context.getOverdueController();
+        auditLogController = context.getAuditLogController();
 
         initializeUI();
     }
@@ -97,12 +107,17 @@ public class FinesUI extends JFrame {
         gbc.gridy = 4;
         leftPanel.add(sep, gbc);
 
-        JButton payBtn = createStyledButton("Mark Paid", SUCCESS_GREEN);
+        JButton recordBtn = createStyledButton("Record Payment", ACCENT_COLOR);
         gbc.gridy = 5;
+        leftPanel.add(recordBtn, gbc);
+
+        JButton payBtn = createStyledButton("Mark Paid", SUCCESS_GREEN);
+        gbc.insets = new Insets(10, 25, 10, 25);
+        gbc.gridy = 6;
         leftPanel.add(payBtn, gbc);
 
         JButton waiveBtn = createStyledButton("Waive", new Color(127, 140, 141));
-        gbc.gridy = 6;
+        gbc.gridy = 7;
         leftPanel.add(waiveBtn, gbc);
 
         // ================= RIGHT: TABLE PANEL =================
@@ -116,7 +131,7 @@ public class FinesUI extends JFrame {
         rightPanel.add(tableLabel, BorderLayout.NORTH);
 
         tableModel = new DefaultTableModel(
-            new String[]{"Fine ID", "Issue ID", "Amount", "Days", "Status"}, 0
+            new String[]{"Fine ID", "Issue ID", "Amount", "Paid", "Outstanding", "Days", "Status"}, 0
         );
         table = new JTable(tableModel);
         styleTable(table);
@@ -124,12 +139,20 @@ public class FinesUI extends JFrame {
         scrollPane.setBorder(new LineBorder(BORDER_COLOR));
         rightPanel.add(scrollPane, BorderLayout.CENTER);
 
+        balanceLabel = new JLabel(" ");
+        balanceLabel.setFont(new Font("Segoe UI", Font.BOLD, 13));
+        balanceLabel.setForeground(TEXT_COLOR);
+        balanceLabel.setBorder(new EmptyBorder(15, 0, 0, 0));
+        rightPanel.add(balanceLabel, BorderLayout.SOUTH);
+
         mainPanel.add(leftPanel, BorderLayout.WEST);
         mainPanel.add(rightPanel, BorderLayout.CENTER);
         add(mainPanel);
+        add(runner.getProgressBar(), BorderLayout.SOUTH);
 
         // ================= EVENTS =================
         loadBtn.addActionListener(e -> loadFines());
+        recordBtn.addActionListener(e -> recordPayment());
         payBtn.addActionListener(e -> markPaid());
         waiveBtn.addActionListener(e -> waiveFine());
 
@@ -172,27 +195,79 @@ public class FinesUI extends JFrame {
 
     // ================= LOGIC =================
 
+    // A member's fines with what has been paid on each, their running balance,
+    // and what their overdue books have run up so far
+    private static final class MemberFines {
+        final List<Fine> fines;
+        final Map<Integer, BigDecimal> paid;
+        final BigDecimal balance;
+        final int overdueBooks;
+        final double accruing;
+
+        MemberFines(List<Fine> fines, Map<Integer, BigDecimal> paid, BigDecimal balance,
+                    int overdueBooks, double accruing) {
+            this.fines = fines;
+            this.paid = paid;
+            this.balance = balance;
+            this.overdueBooks = overdueBooks;
+            this.accruing = accruing;
+        }
+    }
+
     private void loadFines() {
         tableModel.setRowCount(0);
         selectedFineId = -1;
+        balanceLabel.setText(" ");
+
+        String studentId = studentIdField.getText().trim();
+
+        // null = no such member
+        runner.submit("table", () -> {
+            Member member = memberController.getMemberByStudentId(studentId);
+            if (member == null) return null;
+
+            int memberId = member.getMemberId();
+            return new MemberFines(fineController.getFinesForMember(memberId),
+                    fineController.getPaidByFine(memberId),
+                    fineController.getOutstandingBalance(memberId),
+                    overdueController.getOverdueLoansForMember(memberId).size(),
+                    overdueController.getAccruedFinesForMember(memberId));
+        }, this::showFines);
+    }
 
-        Member member = memberController.getMemberByStudentId(studentIdField.getText().trim());
-        if (member == null) {
+    private void showFines(MemberFines result) {
+        tableModel.setRowCount(0);
+        selectedFineId = -1;
+
+        if (result == null) {
             showError("Member not found");
             return;
         }
 
-        List<Fine> fines = fineController.getFinesForMember(member.getMemberId());
+        for (Fine f : result.fines) {
+            BigDecimal amount = BigDecimal.valueOf(f.getAmount());
+            BigDecimal paid = result.paid.getOrDefault(f.getFineId(), BigDecimal.ZERO);
+            BigDecimal outstanding = "UNPAID".equalsIgnoreCase(f.getStatus())
+                    ? amount.subtract(paid).max(BigDecimal.ZERO)
+                    : BigDecimal.ZERO;
 
-        for (Fine f : fines) {
             tableModel.addRow(new Object[]{
                     f.getFineId(),
                     f.getIssueId(),
                     f.getAmount(),
+                    paid.stripTrailingZeros().toPlainString(),
+                    outstanding.stripTrailingZeros().toPlainString(),
                     f.getOverdueDays(),
                     f.getStatus()
             });
         }
+
+        String text = "Balance owed: PKR " + result.balance.stripTrailingZeros().toPlainString();
+        if (result.overdueBooks > 0) {
+            text += "   (plus PKR " + result.accruing + " accruing on " + result.overdueBooks + " overdue book"
+                    + (result.overdueBooks == 1 ? ")" : "s)");
+        }
+        balanceLabel.setText(text);
     }
 
     private void selectFine() {
@@ -202,20 +277,69 @@ public class FinesUI extends JFrame {
         selectedFineId = (int) tableModel.getValueAt(row, 0);
     }
 
-    private void markPaid() {
+    private void recordPayment() {
         if (selectedFineId == -1) {
             showError("Select a fine first");
             return;
         }
 
-        if (fineController.markFineAsPaid(selectedFineId)) {
-            loadFines();
-            if (loggedInUser != null) {
-                auditLogController.logAction(loggedInUser.getUserId(), "FINE_PAID", "FINE:" + selectedFineId);
+        int fineId = selectedFineId;
+        Object outstanding = tableModel.getValueAt(table.getSelectedRow(), 4);
+
+        String input = JOptionPane.showInputDialog(this, "Amount received (PKR):", outstanding);
+        if (input == null) return;
+
+        double amount;
+        try {
+            amount = Double.parseDouble(input.trim());
+        } catch (NumberFormatException ex) {
+            showError("Enter an amount in PKR");
+            return;
+        }
+
+        if (amount <= 0) {
+            showError("Enter an amount greater than zero");
+            return;
+        }
+
+        runner.execute("save", () -> {
+            PaymentTransaction payment = fineController.payFine(fineId, amount);
+            if (payment != null && loggedInUser != null) {
+                auditLogController.logAction(loggedInUser.getUserId(), "FINE_PAYMENT",
+                        "FINE:" + fineId + " PAYMENT:" + payment.getPaymentId());
+            }
+            return payment != null;
+        }, ok -> {
+            if (ok) {
+                loadFines();
+            } else {
+                showError("Payment not recorded: the fine is not unpaid, or the amount is more than is owed");
             }
-        } else {
-            showError("Failed to mark fine as paid");
+        });
+    }
+
+    private void markPaid() {
+        if (selectedFineId == -1) {
+            showError("Select a fine first");
+            return;
         }
+
+        int fineId = selectedFineId;
+
+        // Audit in the background task, with the change it records
+        runner.execute("save", () -> {
+            boolean ok = fineController.markFineAsPaid(fineId);
+            if (ok && loggedInUser != null) {
+                auditLogController.logAction(loggedInUser.getUserId(), "FINE_PAID", "FINE:" + fineId);
+            }
+            return ok;
+        }, ok -> {
+            if (ok) {
+                loadFines();
+            } else {
+                showError("Failed to mark fine as paid");
+            }
+        });
     }
 
     private void waiveFine() {
@@ -232,11 +356,20 @@ public class FinesUI extends JFrame {
         );
 
         if (confirm == JOptionPane.YES_OPTION) {
-            fineController.waiveFine(selectedFineId);
-            loadFines();
-            if (loggedInUser != null) {
-                auditLogController.logAction(loggedInUser.getUserId(), "FINE_WAIVED", "FINE:" + selectedFineId);
-            }
+            int fineId = selectedFineId;
+            runner.execute("save", () -> {
+                boolean ok = fineController.waiveFine(fineId);
+                if (ok && loggedInUser != null) {
+                    auditLogController.logAction(loggedInUser.getUserId(), "FINE_WAIVED", "FINE:" + fineId);
+                }
+                return ok;
+            }, ok -> {
+                if (ok) {
+                    loadFines();
+                } else {
+                    showError("Fine is already paid or waived");
+                }
+            });
         }
     }
 
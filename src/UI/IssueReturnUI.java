@@ -3,7 +3,9 @@ package UI;
 import controllers.*;
 import java.awt.*;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
 import javax.swing.border.LineBorder;
@@ -16,13 +18,11 @@ public class IssueReturnUI extends JFrame {
     private JTextField barcodeField;
     private JTextArea outputArea;
 
-    private final MemberController memberController;
-    private final BookController bookController;
-    private final BookCopyController copyController;
     private final IssueController issueController;
-    private final FineController fineController;
+    private final ReservationController reservationController;
     private final AuditLogController auditLogController;
     private final Users loggedInUser;
+    private final AsyncRunner runner = new AsyncRunner(this);
 
     // Corporate Palette (from temp UI theme)
     private final Color SIDEBAR_COLOR = new Color(245, 246, 250);
@@ -32,12 +32,10 @@ public class IssueReturnUI extends JFrame {
 
     public IssueReturnUI(Users user, String dbPath) {
         this.loggedInUser = user;
-        memberController = new MemberController(dbPath);
-        bookController = new BookController(dbPath);
-        copyController = new BookCopyController(dbPath);
-        issueController = new IssueController(dbPath);
-        fineController = new FineController(dbPath);
-        auditLogController = new AuditLogController(dbPath);
+        LibraryContext context = LibraryContext.forDatabase(dbPath);
+        issueController = context.getIssueController();
+        reservationController = context.getReservationController();
+        auditLogController = context.getAuditLogController();
 
         initializeUI();
     }
@@ -85,17 +83,21 @@ public class IssueReturnUI extends JFrame {
         gbc.gridy = 2;
         leftPanel.add(studentIdField, gbc);
         gbc.gridy = 3;
-        leftPanel.add(new JLabel("Book Copy Barcode"), gbc);
+        leftPanel.add(new JLabel("Book Copy Barcode(s)"), gbc);
+        barcodeField.setToolTipText("Scan several barcodes, separated by spaces or commas, to issue or return a stack at once");
         gbc.gridy = 4;
         leftPanel.add(barcodeField, gbc);
 
-        JPanel btnPanel = new JPanel(new GridLayout(1, 2, 10, 0));
+        JPanel btnPanel = new JPanel(new GridLayout(1, 3, 10, 0));
         btnPanel.setOpaque(false);
 
         JButton issueBtn = createPrimaryButton("Issue Book", new Color(39, 174, 96));
         JButton returnBtn = createPrimaryButton("Return Book", ACCENT_COLOR);
+        JButton holdBtn = createPrimaryButton("Place Hold", new Color(142, 68, 173));
+        holdBtn.setToolTipText("Queue the member for a title with no copy on the shelf (scan a copy's barcode or enter the ISBN)");
         btnPanel.add(issueBtn);
         btnPanel.add(returnBtn);
+        btnPanel.add(holdBtn);
 
         gbc.gridy = 5;
         gbc.insets = new Insets(30, 25, 10, 25);
@@ -124,10 +126,12 @@ public class IssueReturnUI extends JFrame {
         mainPanel.add(leftPanel, BorderLayout.WEST);
         mainPanel.add(rightPanel, BorderLayout.CENTER);
         add(mainPanel);
+        add(runner.getProgressBar(), BorderLayout.SOUTH);
 
         // ================= EVENTS =================
         issueBtn.addActionListener(e -> issueBook());
         returnBtn.addActionListener(e -> returnBook());
+        holdBtn.addActionListener(e -> placeHold());
     }
 
     // ================= UI HELPERS (STYLE ONLY) =================
@@ -155,134 +159,169 @@ public class IssueReturnUI extends JFrame {
 
     // ================= LOGIC =================
 
+    // Every scan runs to the end and its receipt is added below those of scans still
+    // in flight; the output is only cleared when a new scan starts
+
     private void issueBook() {
         outputArea.setText("");
 
-        Member member = memberController.getMemberByStudentId(studentIdField.getText().trim());
-        if (member == null) {
-            log("Member not found");
-            return;
-        }
-
-        BookCopy copy = copyController.getCopyByBarcode(barcodeField.getText().trim());
-        if (copy == null) {
-            log("Book copy not found");
+        String studentId = studentIdField.getText().trim();
+        List<String> barcodes = scannedBarcodes();
+        if (barcodes.size() > 1) {
+            issueCart(studentId, barcodes);
             return;
         }
+        String barcode = barcodes.isEmpty() ? "" : barcodes.get(0);
 
-        if (!copyController.isCopyAvailable(copy.getCopyId())) {
-            log("Book copy is not available");
-            return;
-        }
+        runner.execute("desk", () -> {
+            CirculationReceipt receipt = issueController.checkout(studentId, barcode);
+            if (receipt.isSuccess() && loggedInUser != null) {
+                auditLogController.logAction(loggedInUser.getUserId(), "ISSUE", "COPY:" + receipt.getCopy().getCopyId());
+            }
+            return receipt;
+        }, this::showIssueReceipt);
+    }
 
-        if (issueController.memberHasIssuedBook(member.getMemberId())) {
-            log("Member already has an issued book");
-            return;
-        }
+    private void showIssueReceipt(CirculationReceipt receipt) {
+        log(receipt.getMessage());
+        if (!receipt.isSuccess()) return;
 
-        boolean success = issueController.issueBook(
-                member.getMemberId(),
-                copy.getCopyId(),
-                copy.getBookId()
-        );
+        appendIssueDetails(receipt.getMember(), receipt.getBook(), receipt.getIssue().getDueDate());
+    }
 
-        if (success) {
-            log("Book issued successfully");
+    private void placeHold() {
+        outputArea.setText("");
 
-            // --- Additional details (no change to existing issue logic) ---
-            int activeIssueId = getActiveIssueIdForCopy(copy.getCopyId());
-            IssueTransaction activeIssue = activeIssueId != -1 ? issueController.getIssueById(activeIssueId) : null;
-            Book book = bookController.getBookById(copy.getBookId());
-            appendIssueDetails(member, book, activeIssue != null ? activeIssue.getDueDate() : null);
+        String studentId = studentIdField.getText().trim();
+        // An ISBN may be typed with spaces, so the field is taken whole
+        String isbnOrBarcode = barcodeField.getText().trim();
 
-            if (loggedInUser != null) {
-                auditLogController.logAction(loggedInUser.getUserId(), "ISSUE", "COPY:" + copy.getCopyId());
+        runner.execute("desk", () -> {
+            CirculationReceipt receipt = reservationController.placeHold(studentId, isbnOrBarcode);
+            if (receipt.isSuccess() && loggedInUser != null) {
+                auditLogController.logAction(loggedInUser.getUserId(), "HOLD",
+                        "RESERVATION:" + receipt.getReservation().getReservationId());
             }
-        } else {
-            log("Failed to issue book");
-        }
+            return receipt;
+        }, receipt -> {
+            log(receipt.getMessage());
+            if (!receipt.isSuccess()) return;
+
+            log("----------------------------------------");
+            log("Hold Details");
+            log("Member Name     : " + formatFullName(receipt.getMember()));
+            log("Student/Reg ID  : " + safe(receipt.getMember().getStudentId()));
+            log("Book Title      : " + safe(receipt.getBook().getTitle()));
+            log("Reservation     : #" + receipt.getReservation().getReservationId());
+            log("----------------------------------------");
+        });
     }
 
     private void returnBook() {
         outputArea.setText("");
 
-        Member member = memberController.getMemberByStudentId(studentIdField.getText().trim());
-        if (member == null) {
-            log("Member not found");
-            return;
-        }
-
-        BookCopy copy = copyController.getCopyByBarcode(barcodeField.getText().trim());
-        if (copy == null) {
-            log("Book copy not found");
+        String studentId = studentIdField.getText().trim();
+        List<String> barcodes = scannedBarcodes();
+        if (barcodes.size() > 1) {
+            returnCart(studentId, barcodes);
             return;
         }
+        String barcode = barcodes.isEmpty() ? "" : barcodes.get(0);
+
+        runner.execute("desk", () -> {
+            CirculationReceipt receipt = issueController.checkin(studentId, barcode);
+            if (receipt.isSuccess() && loggedInUser != null) {
+                if (receipt.getFine() != null) {
+                    auditLogController.logAction(loggedInUser.getUserId(), "FINE_CREATED",
+                            "ISSUE:" + receipt.getIssue().getIssueId());
+                }
+                auditLogController.logAction(loggedInUser.getUserId(), "RETURN", "COPY:" + receipt.getCopy().getCopyId());
+                if (receipt.getReservation() != null) {
+                    auditLogController.logAction(loggedInUser.getUserId(), "HOLD_READY",
+                            "RESERVATION:" + receipt.getReservation().getReservationId());
+                }
+            }
+            return receipt;
+        }, this::showReturnReceipt);
+    }
 
-        // Must be currently issued
-        IssueTransaction activeIssue = issueController.getActiveIssueByCopyId(copy.getCopyId());
-        if (activeIssue == null) {
-            log("This book copy is not currently issued");
-            return;
-        }
+    private void showReturnReceipt(CirculationReceipt receipt) {
+        log(receipt.getMessage());
+        if (!receipt.isSuccess()) return;
 
-        // Must be issued to the same member attempting the return
-        if (activeIssue.getMemberId() != member.getMemberId()) {
-            log("Return denied: this copy is issued to another member (memberId=" + activeIssue.getMemberId() + ")");
-            return;
-        }
+        Fine fine = receipt.getFine();
+        IssueTransaction issue = receipt.getIssue();
 
-        IssueTransaction issue = issueController.getIssueById(activeIssue.getIssueId());
-        if (issue == null) {
-            log("Active issue record could not be loaded");
-            return;
-        }
-
-        boolean success = issueController.returnBook(
-                issue.getIssueId(),
-                copy.getCopyId(),
-                copy.getBookId()
+        appendReturnDetails(
+                receipt.getMember(),
+                receipt.getBook(),
+                issue.getDueDate(),
+                issue.getReturnDate(),
+                (fine != null ? fine.getAmount() : 0.0)
         );
+        appendHoldShelf(receipt.getReservation());
+    }
 
-        if (!success) {
-            log("Failed to return book");
-            return;
-        }
-
-        // ---------- Fine handling ----------
-        Fine fine = fineController.calculateFine(issue.getIssueId(), 10.0);
+    // A stack of books: all issued or returned together, audit entries queued together
 
-        if (fine != null && fine.getAmount() > 0) {
-            fineController.createFine(fine);
-            log("Book returned with fine: PKR " + fine.getAmount());
-            if (loggedInUser != null) {
-                auditLogController.logAction(loggedInUser.getUserId(), "FINE_CREATED", "ISSUE:" + issue.getIssueId());
+    private void issueCart(String studentId, List<String> barcodes) {
+        runner.execute("desk", () -> {
+            CartReceipt receipt = issueController.checkoutCart(studentId, barcodes);
+            if (receipt.isSuccess() && loggedInUser != null) {
+                List<String> targets = new ArrayList<>();
+                for (CirculationReceipt item : receipt.getItems()) targets.add("COPY:" + item.getCopy().getCopyId());
+                auditLogController.logActions(loggedInUser.getUserId(), "ISSUE", targets);
             }
-        } else {
-            log("Book returned successfully. No fine.");
-        }
+            return receipt;
+        }, receipt -> {
+            showCartOutcome(receipt);
+            for (CirculationReceipt item : receipt.getItems()) {
+                appendIssueDetails(receipt.getMember(), item.getBook(), item.getIssue().getDueDate());
+            }
+        });
+    }
 
-        // --- Additional details (no change to existing return logic) ---
-        IssueTransaction returnedIssue = issueController.getIssueById(issue.getIssueId());
-        Book book = bookController.getBookById(copy.getBookId());
-        appendReturnDetails(
-                member,
-                book,
-                returnedIssue != null ? returnedIssue.getDueDate() : issue.getDueDate(),
-                returnedIssue != null ? returnedIssue.getReturnDate() : null,
-                (fine != null ? fine.getAmount() : 0.0)
-        );
+    private void returnCart(String studentId, List<String> barcodes) {
+        runner.execute("desk", () -> {
+            CartReceipt receipt = issueController.checkinCart(studentId, barcodes);
+            if (receipt.isSuccess() && loggedInUser != null) {
+                List<String> fined = new ArrayList<>();
+                List<String> returned = new ArrayList<>();
+                List<String> held = new ArrayList<>();
+                for (CirculationReceipt item : receipt.getItems()) {
+                    if (item.getFine() != null) fined.add("ISSUE:" + item.getIssue().getIssueId());
+                    returned.add("COPY:" + item.getCopy().getCopyId());
+                    if (item.getReservation() != null) held.add("RESERVATION:" + item.getReservation().getReservationId());
+                }
+                auditLogController.logActions(loggedInUser.getUserId(), "FINE_CREATED", fined);
+                auditLogController.logActions(loggedInUser.getUserId(), "RETURN", returned);
+                auditLogController.logActions(loggedInUser.getUserId(), "HOLD_READY", held);
+            }
+            return receipt;
+        }, receipt -> {
+            showCartOutcome(receipt);
+            for (CirculationReceipt item : receipt.getItems()) {
+                Fine fine = item.getFine();
+                appendReturnDetails(receipt.getMember(), item.getBook(), item.getIssue().getDueDate(),
+                        item.getIssue().getReturnDate(), fine != null ? fine.getAmount() : 0.0);
+                appendHoldShelf(item.getReservation());
+            }
+        });
+    }
 
-        if (loggedInUser != null) {
-            auditLogController.logAction(loggedInUser.getUserId(), "RETURN", "COPY:" + copy.getCopyId());
-        }
+    private void showCartOutcome(CartReceipt receipt) {
+        log(receipt.getMessage());
+        for (String problem : receipt.getProblems()) log("  - " + problem);
     }
 
     // ================= HELPERS =================
 
-    private int getActiveIssueIdForCopy(int copyId) {
-        // Delegate to controller: active issue = status ISSUED and matching copyId
-        IssueTransaction it = issueController.getActiveIssueByCopyId(copyId);
-        return it != null ? it.getIssueId() : -1;
+    private List<String> scannedBarcodes() {
+        List<String> barcodes = new ArrayList<>();
+        for (String barcode : barcodeField.getText().trim().split("[,\\s]+")) {
+            if (!barcode.isEmpty()) barcodes.add(barcode);
+        }
+        return barcodes;
     }
 
     private void log(String msg) {
@@ -315,6 +354,13 @@ public class IssueReturnUI extends JFrame {
         log("----------------------------------------");
     }
 
+    // A returned copy set aside for the next hold on its title
+    private void appendHoldShelf(Reservation reservation) {
+        if (reservation == null) return;
+        log("Hold Shelf      : set aside for memberId=" + reservation.getMemberId()
+                + " (reservation #" + reservation.getReservationId() + ")");
+    }
+
     private String formatFullName(Member member) {
         String first = member != null ? member.getFirstName() : null;
         String last = member != null ? member.getLastName() : null;
@@ -1,5 +1,6 @@
 package UI;
 
+import controllers.LibraryContext;
 import controllers.UserController;
 import java.awt.*;
 import java.util.List;
@@ -23,6 +24,7 @@ public class LibrariansUI extends JFrame {
 
     private final UserController userController;
     private final Users loggedInUser;
+    private final AsyncRunner runner = new AsyncRunner(this);
     private int selectedUserId = -1;
 
     // --- Match MembersUI theme/palette ---
@@ -33,7 +35,7 @@ public class LibrariansUI extends JFrame {
 
     public LibrariansUI(Users user, String dbPath) {
         this.loggedInUser = user;
-        this.userController = new UserController(dbPath);
+        this.userController = LibraryContext.forDatabase(dbPath).getUserController();
 
         if (loggedInUser == null || !"ADMIN".equalsIgnoreCase(loggedInUser.getRole())) {
             JOptionPane.showMessageDialog(null, "Access denied: Admins only", "Unauthorized", JOptionPane.ERROR_MESSAGE);
@@ -129,6 +131,7 @@ public class LibrariansUI extends JFrame {
 
         rightPanel.add(scrollPane, BorderLayout.CENTER);
         add(rightPanel, BorderLayout.CENTER);
+        add(runner.getProgressBar(), BorderLayout.SOUTH);
 
         // EVENTS
         addBtn.addActionListener(e -> addLibrarian());
@@ -138,8 +141,11 @@ public class LibrariansUI extends JFrame {
     }
 
     private void loadLibrarians() {
+        runner.submit("table", () -> userController.getUsersByRole("LIBRARIAN"), this::showLibrarians);
+    }
+
+    private void showLibrarians(List<Users> librarians) {
         tableModel.setRowCount(0);
-        List<Users> librarians = userController.getUsersByRole("LIBRARIAN");
         for (Users u : librarians) {
             tableModel.addRow(new Object[]{
                     u.getUserId(),
@@ -171,12 +177,14 @@ public class LibrariansUI extends JFrame {
         u.setActive(activeCheck.isSelected());
         u.setPasswordHash(UserController.hashPassword(password));
 
-        if (userController.createUser(u)) {
-            loadLibrarians();
-            clearForm();
-        } else {
-            showError("Failed to add librarian user");
-        }
+        runner.execute("save", () -> userController.createUser(u), ok -> {
+            if (ok) {
+                loadLibrarians();
+                clearForm();
+            } else {
+                showError("Failed to add librarian user");
+            }
+        });
     }
 
     private void resetPassword() {
@@ -191,13 +199,15 @@ public class LibrariansUI extends JFrame {
             return;
         }
 
-        boolean ok = userController.resetPassword(selectedUserId, password);
-        if (ok) {
-            showInfo("Password reset successfully");
-            passwordField.setText("");
-        } else {
-            showError("Failed to reset password");
-        }
+        int userId = selectedUserId;
+        runner.execute("save", () -> userController.resetPassword(userId, password), ok -> {
+            if (ok) {
+                showInfo("Password reset successfully");
+                passwordField.setText("");
+            } else {
+                showError("Failed to reset password");
+            }
+        });
     }
 
     private void fillFormFromTable() {
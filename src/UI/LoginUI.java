@@ -1,7 +1,6 @@
 package UI;
 
-import controllers.AuditLogController;
-import controllers.UserController;
+import controllers.LibraryContext;
 import java.awt.*;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
@@ -13,8 +12,8 @@ public class LoginUI extends JFrame {
 
     private JTextField usernameField;
     private JPasswordField passwordField;
-    private final UserController userController;
     private final String dbPath;
+    private final AsyncRunner runner = new AsyncRunner(this);
 
     // --- Consistent Color Palette ---
     private final Color SIDEBAR_TOP = new Color(24, 28, 58);
@@ -24,7 +23,6 @@ public class LoginUI extends JFrame {
 
     public LoginUI(String dbPath) {
         this.dbPath = dbPath;
-        this.userController = new UserController(dbPath);
         initializeUI();
     }
 
@@ -94,6 +92,7 @@ public class LoginUI extends JFrame {
         card.add(passwordField);
         card.add(new JLabel(" ")); // Spacer
         card.add(loginButton);
+        card.add(runner.getProgressBar());
 
         backgroundPanel.add(card);
 
@@ -139,17 +138,23 @@ public class LoginUI extends JFrame {
             return;
         }
 
-        Users user = userController.login(username, password);
-
-        if (user != null && user.isActive()) {
-            // Log successful login
-            new AuditLogController(dbPath).logAction(user.getUserId(), "LOGIN", "AUTH");
-
-            dispose();
-            new DashboardUI(user, dbPath).setVisible(true);
-        } else {
-            JOptionPane.showMessageDialog(this, "Invalid credentials or inactive account", "Login Failed", JOptionPane.ERROR_MESSAGE);
-        }
+        // The first login also opens the database, which can take seconds
+        runner.submit("login", () -> {
+            LibraryContext context = LibraryContext.forDatabase(dbPath);
+            Users user = context.getUserController().login(username, password);
+            if (user != null && user.isActive()) {
+                // Log successful login
+                context.getAuditLogController().logAction(user.getUserId(), "LOGIN", "AUTH");
+            }
+            return user;
+        }, user -> {
+            if (user != null && user.isActive()) {
+                dispose();
+                new DashboardUI(user, dbPath).setVisible(true);
+            } else {
+                JOptionPane.showMessageDialog(this, "Invalid credentials or inactive account", "Login Failed", JOptionPane.ERROR_MESSAGE);
+            }
+        });
     }
 }
 
@@ -1,5 +1,6 @@
 package UI;
 
+import controllers.LibraryContext;
 import controllers.MemberController;
 import java.awt.*;
 import java.util.List;
@@ -16,6 +17,7 @@ public class MembersUI extends JFrame {
     private JTable table;
     private DefaultTableModel tableModel;
     private final MemberController memberController;
+    private final AsyncRunner runner = new AsyncRunner(this);
     private int selectedMemberId = -1;
 
     // --- Consistent Palette ---
@@ -26,7 +28,7 @@ public class MembersUI extends JFrame {
     private final Color DANGER_RED = new Color(231, 76, 60);
 
     public MembersUI(String dbPath) {
-        memberController = new MemberController(dbPath);
+        memberController = LibraryContext.forDatabase(dbPath).getMemberController();
         initializeUI();
         loadMembers();
     }
@@ -114,6 +116,7 @@ public class MembersUI extends JFrame {
 
         rightPanel.add(scrollPane, BorderLayout.CENTER);
         add(rightPanel, BorderLayout.CENTER);
+        add(runner.getProgressBar(), BorderLayout.SOUTH);
 
         //  EVENTS 
         addBtn.addActionListener(e -> addMember());
@@ -163,8 +166,11 @@ public class MembersUI extends JFrame {
 
     //LOGIC METHODS  
     private void loadMembers() {
+        runner.submit("table", memberController::getAllMembers, this::showMembers);
+    }
+
+    private void showMembers(List<Member> members) {
         tableModel.setRowCount(0);
-        List<Member> members = memberController.getAllMembers();
         for (Member m : members) {
             tableModel.addRow(new Object[]{
                 m.getMemberId(), m.getStudentId(), m.getFirstName(),
@@ -175,12 +181,14 @@ public class MembersUI extends JFrame {
 
     private void addMember() {
         Member m = buildMemberFromForm();
-        if (memberController.createMember(m)) {
-            loadMembers();
-            clearForm();
-        } else {
-            showError("Failed to add member");
-        }
+        runner.execute("save", () -> memberController.createMember(m), ok -> {
+            if (ok) {
+                loadMembers();
+                clearForm();
+            } else {
+                showError("Failed to add member");
+            }
+        });
     }
 
     private void updateMember() {
@@ -190,12 +198,14 @@ public class MembersUI extends JFrame {
         }
         Member m = buildMemberFromForm();
         m.setMemberId(selectedMemberId);
-        if (memberController.updateMember(m)) {
-            loadMembers();
-            clearForm();
-        } else {
-            showError("Failed to update member");
-        }
+        runner.execute("save", () -> memberController.updateMember(m), ok -> {
+            if (ok) {
+                loadMembers();
+                clearForm();
+            } else {
+                showError("Failed to update member");
+            }
+        });
     }
 
     private void deleteMember() {
@@ -205,9 +215,11 @@ public class MembersUI extends JFrame {
         }
         int confirm = JOptionPane.showConfirmDialog(this, "Delete selected member?", "Confirm", JOptionPane.YES_NO_OPTION);
         if (confirm == JOptionPane.YES_OPTION) {
-            memberController.deleteMember(selectedMemberId);
-            loadMembers();
-            clearForm();
+            int memberId = selectedMemberId;
+            runner.execute("save", () -> memberController.deleteMember(memberId), ok -> {
+                loadMembers();
+                clearForm();
+            });
         }
     }
 
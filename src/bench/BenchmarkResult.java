@@ -0,0 +1,66 @@
+package bench;
+
+import java.util.Locale;
+
+public class BenchmarkResult {
+private final String name;
+private final long operations;
+private final long elapsedNanos;
+private final long p50Nanos;
+private final long p90Nanos;
+private final long p99Nanos;
+private final long p999Nanos;
+private final long maxNanos;
+
+public BenchmarkResult(String name, long operations, long elapsedNanos,
+                       long p50Nanos, long p90Nanos, long p99Nanos, long p999Nanos, long maxNanos) {
+    this.name = name;
+    this.operations = operations;
+    this.elapsedNanos = elapsedNanos;
+    this.p50Nanos = p50Nanos;
+    this.p90Nanos = p90Nanos;
+    this.p99Nanos = p99Nanos;
+    this.p999Nanos = p999Nanos;
+    this.maxNanos = maxNanos;
+}
+
+    // Getters
+    public String getName() { return name; }
+    public long getOperations() { return operations; }
+    public long getElapsedNanos() { return elapsedNanos; }
+    public long getP50Nanos() { return p50Nanos; }
+    public long getP90Nanos() { return p90Nanos; }
+    public long getP99Nanos() { return p99Nanos; }
+    public long getP999Nanos() { return p999Nanos; }
+    public long getMaxNanos() { return maxNanos; }
+
+    public double getOpsPerSecond() {
+        return elapsedNanos == 0 ? 0.0 : operations * 1e9 / elapsedNanos;
+    }
+
+    public static String header() {
+        return String.format(Locale.ROOT, "%-24s %12s %10s %10s %10s %10s %10s",
+                "benchmark", "ops/s", "p50 us", "p90 us", "p99 us", "p99.9 us", "max us");
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "%-24s %12.1f %10.1f %10.1f %10.1f %10.1f %10.1f",
+                name, getOpsPerSecond(), micros(p50Nanos), micros(p90Nanos),
+                micros(p99Nanos), micros(p999Nanos), micros(maxNanos));
+    }
+
+    public static String csvHeader() {
+        return "label,benchmark,books,ops,opsPerSec,p50Us,p90Us,p99Us,p999Us,maxUs";
+    }
+
+    public String toCsv(String label, int books) {
+        return String.format(Locale.ROOT, "%s,%s,%d,%d,%.1f,%.1f,%.1f,%.1f,%.1f,%.1f",
+                label, name, books, operations, getOpsPerSecond(), micros(p50Nanos), micros(p90Nanos),
+                micros(p99Nanos), micros(p999Nanos), micros(maxNanos));
+    }
+
+    private static double micros(long nanos) {
+        return nanos / 1000.0;
+    }
+}
@@ -0,0 +1,76 @@
+package bench;
+
+/**
+ * Times an operation in a loop: a warm-up phase whose results are thrown
+ * away (so the JIT, the statement cache and the database's own caches
+ * settle), then a measured phase recording every call's latency.
+ */
+public class BenchmarkRunner {
+
+    public interface Operation {
+        void run() throws Exception;
+    }
+
+    private final long warmupNanos;
+    private final long measureNanos;
+
+    public BenchmarkRunner(long warmupMs, long measureMs) {
+        this.warmupNanos = warmupMs * 1_000_000L;
+        this.measureNanos = measureMs * 1_000_000L;
+    }
+
+
+    // =========================================================================
+    // ONE OPERATION
+    // =========================================================================
+    public BenchmarkResult run(String name, Operation op) throws Exception {
+        loop(op, null, warmupNanos, null, null);
+
+        LatencyRecorder samples = new LatencyRecorder();
+        long elapsed = loop(op, null, measureNanos, samples, null);
+        return samples.result(name, elapsed);
+    }
+
+
+    // =========================================================================
+    // TWO OPERATIONS THAT MUST ALTERNATE (e.g. issue then return the same copy)
+    // Each is timed on its own; the time spent in the other is excluded.
+    // =========================================================================
+    public BenchmarkResult[] runAlternating(String firstName, Operation first,
+                                            String secondName, Operation second) throws Exception {
+        loop(first, second, warmupNanos, null, null);
+
+        LatencyRecorder firstSamples = new LatencyRecorder();
+        LatencyRecorder secondSamples = new LatencyRecorder();
+        loop(first, second, measureNanos, firstSamples, secondSamples);
+
+        return new BenchmarkResult[]{
+                firstSamples.result(firstName, firstSamples.getBusyNanos()),
+                secondSamples.result(secondName, secondSamples.getBusyNanos())
+        };
+    }
+
+    // Returns the wall time spent; with two operations each recorder also tracks its own busy time
+    private long loop(Operation first, Operation second, long budget,
+                      LatencyRecorder firstSamples, LatencyRecorder secondSamples) throws Exception {
+        long start = System.nanoTime();
+        long now = start;
+
+        while (now - start < budget) {
+            long t0 = System.nanoTime();
+            first.run();
+            long t1 = System.nanoTime();
+            if (firstSamples != null) firstSamples.add(t1 - t0);
+
+            if (second != null) {
+                second.run();
+                long t2 = System.nanoTime();
+                if (secondSamples != null) secondSamples.add(t2 - t1);
+                now = t2;
+            } else {
+                now = t1;
+            }
+        }
+        return now - start;
+    }
+}
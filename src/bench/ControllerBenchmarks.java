@@ -0,0 +1,262 @@
+package bench;
+
+import controllers.AuditLogController;
+import controllers.BookController;
+import controllers.FineController;
+import controllers.IssueController;
+import controllers.LibraryContext;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import models.IssueTransaction;
+import policy.LoanPolicy;
+import policy.LoanRule;
+
+/**
+ * Throughput and latency of the controller hot paths against a database
+ * filled by DatasetGenerator. Runs on an in-memory database unless --db names a file,
+ * so numbers reflect the controllers and the engine rather than the disk.
+ *
+ * Usage: java bench.ControllerBenchmarks [--books=10000] [--warmup=3] [--time=10]
+ *            [--db=mem:bench] [--seed=1] [--csv=bench.csv] [--label=dev]
+ *
+ * With --csv, one line per benchmark is appended (with --label, e.g. a
+ * version) so results can be compared release over release.
+ */
+public class ControllerBenchmarks {
+
+    private static final long DAY_MS = 24L * 60 * 60 * 1000;
+    private static final int MAX_SAMPLE = 10000;
+    private static final int CART_SIZE = 10;
+
+    private final LibraryContext context;
+    private final Random random;
+
+    // Drawn from the database, so any generated (or real) dataset can be benchmarked
+    private final List<String> isbns = new ArrayList<>();
+    private final List<int[]> availableCopies = new ArrayList<>(); // copyId, bookId
+    private final List<String> availableBarcodes = new ArrayList<>(); // same copies, same order
+    private final List<Integer> memberIds = new ArrayList<>();
+    private final List<String> studentIds = new ArrayList<>(); // same members, same order
+    private int minIssueId;
+    private int maxIssueId;
+
+    public ControllerBenchmarks(LibraryContext context, long seed) {
+        this.context = context;
+        this.random = new Random(seed);
+    }
+
+    public static void main(String[] args) throws Exception {
+        int books = Integer.parseInt(option(args, "books", "10000"));
+        long warmupSec = Long.parseLong(option(args, "warmup", "3"));
+        long timeSec = Long.parseLong(option(args, "time", "10"));
+        long seed = Long.parseLong(option(args, "seed", "1"));
+        String db = option(args, "db", "mem:bench");
+        String csv = option(args, "csv", null);
+        String label = option(args, "label", "dev");
+
+        LibraryContext context = LibraryContext.forDatabase(db);
+        try {
+            // The startup indexer must finish on the empty database before seeding
+            while (!context.getBookController().isSearchIndexReady()) Thread.sleep(10);
+
+            DatasetConfig config = DatasetConfig.forBooks(books);
+            config.setSeed(seed);
+            new DatasetGenerator(context.getConnectionPool(), config, context.getAuditPartitions()).generate();
+            context.getBookController().buildSearchIndex();
+            context.getFineController().loadBalances();
+            context.getIssueController().loadLoans();
+
+            List<BenchmarkResult> results = new ControllerBenchmarks(context, seed)
+                    .runAll(new BenchmarkRunner(warmupSec * 1000, timeSec * 1000));
+
+            System.out.println(BenchmarkResult.header());
+            for (BenchmarkResult r : results) System.out.println(r);
+            System.out.println(context.getConnectionPool().getStats());
+
+            if (csv != null) appendCsv(csv, label, books, results);
+
+        } finally {
+            context.close();
+        }
+    }
+
+
+    // =========================================================================
+    // THE BENCHMARKS
+    // =========================================================================
+    public List<BenchmarkResult> runAll(BenchmarkRunner runner) throws Exception {
+        BookController bookController = context.getBookController();
+        IssueController issueController = context.getIssueController();
+        FineController fineController = context.getFineController();
+        AuditLogController logController = context.getAuditLogController();
+        loadSamples();
+
+        List<BenchmarkResult> results = new ArrayList<>();
+
+        results.add(runner.run("searchBooks", () ->
+                bookController.searchBooks(randomWords(1 + random.nextInt(2)))));
+
+        results.add(runner.run("getBookByISBN", () ->
+                bookController.getBookByISBN(isbns.get(random.nextInt(isbns.size())))));
+
+        // Any member may borrow any number of books while the circulation benchmarks run
+        LoanPolicy policy = context.getLoanPolicy();
+        LoanRule unlimited = new LoanRule();
+        unlimited.setMaxLoans(Integer.MAX_VALUE);
+        context.setLoanPolicy(LoanPolicy.compile(List.of(unlimited)));
+
+        // Issue a random available copy, then return it; each timed on its own
+        int[][] current = new int[1][];
+        for (BenchmarkResult r : runner.runAlternating(
+                "issueBook", () -> {
+                    current[0] = availableCopies.get(random.nextInt(availableCopies.size()));
+                    int memberId = memberIds.get(random.nextInt(memberIds.size()));
+                    issueController.issueBook(memberId, current[0][0], current[0][1]);
+                },
+                "returnBook", () -> {
+                    IssueTransaction issue = issueController.getActiveIssueByCopyId(current[0][0]);
+                    issueController.returnBook(issue.getIssueId(), current[0][0], current[0][1]);
+                })) {
+            results.add(r);
+        }
+
+        // A stack of CART_SIZE copies: one cart call against CART_SIZE single checkouts
+        // (divide by CART_SIZE for the per-item cost)
+        String[] member = new String[1];
+        List<String> stack = new ArrayList<>();
+
+        BenchmarkRunner.Operation pickStack = () -> {
+            member[0] = studentIds.get(random.nextInt(studentIds.size()));
+            stack.clear();
+            while (stack.size() < CART_SIZE) {
+                String barcode = availableBarcodes.get(random.nextInt(availableBarcodes.size()));
+                if (!stack.contains(barcode)) stack.add(barcode);
+            }
+        };
+
+        for (BenchmarkResult r : runner.runAlternating(
+                "checkout x" + CART_SIZE, () -> {
+                    pickStack.run();
+                    for (String barcode : stack) issueController.checkout(member[0], barcode);
+                },
+                "checkin x" + CART_SIZE, () -> {
+                    for (String barcode : stack) issueController.checkin(member[0], barcode);
+                })) {
+            results.add(r);
+        }
+
+        for (BenchmarkResult r : runner.runAlternating(
+                "checkoutCart (" + CART_SIZE + ")", () -> {
+                    pickStack.run();
+                    issueController.checkoutCart(member[0], stack);
+                },
+                "checkinCart (" + CART_SIZE + ")", () ->
+                    issueController.checkinCart(member[0], stack))) {
+            results.add(r);
+        }
+        context.setLoanPolicy(policy);
+
+        int issueSpan = maxIssueId - minIssueId + 1;
+        double dailyRate = policy.termsFor(null, null).getDailyRate();
+        results.add(runner.run("calculateFine", () ->
+                fineController.calculateFine(minIssueId + random.nextInt(issueSpan), dailyRate)));
+
+        // Reads first: logAction would leave a backlog for getLogsBetween's flush to wait on
+        long now = System.currentTimeMillis();
+        results.add(runner.run("getLogsBetween (1 day)", () -> {
+            long start = now - (long) (random.nextDouble() * 364 * DAY_MS);
+            logController.getLogsBetween(new Date(start), new Date(start + DAY_MS));
+        }));
+
+        results.add(runner.run("logAction", () ->
+                logController.logAction(1, "BENCH", "BENCH")));
+
+        return results;
+    }
+
+
+
+    // =========================================================================
+    // SAMPLE KEYS FROM THE DATABASE (up to MAX_SAMPLE of each)
+    // =========================================================================
+    private void loadSamples() throws SQLException {
+        try (Connection conn = context.getConnectionPool().getConnection()) {
+
+            try (PreparedStatement ps = conn.prepareStatement("SELECT TOP " + MAX_SAMPLE + " ISBN FROM Books");
+                 ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) isbns.add(rs.getString("ISBN"));
+            }
+
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "SELECT TOP " + MAX_SAMPLE + " copyId, bookId, barcode FROM BookCopies WHERE status='AVAILABLE'");
+                 ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    availableCopies.add(new int[] {rs.getInt("copyId"), rs.getInt("bookId")});
+                    availableBarcodes.add(rs.getString("barcode"));
+                }
+            }
+
+            try (PreparedStatement ps = conn.prepareStatement("SELECT TOP " + MAX_SAMPLE + " memberId, studentId FROM Members");
+                 ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    memberIds.add(rs.getInt("memberId"));
+                    studentIds.add(rs.getString("studentId"));
+                }
+            }
+
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "SELECT MIN(issueId) AS minId, MAX(issueId) AS maxId FROM IssueTransactions");
+                 ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                minIssueId = rs.getInt("minId");
+                maxIssueId = Math.max(minIssueId, rs.getInt("maxId"));
+            }
+        }
+
+        if (isbns.isEmpty() || availableCopies.size() < CART_SIZE || memberIds.isEmpty()) {
+            throw new SQLException("Benchmark database has no books, available copies or members");
+        }
+    }
+
+    private String randomWords(int count) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) sb.append(' ');
+            sb.append(DatasetGenerator.WORDS[random.nextInt(DatasetGenerator.WORDS.length)]);
+        }
+        return sb.toString();
+    }
+
+
+    // =========================================================================
+    // HELPERS
+    // =========================================================================
+    private static void appendCsv(String path, String label, int books, List<BenchmarkResult> results)
+            throws IOException {
+        boolean isNew = !Files.exists(Paths.get(path));
+        try (PrintWriter out = new PrintWriter(new FileWriter(path, true))) {
+            if (isNew) out.println(BenchmarkResult.csvHeader());
+            for (BenchmarkResult r : results) out.println(r.toCsv(label, books));
+        }
+    }
+
+    // --name=value, or the default when absent
+    static String option(String[] args, String name, String defaultValue) {
+        String prefix = "--" + name + "=";
+        for (String arg : args) {
+            if (arg.startsWith(prefix)) return arg.substring(prefix.length());
+        }
+        return defaultValue;
+    }
+}
@@ -0,0 +1,70 @@
+package bench;
+
+public class DatasetConfig {
+private long seed = 1;
+private int books = 10000;
+private int maxCopiesPerBook = 3;
+private int members = 2000;
+private int librarians = 5;
+private int years = 3;
+private int loansPerMemberPerYear = 6;
+private double activeLoanRate = 0.05;
+private double lateReturnRate = 0.15;
+private double popularitySkew = 1.0;
+private double dailyFineRate = 10.0;
+private int batchSize = 1000;
+
+public DatasetConfig() {}
+
+    // Members scale with the catalogue, as they do in a real library
+    public static DatasetConfig forBooks(int books) {
+        DatasetConfig config = new DatasetConfig();
+        config.setBooks(books);
+        config.setMembers(Math.max(100, books / 5));
+        return config;
+    }
+
+    // Getters & Setters
+    // The same seed (and settings) always produces the same dataset
+    public long getSeed() { return seed; }
+    public void setSeed(long seed) { this.seed = seed; }
+
+    public int getBooks() { return books; }
+    public void setBooks(int books) { this.books = books; }
+
+    // Each book gets between 1 and this many copies
+    public int getMaxCopiesPerBook() { return maxCopiesPerBook; }
+    public void setMaxCopiesPerBook(int maxCopiesPerBook) { this.maxCopiesPerBook = maxCopiesPerBook; }
+
+    public int getMembers() { return members; }
+    public void setMembers(int members) { this.members = members; }
+
+    public int getLibrarians() { return librarians; }
+    public void setLibrarians(int librarians) { this.librarians = librarians; }
+
+    // Length of the issue/return history, ending today
+    public int getYears() { return years; }
+    public void setYears(int years) { this.years = years; }
+
+    public int getLoansPerMemberPerYear() { return loansPerMemberPerYear; }
+    public void setLoansPerMemberPerYear(int loansPerMemberPerYear) { this.loansPerMemberPerYear = loansPerMemberPerYear; }
+
+    // Share of members holding a book right now
+    public double getActiveLoanRate() { return activeLoanRate; }
+    public void setActiveLoanRate(double activeLoanRate) { this.activeLoanRate = activeLoanRate; }
+
+    // Share of past loans returned after the due date (and fined)
+    public double getLateReturnRate() { return lateReturnRate; }
+    public void setLateReturnRate(double lateReturnRate) { this.lateReturnRate = lateReturnRate; }
+
+    // Zipf exponent of book popularity; 0 borrows every book equally
+    public double getPopularitySkew() { return popularitySkew; }
+    public void setPopularitySkew(double popularitySkew) { this.popularitySkew = popularitySkew; }
+
+    public double getDailyFineRate() { return dailyFineRate; }
+    public void setDailyFineRate(double dailyFineRate) { this.dailyFineRate = dailyFineRate; }
+
+    // Rows per JDBC batch; each batch is committed on its own
+    public int getBatchSize() { return batchSize; }
+    public void setBatchSize(int batchSize) { this.batchSize = batchSize; }
+}
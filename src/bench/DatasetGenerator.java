@@ -0,0 +1,695 @@
+package bench;
+
+import controllers.UserController;
+import db.AuditPartitions;
+import db.ConnectionPool;
+import db.IdAllocator;
+import db.StorageEngine;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import models.AuditLog;
+import models.Book;
+import models.BookCopy;
+import models.Fine;
+import models.IssueTransaction;
+import models.Member;
+import models.PaymentTransaction;
+import models.Users;
+
+/**
+ * Fills a database (any storage engine) with a realistic synthetic library:
+ * librarians, members across departments, books with 1..n copies whose
+ * borrowing follows a Zipf popularity curve, years of issue/return history
+ * with late returns fined (and paid, in full or in part, through the
+ * payment ledger), the loans still out today, and the audit trail
+ * the desk would have written for all of it.
+ *
+ * Rows are built as the usual model objects and written with batched
+ * prepared statements, committing every batch. IDs come from IdAllocator, so
+ * the generator can add to a database that already has data and the app
+ * carries on numbering after it. Audit entries go to the monthly audit
+ * partitions, created up front for the whole history when the database
+ * allows. The same seed gives the same dataset.
+ *
+ * Usage: java bench.DatasetGenerator --db=./data/slms [--books=100000] [--seed=1]
+ *            [--members=20000] [--years=3] [--loans=6]
+ * (generated librarians log in with the password "librarian")
+ */
+public class DatasetGenerator {
+
+    static final String[] WORDS = {
+        "history", "modern", "java", "data", "systems", "introduction", "advanced", "theory",
+        "practice", "design", "networks", "algorithms", "physics", "chemistry", "biology", "economics",
+        "law", "art", "music", "ocean", "mountain", "river", "city", "empire", "war", "peace",
+        "science", "engineering", "software", "hardware", "database", "security", "cloud", "mobile",
+        "learning", "machine", "language", "world", "future", "ancient", "medieval", "digital",
+    };
+
+    private static final String[] FIRST_NAMES = {
+        "Ali", "Ayesha", "Bilal", "Fatima", "Hamza", "Hira", "Imran", "Kamran", "Maryam", "Muhammad",
+        "Noor", "Omar", "Sana", "Usman", "Zain", "Zara", "Emaan", "Abdullah", "Ilyas", "Sara",
+    };
+
+    private static final String[] LAST_NAMES = {
+        "Khan", "Ahmed", "Malik", "Hussain", "Iqbal", "Butt", "Sheikh", "Raza", "Qureshi", "Siddiqui",
+    };
+
+    private static final String[] DEPARTMENTS = {
+        "Computer Science", "Software Engineering", "Physics", "Earth Science", "Mathematics", "Economics",
+    };
+
+    private static final String[] CATEGORIES = {
+        "Computer Science", "Software Engineering", "Literature", "Philosophy", "Self Help",
+        "Psychological Fiction", "Physics", "History",
+    };
+
+    private static final String[] LOCATIONS = {
+        "GROUND-SHELF-A", "GROUND-SHELF-B", "GROUND-SHELF-C", "FIRST-FLOOR-SHELF-A", "FIRST-FLOOR-SHELF-B",
+    };
+
+    private static final long DAY_MS = 24L * 60 * 60 * 1000;
+    private static final int LOAN_DAYS = 15;
+    private static final int MAX_DAYS_LATE = 45;
+
+    private final ConnectionPool pool;
+    private final DatasetConfig config;
+    private final IdAllocator ids;
+    private final AuditPartitions partitions;
+    private final Random random;
+    private final long now = System.currentTimeMillis();
+
+    // Filled as each table is written; later tables refer to them by index
+    private int[] userIds;
+    private int[] memberIds;
+    private int[] bookIds;
+    private int[] copyIds;
+    private int[] copyStart;      // first copy index of each book; copyStart[books] = total copies
+    private int[] popularBooks;   // book indexes, most popular first
+    private double[] cumulativeWeight;
+
+    public DatasetGenerator(ConnectionPool pool, DatasetConfig config) {
+        this(pool, config, new AuditPartitions(pool));
+    }
+
+    // Pass the running context's partitions, so it sees the history months the generator adds
+    public DatasetGenerator(ConnectionPool pool, DatasetConfig config, AuditPartitions partitions) {
+        this.pool = pool;
+        this.config = config;
+        this.ids = new IdAllocator(pool, config.getBatchSize());
+        this.partitions = partitions;
+        this.random = new Random(config.getSeed());
+    }
+
+    public static void main(String[] args) throws SQLException {
+        String db = ControllerBenchmarks.option(args, "db", null);
+        if (db == null) {
+            System.out.println("Usage: java bench.DatasetGenerator --db=<path> [--books=N] [--seed=N] "
+                    + "[--members=N] [--years=N] [--loans=N]");
+            return;
+        }
+
+        DatasetConfig config = DatasetConfig.forBooks(
+                Integer.parseInt(ControllerBenchmarks.option(args, "books", "10000")));
+        config.setSeed(Long.parseLong(ControllerBenchmarks.option(args, "seed", "1")));
+        config.setMembers(Integer.parseInt(
+                ControllerBenchmarks.option(args, "members", String.valueOf(config.getMembers()))));
+        config.setYears(Integer.parseInt(
+                ControllerBenchmarks.option(args, "years", String.valueOf(config.getYears()))));
+        config.setLoansPerMemberPerYear(Integer.parseInt(
+                ControllerBenchmarks.option(args, "loans", String.valueOf(config.getLoansPerMemberPerYear()))));
+
+        StorageEngine engine = StorageEngine.forLocation(db);
+        try (ConnectionPool pool = new ConnectionPool(engine.jdbcUrl(db))) {
+            engine.prepare(pool);
+            new DatasetGenerator(pool, config).generate();
+        }
+    }
+
+
+    // =========================================================================
+    // GENERATE EVERYTHING; returns rows written per table
+    // =========================================================================
+    public Map<String, Long> generate() throws SQLException {
+        // DDL must not run while our transaction is open (UCanAccess would close it)
+        ids.ensureSequenceTable();
+        partitions.prepare();
+        long earliest = now - config.getYears() * 365L * DAY_MS - (LOAN_DAYS + MAX_DAYS_LATE) * DAY_MS;
+        partitions.ensureMonths(YearMonth.from(Instant.ofEpochMilli(earliest).atZone(ZoneId.systemDefault())),
+                YearMonth.now());
+
+        long started = System.nanoTime();
+
+        try (Connection conn = pool.getConnection()) {
+            conn.setAutoCommit(false);
+            Writers w = new Writers(conn);
+
+            writeUsers(w);
+            writeMembers(w);
+
+            planCatalogue();
+            int[] activeMemberOfCopy = planActiveLoans();
+            writeCatalogue(w, activeMemberOfCopy);
+
+            writeActiveLoans(w, activeMemberOfCopy);
+            writeHistory(w);
+            writeShifts(w);
+
+            w.flushAll();
+
+            Map<String, Long> rows = w.rowCounts();
+            long total = 0;
+            for (Map.Entry<String, Long> e : rows.entrySet()) {
+                System.out.println(e.getKey() + ": " + e.getValue() + " rows");
+                total += e.getValue();
+            }
+            System.out.printf("Generated %d rows in %.1fs%n", total, (System.nanoTime() - started) / 1e9);
+            return rows;
+        }
+    }
+
+
+    // =========================================================================
+    // PEOPLE
+    // =========================================================================
+    private void writeUsers(Writers w) throws SQLException {
+        String hash = UserController.hashPassword("librarian");
+        userIds = new int[config.getLibrarians()];
+
+        for (int i = 0; i < userIds.length; i++) {
+            Users u = new Users();
+            u.setUserId(ids.nextId("Users", "userId"));
+            u.setUsername("gen_lib_" + u.getUserId());
+            u.setPasswordHash(hash);
+            u.setFullName(FIRST_NAMES[random.nextInt(FIRST_NAMES.length)] + " "
+                    + LAST_NAMES[random.nextInt(LAST_NAMES.length)]);
+            u.setRole("LIBRARIAN");
+            u.setShift(i % 2 == 0 ? "Morning" : "Evening");
+            u.setActive(true);
+
+            userIds[i] = u.getUserId();
+            w.users.add(u);
+        }
+        w.flushAll();
+        progress("Users", userIds.length);
+    }
+
+    private void writeMembers(Writers w) throws SQLException {
+        memberIds = new int[config.getMembers()];
+
+        for (int i = 0; i < memberIds.length; i++) {
+            Member m = new Member();
+            m.setMemberId(ids.nextId("Members", "memberId"));
+            m.setStudentId(String.format("GEN%08d", m.getMemberId()));
+            m.setFirstName(FIRST_NAMES[random.nextInt(FIRST_NAMES.length)]);
+            m.setLastName(LAST_NAMES[random.nextInt(LAST_NAMES.length)]);
+            m.setEmail("gen" + m.getMemberId() + "@example.edu");
+            m.setDepartment(DEPARTMENTS[random.nextInt(DEPARTMENTS.length)]);
+            m.setStatus("ACTIVE");
+
+            memberIds[i] = m.getMemberId();
+            w.members.add(m);
+        }
+        w.flushAll();
+        progress("Members", memberIds.length);
+    }
+
+
+    // =========================================================================
+    // CATALOGUE
+    // =========================================================================
+    // Copy counts and popularity are decided up front so loans can be planned before writing
+    private void planCatalogue() {
+        int books = config.getBooks();
+
+        copyStart = new int[books + 1];
+        for (int i = 0; i < books; i++) {
+            copyStart[i + 1] = copyStart[i] + 1 + random.nextInt(Math.max(1, config.getMaxCopiesPerBook()));
+        }
+
+        // Popularity rank is independent of insertion order
+        popularBooks = new int[books];
+        for (int i = 0; i < books; i++) popularBooks[i] = i;
+        for (int i = books - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int tmp = popularBooks[i];
+            popularBooks[i] = popularBooks[j];
+            popularBooks[j] = tmp;
+        }
+
+        cumulativeWeight = new double[books];
+        double sum = 0;
+        for (int rank = 0; rank < books; rank++) {
+            sum += 1.0 / Math.pow(rank + 1, config.getPopularitySkew());
+            cumulativeWeight[rank] = sum;
+        }
+    }
+
+    // Returns, per copy index, the member index holding it today (or -1)
+    private int[] planActiveLoans() {
+        int totalCopies = copyStart[copyStart.length - 1];
+        int[] holder = new int[totalCopies];
+        Arrays.fill(holder, -1);
+
+        // Members may only hold one book, so take distinct members in random order
+        int wanted = (int) Math.min((long) (config.getMembers() * config.getActiveLoanRate()), totalCopies / 2);
+        int[] order = shuffledIndexes(config.getMembers());
+
+        for (int n = 0; n < wanted; n++) {
+            for (int attempt = 0; attempt < 20; attempt++) {
+                int copy = pickCopy(pickBook());
+                if (holder[copy] < 0) {
+                    holder[copy] = order[n];
+                    break;
+                }
+            }
+        }
+        return holder;
+    }
+
+    private void writeCatalogue(Writers w, int[] activeMemberOfCopy) throws SQLException {
+        int books = config.getBooks();
+        bookIds = new int[books];
+        copyIds = new int[copyStart[books]];
+
+        for (int i = 0; i < books; i++) {
+            int copies = copyStart[i + 1] - copyStart[i];
+            int out = 0;
+            for (int c = copyStart[i]; c < copyStart[i + 1]; c++) {
+                if (activeMemberOfCopy[c] >= 0) out++;
+            }
+
+            Book b = new Book();
+            b.setBookId(ids.nextId("Books", "bookId"));
+            b.setTitle(capitalize(words(2 + random.nextInt(3))));
+            b.setAuthor(FIRST_NAMES[random.nextInt(FIRST_NAMES.length)] + " "
+                    + LAST_NAMES[random.nextInt(LAST_NAMES.length)]);
+            b.setISBN(String.format("978%010d", b.getBookId()));
+            b.setCategory(CATEGORIES[random.nextInt(CATEGORIES.length)]);
+            b.setTotalQuantity(copies);
+            b.setAvailableQuantity(copies - out);
+            b.setStatus("AVAILABLE");
+
+            bookIds[i] = b.getBookId();
+            w.books.add(b);
+
+            for (int c = copyStart[i]; c < copyStart[i + 1]; c++) {
+                BookCopy copy = new BookCopy();
+                copy.setCopyId(ids.nextId("BookCopies", "copyId"));
+                copy.setBookId(b.getBookId());
+                copy.setCopyNumber(c - copyStart[i] + 1);
+                copy.setBarcode("GC" + copy.getCopyId());
+                copy.setLocation(LOCATIONS[random.nextInt(LOCATIONS.length)]);
+                copy.setStatus(activeMemberOfCopy[c] >= 0 ? "ISSUED" : "AVAILABLE");
+
+                copyIds[c] = copy.getCopyId();
+                w.copies.add(copy);
+            }
+
+            w.flushIfFull();
+        }
+        w.flushAll();
+        progress("Books", books);
+    }
+
+
+    // =========================================================================
+    // CIRCULATION
+    // =========================================================================
+    // Issued within the last loan period or so; some are already overdue
+    private void writeActiveLoans(Writers w, int[] activeMemberOfCopy) throws SQLException {
+        int count = 0;
+
+        for (int c = 0; c < activeMemberOfCopy.length; c++) {
+            if (activeMemberOfCopy[c] < 0) continue;
+
+            long issued = startOfDay(now - random.nextInt(LOAN_DAYS * 2) * DAY_MS);
+            IssueTransaction issue = newIssue(memberIds[activeMemberOfCopy[c]], copyIds[c], issued);
+            issue.setStatus("ISSUED");
+            w.issues.add(issue);
+
+            log(w, "ISSUE", "COPY:" + copyIds[c], issued);
+            count++;
+            w.flushIfFull();
+        }
+        w.flushAll();
+        progress("Active loans", count);
+    }
+
+    private void writeHistory(Writers w) throws SQLException {
+        long loans = (long) config.getMembers() * config.getLoansPerMemberPerYear() * config.getYears();
+        long span = config.getYears() * 365L * DAY_MS;
+        long latestIssue = now - (LOAN_DAYS + MAX_DAYS_LATE) * DAY_MS; // so every past loan is back by today
+
+        for (long n = 0; n < loans; n++) {
+            int member = memberIds[random.nextInt(memberIds.length)];
+            int copy = copyIds[pickCopy(pickBook())];
+            long issued = startOfDay(latestIssue - (long) (random.nextDouble() * span));
+
+            IssueTransaction issue = newIssue(member, copy, issued);
+            boolean late = random.nextDouble() < config.getLateReturnRate();
+            long returned = late
+                    ? issue.getDueDate().getTime() + (1 + random.nextInt(MAX_DAYS_LATE)) * DAY_MS
+                    : issued + (1 + random.nextInt(LOAN_DAYS)) * DAY_MS;
+            issue.setReturnDate(new java.sql.Date(returned));
+            issue.setStatus("RETURNED");
+            w.issues.add(issue);
+
+            log(w, "ISSUE", "COPY:" + copy, issued);
+            log(w, "RETURN", "ISSUE:" + issue.getIssueId(), returned);
+
+            if (late) writeFine(w, issue, returned);
+            w.flushIfFull();
+        }
+        w.flushAll();
+        progress("Past loans", loans);
+    }
+
+    private void writeFine(Writers w, IssueTransaction issue, long returned) throws SQLException {
+        int daysLate = (int) ((returned - issue.getDueDate().getTime()) / DAY_MS);
+
+        Fine f = new Fine();
+        f.setFineId(ids.nextId("Fines", "fineId"));
+        f.setIssueId(issue.getIssueId());
+        f.setMemberId(issue.getMemberId());
+        f.setDailyRate(config.getDailyFineRate());
+        f.setOverdueDays(daysLate);
+        f.setAmount(daysLate * config.getDailyFineRate());
+
+        // Most fines get paid; older ones more so
+        double r = random.nextDouble();
+        f.setStatus(r < 0.70 ? "PAID" : r < 0.85 ? "WAIVED" : "UNPAID");
+        w.fines.add(f);
+
+        log(w, "FINE_CREATED", "FINE:" + f.getFineId(), returned);
+        long settled = returned + random.nextInt(7) * DAY_MS;
+
+        if ("PAID".equals(f.getStatus())) {
+            // Paid off at once, or in two instalments a week apart
+            if (daysLate > 1 && random.nextBoolean()) {
+                double first = Math.floor(daysLate / 2.0) * f.getDailyRate();
+                writePayment(w, f, first, settled);
+                writePayment(w, f, f.getAmount() - first, settled + 7 * DAY_MS);
+            } else {
+                writePayment(w, f, f.getAmount(), settled);
+            }
+            log(w, "FINE_PAID", "FINE:" + f.getFineId(), settled);
+
+        } else if ("WAIVED".equals(f.getStatus())) {
+            log(w, "FINE_WAIVED", "FINE:" + f.getFineId(), settled);
+
+        } else if (daysLate > 1 && random.nextBoolean()) {
+            // Some of what is still owed has been paid already
+            writePayment(w, f, (1 + random.nextInt(daysLate - 1)) * f.getDailyRate(), settled);
+        }
+    }
+
+    private void writePayment(Writers w, Fine f, double amount, long paidAt) throws SQLException {
+        PaymentTransaction p = new PaymentTransaction();
+        p.setPaymentId(ids.nextId("PaymentTransactions", "paymentId"));
+        p.setFineId(f.getFineId());
+        p.setAmountPaid(amount);
+        p.setPaymentDate(new Timestamp(paidAt));
+        w.payments.add(p);
+    }
+
+    // Every librarian logs in and out once a day over the whole history
+    private void writeShifts(Writers w) throws SQLException {
+        long first = startOfDay(now - config.getYears() * 365L * DAY_MS);
+        int count = 0;
+
+        for (long day = first; day < now; day += DAY_MS) {
+            for (int userId : userIds) {
+                w.log(newLog(userId, "LOGIN", "AUTH", day + 9 * 3600_000L));
+                w.log(newLog(userId, "LOGOUT", "AUTH", day + 17 * 3600_000L));
+                count += 2;
+            }
+            w.flushIfFull();
+        }
+        w.flushAll();
+        progress("Shift logins", count);
+    }
+
+    private IssueTransaction newIssue(int memberId, int copyId, long issued) throws SQLException {
+        IssueTransaction issue = new IssueTransaction();
+        issue.setIssueId(ids.nextId("IssueTransactions", "issueId"));
+        issue.setMemberId(memberId);
+        issue.setCopyId(copyId);
+        issue.setIssueDate(new java.sql.Date(issued));
+        issue.setDueDate(new java.sql.Date(issued + LOAN_DAYS * DAY_MS));
+        return issue;
+    }
+
+    // Desk actions happen during opening hours on the given day
+    private void log(Writers w, String action, String target, long day) throws SQLException {
+        long at = startOfDay(day) + 9 * 3600_000L + (long) (random.nextDouble() * 8 * 3600_000L);
+        w.log(newLog(userIds[random.nextInt(userIds.length)], action, target, at));
+    }
+
+    private AuditLog newLog(int userId, String action, String target, long at) throws SQLException {
+        AuditLog log = new AuditLog();
+        log.setLogId(ids.nextId("AuditLog", "logId"));
+        log.setUserId(userId);
+        log.setAction(action);
+        log.setTargetType(target);
+        log.setLogTime(new Date(at));
+        return log;
+    }
+
+
+    // =========================================================================
+    // RANDOM CHOICES
+    // =========================================================================
+    private int pickBook() {
+        double x = random.nextDouble() * cumulativeWeight[cumulativeWeight.length - 1];
+        int rank = Arrays.binarySearch(cumulativeWeight, x);
+        if (rank < 0) rank = -rank - 1;
+        return popularBooks[Math.min(rank, popularBooks.length - 1)];
+    }
+
+    private int pickCopy(int book) {
+        return copyStart[book] + random.nextInt(copyStart[book + 1] - copyStart[book]);
+    }
+
+    private int[] shuffledIndexes(int n) {
+        int[] a = new int[n];
+        for (int i = 0; i < n; i++) a[i] = i;
+        for (int i = n - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int tmp = a[i];
+            a[i] = a[j];
+            a[j] = tmp;
+        }
+        return a;
+    }
+
+    String words(int count) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) sb.append(' ');
+            sb.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return sb.toString();
+    }
+
+    private static String capitalize(String s) {
+        return Character.toUpperCase(s.charAt(0)) + s.substring(1);
+    }
+
+    private static long startOfDay(long ms) {
+        return ms - Math.floorMod(ms, DAY_MS);
+    }
+
+    private void progress(String what, long count) {
+        System.out.println("  " + what + ": " + count);
+    }
+
+
+    // =========================================================================
+    // BATCHED WRITES (flushed parents first, so foreign keys always resolve)
+    // =========================================================================
+    private interface Binder<T> {
+        void bind(PreparedStatement ps, T row) throws SQLException;
+    }
+
+    private static final class TableWriter<T> {
+        final String table;
+        final PreparedStatement ps;
+        final Binder<T> binder;
+        int pending;
+        long written;
+
+        TableWriter(Connection conn, String table, String sql, Binder<T> binder) throws SQLException {
+            this.table = table;
+            this.ps = conn.prepareStatement(sql);
+            this.binder = binder;
+        }
+
+        void add(T row) throws SQLException {
+            binder.bind(ps, row);
+            ps.addBatch();
+            pending++;
+        }
+
+        void flush() throws SQLException {
+            if (pending == 0) return; // an empty executeBatch fails on UCanAccess
+            ps.executeBatch();
+            written += pending;
+            pending = 0;
+        }
+    }
+
+    private final class Writers {
+        final Connection conn;
+        final TableWriter<Users> users;
+        final TableWriter<Member> members;
+        final TableWriter<Book> books;
+        final TableWriter<BookCopy> copies;
+        final TableWriter<IssueTransaction> issues;
+        final TableWriter<Fine> fines;
+        final TableWriter<PaymentTransaction> payments;
+        final Map<String, TableWriter<AuditLog>> logs = new HashMap<>(); // by partition
+        final List<TableWriter<?>> inOrder = new ArrayList<>();
+
+        Writers(Connection conn) throws SQLException {
+            this.conn = conn;
+
+            users = add(new TableWriter<>(conn, "Users",
+                    "INSERT INTO Users (userId, username, passwordHash, fullName, role, shift, isActive) " +
+                    "VALUES (?, ?, ?, ?, ?, ?, ?)", (ps, u) -> {
+                        ps.setInt(1, u.getUserId());
+                        ps.setString(2, u.getUsername());
+                        ps.setString(3, u.getPasswordHash());
+                        ps.setString(4, u.getFullName());
+                        ps.setString(5, u.getRole());
+                        ps.setString(6, u.getShift());
+                        ps.setBoolean(7, u.isActive());
+                    }));
+
+            members = add(new TableWriter<>(conn, "Members",
+                    "INSERT INTO Members (memberId, studentId, firstName, lastName, email, department, status) " +
+                    "VALUES (?, ?, ?, ?, ?, ?, ?)", (ps, m) -> {
+                        ps.setInt(1, m.getMemberId());
+                        ps.setString(2, m.getStudentId());
+                        ps.setString(3, m.getFirstName());
+                        ps.setString(4, m.getLastName());
+                        ps.setString(5, m.getEmail());
+                        ps.setString(6, m.getDepartment());
+                        ps.setString(7, m.getStatus());
+                    }));
+
+            books = add(new TableWriter<>(conn, "Books",
+                    "INSERT INTO Books (bookId, title, author, ISBN, category, totalQuantity, availableQuantity, status) " +
+                    "VALUES (?, ?, ?, ?, ?, ?, ?, ?)", (ps, b) -> {
+                        ps.setInt(1, b.getBookId());
+                        ps.setString(2, b.getTitle());
+                        ps.setString(3, b.getAuthor());
+                        ps.setString(4, b.getISBN());
+                        ps.setString(5, b.getCategory());
+                        ps.setInt(6, b.getTotalQuantity());
+                        ps.setInt(7, b.getAvailableQuantity());
+                        ps.setString(8, b.getStatus());
+                    }));
+
+            copies = add(new TableWriter<>(conn, "BookCopies",
+                    "INSERT INTO BookCopies (copyId, bookId, copyNumber, barcode, location, status) " +
+                    "VALUES (?, ?, ?, ?, ?, ?)", (ps, c) -> {
+                        ps.setInt(1, c.getCopyId());
+                        ps.setInt(2, c.getBookId());
+                        ps.setInt(3, c.getCopyNumber());
+                        ps.setString(4, c.getBarcode());
+                        ps.setString(5, c.getLocation());
+                        ps.setString(6, c.getStatus());
+                    }));
+
+            issues = add(new TableWriter<>(conn, "IssueTransactions",
+                    "INSERT INTO IssueTransactions (issueId, memberId, copyId, issueDate, dueDate, returnDate, status) " +
+                    "VALUES (?, ?, ?, ?, ?, ?, ?)", (ps, it) -> {
+                        ps.setInt(1, it.getIssueId());
+                        ps.setInt(2, it.getMemberId());
+                        ps.setInt(3, it.getCopyId());
+                        ps.setDate(4, (java.sql.Date) it.getIssueDate());
+                        ps.setDate(5, (java.sql.Date) it.getDueDate());
+                        ps.setDate(6, (java.sql.Date) it.getReturnDate());
+                        ps.setString(7, it.getStatus());
+                    }));
+
+            fines = add(new TableWriter<>(conn, "Fines",
+                    "INSERT INTO Fines (fineId, issueId, memberId, amount, dailyRate, overdueDays, status) " +
+                    "VALUES (?, ?, ?, ?, ?, ?, ?)", (ps, f) -> {
+                        ps.setInt(1, f.getFineId());
+                        ps.setInt(2, f.getIssueId());
+                        ps.setInt(3, f.getMemberId());
+                        ps.setDouble(4, f.getAmount());
+                        ps.setDouble(5, f.getDailyRate());
+                        ps.setInt(6, f.getOverdueDays());
+                        ps.setString(7, f.getStatus());
+                    }));
+
+            payments = add(new TableWriter<>(conn, "PaymentTransactions",
+                    "INSERT INTO PaymentTransactions (paymentId, fineId, amountPaid, paymentDate) VALUES (?, ?, ?, ?)",
+                    (ps, p) -> {
+                        ps.setInt(1, p.getPaymentId());
+                        ps.setInt(2, p.getFineId());
+                        ps.setDouble(3, p.getAmountPaid());
+                        ps.setTimestamp(4, (Timestamp) p.getPaymentDate());
+                    }));
+        }
+
+        // Audit entries only refer to Users, so partition writers can join the flush order late
+        void log(AuditLog log) throws SQLException {
+            String table = partitions.tableFor(log.getLogTime());
+            TableWriter<AuditLog> writer = logs.get(table);
+            if (writer == null) {
+                writer = add(new TableWriter<>(conn, "AuditLog",
+                        "INSERT INTO " + table + " (logId, userId, action, targetType, logTime) VALUES (?, ?, ?, ?, ?)",
+                        (ps, entry) -> {
+                            ps.setInt(1, entry.getLogId());
+                            ps.setInt(2, entry.getUserId());
+                            ps.setString(3, entry.getAction());
+                            ps.setString(4, entry.getTargetType());
+                            ps.setTimestamp(5, new Timestamp(entry.getLogTime().getTime()));
+                        }));
+                logs.put(table, writer);
+            }
+            writer.add(log);
+        }
+
+        private <T> TableWriter<T> add(TableWriter<T> writer) {
+            inOrder.add(writer);
+            return writer;
+        }
+
+        void flushIfFull() throws SQLException {
+            for (TableWriter<?> writer : inOrder) {
+                if (writer.pending >= config.getBatchSize()) {
+                    flushAll();
+                    return;
+                }
+            }
+        }
+
+        void flushAll() throws SQLException {
+            for (TableWriter<?> writer : inOrder) writer.flush();
+            conn.commit();
+        }
+
+        Map<String, Long> rowCounts() {
+            Map<String, Long> rows = new LinkedHashMap<>();
+            for (TableWriter<?> writer : inOrder) rows.merge(writer.table, writer.written, Long::sum);
+            return rows;
+        }
+    }
+}
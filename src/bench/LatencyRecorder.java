@@ -0,0 +1,59 @@
+package bench;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Collects call latencies for one operation. Samples are kept in a
+ * fixed-size reservoir, so percentiles stay exact for short runs and remain
+ * a uniform sample for long ones, in bounded memory.
+ *
+ * Safe to share between threads (the load simulator's desks record into one).
+ */
+class LatencyRecorder {
+
+    private static final int MAX_SAMPLES = 1_000_000;
+
+    private final long[] values = new long[MAX_SAMPLES];
+    private final Random sampler = new Random(42);
+    private long count;
+    private long busyNanos;
+
+    synchronized void add(long nanos) {
+        busyNanos += nanos;
+        if (count < MAX_SAMPLES) {
+            values[(int) count] = nanos;
+        } else {
+            // Reservoir sampling: every call has the same chance of being kept
+            long slot = (long) (sampler.nextDouble() * (count + 1));
+            if (slot < MAX_SAMPLES) values[(int) slot] = nanos;
+        }
+        count++;
+    }
+
+    synchronized long getCount() {
+        return count;
+    }
+
+    // Total time spent inside the recorded calls
+    synchronized long getBusyNanos() {
+        return busyNanos;
+    }
+
+    synchronized BenchmarkResult result(String name, long elapsedNanos) {
+        int kept = (int) Math.min(count, MAX_SAMPLES);
+        long[] sorted = Arrays.copyOf(values, kept);
+        Arrays.sort(sorted);
+
+        return new BenchmarkResult(name, count, elapsedNanos,
+                percentile(sorted, 0.50), percentile(sorted, 0.90),
+                percentile(sorted, 0.99), percentile(sorted, 0.999),
+                kept == 0 ? 0 : sorted[kept - 1]);
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        if (sorted.length == 0) return 0;
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+}
@@ -0,0 +1,48 @@
+package bench;
+
+public class LoadConfig {
+private int desks = 8;
+private double arrivalsPerSecond = 0;
+private double issueShare = 0.5;
+private int hotCopies = 50;
+private double hotShare = 0.3;
+private long warmupMs = 3000;
+private long durationMs = 30000;
+private String flow = LoadSimulator.FLOW_DESK;
+private long seed = 1;
+
+public LoadConfig() {}
+
+    // Getters & Setters
+    // Concurrent librarians, one thread each
+    public int getDesks() { return desks; }
+    public void setDesks(int desks) { this.desks = desks; }
+
+    // Open-loop arrival rate across all desks (Poisson); 0 = every desk works back to back
+    public double getArrivalsPerSecond() { return arrivalsPerSecond; }
+    public void setArrivalsPerSecond(double arrivalsPerSecond) { this.arrivalsPerSecond = arrivalsPerSecond; }
+
+    // Share of arrivals that are issues; the rest are returns (an issue when nothing is out)
+    public double getIssueShare() { return issueShare; }
+    public void setIssueShare(double issueShare) { this.issueShare = issueShare; }
+
+    // Issues aimed at a small set of popular copies, as at semester start
+    public int getHotCopies() { return hotCopies; }
+    public void setHotCopies(int hotCopies) { this.hotCopies = hotCopies; }
+
+    public double getHotShare() { return hotShare; }
+    public void setHotShare(double hotShare) { this.hotShare = hotShare; }
+
+    public long getWarmupMs() { return warmupMs; }
+    public void setWarmupMs(long warmupMs) { this.warmupMs = warmupMs; }
+
+    public long getDurationMs() { return durationMs; }
+    public void setDurationMs(long durationMs) { this.durationMs = durationMs; }
+
+    // LoadSimulator.FLOW_DESK or LoadSimulator.FLOW_PRECHECK
+    public String getFlow() { return flow; }
+    public void setFlow(String flow) { this.flow = flow; }
+
+    public long getSeed() { return seed; }
+    public void setSeed(long seed) { this.seed = seed; }
+}
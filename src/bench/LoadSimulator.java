@@ -0,0 +1,416 @@
+package bench;
+
+import controllers.AuditLogController;
+import controllers.BookCopyController;
+import controllers.IssueController;
+import controllers.LibraryContext;
+import controllers.MemberController;
+import db.ConnectionPool;
+import db.PoolConfig;
+import db.StorageEngine;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import models.BookCopy;
+import models.CirculationReceipt;
+import models.IssueTransaction;
+import models.Member;
+
+/**
+ * Several circulation desks working one database at once. Each desk is a
+ * thread doing what IssueReturnUI does for a scan: an issue or a return
+ * through the controllers, then the audit entries. Arrivals are either
+ * open-loop (a Poisson stream at --rate, shared by all desks, so queueing
+ * shows up in the latency) or closed-loop (every desk back to back).
+ *
+ * Afterwards the database is checked for what concurrent desks must never
+ * produce: a copy issued twice, a member over the loan limit, copy status
+ * or book quantities out of step with the loans.
+ *
+ * Usage: java bench.LoadSimulator [--db=mem:load] [--books=5000] [--desks=8] [--rate=0]
+ *            [--issues=0.5] [--hot=50] [--hotShare=0.3] [--warmup=3] [--time=30]
+ *            [--pool=8] [--flow=desk|precheck] [--seed=1]
+ *
+ * --flow=precheck runs the older check-then-issue sequence (isCopyAvailable,
+ * memberHasIssuedBook, issueBook) instead of checkout/checkin. An empty
+ * database is first filled by DatasetGenerator with --books books.
+ */
+public class LoadSimulator {
+
+    public static final String FLOW_DESK = "desk";
+    public static final String FLOW_PRECHECK = "precheck";
+
+    private static final int MAX_SAMPLE = 10000;
+
+    private final LibraryContext context;
+    private final LoadConfig config;
+
+    // Drawn from the database before the run
+    private final List<String> studentIds = new ArrayList<>();
+    private final List<String> barcodes = new ArrayList<>();
+    private final List<Integer> librarianIds = new ArrayList<>();
+
+    // Loans the desks know to be out, as {studentId, barcode}; guarded by itself
+    private final List<String[]> onLoan = new ArrayList<>();
+
+    private final Outcomes issues = new Outcomes();
+    private final Outcomes returns = new Outcomes();
+    private final LongAdder unserved = new LongAdder();
+
+    private volatile long measureFrom;
+
+    public LoadSimulator(LibraryContext context, LoadConfig config) {
+        this.context = context;
+        this.config = config;
+    }
+
+    public static void main(String[] args) throws Exception {
+        String db = ControllerBenchmarks.option(args, "db", "mem:load");
+        int books = Integer.parseInt(ControllerBenchmarks.option(args, "books", "5000"));
+
+        LoadConfig config = new LoadConfig();
+        config.setDesks(Integer.parseInt(ControllerBenchmarks.option(args, "desks", "8")));
+        config.setArrivalsPerSecond(Double.parseDouble(ControllerBenchmarks.option(args, "rate", "0")));
+        config.setIssueShare(Double.parseDouble(ControllerBenchmarks.option(args, "issues", "0.5")));
+        config.setHotCopies(Integer.parseInt(ControllerBenchmarks.option(args, "hot", "50")));
+        config.setHotShare(Double.parseDouble(ControllerBenchmarks.option(args, "hotShare", "0.3")));
+        config.setWarmupMs(Long.parseLong(ControllerBenchmarks.option(args, "warmup", "3")) * 1000);
+        config.setDurationMs(Long.parseLong(ControllerBenchmarks.option(args, "time", "30")) * 1000);
+        config.setFlow(ControllerBenchmarks.option(args, "flow", FLOW_DESK));
+        config.setSeed(Long.parseLong(ControllerBenchmarks.option(args, "seed", "1")));
+
+        // Own pool so its size can be varied against the number of desks
+        PoolConfig poolConfig = new PoolConfig();
+        poolConfig.setMaxSize(Integer.parseInt(ControllerBenchmarks.option(args, "pool", "8")));
+
+        StorageEngine engine = StorageEngine.forLocation(db);
+        ConnectionPool pool = new ConnectionPool(engine.jdbcUrl(db), poolConfig);
+        engine.prepare(pool);
+
+        try (LibraryContext context = new LibraryContext(pool)) {
+            if (countRows(pool, "Members") == 0) {
+                DatasetConfig data = DatasetConfig.forBooks(books);
+                data.setSeed(config.getSeed());
+                new DatasetGenerator(pool, data, context.getAuditPartitions()).generate();
+                context.getFineController().loadBalances();
+                context.getIssueController().loadLoans();
+            }
+
+            new LoadSimulator(context, config).run();
+        }
+    }
+
+
+    // =========================================================================
+    // RUN: warm up, measure, then check the database for anomalies
+    // =========================================================================
+    public void run() throws Exception {
+        loadSamples();
+        long[] anomaliesBefore = countAnomalies();
+
+        System.out.printf(Locale.ROOT, "Load: %d desks, %s, %.0f%% issues, %d hot copies (%.0f%% of issues), "
+                        + "flow=%s, %ds%n",
+                config.getDesks(),
+                config.getArrivalsPerSecond() > 0
+                        ? String.format(Locale.ROOT, "%.1f arrivals/s", config.getArrivalsPerSecond())
+                        : "closed loop",
+                config.getIssueShare() * 100, config.getHotCopies(), config.getHotShare() * 100,
+                config.getFlow(), config.getDurationMs() / 1000);
+
+        long start = System.nanoTime();
+        measureFrom = start + config.getWarmupMs() * 1_000_000L;
+        long end = measureFrom + config.getDurationMs() * 1_000_000L;
+
+        BlockingQueue<Long> arrivals = new LinkedBlockingQueue<>();
+        List<Thread> desks = new ArrayList<>();
+        for (int d = 0; d < config.getDesks(); d++) {
+            int desk = d;
+            Thread t = new Thread(() -> runDesk(desk, arrivals, end), "desk-" + d);
+            desks.add(t);
+            t.start();
+        }
+
+        if (config.getArrivalsPerSecond() > 0) dispatch(arrivals, end);
+        for (Thread t : desks) t.join();
+        unserved.add(arrivals.size());
+
+        long measured = end - measureFrom;
+        long[] anomaliesAfter = countAnomalies();
+
+        System.out.println(BenchmarkResult.header());
+        System.out.println(issues.latency.result("issue", measured));
+        System.out.println(returns.latency.result("return", measured));
+        System.out.println("issue:  " + issues);
+        System.out.println("return: " + returns);
+        if (unserved.sum() > 0) System.out.println("arrivals still queued at the end: " + unserved.sum());
+
+        System.out.printf("anomalies (new during the run): copies issued twice=%d, members over the loan limit=%d, "
+                        + "copy status drift=%d, book quantity drift=%d%n",
+                anomaliesAfter[0] - anomaliesBefore[0], anomaliesAfter[1] - anomaliesBefore[1],
+                anomaliesAfter[2] - anomaliesBefore[2], anomaliesAfter[3] - anomaliesBefore[3]);
+        System.out.println(context.getIssueController().getCopyLockStats());
+        System.out.println(context.getConnectionPool().getStats());
+    }
+
+    // Poisson arrivals at the configured rate; each carries the time it was queued
+    private void dispatch(BlockingQueue<Long> arrivals, long end) throws InterruptedException {
+        Random random = new Random(config.getSeed());
+        double meanGapNanos = 1e9 / config.getArrivalsPerSecond();
+        long next = System.nanoTime();
+
+        while (next < end) {
+            long wait = next - System.nanoTime();
+            if (wait > 0) TimeUnit.NANOSECONDS.sleep(wait);
+            arrivals.put(System.nanoTime());
+            next += (long) (-Math.log(1 - random.nextDouble()) * meanGapNanos);
+        }
+    }
+
+
+    // =========================================================================
+    // ONE DESK
+    // =========================================================================
+    private void runDesk(int desk, BlockingQueue<Long> arrivals, long end) {
+        Random random = new Random(config.getSeed() * 31 + desk);
+        int librarianId = librarianIds.get(desk % librarianIds.size());
+        boolean openLoop = config.getArrivalsPerSecond() > 0;
+
+        try {
+            while (System.nanoTime() < end) {
+                long arrived;
+                if (openLoop) {
+                    Long next = arrivals.poll(10, TimeUnit.MILLISECONDS);
+                    if (next == null) continue;
+                    arrived = next;
+                } else {
+                    arrived = System.nanoTime();
+                }
+
+                String[] loan = random.nextDouble() < config.getIssueShare() ? null : takeLoan(random);
+                boolean measured = arrived >= measureFrom;
+
+                // Latency runs from arrival, so time spent queued for a desk counts
+                if (loan == null) {
+                    Outcome outcome = issue(random, librarianId);
+                    if (measured) issues.record(outcome, System.nanoTime() - arrived);
+                } else {
+                    Outcome outcome = returnLoan(loan, librarianId);
+                    if (measured) returns.record(outcome, System.nanoTime() - arrived);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Outcome issue(Random random, int librarianId) {
+        String studentId = studentIds.get(random.nextInt(studentIds.size()));
+        int hot = Math.min(config.getHotCopies(), barcodes.size());
+        String barcode = hot > 0 && random.nextDouble() < config.getHotShare()
+                ? barcodes.get(random.nextInt(hot))
+                : barcodes.get(random.nextInt(barcodes.size()));
+
+        Outcome outcome = FLOW_PRECHECK.equals(config.getFlow())
+                ? precheckIssue(studentId, barcode)
+                : deskIssue(studentId, barcode, librarianId);
+
+        if (outcome == Outcome.OK) {
+            synchronized (onLoan) {
+                onLoan.add(new String[] {studentId, barcode});
+            }
+        }
+        return outcome;
+    }
+
+    private Outcome returnLoan(String[] loan, int librarianId) {
+        return FLOW_PRECHECK.equals(config.getFlow())
+                ? precheckReturn(loan[1])
+                : deskReturn(loan[0], loan[1], librarianId);
+    }
+
+    private String[] takeLoan(Random random) {
+        synchronized (onLoan) {
+            if (onLoan.isEmpty()) return null;
+            int i = random.nextInt(onLoan.size());
+            String[] loan = onLoan.get(i);
+            onLoan.set(i, onLoan.get(onLoan.size() - 1));
+            onLoan.remove(onLoan.size() - 1);
+            return loan;
+        }
+    }
+
+
+    // =========================================================================
+    // THE FLOWS
+    // =========================================================================
+    // What IssueReturnUI does today
+    private Outcome deskIssue(String studentId, String barcode, int librarianId) {
+        CirculationReceipt receipt = context.getIssueController().checkout(studentId, barcode);
+        if (receipt.isSuccess()) {
+            context.getAuditLogController().logAction(librarianId, "ISSUE", "COPY:" + receipt.getCopy().getCopyId());
+        }
+        return Outcome.of(receipt);
+    }
+
+    private Outcome deskReturn(String studentId, String barcode, int librarianId) {
+        CirculationReceipt receipt = context.getIssueController().checkin(studentId, barcode);
+        if (receipt.isSuccess()) {
+            AuditLogController logs = context.getAuditLogController();
+            if (receipt.getFine() != null) {
+                logs.logAction(librarianId, "FINE_CREATED", "ISSUE:" + receipt.getIssue().getIssueId());
+            }
+            logs.logAction(librarianId, "RETURN", "COPY:" + receipt.getCopy().getCopyId());
+        }
+        return Outcome.of(receipt);
+    }
+
+    // Check, then issue: the checks and the write are separate round trips
+    private Outcome precheckIssue(String studentId, String barcode) {
+        MemberController members = context.getMemberController();
+        BookCopyController copies = context.getBookCopyController();
+        IssueController issueController = context.getIssueController();
+
+        Member member = members.getMemberByStudentId(studentId);
+        BookCopy copy = copies.getCopyByBarcode(barcode);
+        if (member == null || copy == null) return Outcome.REJECTED;
+
+        if (!copies.isCopyAvailable(copy.getCopyId())) return Outcome.REJECTED;
+        if (issueController.memberHasIssuedBook(member.getMemberId())) return Outcome.REJECTED;
+
+        // false also covers a database error, but that is printed; usually another desk got there first
+        return issueController.issueBook(member.getMemberId(), copy.getCopyId(), copy.getBookId())
+                ? Outcome.OK : Outcome.REJECTED;
+    }
+
+    private Outcome precheckReturn(String barcode) {
+        IssueController issueController = context.getIssueController();
+
+        BookCopy copy = context.getBookCopyController().getCopyByBarcode(barcode);
+        if (copy == null) return Outcome.REJECTED;
+
+        IssueTransaction issue = issueController.getActiveIssueByCopyId(copy.getCopyId());
+        if (issue == null) return Outcome.REJECTED;
+
+        return issueController.returnBook(issue.getIssueId(), copy.getCopyId(), copy.getBookId())
+                ? Outcome.OK : Outcome.REJECTED;
+    }
+
+
+    // =========================================================================
+    // DATA
+    // =========================================================================
+    private void loadSamples() throws SQLException {
+        try (Connection conn = context.getConnectionPool().getConnection()) {
+
+            try (PreparedStatement ps = conn.prepareStatement("SELECT TOP " + MAX_SAMPLE + " studentId FROM Members");
+                 ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) studentIds.add(rs.getString("studentId"));
+            }
+
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "SELECT TOP " + MAX_SAMPLE + " barcode FROM BookCopies WHERE status='AVAILABLE'");
+                 ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) barcodes.add(rs.getString("barcode"));
+            }
+
+            try (PreparedStatement ps = conn.prepareStatement("SELECT userId FROM Users");
+                 ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) librarianIds.add(rs.getInt("userId"));
+            }
+
+            // Loans already out can be returned by the desks too
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "SELECT TOP " + MAX_SAMPLE + " m.studentId, c.barcode FROM IssueTransactions i " +
+                    "INNER JOIN Members m ON m.memberId = i.memberId " +
+                    "INNER JOIN BookCopies c ON c.copyId = i.copyId " +
+                    "WHERE i.status='ISSUED'");
+                 ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) onLoan.add(new String[] {rs.getString("studentId"), rs.getString("barcode")});
+            }
+        }
+
+        if (studentIds.isEmpty() || barcodes.isEmpty() || librarianIds.isEmpty()) {
+            throw new SQLException("Load database has no members, available copies or users");
+        }
+    }
+
+    // {copies issued twice, members over the limit, copy status drift, book quantity drift}
+    private long[] countAnomalies() throws SQLException {
+        String[] queries = {
+            "SELECT COUNT(*) AS cnt FROM (SELECT copyId FROM IssueTransactions WHERE status='ISSUED' " +
+                    "GROUP BY copyId HAVING COUNT(*) > 1) t",
+            "SELECT COUNT(*) AS cnt FROM (SELECT memberId FROM IssueTransactions WHERE status='ISSUED' " +
+                    "GROUP BY memberId HAVING COUNT(*) > 1) t",
+            "SELECT COUNT(*) AS cnt FROM BookCopies c WHERE (c.status='AVAILABLE' AND EXISTS " +
+                    "(SELECT 1 FROM IssueTransactions i WHERE i.copyId=c.copyId AND i.status='ISSUED')) " +
+                    "OR (c.status='ISSUED' AND NOT EXISTS " +
+                    "(SELECT 1 FROM IssueTransactions i WHERE i.copyId=c.copyId AND i.status='ISSUED'))",
+            "SELECT COUNT(*) AS cnt FROM Books b WHERE b.availableQuantity <> " +
+                    "(SELECT COUNT(*) FROM BookCopies c WHERE c.bookId=b.bookId AND c.status='AVAILABLE')",
+        };
+
+        long[] counts = new long[queries.length];
+        try (Connection conn = context.getConnectionPool().getConnection()) {
+            for (int i = 0; i < queries.length; i++) {
+                try (PreparedStatement ps = conn.prepareStatement(queries[i]);
+                     ResultSet rs = ps.executeQuery()) {
+                    if (rs.next()) counts[i] = rs.getLong("cnt");
+                }
+            }
+        }
+        return counts;
+    }
+
+    private static long countRows(ConnectionPool pool, String table) throws SQLException {
+        try (Connection conn = pool.getConnection();
+             PreparedStatement ps = conn.prepareStatement("SELECT COUNT(*) AS cnt FROM " + table);
+             ResultSet rs = ps.executeQuery()) {
+            return rs.next() ? rs.getLong("cnt") : 0;
+        }
+    }
+
+
+    // =========================================================================
+    // OUTCOMES
+    // =========================================================================
+    private enum Outcome {
+        OK, REJECTED, FAILED;
+
+        // The controllers report database errors as "Failed to ..."; anything else is a business rule
+        static Outcome of(CirculationReceipt receipt) {
+            if (receipt.isSuccess()) return OK;
+            String message = receipt.getMessage();
+            return message != null && message.startsWith("Failed to") ? FAILED : REJECTED;
+        }
+    }
+
+    private static final class Outcomes {
+        final LatencyRecorder latency = new LatencyRecorder();
+        final LongAdder ok = new LongAdder();
+        final LongAdder rejected = new LongAdder();
+        final LongAdder failed = new LongAdder();
+
+        void record(Outcome outcome, long nanos) {
+            latency.add(nanos);
+            switch (outcome) {
+                case OK: ok.increment(); break;
+                case REJECTED: rejected.increment(); break;
+                default: failed.increment();
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "ok=" + ok.sum() + " rejected=" + rejected.sum() + " failed=" + failed.sum();
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package cache;
+
+public class CacheConfig {
+private int maxSize = 1000;
+private long ttlMs = 60000;
+
+public CacheConfig() {}
+
+    // Getters & Setters
+    // 0 disables the cache: every lookup goes to the database
+    public int getMaxSize() { return maxSize; }
+    public void setMaxSize(int maxSize) { this.maxSize = maxSize; }
+
+    // Bounds how long a change made outside this process (another desk, Access itself) can go unseen
+    public long getTtlMs() { return ttlMs; }
+    public void setTtlMs(long ttlMs) { this.ttlMs = ttlMs; }
+}
@@ -0,0 +1,44 @@
+package cache;
+
+public class CacheStats {
+private final String name;
+private final int size;
+private final long hitCount;
+private final long missCount;
+private final long evictionCount;
+private final long expiredCount;
+private final long invalidationCount;
+
+public CacheStats(String name, int size, long hitCount, long missCount,
+                  long evictionCount, long expiredCount, long invalidationCount) {
+    this.name = name;
+    this.size = size;
+    this.hitCount = hitCount;
+    this.missCount = missCount;
+    this.evictionCount = evictionCount;
+    this.expiredCount = expiredCount;
+    this.invalidationCount = invalidationCount;
+}
+
+    // Getters
+    public String getName() { return name; }
+    public int getSize() { return size; }
+    public long getHitCount() { return hitCount; }
+    public long getMissCount() { return missCount; }
+    public long getEvictionCount() { return evictionCount; }
+    public long getExpiredCount() { return expiredCount; }
+    public long getInvalidationCount() { return invalidationCount; }
+
+    public double getHitRate() {
+        long lookups = hitCount + missCount;
+        return lookups == 0 ? 0.0 : (double) hitCount / lookups;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "%s: size=%d hits=%d misses=%d hitRate=%.1f%% evicted=%d expired=%d invalidated=%d",
+                name, size, hitCount, missCount, getHitRate() * 100,
+                evictionCount, expiredCount, invalidationCount);
+    }
+}
@@ -0,0 +1,127 @@
+package cache;
+
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Bounded read-through cache in front of a single-row lookup. Entries are
+ * dropped least-recently-used first once maxSize is reached, and reloaded
+ * once older than the TTL. Controllers invalidate entries from their own
+ * update and delete methods; the TTL covers changes made elsewhere.
+ *
+ * Cached objects are shared between callers and must be treated as read-only.
+ */
+public class EntityCache<K, V> {
+
+    public interface Loader<K, V> {
+        V load(K key) throws SQLException;
+    }
+
+    private static final class Entry<V> {
+        final V value;
+        final long loadedAt;
+
+        Entry(V value, long loadedAt) {
+            this.value = value;
+            this.loadedAt = loadedAt;
+        }
+    }
+
+    private final String name;
+    private final int maxSize;
+    private final long ttlNanos;
+
+    // Guarded by this
+    private final Map<K, Entry<V>> entries;
+    private long generation;
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+    private long expiredCount;
+    private long invalidationCount;
+
+    public EntityCache(String name, CacheConfig config) {
+        this.name = name;
+        this.maxSize = config.getMaxSize();
+        this.ttlNanos = config.getTtlMs() * 1_000_000L;
+
+        this.entries = new LinkedHashMap<K, Entry<V>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                if (size() <= maxSize) return false;
+                evictionCount++;
+                return true;
+            }
+        };
+    }
+
+
+    // =========================================================================
+    // READ-THROUGH LOOKUP (misses are not cached, so a null result is retried)
+    // =========================================================================
+    public V get(K key, Loader<K, V> loader) throws SQLException {
+        if (maxSize <= 0) return loader.load(key);
+
+        long loadGeneration;
+        synchronized (this) {
+            Entry<V> entry = entries.get(key);
+            if (entry != null) {
+                if (System.nanoTime() - entry.loadedAt < ttlNanos) {
+                    hitCount++;
+                    return entry.value;
+                }
+                entries.remove(key);
+                expiredCount++;
+            }
+            missCount++;
+            loadGeneration = generation;
+        }
+
+        // Loaded outside the lock so one slow query does not stall every other lookup
+        long loadedAt = System.nanoTime();
+        V value = loader.load(key);
+
+        if (value != null) {
+            synchronized (this) {
+                // An invalidation while we were loading may mean the row we read is already stale
+                if (generation == loadGeneration) entries.put(key, new Entry<>(value, loadedAt));
+            }
+        }
+        return value;
+    }
+
+
+    // =========================================================================
+    // INVALIDATION (called after a write to the underlying row commits)
+    // =========================================================================
+    public synchronized void invalidate(K key) {
+        generation++;
+        if (entries.remove(key) != null) invalidationCount++;
+    }
+
+    // For writes known by a different key than the cache's, e.g. an id when cached by barcode
+    public synchronized void invalidateIf(Predicate<V> matches) {
+        generation++;
+        Iterator<Entry<V>> it = entries.values().iterator();
+        while (it.hasNext()) {
+            if (matches.test(it.next().value)) {
+                it.remove();
+                invalidationCount++;
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        generation++;
+        invalidationCount += entries.size();
+        entries.clear();
+    }
+
+    public synchronized CacheStats stats() {
+        return new CacheStats(name, entries.size(), hitCount, missCount,
+                evictionCount, expiredCount, invalidationCount);
+    }
+}
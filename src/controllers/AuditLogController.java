@@ -1,71 +1,112 @@
 package controllers;
 
+import db.AuditPartitions;
+import db.ConnectionPool;
+import db.IdAllocator;
+import db.Page;
+import db.PageRequest;
+import db.TableExporter;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import models.AuditLog;
 
+/**
+ * Audit entries are spread over monthly partitions (see AuditPartitions).
+ * Listings walk the partitions newest first and stop once they have enough
+ * rows; date-range queries only open the partitions the range covers.
+ */
 public class AuditLogController {
 
-    private final String dbUrl;
+    private static final long FLUSH_TIMEOUT_MS = 2000;
 
-    public AuditLogController(String dbPath) {
-        this.dbUrl = "jdbc:ucanaccess://" + dbPath;
+    private final ConnectionPool pool;
+    private final IdAllocator ids;
+    private final AuditLogWriter writer;
+    private final AuditPartitions partitions;
+
+    public AuditLogController(ConnectionPool pool, IdAllocator ids, AuditLogWriter writer, AuditPartitions partitions) {
+        this.pool = pool;
+        this.ids = ids;
+        this.writer = writer;
+        this.partitions = partitions;
     }
 
 
     // =========================================================================
-    // INSERT A LOG ENTRY
+    // INSERT A LOG ENTRY (queued; the writer thread commits it in a batch)
     // =========================================================================
     public boolean logAction(int userId, String action, String targetType) {
-        String idSql = "SELECT MAX(logId) AS maxId FROM AuditLog";
-        String insertSql = "INSERT INTO AuditLog (logId, userId, action, targetType, logTime) VALUES (?, ?, ?, ?, ?)";
-
-        try (Connection conn = DriverManager.getConnection(dbUrl);
-             PreparedStatement idStmt = conn.prepareStatement(idSql);
-             ResultSet rs = idStmt.executeQuery()) {
-
-            int nextId = 1;
-            if (rs.next()) {
-                int maxId = rs.getInt("maxId");
-                if (!rs.wasNull()) {
-                    nextId = maxId + 1;
-                }
-            }
+        try {
+            AuditLog log = new AuditLog();
+            log.setLogId(ids.nextId("AuditLog", "logId"));
+            log.setUserId(userId);
+            log.setAction(action);
+            log.setTargetType(targetType);
+            log.setLogTime(new Date());
 
-            try (PreparedStatement ps = conn.prepareStatement(insertSql)) {
-                java.sql.Timestamp now = new java.sql.Timestamp(new Date().getTime());
+            return writer.submit(log);
+
+        } catch (SQLException e) {
+            System.out.println("Error logging action:");
+            e.printStackTrace();
+            return false;
+        }
+    }
 
-                ps.setInt(1, nextId);
-                ps.setInt(2, userId);
-                ps.setString(3, action);
-                ps.setString(4, targetType);
-                ps.setTimestamp(5, now);
 
-                return ps.executeUpdate() == 1;
+    // =========================================================================
+    // INSERT ONE ENTRY PER TARGET (e.g. each copy of a cart), same action and time
+    // =========================================================================
+    public boolean logActions(int userId, String action, List<String> targetTypes) {
+        Date now = new Date();
+        boolean allQueued = true;
+
+        try {
+            for (String targetType : targetTypes) {
+                AuditLog log = new AuditLog();
+                log.setLogId(ids.nextId("AuditLog", "logId"));
+                log.setUserId(userId);
+                log.setAction(action);
+                log.setTargetType(targetType);
+                log.setLogTime(now);
+
+                allQueued &= writer.submit(log);
             }
+            return allQueued;
 
         } catch (SQLException e) {
-            System.out.println("Error logging action:");
+            System.out.println("Error logging actions:");
             e.printStackTrace();
             return false;
         }
     }
 
 
+    // Reads go through here so screens see actions logged moments ago
+    private void flushPending() {
+        writer.flush(FLUSH_TIMEOUT_MS);
+    }
+
+
     // =========================================================================
     // GET ALL LOGS
     // =========================================================================
     public List<AuditLog> getAllLogs() {
-        List<AuditLog> list = new ArrayList<>();
-        String sql = "SELECT * FROM AuditLog ORDER BY logTime DESC";
+        flushPending();
 
-        try (Connection conn = DriverManager.getConnection(dbUrl);
-             PreparedStatement ps = conn.prepareStatement(sql);
-             ResultSet rs = ps.executeQuery()) {
+        List<AuditLog> list = new ArrayList<>();
 
-            while (rs.next()) list.add(buildLog(rs));
+        try (Connection conn = pool.getConnection()) {
+            for (String table : partitions.tablesNewestFirst()) {
+                try (PreparedStatement ps = conn.prepareStatement("SELECT * FROM " + table + " ORDER BY logTime DESC")) {
+                    readLogs(ps, list);
+                }
+            }
 
         } catch (SQLException e) {
             System.out.println("Error fetching logs:");
@@ -75,21 +116,62 @@ public class AuditLogController {
         return list;
     }
 
+    // Same order as getAllLogs, one page at a time, served by the (logTime, logId) seek below
+    public Page<AuditLog> getAllLogs(PageRequest request) {
+        AuditLog anchor = null;
+        if (request.getCursor() == null) {
+            flushPending();
+        } else {
+            anchor = new AuditLog();
+            anchor.setLogTime((Date) request.getCursor().getKey(0));
+            anchor.setLogId((Integer) request.getCursor().getKey(1));
+        }
+
+        boolean older = request.getDirection() == PageRequest.Direction.NEXT;
+        List<AuditLog> rows = getLogsPage(anchor, older, null, null, request.getSize() + 1);
+
+        return Page.fromFetch(rows, request, log -> new Object[]{log.getLogTime(), log.getLogId()});
+    }
+
+
+    // =========================================================================
+    // EXPORT ALL LOGS, oldest first, streamed straight to a file
+    // Returns the number of entries written, or -1 on failure
+    // =========================================================================
+    public long exportLogs(Path file, TableExporter.Format format, boolean gzip) {
+        flushPending();
+
+        try {
+            List<String> queries = new ArrayList<>();
+            for (String table : partitions.tablesOldestFirst()) {
+                queries.add("SELECT * FROM " + table + " ORDER BY logTime ASC, logId ASC");
+            }
+            return new TableExporter(pool).exportQueries(queries, format, file, gzip);
+
+        } catch (IOException | SQLException e) {
+            System.out.println("Error exporting logs:");
+            e.printStackTrace();
+            return -1;
+        }
+    }
+
 
     // =========================================================================
     // GET LOGS FOR A SPECIFIC USER
     // =========================================================================
     public List<AuditLog> getLogsByUser(int userId) {
-        List<AuditLog> list = new ArrayList<>();
-        String sql = "SELECT * FROM AuditLog WHERE userId=? ORDER BY logTime DESC";
+        flushPending();
 
-        try (Connection conn = DriverManager.getConnection(dbUrl);
-             PreparedStatement ps = conn.prepareStatement(sql)) {
-
-            ps.setInt(1, userId);
-            ResultSet rs = ps.executeQuery();
+        List<AuditLog> list = new ArrayList<>();
 
-            while (rs.next()) list.add(buildLog(rs));
+        try (Connection conn = pool.getConnection()) {
+            for (String table : partitions.tablesNewestFirst()) {
+                try (PreparedStatement ps = conn.prepareStatement(
+                        "SELECT * FROM " + table + " WHERE userId=? ORDER BY logTime DESC")) {
+                    ps.setInt(1, userId);
+                    readLogs(ps, list);
+                }
+            }
 
         } catch (SQLException e) {
             System.out.println("Error fetching logs for user:");
@@ -104,16 +186,18 @@ public class AuditLogController {
     // GET LOGS BY ACTION TYPE (login, logout, issue, return, fine, etc.)
     // =========================================================================
     public List<AuditLog> getLogsByAction(String actionType) {
-        List<AuditLog> list = new ArrayList<>();
-        String sql = "SELECT * FROM AuditLog WHERE action=? ORDER BY logTime DESC";
-
-        try (Connection conn = DriverManager.getConnection(dbUrl);
-             PreparedStatement ps = conn.prepareStatement(sql)) {
+        flushPending();
 
-            ps.setString(1, actionType);
-            ResultSet rs = ps.executeQuery();
+        List<AuditLog> list = new ArrayList<>();
 
-            while (rs.next()) list.add(buildLog(rs));
+        try (Connection conn = pool.getConnection()) {
+            for (String table : partitions.tablesNewestFirst()) {
+                try (PreparedStatement ps = conn.prepareStatement(
+                        "SELECT * FROM " + table + " WHERE action=? ORDER BY logTime DESC")) {
+                    ps.setString(1, actionType);
+                    readLogs(ps, list);
+                }
+            }
 
         } catch (SQLException e) {
             System.out.println("Error filtering logs by action:");
@@ -125,31 +209,200 @@ public class AuditLogController {
 
 
     // =========================================================================
-    // GET LOGS IN A DATE RANGE (for reporting)
+    // GET LOGS IN A DATE RANGE (for reporting; only the partitions it covers are read)
     // =========================================================================
     public List<AuditLog> getLogsBetween(Date start, Date end) {
+        flushPending();
+
         List<AuditLog> list = new ArrayList<>();
 
-        String sql = "SELECT * FROM AuditLog WHERE logTime BETWEEN ? AND ? ORDER BY logTime DESC";
+        try (Connection conn = pool.getConnection()) {
+            for (String table : partitions.tablesBetween(start, end)) {
+                try (PreparedStatement ps = conn.prepareStatement(
+                        "SELECT * FROM " + table + " WHERE logTime BETWEEN ? AND ? ORDER BY logTime DESC")) {
+                    ps.setTimestamp(1, new java.sql.Timestamp(start.getTime()));
+                    ps.setTimestamp(2, new java.sql.Timestamp(end.getTime()));
+                    readLogs(ps, list);
+                }
+            }
 
-        try (Connection conn = DriverManager.getConnection(dbUrl);
-             PreparedStatement ps = conn.prepareStatement(sql)) {
+        } catch (SQLException e) {
+            System.out.println("Error filtering logs by date:");
+            e.printStackTrace();
+        }
 
-            ps.setTimestamp(1, new java.sql.Timestamp(start.getTime()));
-            ps.setTimestamp(2, new java.sql.Timestamp(end.getTime()));
+        return list;
+    }
 
-            ResultSet rs = ps.executeQuery();
 
-            while (rs.next()) list.add(buildLog(rs));
+    // =========================================================================
+    // COUNT LOGS (null filter = any); used to size the paged audit table
+    // =========================================================================
+    public int countLogs(Integer userId, String action) {
+        flushPending();
+
+        try (Connection conn = pool.getConnection()) {
+            int total = 0;
+            for (String table : partitions.tablesNewestFirst()) {
+                total += countIn(conn, table, userId, action);
+            }
+            return total;
 
         } catch (SQLException e) {
-            System.out.println("Error filtering logs by date:");
+            System.out.println("Error counting logs:");
+            e.printStackTrace();
+        }
+
+        return 0;
+    }
+
+
+    // =========================================================================
+    // KEYSET PAGE: up to limit logs next to anchor, always returned newest first
+    // older = rows after the anchor in the newest-first order, else rows before it;
+    // a null anchor starts from the newest log
+    // =========================================================================
+    public List<AuditLog> getLogsPage(AuditLog anchor, boolean older, Integer userId, String action, int limit) {
+        List<AuditLog> list = new ArrayList<>();
+
+        // Partitions in the direction of travel, starting with the anchor's own
+        List<String> tables = partitions.tablesNewestFirst();
+        if (!older) Collections.reverse(tables);
+        String anchorTable = anchor == null ? null : partitions.tableFor(anchor.getLogTime());
+        boolean started = anchorTable == null;
+
+        try (Connection conn = pool.getConnection()) {
+            for (String table : tables) {
+                if (list.size() >= limit) break;
+
+                if (!started) {
+                    if (!table.equals(anchorTable)) continue;
+                    started = true;
+                    pageIn(conn, table, anchor, older, userId, action, limit - list.size(), list);
+                } else {
+                    pageIn(conn, table, null, older, userId, action, limit - list.size(), list);
+                }
+            }
+
+        } catch (SQLException e) {
+            System.out.println("Error fetching log page:");
+            e.printStackTrace();
+        }
+
+        if (!older) Collections.reverse(list);
+        return list;
+    }
+
+    // Up to limit rows of one partition past the anchor (or from its end), in the order of travel
+    private void pageIn(Connection conn, String table, AuditLog anchor, boolean older,
+                        Integer userId, String action, int limit, List<AuditLog> list) throws SQLException {
+        String filter = filterSql(userId, action);
+        String dir = older ? "DESC" : "ASC";
+
+        if (anchor == null) {
+            String sql = "SELECT TOP " + limit + " * FROM " + table + " WHERE 1=1" + filter +
+                         " ORDER BY logTime " + dir + ", logId " + dir;
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                bindFilter(ps, 1, userId, action);
+                readLogs(ps, list);
+            }
+            return;
+        }
+
+        // (logTime, logId) past the anchor, as two range scans the index can serve:
+        // first the rest of the anchor's own timestamp, then the timestamps beyond it
+        Timestamp at = new Timestamp(anchor.getLogTime().getTime());
+        String cmp = older ? "<" : ">";
+        int before = list.size();
+
+        String tiesSql = "SELECT TOP " + limit + " * FROM " + table + " WHERE logTime = ? AND logId " + cmp + " ?" +
+                         filter + " ORDER BY logId " + dir;
+        try (PreparedStatement ps = conn.prepareStatement(tiesSql)) {
+            ps.setTimestamp(1, at);
+            ps.setInt(2, anchor.getLogId());
+            bindFilter(ps, 3, userId, action);
+            readLogs(ps, list);
+        }
+
+        int found = list.size() - before;
+        if (found < limit) {
+            String restSql = "SELECT TOP " + (limit - found) + " * FROM " + table + " WHERE logTime " + cmp + " ?" +
+                             filter + " ORDER BY logTime " + dir + ", logId " + dir;
+            try (PreparedStatement ps = conn.prepareStatement(restSql)) {
+                ps.setTimestamp(1, at);
+                bindFilter(ps, 2, userId, action);
+                readLogs(ps, list);
+            }
+        }
+    }
+
+
+    // =========================================================================
+    // OFFSET PAGE: for jumping straight to a row no cached page is next to
+    // Whole partitions before the offset are skipped by their counts
+    // =========================================================================
+    public List<AuditLog> getLogsPageAt(int offset, Integer userId, String action, int limit) {
+        List<AuditLog> list = new ArrayList<>();
+
+        try (Connection conn = pool.getConnection()) {
+            for (String table : partitions.tablesNewestFirst()) {
+                if (list.size() >= limit) break;
+
+                if (offset > 0) {
+                    int count = countIn(conn, table, userId, action);
+                    if (offset >= count) {
+                        offset -= count;
+                        continue;
+                    }
+                }
+
+                String sql = "SELECT * FROM " + table + " WHERE 1=1" + filterSql(userId, action) +
+                             " ORDER BY logTime DESC, logId DESC LIMIT " + (limit - list.size()) + " OFFSET " + offset;
+                try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                    bindFilter(ps, 1, userId, action);
+                    readLogs(ps, list);
+                }
+                offset = 0;
+            }
+
+        } catch (SQLException e) {
+            System.out.println("Error fetching log page at offset:");
             e.printStackTrace();
         }
 
         return list;
     }
 
+    private int countIn(Connection conn, String table, Integer userId, String action) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(
+                "SELECT COUNT(*) AS cnt FROM " + table + " WHERE 1=1" + filterSql(userId, action))) {
+            bindFilter(ps, 1, userId, action);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getInt("cnt") : 0;
+            }
+        }
+    }
+
+    // "userId + 0" keeps the planner on the logTime index; the userId index
+    // would otherwise be chosen and every page would sort the user's whole history
+    private String filterSql(Integer userId, String action) {
+        String sql = "";
+        if (userId != null) sql += " AND userId + 0 = ?";
+        if (action != null) sql += " AND action = ?";
+        return sql;
+    }
+
+    private void bindFilter(PreparedStatement ps, int index, Integer userId, String action) throws SQLException {
+        if (userId != null) ps.setInt(index++, userId);
+        if (action != null) ps.setString(index, action);
+    }
+
+    private void readLogs(PreparedStatement ps, List<AuditLog> list) throws SQLException {
+        try (ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) list.add(buildLog(rs));
+        }
+    }
+
 
     // =========================================================================
     // BUILD LOG OBJECT FROM RESULTSET
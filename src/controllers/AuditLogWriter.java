@@ -0,0 +1,287 @@
+package controllers;
+
+import db.AuditPartitions;
+import db.ConnectionPool;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import models.AuditLog;
+
+/**
+ * Write-behind queue for audit entries. logAction only enqueues; a background
+ * thread groups queued entries into one JDBC batch per commit, flushing when
+ * a batch fills up or the flush interval passes. close() drains everything
+ * still queued before returning. Each entry goes to the audit partition
+ * covering its logTime.
+ */
+public class AuditLogWriter implements AutoCloseable {
+
+    private static final String INSERT_SQL =
+            "INSERT INTO %s (logId, userId, action, targetType, logTime) VALUES (?, ?, ?, ?, ?)";
+
+    private final ConnectionPool pool;
+    private final AuditPartitions partitions;
+    private final AuditWriterConfig config;
+    private final BlockingQueue<AuditLog> queue;
+    private final Thread worker;
+
+    // accepted = entries taken in; settled = entries written, dropped or failed
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong settled = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final Object settleLock = new Object();
+
+    private volatile boolean running = true;
+    private volatile boolean flushRequested;
+
+    public AuditLogWriter(ConnectionPool pool, AuditPartitions partitions, AuditWriterConfig config) {
+        this.pool = pool;
+        this.partitions = partitions;
+        this.config = config;
+        this.queue = new ArrayBlockingQueue<>(config.getQueueCapacity());
+
+        this.worker = new Thread(this::drainLoop, "slms-audit-writer");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+
+    // =========================================================================
+    // ENQUEUE AN ENTRY (returns false if it was dropped)
+    // =========================================================================
+    public boolean submit(AuditLog entry) {
+        if (!running) {
+            return writeNow(entry);
+        }
+
+        accepted.incrementAndGet();
+        if (queue.offer(entry)) {
+            return enqueued(entry);
+        }
+
+        switch (config.getOverflowPolicy()) {
+            case BLOCK:
+                try {
+                    if (queue.offer(entry, config.getBlockTimeoutMs(), TimeUnit.MILLISECONDS)) {
+                        return enqueued(entry);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                markDropped(1);
+                return false;
+
+            case DROP_OLDEST:
+                while (!queue.offer(entry)) {
+                    if (queue.poll() != null) {
+                        markDropped(1);
+                    }
+                }
+                return enqueued(entry);
+
+            case CALLER_RUNS:
+                accepted.decrementAndGet();
+                return writeNow(entry);
+
+            case DROP_NEWEST:
+            default:
+                markDropped(1);
+                return false;
+        }
+    }
+
+    // close() may have stopped the writer between the running check and the offer;
+    // if the worker has already exited, the entry would sit in the queue unwritten
+    private boolean enqueued(AuditLog entry) {
+        if (running || !queue.remove(entry)) {
+            return true; // the worker has it, or will before it exits
+        }
+        accepted.decrementAndGet();
+        return writeNow(entry);
+    }
+
+    private boolean writeNow(AuditLog entry) {
+        accepted.incrementAndGet();
+        List<AuditLog> single = new ArrayList<>(1);
+        single.add(entry);
+        return writeBatch(single);
+    }
+
+
+    // =========================================================================
+    // BACKGROUND DRAIN: one batch per commit
+    // =========================================================================
+    private void drainLoop() {
+        List<AuditLog> batch = new ArrayList<>(config.getBatchSize());
+
+        while (running || !queue.isEmpty()) {
+            try {
+                AuditLog first = queue.poll(config.getFlushIntervalMs(), TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+
+                batch.add(first);
+                long deadline = System.currentTimeMillis() + config.getFlushIntervalMs();
+
+                // Keep filling until the batch is full or the first entry has waited long enough
+                while (batch.size() < config.getBatchSize()) {
+                    queue.drainTo(batch, config.getBatchSize() - batch.size());
+                    long remaining = deadline - System.currentTimeMillis();
+                    if (batch.size() >= config.getBatchSize() || remaining <= 0 || !running || flushRequested) break;
+
+                    AuditLog next = queue.poll(remaining, TimeUnit.MILLISECONDS);
+                    if (next == null) break;
+                    batch.add(next);
+                }
+
+                flushRequested = false;
+                writeBatch(batch);
+                batch.clear();
+
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                if (!batch.isEmpty()) {
+                    writeBatch(batch);
+                    batch.clear();
+                }
+                return;
+            }
+        }
+    }
+
+    private boolean writeBatch(List<AuditLog> batch) {
+        boolean ok = false;
+
+        // One statement per partition the batch touches; normally just this month's
+        Map<String, PreparedStatement> statements = new HashMap<>();
+
+        try (Connection conn = pool.getConnection()) {
+            conn.setAutoCommit(false);
+
+            try {
+                for (AuditLog log : batch) {
+                    String table = partitions.tableFor(log.getLogTime());
+                    PreparedStatement ps = statements.get(table);
+                    if (ps == null) {
+                        ps = conn.prepareStatement(String.format(INSERT_SQL, table));
+                        statements.put(table, ps);
+                    }
+
+                    ps.setInt(1, log.getLogId());
+                    ps.setInt(2, log.getUserId());
+                    ps.setString(3, log.getAction());
+                    ps.setString(4, log.getTargetType());
+                    ps.setTimestamp(5, new Timestamp(log.getLogTime().getTime()));
+                    ps.addBatch();
+                }
+
+                for (PreparedStatement ps : statements.values()) ps.executeBatch();
+                conn.commit();
+            } finally {
+                closeAll(statements.values());
+            }
+
+            written.addAndGet(batch.size());
+            batches.incrementAndGet();
+            ok = true;
+
+        } catch (SQLException e) {
+            System.out.println("Error writing audit log batch (" + batch.size() + " entries):");
+            e.printStackTrace();
+            failed.addAndGet(batch.size());
+        }
+
+        settle(batch.size());
+        return ok;
+    }
+
+    private static void closeAll(Iterable<PreparedStatement> statements) {
+        for (PreparedStatement ps : statements) {
+            try {
+                ps.close();
+            } catch (SQLException ignored) {
+                // the batch has already succeeded or been reported
+            }
+        }
+    }
+
+    private void markDropped(int count) {
+        dropped.addAndGet(count);
+        settle(count);
+    }
+
+    private void settle(int count) {
+        settled.addAndGet(count);
+        synchronized (settleLock) {
+            settleLock.notifyAll();
+        }
+    }
+
+
+    // =========================================================================
+    // FLUSH: wait until everything submitted so far has been written
+    // =========================================================================
+    public boolean flush(long timeoutMs) {
+        long target = accepted.get();
+        if (settled.get() >= target) return true;
+
+        flushRequested = true;
+        long deadline = System.currentTimeMillis() + timeoutMs;
+
+        synchronized (settleLock) {
+            while (settled.get() < target) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) return false;
+                try {
+                    settleLock.wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    public int getQueuedCount() {
+        return queue.size();
+    }
+
+    public long getWrittenCount() { return written.get(); }
+    public long getDroppedCount() { return dropped.get(); }
+    public long getFailedCount() { return failed.get(); }
+    public long getBatchCount() { return batches.get(); }
+
+
+    // =========================================================================
+    // SHUTDOWN: stop accepting, drain the queue, wait for the last commit
+    // =========================================================================
+    @Override
+    public void close() {
+        if (!running) return;
+        // No interrupt: it could land inside a write and close the database file channel
+        running = false;
+
+        try {
+            worker.join(config.getShutdownTimeoutMs());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (worker.isAlive() || !queue.isEmpty()) {
+            System.out.println("Audit writer did not drain within "
+                    + config.getShutdownTimeoutMs() + "ms; " + queue.size() + " entries left");
+        }
+    }
+}
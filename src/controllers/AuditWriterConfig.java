@@ -0,0 +1,41 @@
+package controllers;
+
+public class AuditWriterConfig {
+
+    // What logAction does when the queue is full
+    public enum OverflowPolicy {
+        BLOCK,          // wait up to blockTimeoutMs for room, then drop the entry
+        DROP_NEWEST,    // drop the entry being logged
+        DROP_OLDEST,    // evict the oldest queued entry to make room
+        CALLER_RUNS     // write the entry synchronously on the calling thread
+    }
+
+private int queueCapacity = 10000;
+private int batchSize = 100;
+private long flushIntervalMs = 500;
+private long blockTimeoutMs = 1000;
+private long shutdownTimeoutMs = 10000;
+private OverflowPolicy overflowPolicy = OverflowPolicy.CALLER_RUNS;
+
+public AuditWriterConfig() {}
+
+    // Getters & Setters
+    public int getQueueCapacity() { return queueCapacity; }
+    public void setQueueCapacity(int queueCapacity) { this.queueCapacity = queueCapacity; }
+
+    public int getBatchSize() { return batchSize; }
+    public void setBatchSize(int batchSize) { this.batchSize = batchSize; }
+
+    // Longest time a logged entry waits in memory before its batch is committed
+    public long getFlushIntervalMs() { return flushIntervalMs; }
+    public void setFlushIntervalMs(long flushIntervalMs) { this.flushIntervalMs = flushIntervalMs; }
+
+    public long getBlockTimeoutMs() { return blockTimeoutMs; }
+    public void setBlockTimeoutMs(long blockTimeoutMs) { this.blockTimeoutMs = blockTimeoutMs; }
+
+    public long getShutdownTimeoutMs() { return shutdownTimeoutMs; }
+    public void setShutdownTimeoutMs(long shutdownTimeoutMs) { this.shutdownTimeoutMs = shutdownTimeoutMs; }
+
+    public OverflowPolicy getOverflowPolicy() { return overflowPolicy; }
+    public void setOverflowPolicy(OverflowPolicy overflowPolicy) { this.overflowPolicy = overflowPolicy; }
+}
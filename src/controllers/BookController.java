@@ -1,39 +1,53 @@
 package controllers;
 
+import cache.CacheConfig;
+import cache.CacheStats;
+import cache.EntityCache;
+import db.ConnectionPool;
+import db.IdAllocator;
+import db.KeysetQuery;
+import db.Page;
+import db.PageRequest;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import models.Book;
+import search.BookSearchIndex;
 
 public class BookController {
 
-    private final String dbUrl;
+    private static final int SEARCH_LIMIT = 200;
+    private static final int INDEX_LOAD_CHUNK = 1000;
 
-    public BookController(String dbPath) {
-        this.dbUrl = "jdbc:ucanaccess://" + dbPath;
+    private final ConnectionPool pool;
+    private final IdAllocator ids;
+    private final BookSearchIndex searchIndex = new BookSearchIndex();
+    private final EntityCache<Integer, Book> cache;
+
+    public BookController(ConnectionPool pool, IdAllocator ids) {
+        this(pool, ids, new CacheConfig());
+    }
+
+    public BookController(ConnectionPool pool, IdAllocator ids, CacheConfig cacheConfig) {
+        this.pool = pool;
+        this.ids = ids;
+        this.cache = new EntityCache<>("books", cacheConfig);
     }
 
     // ============================================================
     // CREATE BOOK
     // ============================================================
     public boolean createBook(Book b) {
-        String idSql = "SELECT MAX(bookId) AS maxId FROM Books";
         String insertSql = "INSERT INTO Books (bookId, title, author, ISBN, category, totalQuantity, availableQuantity, status) " +
                            "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
 
-        try (Connection conn = DriverManager.getConnection(dbUrl);
-             PreparedStatement idStmt = conn.prepareStatement(idSql);
-             ResultSet rs = idStmt.executeQuery()) {
-
-            int nextId = 1;
-            if (rs.next()) {
-                int maxId = rs.getInt("maxId");
-                if (!rs.wasNull()) {
-                    nextId = maxId + 1;
-                }
-            }
+        try {
+            int nextId = ids.nextId("Books", "bookId");
 
-            try (PreparedStatement ps = conn.prepareStatement(insertSql)) {
+            try (Connection conn = pool.getConnection();
+                 PreparedStatement ps = conn.prepareStatement(insertSql)) {
                 ps.setInt(1, nextId);
                 ps.setString(2, b.getTitle());
                 ps.setString(3, b.getAuthor());
@@ -43,7 +57,11 @@ public class BookController {
                 ps.setInt(7, b.getAvailableQuantity());
                 ps.setString(8, b.getStatus());
 
-                return ps.executeUpdate() == 1;
+                if (ps.executeUpdate() != 1) return false;
+
+                b.setBookId(nextId);
+                searchIndex.put(b);
+                return true;
             }
 
         } catch (SQLException e) {
@@ -60,7 +78,7 @@ public class BookController {
         String sql = "UPDATE Books SET title=?, author=?, ISBN=?, category=?, totalQuantity=?, availableQuantity=?, status=? " +
                      "WHERE bookId=?";
 
-        try (Connection conn = DriverManager.getConnection(dbUrl);
+        try (Connection conn = pool.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
 
             ps.setString(1, b.getTitle());
@@ -72,7 +90,11 @@ public class BookController {
             ps.setString(7, b.getStatus());
             ps.setInt(8, b.getBookId());
 
-            return ps.executeUpdate() == 1;
+            if (ps.executeUpdate() != 1) return false;
+
+            cache.invalidate(b.getBookId());
+            searchIndex.put(b);
+            return true;
 
         } catch (SQLException e) {
             System.out.println("Error updating book:");
@@ -87,11 +109,15 @@ public class BookController {
     public boolean deleteBook(int bookId) {
         String sql = "DELETE FROM Books WHERE bookId=?";
 
-        try (Connection conn = DriverManager.getConnection(dbUrl);
+        try (Connection conn = pool.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
 
             ps.setInt(1, bookId);
-            return ps.executeUpdate() == 1;
+            if (ps.executeUpdate() != 1) return false;
+
+            cache.invalidate(bookId);
+            searchIndex.remove(bookId);
+            return true;
 
         } catch (SQLException e) {
             System.out.println("Error deleting book:");
@@ -101,20 +127,15 @@ public class BookController {
     }
 
     // ============================================================
-    // GET BOOK BY ID
+    // GET BOOK BY ID (served from the cache when possible)
     // ============================================================
     public Book getBookById(int bookId) {
-        String sql = "SELECT * FROM Books WHERE bookId=?";
-
-        try (Connection conn = DriverManager.getConnection(dbUrl);
-             PreparedStatement ps = conn.prepareStatement(sql)) {
-
-            ps.setInt(1, bookId);
-            ResultSet rs = ps.executeQuery();
-
-            if (rs.next()) {
-                return buildBook(rs);
-            }
+        try {
+            return cache.get(bookId, id -> {
+                try (Connection conn = pool.getConnection()) {
+                    return loadBook(conn, id);
+                }
+            });
 
         } catch (SQLException e) {
             System.out.println("Error retrieving book:");
@@ -124,13 +145,36 @@ public class BookController {
         return null;
     }
 
+    // Cached lookup on a connection the caller already holds, e.g. inside a checkout
+    Book getBookById(Connection conn, int bookId) throws SQLException {
+        return cache.get(bookId, id -> loadBook(conn, id));
+    }
+
+    private Book loadBook(Connection conn, int bookId) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("SELECT * FROM Books WHERE bookId=?")) {
+            ps.setInt(1, bookId);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? buildBook(rs) : null;
+            }
+        }
+    }
+
+    // Called after any write that changes a book row outside this controller
+    void evict(int bookId) {
+        cache.invalidate(bookId);
+    }
+
+    public CacheStats getCacheStats() {
+        return cache.stats();
+    }
+
     // ============================================================
     // GET BOOK BY ISBN (for issue flow)
     // ============================================================
     public Book getBookByISBN(String isbn) {
         String sql = "SELECT * FROM Books WHERE ISBN=?";
 
-        try (Connection conn = DriverManager.getConnection(dbUrl);
+        try (Connection conn = pool.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
 
             ps.setString(1, isbn);
@@ -155,7 +199,7 @@ public class BookController {
         List<Book> list = new ArrayList<>();
         String sql = "SELECT * FROM Books WHERE title LIKE ?";
 
-        try (Connection conn = DriverManager.getConnection(dbUrl);
+        try (Connection conn = pool.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
 
             ps.setString(1, "%" + title + "%");
@@ -174,18 +218,23 @@ public class BookController {
     }
 
     // ============================================================
-    // SEARCH BOOKS BY TITLE / AUTHOR / ISBN
+    // SEARCH BOOKS BY TITLE / AUTHOR / ISBN / CATEGORY
+    // Ranked lookup in the in-memory index; plain LIKE scan until it is built
     // ============================================================
     public List<Book> searchBooks(String query) {
-        List<Book> list = new ArrayList<>();
-
         if (query == null) {
             query = "";
         }
 
+        if (searchIndex.isReady() && !query.trim().isEmpty()) {
+            return getBooksByIds(searchIndex.search(query, SEARCH_LIMIT));
+        }
+
+        List<Book> list = new ArrayList<>();
+
         String sql = "SELECT * FROM Books WHERE title LIKE ? OR author LIKE ? OR ISBN LIKE ? ORDER BY title ASC";
 
-        try (Connection conn = DriverManager.getConnection(dbUrl);
+        try (Connection conn = pool.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
 
             String like = "%" + query + "%";
@@ -207,6 +256,92 @@ public class BookController {
         return list;
     }
 
+    // ============================================================
+    // GET BOOKS BY ID LIST (keeps the order of the ids given)
+    // ============================================================
+    public List<Book> getBooksByIds(List<Integer> bookIds) {
+        List<Book> list = new ArrayList<>();
+        if (bookIds.isEmpty()) return list;
+
+        StringBuilder sql = new StringBuilder("SELECT * FROM Books WHERE bookId IN (");
+        for (int i = 0; i < bookIds.size(); i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        sql.append(")");
+
+        try (Connection conn = pool.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql.toString())) {
+
+            for (int i = 0; i < bookIds.size(); i++) {
+                ps.setInt(i + 1, bookIds.get(i));
+            }
+
+            Map<Integer, Book> byId = new HashMap<>();
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    Book b = buildBook(rs);
+                    byId.put(b.getBookId(), b);
+                }
+            }
+
+            for (int id : bookIds) {
+                Book b = byId.get(id);
+                if (b != null) list.add(b);
+            }
+
+        } catch (SQLException e) {
+            System.out.println("Error loading books by id:");
+            e.printStackTrace();
+        }
+
+        return list;
+    }
+
+    public boolean isSearchIndexReady() {
+        return searchIndex.isReady();
+    }
+
+    // ============================================================
+    // BUILD SEARCH INDEX (once at startup, off the UI thread)
+    // ============================================================
+    public void buildSearchIndex() {
+        String sql = "SELECT bookId, title, author, ISBN, category FROM Books ORDER BY bookId ASC";
+
+        searchIndex.beginLoad();
+
+        try (Connection conn = pool.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+
+            ps.setFetchSize(INDEX_LOAD_CHUNK);
+
+            try (ResultSet rs = ps.executeQuery()) {
+                List<Book> chunk = new ArrayList<>(INDEX_LOAD_CHUNK);
+                while (rs.next()) {
+                    Book b = new Book();
+                    b.setBookId(rs.getInt("bookId"));
+                    b.setTitle(rs.getString("title"));
+                    b.setAuthor(rs.getString("author"));
+                    b.setISBN(rs.getString("ISBN"));
+                    b.setCategory(rs.getString("category"));
+                    chunk.add(b);
+
+                    if (chunk.size() == INDEX_LOAD_CHUNK) {
+                        searchIndex.load(chunk);
+                        chunk.clear();
+                    }
+                }
+                searchIndex.load(chunk);
+            }
+
+            searchIndex.finishLoad();
+
+        } catch (SQLException e) {
+            searchIndex.abortLoad();
+            System.out.println("Error building search index:");
+            e.printStackTrace();
+        }
+    }
+
     // ============================================================
     // GET ALL BOOKS
     // ============================================================
@@ -214,7 +349,7 @@ public class BookController {
         List<Book> list = new ArrayList<>();
         String sql = "SELECT * FROM Books ORDER BY title ASC";
 
-        try (Connection conn = DriverManager.getConnection(dbUrl);
+        try (Connection conn = pool.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql);
              ResultSet rs = ps.executeQuery()) {
 
@@ -230,10 +365,27 @@ public class BookController {
         return list;
     }
 
+    // Same order as getAllBooks, one page at a time (bookId breaks title ties)
+    public Page<Book> getAllBooks(PageRequest request) {
+        KeysetQuery<Book> query = new KeysetQuery<>("Books", BookController::buildBook)
+                .orderByText("title", true, Book::getTitle)
+                .orderBy("bookId", true, Book::getBookId);
+
+        try (Connection conn = pool.getConnection()) {
+            return query.fetch(conn, request);
+
+        } catch (SQLException e) {
+            System.out.println("Error loading page of books:");
+            e.printStackTrace();
+        }
+
+        return Page.empty();
+    }
+
     // ============================================================
     // HELPER: Convert ResultSet → Book object
     // ============================================================
-    private Book buildBook(ResultSet rs) throws SQLException {
+    static Book buildBook(ResultSet rs) throws SQLException {
         Book b = new Book();
         b.setBookId(rs.getInt("bookId"));
         b.setTitle(rs.getString("title"));
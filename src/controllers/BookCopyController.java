@@ -1,5 +1,13 @@
 package controllers;
 
+import cache.CacheConfig;
+import cache.CacheStats;
+import cache.EntityCache;
+import db.ConnectionPool;
+import db.IdAllocator;
+import db.KeysetQuery;
+import db.Page;
+import db.PageRequest;
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
@@ -7,10 +15,20 @@ import models.BookCopy;
 
 public class BookCopyController {
 
-    private final String dbUrl;
+    private final ConnectionPool pool;
+    private final IdAllocator ids;
 
-    public BookCopyController(String dbPath) {
-        this.dbUrl = "jdbc:ucanaccess://" + dbPath;
+    // Keyed by barcode, the lookup the circulation desk makes
+    private final EntityCache<String, BookCopy> cache;
+
+    public BookCopyController(ConnectionPool pool, IdAllocator ids) {
+        this(pool, ids, new CacheConfig());
+    }
+
+    public BookCopyController(ConnectionPool pool, IdAllocator ids, CacheConfig cacheConfig) {
+        this.pool = pool;
+        this.ids = ids;
+        this.cache = new EntityCache<>("copies", cacheConfig);
     }
 
 
@@ -18,23 +36,14 @@ public class BookCopyController {
     // CREATE A NEW BOOK COPY
     // =========================================================================
     public boolean createCopy(BookCopy copy) {
-        String idSql = "SELECT MAX(copyId) AS maxId FROM BookCopies";
         String insertSql = "INSERT INTO BookCopies (copyId, bookId, copyNumber, barcode, location, status) " +
                            "VALUES (?, ?, ?, ?, ?, ?)";
 
-        try (Connection conn = DriverManager.getConnection(dbUrl);
-             PreparedStatement idStmt = conn.prepareStatement(idSql);
-             ResultSet rs = idStmt.executeQuery()) {
+        try {
+            int nextId = ids.nextId("BookCopies", "copyId");
 
-            int nextId = 1;
-            if (rs.next()) {
-                int maxId = rs.getInt("maxId");
-                if (!rs.wasNull()) {
-                    nextId = maxId + 1;
-                }
-            }
-
-            try (PreparedStatement ps = conn.prepareStatement(insertSql)) {
+            try (Connection conn = pool.getConnection();
+                 PreparedStatement ps = conn.prepareStatement(insertSql)) {
                 ps.setInt(1, nextId);
                 ps.setInt(2, copy.getBookId());
                 ps.setInt(3, copy.getCopyNumber());
@@ -42,7 +51,10 @@ public class BookCopyController {
                 ps.setString(5, copy.getLocation());
                 ps.setString(6, copy.getStatus());
 
-                return ps.executeUpdate() == 1;
+                if (ps.executeUpdate() != 1) return false;
+
+                copy.setCopyId(nextId);
+                return true;
             }
 
         } catch (SQLException e) {
@@ -60,7 +72,7 @@ public class BookCopyController {
         String sql = "UPDATE BookCopies SET bookId=?, copyNumber=?, barcode=?, location=?, status=? " +
                      "WHERE copyId=?";
 
-        try (Connection conn = DriverManager.getConnection(dbUrl);
+        try (Connection conn = pool.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
 
             ps.setInt(1, copy.getBookId());
@@ -70,7 +82,11 @@ public class BookCopyController {
             ps.setString(5, copy.getStatus());
             ps.setInt(6, copy.getCopyId());
 
-            return ps.executeUpdate() == 1;
+            if (ps.executeUpdate() != 1) return false;
+
+            // The barcode itself may have changed, so match on copyId
+            evict(copy.getCopyId());
+            return true;
 
         } catch (SQLException e) {
             System.out.println("Error updating book copy:");
@@ -86,11 +102,14 @@ public class BookCopyController {
     public boolean deleteCopy(int copyId) {
         String sql = "DELETE FROM BookCopies WHERE copyId=?";
 
-        try (Connection conn = DriverManager.getConnection(dbUrl);
+        try (Connection conn = pool.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
 
             ps.setInt(1, copyId);
-            return ps.executeUpdate() == 1;
+            if (ps.executeUpdate() != 1) return false;
+
+            evict(copyId);
+            return true;
 
         } catch (SQLException e) {
             System.out.println("Error deleting book copy:");
@@ -106,7 +125,7 @@ public class BookCopyController {
     public BookCopy getCopyById(int copyId) {
         String sql = "SELECT * FROM BookCopies WHERE copyId=?";
 
-        try (Connection conn = DriverManager.getConnection(dbUrl);
+        try (Connection conn = pool.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
 
             ps.setInt(1, copyId);
@@ -124,18 +143,24 @@ public class BookCopyController {
 
 
     // =========================================================================
-    // GET COPY BY BARCODE (important for issue flow)
+    // GET COPY BY BARCODE (important for issue flow; served from the cache when possible)
+    // Checkout and checkin re-read the copy inside their transaction, since its
+    // status must be current there; this lookup is for display and pre-checks.
     // =========================================================================
     public BookCopy getCopyByBarcode(String barcode) {
         String sql = "SELECT * FROM BookCopies WHERE barcode=?";
 
-        try (Connection conn = DriverManager.getConnection(dbUrl);
-             PreparedStatement ps = conn.prepareStatement(sql)) {
-
-            ps.setString(1, barcode);
-            ResultSet rs = ps.executeQuery();
+        try {
+            return cache.get(barcode, key -> {
+                try (Connection conn = pool.getConnection();
+                     PreparedStatement ps = conn.prepareStatement(sql)) {
 
-            if (rs.next()) return buildCopy(rs);
+                    ps.setString(1, key);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        return rs.next() ? buildCopy(rs) : null;
+                    }
+                }
+            });
 
         } catch (SQLException e) {
             System.out.println("Error fetching copy by barcode:");
@@ -145,6 +170,15 @@ public class BookCopyController {
         return null;
     }
 
+    // Called after any write that changes a copy row outside this controller
+    void evict(int copyId) {
+        cache.invalidateIf(c -> c.getCopyId() == copyId);
+    }
+
+    public CacheStats getCacheStats() {
+        return cache.stats();
+    }
+
 
     // =========================================================================
     // GET ALL COPIES OF A BOOK
@@ -153,7 +187,7 @@ public class BookCopyController {
         List<BookCopy> list = new ArrayList<>();
         String sql = "SELECT * FROM BookCopies WHERE bookId=? ORDER BY copyNumber ASC";
 
-        try (Connection conn = DriverManager.getConnection(dbUrl);
+        try (Connection conn = pool.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
 
             ps.setInt(1, bookId);
@@ -169,6 +203,24 @@ public class BookCopyController {
         return list;
     }
 
+    // Same order as getCopiesOfBook, one page at a time
+    public Page<BookCopy> getCopiesOfBook(int bookId, PageRequest request) {
+        KeysetQuery<BookCopy> query = new KeysetQuery<>("BookCopies", BookCopyController::buildCopy)
+                .where("bookId = ?", bookId)
+                .orderBy("copyNumber", true, BookCopy::getCopyNumber)
+                .orderBy("copyId", true, BookCopy::getCopyId);
+
+        try (Connection conn = pool.getConnection()) {
+            return query.fetch(conn, request);
+
+        } catch (SQLException e) {
+            System.out.println("Error fetching page of book copies:");
+            e.printStackTrace();
+        }
+
+        return Page.empty();
+    }
+
 
     // =========================================================================
     // CHECK IF COPY IS AVAILABLE
@@ -176,7 +228,7 @@ public class BookCopyController {
     public boolean isCopyAvailable(int copyId) {
         String sql = "SELECT status FROM BookCopies WHERE copyId=?";
 
-        try (Connection conn = DriverManager.getConnection(dbUrl);
+        try (Connection conn = pool.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
 
             ps.setInt(1, copyId);
@@ -201,7 +253,7 @@ public class BookCopyController {
         List<BookCopy> list = new ArrayList<>();
         String sql = "SELECT * FROM BookCopies WHERE bookId=? AND status='AVAILABLE'";
 
-        try (Connection conn = DriverManager.getConnection(dbUrl);
+        try (Connection conn = pool.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
 
             ps.setInt(1, bookId);
@@ -221,7 +273,7 @@ public class BookCopyController {
     // =========================================================================
     // BUILD COPY OBJECT FROM RESULTSET
     // =========================================================================
-    private BookCopy buildCopy(ResultSet rs) throws SQLException {
+    static BookCopy buildCopy(ResultSet rs) throws SQLException {
         BookCopy c = new BookCopy();
         c.setCopyId(rs.getInt("copyId"));
         c.setBookId(rs.getInt("bookId"));
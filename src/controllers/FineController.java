@@ -1,17 +1,43 @@
 package controllers;
 
+import db.ConnectionPool;
+import db.IdAllocator;
+import db.KeysetQuery;
+import db.Page;
+import db.PageRequest;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import ledger.LedgerReconciler;
+import ledger.MemberBalances;
+import ledger.ReconciliationReport;
+import lock.LockStats;
+import lock.StripedLock;
 import models.Fine;
+import models.IssueTransaction;
+import models.PaymentTransaction;
 
 public class FineController {
 
-    private final String dbUrl;
+    private static final int FINE_LOCK_STRIPES = 16;
 
-    public FineController(String dbPath) {
-        this.dbUrl = "jdbc:ucanaccess://" + dbPath;
+    private final ConnectionPool pool;
+    private final IdAllocator ids;
+
+    // What each member owes, moved by every fine, payment and waiver instead of re-summed per screen
+    private final MemberBalances balances = new MemberBalances();
+
+    // Two desks taking payments on the same fine queue here, so neither can overpay it
+    private final StripedLock fineLocks = new StripedLock("fines", FINE_LOCK_STRIPES);
+
+    public FineController(ConnectionPool pool, IdAllocator ids) {
+        this.pool = pool;
+        this.ids = ids;
     }
 
 
@@ -22,7 +48,7 @@ public class FineController {
 
         String sql = "SELECT issueDate, dueDate, returnDate, memberId FROM IssueTransactions WHERE issueId=?";
 
-        try (Connection conn = DriverManager.getConnection(dbUrl);
+        try (Connection conn = pool.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
 
             ps.setInt(1, issueId);
@@ -30,29 +56,14 @@ public class FineController {
 
             if (!rs.next()) return null;
 
-            Date dueDate = rs.getDate("dueDate");
-            Date returnDate = rs.getDate("returnDate");
-            int memberId = rs.getInt("memberId");
-
-            // If not returned yet → cannot calculate fine
-            if (returnDate == null) return null;
-
-            long diffMs = returnDate.getTime() - dueDate.getTime();
-            long daysLate = diffMs / (1000 * 60 * 60 * 24);
-
-            if (daysLate < 0) daysLate = 0;
+            IssueTransaction issue = new IssueTransaction();
+            issue.setIssueId(issueId);
+            issue.setMemberId(rs.getInt("memberId"));
+            issue.setIssueDate(rs.getDate("issueDate"));
+            issue.setDueDate(rs.getDate("dueDate"));
+            issue.setReturnDate(rs.getDate("returnDate"));
 
-            double fineAmount = daysLate * dailyRate;
-
-            Fine f = new Fine();
-            f.setIssueId(issueId);
-            f.setMemberId(memberId);
-            f.setDailyRate(dailyRate);
-            f.setOverdueDays((int) daysLate);
-            f.setAmount(fineAmount);
-            f.setStatus("UNPAID");
-
-            return f;
+            return computeFine(issue, dailyRate);
 
         } catch (SQLException e) {
             System.out.println("Error calculating fine:");
@@ -61,44 +72,102 @@ public class FineController {
         }
     }
 
+    // Pure calculation from an issue already in hand (checkin uses this without re-reading)
+    static Fine computeFine(IssueTransaction issue, double dailyRate) {
+        Date dueDate = issue.getDueDate();
+        Date returnDate = issue.getReturnDate();
+
+        // If not returned yet → cannot calculate fine
+        if (returnDate == null) return null;
+
+        long diffMs = returnDate.getTime() - dueDate.getTime();
+        long daysLate = diffMs / (1000 * 60 * 60 * 24);
+
+        if (daysLate < 0) daysLate = 0;
+
+        double fineAmount = daysLate * dailyRate;
+
+        Fine f = new Fine();
+        f.setIssueId(issue.getIssueId());
+        f.setMemberId(issue.getMemberId());
+        f.setDailyRate(dailyRate);
+        f.setOverdueDays((int) daysLate);
+        f.setAmount(fineAmount);
+        f.setStatus("UNPAID");
+
+        return f;
+    }
+
 
 
     // =========================================================================
     // INSERT FINE INTO DATABASE
     // =========================================================================
     public boolean createFine(Fine f) {
-        String idSql = "SELECT MAX(fineId) AS maxId FROM Fines";
+        try {
+            int nextId = ids.nextId("Fines", "fineId");
+
+            try (Connection conn = pool.getConnection()) {
+                if (!insertFine(conn, f, nextId)) return false;
+
+                f.setFineId(nextId);
+                recordCreated(List.of(f));
+                return true;
+            }
+
+        } catch (SQLException e) {
+            System.out.println("Error creating fine:");
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    // Runs on the caller's connection so checkin can insert the fine inside its own transaction
+    static boolean insertFine(Connection conn, Fine f, int fineId) throws SQLException {
         String insertSql = "INSERT INTO Fines (fineId, issueId, memberId, amount, dailyRate, overdueDays, status) " +
                            "VALUES (?, ?, ?, ?, ?, ?, ?)";
 
-        try (Connection conn = DriverManager.getConnection(dbUrl);
-             PreparedStatement idStmt = conn.prepareStatement(idSql);
-             ResultSet rs = idStmt.executeQuery()) {
+        try (PreparedStatement ps = conn.prepareStatement(insertSql)) {
+            ps.setInt(1, fineId);
+            ps.setInt(2, f.getIssueId());
+            ps.setInt(3, f.getMemberId());
+            ps.setDouble(4, f.getAmount());
+            ps.setDouble(5, f.getDailyRate());
+            ps.setInt(6, f.getOverdueDays());
+            ps.setString(7, f.getStatus());
 
-            int nextId = 1;
-            if (rs.next()) {
-                int maxId = rs.getInt("maxId");
-                if (!rs.wasNull()) {
-                    nextId = maxId + 1;
-                }
+            return ps.executeUpdate() == 1;
+        }
+    }
+
+    // Checkin inserts fines on its own connection; it reports them here once committed
+    void recordCreated(List<Fine> fines) {
+        for (Fine f : fines) {
+            if ("UNPAID".equalsIgnoreCase(f.getStatus())) {
+                balances.add(f.getMemberId(), MemberBalances.money(f.getAmount()));
             }
+        }
+    }
 
-            try (PreparedStatement ps = conn.prepareStatement(insertSql)) {
-                ps.setInt(1, nextId);
+    // Batched form for a cart checkin; each fine must already carry its fineId
+    static void insertFines(Connection conn, List<Fine> fines) throws SQLException {
+        if (fines.isEmpty()) return;
+
+        String insertSql = "INSERT INTO Fines (fineId, issueId, memberId, amount, dailyRate, overdueDays, status) " +
+                           "VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+        try (PreparedStatement ps = conn.prepareStatement(insertSql)) {
+            for (Fine f : fines) {
+                ps.setInt(1, f.getFineId());
                 ps.setInt(2, f.getIssueId());
                 ps.setInt(3, f.getMemberId());
                 ps.setDouble(4, f.getAmount());
                 ps.setDouble(5, f.getDailyRate());
                 ps.setInt(6, f.getOverdueDays());
                 ps.setString(7, f.getStatus());
-
-                return ps.executeUpdate() == 1;
+                ps.addBatch();
             }
-
-        } catch (SQLException e) {
-            System.out.println("Error creating fine:");
-            e.printStackTrace();
-            return false;
+            ps.executeBatch();
         }
     }
 
@@ -111,7 +180,7 @@ public class FineController {
 
         String sql = "SELECT * FROM Fines WHERE issueId=?";
 
-        try (Connection conn = DriverManager.getConnection(dbUrl);
+        try (Connection conn = pool.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
 
             ps.setInt(1, issueId);
@@ -139,7 +208,7 @@ public class FineController {
 
         String sql = "SELECT * FROM Fines WHERE memberId=? ORDER BY status ASC, fineId DESC";
 
-        try (Connection conn = DriverManager.getConnection(dbUrl);
+        try (Connection conn = pool.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
 
             ps.setInt(1, memberId);
@@ -159,47 +228,287 @@ public class FineController {
     }
 
 
+    // Same order as getFinesForMember (unpaid first, newest first), one page at a time
+    public Page<Fine> getFinesForMember(int memberId, PageRequest request) {
+        KeysetQuery<Fine> query = new KeysetQuery<>("Fines", this::buildFine)
+                .where("memberId = ?", memberId)
+                .orderByText("status", true, Fine::getStatus)
+                .orderBy("fineId", false, Fine::getFineId);
+
+        try (Connection conn = pool.getConnection()) {
+            return query.fetch(conn, request);
+
+        } catch (SQLException e) {
+            System.out.println("Error fetching page of member fines:");
+            e.printStackTrace();
+        }
+
+        return Page.empty();
+    }
+
+
 
     // =========================================================================
-    // MARK FINE AS PAID
+    // TAKE A PAYMENT (FULL OR PART) ON AN UNPAID FINE
+    // Payments are only ever appended; the fine turns PAID once they cover it.
+    // Returns null if the fine is not UNPAID or the amount is not in
+    // (0, outstanding].
+    // =========================================================================
+    public PaymentTransaction payFine(int fineId, double amount) {
+        BigDecimal paying = MemberBalances.money(amount);
+        if (paying.signum() <= 0) return null;
+
+        fineLocks.lock(fineId);
+        try {
+            return recordPayment(fineId, paying);
+        } finally {
+            fineLocks.unlock(fineId);
+        }
+    }
+
+    private PaymentTransaction recordPayment(int fineId, BigDecimal paying) {
+        String insertSql = "INSERT INTO PaymentTransactions (paymentId, fineId, amountPaid, paymentDate) VALUES (?, ?, ?, ?)";
+
+        // Compare-and-set, so a fine waived or paid off by another process is left alone
+        String paidSql = "UPDATE Fines SET status='PAID' WHERE fineId=? AND status='UNPAID'";
+
+        try (Connection conn = pool.getConnection()) {
+
+            conn.setAutoCommit(false); // Transaction
+
+            // 1) What is still owed on it
+            FineBalance owing = readBalance(conn, fineId);
+            if (owing == null || !"UNPAID".equalsIgnoreCase(owing.status)
+                    || paying.compareTo(owing.outstanding()) > 0) {
+                conn.rollback();
+                return null;
+            }
+
+            // 2) Append the payment
+            PaymentTransaction p = new PaymentTransaction();
+            p.setPaymentId(ids.nextId("PaymentTransactions", "paymentId"));
+            p.setFineId(fineId);
+            p.setAmountPaid(paying.doubleValue());
+            p.setPaymentDate(new Date());
+
+            try (PreparedStatement ps = conn.prepareStatement(insertSql)) {
+                ps.setInt(1, p.getPaymentId());
+                ps.setInt(2, fineId);
+                ps.setBigDecimal(3, paying);
+                ps.setTimestamp(4, new Timestamp(p.getPaymentDate().getTime()));
+                ps.executeUpdate();
+            }
+
+            // 3) Paid off
+            if (paying.compareTo(owing.outstanding()) == 0) {
+                try (PreparedStatement ps = conn.prepareStatement(paidSql)) {
+                    ps.setInt(1, fineId);
+                    if (ps.executeUpdate() != 1) {
+                        conn.rollback();
+                        return null;
+                    }
+                }
+            }
+
+            conn.commit();
+            balances.add(owing.memberId, paying.negate());
+            return p;
+
+        } catch (SQLException e) {
+            System.out.println("Error recording payment:");
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+
+
+    // =========================================================================
+    // MARK FINE AS PAID (PAYS WHATEVER IS LEFT ON IT)
     // =========================================================================
     public boolean markFineAsPaid(int fineId) {
+        BigDecimal left = getOutstandingOnFine(fineId);
+        return left != null && left.signum() > 0 && payFine(fineId, left.doubleValue()) != null;
+    }
 
-        String sql = "UPDATE Fines SET status='PAID' WHERE fineId=?";
 
-        try (Connection conn = DriverManager.getConnection(dbUrl);
-             PreparedStatement ps = conn.prepareStatement(sql)) {
 
-            ps.setInt(1, fineId);
-            return ps.executeUpdate() == 1;
+    // =========================================================================
+    // WAIVE FINE (ONLY AN UNPAID ONE; PAYMENTS ALREADY MADE STAND)
+    // =========================================================================
+    public boolean waiveFine(int fineId) {
+
+        String sql = "UPDATE Fines SET status='WAIVED' WHERE fineId=? AND status='UNPAID'";
+
+        fineLocks.lock(fineId);
+        try (Connection conn = pool.getConnection()) {
+
+            FineBalance owing = readBalance(conn, fineId);
+            if (owing == null) return false;
+
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                ps.setInt(1, fineId);
+                if (ps.executeUpdate() != 1) return false;
+            }
+
+            balances.add(owing.memberId, owing.outstanding().negate());
+            return true;
 
         } catch (SQLException e) {
-            System.out.println("Error marking fine as paid:");
+            System.out.println("Error waiving fine:");
             e.printStackTrace();
             return false;
+
+        } finally {
+            fineLocks.unlock(fineId);
         }
     }
 
 
 
     // =========================================================================
-    // WAIVE FINE
+    // BALANCES
     // =========================================================================
-    public boolean waiveFine(int fineId) {
 
-        String sql = "UPDATE Fines SET status='WAIVED' WHERE fineId=?";
+    // What the member still owes across their unpaid fines; no query
+    public BigDecimal getOutstandingBalance(int memberId) {
+        return balances.get(memberId);
+    }
+
+    // Left to pay on one fine (zero once PAID or WAIVED); null if there is no such fine
+    public BigDecimal getOutstandingOnFine(int fineId) {
+        try (Connection conn = pool.getConnection()) {
+            FineBalance owing = readBalance(conn, fineId);
+            if (owing == null) return null;
+            return "UNPAID".equalsIgnoreCase(owing.status) ? owing.outstanding() : BigDecimal.ZERO;
+
+        } catch (SQLException e) {
+            System.out.println("Error fetching fine balance:");
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    // Oldest first
+    public List<PaymentTransaction> getPaymentsForFine(int fineId) {
+        List<PaymentTransaction> list = new ArrayList<>();
+
+        String sql = "SELECT * FROM PaymentTransactions WHERE fineId=? ORDER BY paymentId ASC";
 
-        try (Connection conn = DriverManager.getConnection(dbUrl);
+        try (Connection conn = pool.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
 
             ps.setInt(1, fineId);
-            return ps.executeUpdate() == 1;
+            ResultSet rs = ps.executeQuery();
+
+            while (rs.next()) {
+                list.add(buildPayment(rs));
+            }
 
         } catch (SQLException e) {
-            System.out.println("Error waiving fine:");
+            System.out.println("Error fetching payments:");
             e.printStackTrace();
-            return false;
         }
+
+        return list;
+    }
+
+    // Total paid on each of the member's fines that has payments, in one query
+    public Map<Integer, BigDecimal> getPaidByFine(int memberId) {
+        Map<Integer, BigDecimal> paid = new HashMap<>();
+
+        String sql = "SELECT p.fineId, SUM(p.amountPaid) AS paid " +
+                     "FROM PaymentTransactions p INNER JOIN Fines f ON p.fineId = f.fineId " +
+                     "WHERE f.memberId=? GROUP BY p.fineId";
+
+        try (Connection conn = pool.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+
+            ps.setInt(1, memberId);
+            ResultSet rs = ps.executeQuery();
+
+            while (rs.next()) {
+                paid.put(rs.getInt("fineId"), rs.getBigDecimal("paid"));
+            }
+
+        } catch (SQLException e) {
+            System.out.println("Error fetching payments for member:");
+            e.printStackTrace();
+        }
+
+        return paid;
+    }
+
+    // Startup: the balances come from a reconciliation pass, so the log shows any problems it found
+    public void loadBalances() {
+        ReconciliationReport report = reconcile();
+        if (report != null && report.getProblemCount() > 0) {
+            System.out.println("Payment ledger problems found at startup:");
+            System.out.println(report);
+        }
+    }
+
+    // Checks the ledger against Fines and corrects any member balance that drifted
+    public ReconciliationReport reconcile() {
+        try {
+            return new LedgerReconciler(pool).run(balances);
+
+        } catch (SQLException e) {
+            System.out.println("Error reconciling payments:");
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    public LockStats getFineLockStats() {
+        return fineLocks.stats();
+    }
+
+    // A fine's amount, status and what has been paid on it so far
+    private static final class FineBalance {
+        final int memberId;
+        final String status;
+        final BigDecimal amount;
+        final BigDecimal paid;
+
+        FineBalance(int memberId, String status, BigDecimal amount, BigDecimal paid) {
+            this.memberId = memberId;
+            this.status = status;
+            this.amount = amount;
+            this.paid = paid;
+        }
+
+        BigDecimal outstanding() {
+            return amount.subtract(paid).max(BigDecimal.ZERO);
+        }
+    }
+
+    private static FineBalance readBalance(Connection conn, int fineId) throws SQLException {
+        String fineSql = "SELECT memberId, amount, status FROM Fines WHERE fineId=?";
+        String paidSql = "SELECT SUM(amountPaid) AS paid FROM PaymentTransactions WHERE fineId=?";
+
+        int memberId;
+        String status;
+        BigDecimal amount;
+        try (PreparedStatement ps = conn.prepareStatement(fineSql)) {
+            ps.setInt(1, fineId);
+            ResultSet rs = ps.executeQuery();
+            if (!rs.next()) return null;
+            memberId = rs.getInt("memberId");
+            status = rs.getString("status");
+            amount = rs.getBigDecimal("amount");
+        }
+
+        BigDecimal paid = null;
+        try (PreparedStatement ps = conn.prepareStatement(paidSql)) {
+            ps.setInt(1, fineId);
+            ResultSet rs = ps.executeQuery();
+            if (rs.next()) paid = rs.getBigDecimal("paid");
+        }
+
+        return new FineBalance(memberId, status,
+                amount != null ? amount.setScale(MemberBalances.SCALE, RoundingMode.HALF_UP) : MemberBalances.money(0),
+                paid != null ? paid.setScale(MemberBalances.SCALE, RoundingMode.HALF_UP) : MemberBalances.money(0));
     }
 
 
@@ -218,4 +527,13 @@ public class FineController {
         f.setStatus(rs.getString("status"));
         return f;
     }
+
+    private PaymentTransaction buildPayment(ResultSet rs) throws SQLException {
+        PaymentTransaction p = new PaymentTransaction();
+        p.setPaymentId(rs.getInt("paymentId"));
+        p.setFineId(rs.getInt("fineId"));
+        p.setAmountPaid(rs.getDouble("amountPaid"));
+        p.setPaymentDate(rs.getTimestamp("paymentDate"));
+        return p;
+    }
 }
\ No newline at end of file
@@ -1,54 +1,135 @@
 package controllers;
 
+import db.ConnectionPool;
+import db.IdAllocator;
 import java.sql.*;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+import lock.LockStats;
+import loans.MemberLoans;
+import lock.StripedLock;
+import models.Book;
+import models.BookCopy;
+import models.CartReceipt;
+import models.CirculationReceipt;
+import models.Fine;
 import models.IssueTransaction;
+import models.Member;
+import models.Reservation;
+import policy.LoanPolicy;
+import reservation.HoldQueues.Hold;
 
 public class IssueController {
 
-    private final String dbUrl;
+    private static final int COPY_LOCK_STRIPES = 64;
 
-    public IssueController(String dbPath) {
-        this.dbUrl = "jdbc:ucanaccess://" + dbPath;
+    private final ConnectionPool pool;
+    private final IdAllocator ids;
+
+    // Their caches are kept in step with the copy and book rows changed here
+    private final BookController books;
+    private final BookCopyController copies;
+    private final MemberController members;
+
+    // Returned copies go to the head of their title's hold queue; checkouts fulfil holds
+    private final ReservationController reservations;
+
+    // Fines created by checkin count towards the member's running balance once committed
+    private final FineController fines;
+
+    // Returned loans leave the published overdue list at once rather than at the next scan
+    private final OverdueController overdue;
+
+    // Desks working the same copy queue here rather than colliding in the database
+    private final StripedLock copyLocks = new StripedLock("copies", COPY_LOCK_STRIPES);
+
+    // Who has what out; every issue reserves its slot here first, so the loan limit holds across desks
+    private final MemberLoans loans = new MemberLoans();
+
+    // Loan limits, loan periods and fine rates; replaced whole, never changed in place
+    private volatile LoanPolicy policy = LoanPolicy.defaults();
+
+    public IssueController(ConnectionPool pool, IdAllocator ids, BookController books, BookCopyController copies,
+                           MemberController members, ReservationController reservations, FineController fines,
+                           OverdueController overdue) {
+        this.pool = pool;
+        this.ids = ids;
+        this.books = books;
+        this.copies = copies;
+        this.members = members;
+        this.reservations = reservations;
+        this.fines = fines;
+        this.overdue = overdue;
     }
 
     // =========================================================================
     // ISSUE A BOOK COPY TO A MEMBER
+    // Fails (returns false) if the copy is no longer AVAILABLE, so two desks
+    // that both passed isCopyAvailable cannot both issue it.
     // =========================================================================
     public boolean issueBook(int memberId, int copyId, int bookId) {
-        String idSql = "SELECT MAX(issueId) AS maxId FROM IssueTransactions";
+        return withCopyLock(copyId, () -> issueCopy(memberId, copyId, bookId));
+    }
+
+    private boolean issueCopy(int memberId, int copyId, int bookId) {
         String insertIssueSQL =
             "INSERT INTO IssueTransactions (issueId, memberId, copyId, issueDate, dueDate, status) " +
             "VALUES (?, ?, ?, ?, ?, ?)";
 
+        // Compare-and-set: only an available copy can be claimed
         String updateCopySQL =
-                "UPDATE BookCopies SET status='ISSUED' WHERE copyId=?";
+                "UPDATE BookCopies SET status='ISSUED' WHERE copyId=? AND status='AVAILABLE'";
 
         String updateBookQtySQL =
                 "UPDATE Books SET availableQuantity = availableQuantity - 1 WHERE bookId=?";
 
-        try (Connection conn = DriverManager.getConnection(dbUrl);
-             PreparedStatement idStmt = conn.prepareStatement(idSql);
-             ResultSet rs = idStmt.executeQuery()) {
+        ReservationController.HoldChanges holds = reservations.newChanges();
+        boolean reserved = false;
+        boolean committed = false;
+
+        try (Connection conn = pool.getConnection()) {
 
             conn.setAutoCommit(false); // Transaction
 
-            int nextId = 1;
-            if (rs.next()) {
-                int maxId = rs.getInt("maxId");
-                if (!rs.wasNull()) {
-                    nextId = maxId + 1;
+            // 1) Within the member's loan limit
+            LoanPolicy rules = policy;
+            String department = rules.hasDepartmentRules() ? findDepartment(conn, memberId) : null;
+            reserved = loans.reserve(memberId, 1, rules.maxLoansFor(department));
+            if (!reserved) {
+                conn.rollback();
+                return false;
+            }
+
+            // 2) Claim the copy
+            try (PreparedStatement ps = conn.prepareStatement(updateCopySQL)) {
+                ps.setInt(1, copyId);
+                if (ps.executeUpdate() != 1) {
+                    conn.rollback();
+                    return false;
                 }
             }
 
-            // 1) Insert Issue Record
+            int nextId = ids.nextId("IssueTransactions", "issueId");
+
+            // 3) Insert Issue Record
+            Book book = books.getBookById(conn, bookId);
+            int loanDays = rules.termsFor(department, book != null ? book.getCategory() : null).getLoanDays();
+            java.sql.Date sqlDue;
+
             try (PreparedStatement ps = conn.prepareStatement(insertIssueSQL)) {
                 Date today = new Date();
                 java.sql.Date sqlIssue = new java.sql.Date(today.getTime());
-
-                // 15 days due date
-                java.sql.Date sqlDue =
-                        new java.sql.Date(sqlIssue.toLocalDate().plusDays(15).toEpochDay() * 86400000);
+                sqlDue = dueDateFor(sqlIssue, loanDays);
 
                 ps.setInt(1, nextId);
                 ps.setInt(2, memberId);
@@ -60,25 +141,168 @@ public class IssueController {
                 ps.executeUpdate();
             }
 
-            // 2) Mark copy as issued
-            try (PreparedStatement ps = conn.prepareStatement(updateCopySQL)) {
-                ps.setInt(1, copyId);
-                ps.executeUpdate();
-            }
-
-            // 3) Reduce available quantity
+            // 4) Reduce available quantity
             try (PreparedStatement ps = conn.prepareStatement(updateBookQtySQL)) {
                 ps.setInt(1, bookId);
                 ps.executeUpdate();
             }
 
+            // 5) A member waiting for the title leaves the queue
+            Hold hold = reservations.claimForCheckout(memberId, copyId, bookId, false, holds);
+            if (hold != null && !reservations.fulfil(conn, hold, copyId, holds)) {
+                conn.rollback();
+                return false;
+            }
+
             conn.commit();
+            committed = true;
+            evictCirculated(copyId, bookId);
+            loans.issued(memberId, copyId, sqlDue.toLocalDate());
             return true;
 
         } catch (SQLException e) {
             System.out.println("Error issuing book:");
             e.printStackTrace();
             return false;
+
+        } finally {
+            reservations.settle(holds, committed);
+            if (reserved && !committed) loans.release(memberId, 1);
+        }
+    }
+
+
+
+    // =========================================================================
+    // CHECKOUT: resolve member + copy, validate and issue in one transaction
+    // =========================================================================
+    public CirculationReceipt checkout(String studentId, String barcode) {
+        return withBarcodeLock(barcode, () -> checkoutCopy(studentId, barcode));
+    }
+
+    private CirculationReceipt checkoutCopy(String studentId, String barcode) {
+
+        String insertIssueSQL =
+            "INSERT INTO IssueTransactions (issueId, memberId, copyId, issueDate, dueDate, status) " +
+            "VALUES (?, ?, ?, ?, ?, ?)";
+
+        // Only succeeds if no other desk changed the copy since we read it
+        String updateCopySQL =
+                "UPDATE BookCopies SET status='ISSUED' WHERE copyId=? AND status=?";
+
+        String updateBookQtySQL =
+                "UPDATE Books SET availableQuantity = availableQuantity - 1 WHERE bookId=?";
+
+        ReservationController.HoldChanges holds = reservations.newChanges();
+        Member member = null;
+        boolean reserved = false;
+        boolean committed = false;
+
+        try (Connection conn = pool.getConnection()) {
+
+            conn.setAutoCommit(false);
+
+            // 1) Resolve and validate
+            member = findMemberByStudentId(conn, studentId);
+            if (member == null) return reject(conn, "Member not found");
+
+            BookCopy copy = findCopyByBarcode(conn, barcode);
+            if (copy == null) return reject(conn, "Book copy not found");
+
+            boolean onHoldShelf = "RESERVED".equalsIgnoreCase(copy.getStatus());
+            if (!"AVAILABLE".equalsIgnoreCase(copy.getStatus()) && !onHoldShelf) {
+                return reject(conn, "Book copy is not available");
+            }
+
+            LoanPolicy rules = policy;
+            int maxLoans = rules.maxLoansFor(member.getDepartment());
+            reserved = loans.reserve(member.getMemberId(), 1, maxLoans);
+            if (!reserved) {
+                return reject(conn, maxLoans == 1
+                        ? "Member already has an issued book"
+                        : "Member may hold " + maxLoans + " book(s) and already has "
+                                + loans.count(member.getMemberId()));
+            }
+
+            // A copy on the hold shelf only goes to the member it is set aside for
+            Hold hold = reservations.claimForCheckout(member.getMemberId(), copy.getCopyId(), copy.getBookId(),
+                    onHoldShelf, holds);
+            if (onHoldShelf && hold == null) return reject(conn, "Book copy is on hold for another member");
+
+            Book book = findBookById(conn, copy.getBookId());
+
+            // Reserve the ID only once the checkout is known to go ahead
+            int issueId = ids.nextId("IssueTransactions", "issueId");
+
+            // 2) Claim the copy
+            try (PreparedStatement ps = conn.prepareStatement(updateCopySQL)) {
+                ps.setInt(1, copy.getCopyId());
+                ps.setString(2, copy.getStatus());
+                if (ps.executeUpdate() != 1) return reject(conn, "Book copy is not available");
+            }
+
+            // 3) Insert issue record
+            java.sql.Date sqlIssue = new java.sql.Date(new Date().getTime());
+            java.sql.Date sqlDue = dueDateFor(sqlIssue, rules.termsFor(member.getDepartment(),
+                    book != null ? book.getCategory() : null).getLoanDays());
+
+            try (PreparedStatement ps = conn.prepareStatement(insertIssueSQL)) {
+                ps.setInt(1, issueId);
+                ps.setInt(2, member.getMemberId());
+                ps.setInt(3, copy.getCopyId());
+                ps.setDate(4, sqlIssue);
+                ps.setDate(5, sqlDue);
+                ps.setString(6, "ISSUED");
+                ps.executeUpdate();
+            }
+
+            // 4) Reduce available quantity (a copy on the hold shelf was not counted)
+            if (!onHoldShelf) {
+                try (PreparedStatement ps = conn.prepareStatement(updateBookQtySQL)) {
+                    ps.setInt(1, copy.getBookId());
+                    ps.executeUpdate();
+                }
+            }
+
+            // 5) Fulfil the member's hold on the title
+            if (hold != null && !reservations.fulfil(conn, hold, copy.getCopyId(), holds)) {
+                return reject(conn, "The member's hold was just changed at another desk");
+            }
+
+            conn.commit();
+            committed = true;
+            evictCirculated(copy.getCopyId(), copy.getBookId());
+            loans.issued(member.getMemberId(), copy.getCopyId(), sqlDue.toLocalDate());
+
+            IssueTransaction issue = new IssueTransaction();
+            issue.setIssueId(issueId);
+            issue.setMemberId(member.getMemberId());
+            issue.setCopyId(copy.getCopyId());
+            issue.setIssueDate(sqlIssue);
+            issue.setDueDate(sqlDue);
+            issue.setStatus("ISSUED");
+
+            copy.setStatus("ISSUED");
+            if (book != null && !onHoldShelf) book.setAvailableQuantity(book.getAvailableQuantity() - 1);
+
+            CirculationReceipt receipt = new CirculationReceipt();
+            receipt.setSuccess(true);
+            receipt.setMessage(hold != null ? "Book issued successfully. Hold fulfilled." : "Book issued successfully");
+            receipt.setMember(member);
+            receipt.setCopy(copy);
+            receipt.setBook(book);
+            receipt.setIssue(issue);
+            if (hold != null) receipt.setReservation(reservations.fulfilled(hold, copy.getCopyId()));
+            return receipt;
+
+        } catch (SQLException e) {
+            System.out.println("Error checking out book:");
+            e.printStackTrace();
+            return CirculationReceipt.failed("Failed to issue book");
+
+        } finally {
+            reservations.settle(holds, committed);
+            if (reserved && !committed) loans.release(member.getMemberId(), 1);
         }
     }
 
@@ -87,11 +311,16 @@ public class IssueController {
 
     // =========================================================================
     // RETURN BOOK COPY
+    // Fails (returns false) if the issue was already returned, e.g. by another desk
     // =========================================================================
     public boolean returnBook(int issueId, int copyId, int bookId) {
+        return withCopyLock(copyId, () -> returnCopy(issueId, copyId, bookId));
+    }
+
+    private boolean returnCopy(int issueId, int copyId, int bookId) {
 
         String updateIssueSQL =
-                "UPDATE IssueTransactions SET returnDate=?, status='RETURNED' WHERE issueId=?";
+                "UPDATE IssueTransactions SET returnDate=?, status='RETURNED' WHERE issueId=? AND status='ISSUED'";
 
         String updateCopySQL =
                 "UPDATE BookCopies SET status='AVAILABLE' WHERE copyId=?";
@@ -99,7 +328,10 @@ public class IssueController {
         String updateBookQtySQL =
                 "UPDATE Books SET availableQuantity = availableQuantity + 1 WHERE bookId=?";
 
-        try (Connection conn = DriverManager.getConnection(dbUrl)) {
+        ReservationController.HoldChanges holds = reservations.newChanges();
+        boolean committed = false;
+
+        try (Connection conn = pool.getConnection()) {
 
             conn.setAutoCommit(false);
 
@@ -111,57 +343,607 @@ public class IssueController {
                 ps.setDate(1, sqlReturn);
                 ps.setInt(2, issueId);
 
-                ps.executeUpdate();
-            }
-
-            // 2) Mark copy as available
-            try (PreparedStatement ps = conn.prepareStatement(updateCopySQL)) {
-                ps.setInt(1, copyId);
-                ps.executeUpdate();
+                if (ps.executeUpdate() != 1) {
+                    conn.rollback();
+                    return false;
+                }
             }
+            int memberId = findBorrower(conn, issueId);
+
+            // 2) Set the copy aside for the next hold on the title, or
+            //    mark it available and increase the available quantity
+            if (reservations.holdReturnedCopy(conn, copyId, bookId, holds) == null) {
+                try (PreparedStatement ps = conn.prepareStatement(updateCopySQL)) {
+                    ps.setInt(1, copyId);
+                    ps.executeUpdate();
+                }
 
-            // 3) Increase available quantity
-            try (PreparedStatement ps = conn.prepareStatement(updateBookQtySQL)) {
-                ps.setInt(1, bookId);
-                ps.executeUpdate();
+                try (PreparedStatement ps = conn.prepareStatement(updateBookQtySQL)) {
+                    ps.setInt(1, bookId);
+                    ps.executeUpdate();
+                }
             }
 
             conn.commit();
+            committed = true;
+            evictCirculated(copyId, bookId);
+            loans.returned(memberId, copyId);
+            overdue.returned(List.of(issueId));
             return true;
 
         } catch (SQLException e) {
             System.out.println("Error returning book:");
             e.printStackTrace();
             return false;
+
+        } finally {
+            reservations.settle(holds, committed);
+        }
+    }
+
+
+
+    // =========================================================================
+    // CHECKIN: return the copy and record any fine in one transaction
+    // =========================================================================
+    public CirculationReceipt checkin(String studentId, String barcode) {
+        return withBarcodeLock(barcode, () -> checkinCopy(studentId, barcode));
+    }
+
+    private CirculationReceipt checkinCopy(String studentId, String barcode) {
+
+        String activeIssueSQL =
+                "SELECT TOP 1 * FROM IssueTransactions WHERE copyId=? AND status='ISSUED' ORDER BY issueDate DESC";
+
+        // Only succeeds if no other desk returned this issue since we read it
+        String updateIssueSQL =
+                "UPDATE IssueTransactions SET returnDate=?, status='RETURNED' WHERE issueId=? AND status='ISSUED'";
+
+        String updateCopySQL =
+                "UPDATE BookCopies SET status='AVAILABLE' WHERE copyId=?";
+
+        String updateBookQtySQL =
+                "UPDATE Books SET availableQuantity = availableQuantity + 1 WHERE bookId=?";
+
+        ReservationController.HoldChanges holds = reservations.newChanges();
+        boolean committed = false;
+
+        try (Connection conn = pool.getConnection()) {
+
+            conn.setAutoCommit(false);
+
+            // 1) Resolve and validate
+            Member member = findMemberByStudentId(conn, studentId);
+            if (member == null) return reject(conn, "Member not found");
+
+            BookCopy copy = findCopyByBarcode(conn, barcode);
+            if (copy == null) return reject(conn, "Book copy not found");
+
+            IssueTransaction issue = null;
+            try (PreparedStatement ps = conn.prepareStatement(activeIssueSQL)) {
+                ps.setInt(1, copy.getCopyId());
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (rs.next()) issue = buildIssue(rs);
+                }
+            }
+            if (issue == null) return reject(conn, "This book copy is not currently issued");
+
+            if (issue.getMemberId() != member.getMemberId()) {
+                return reject(conn, "Return denied: this copy is issued to another member (memberId="
+                        + issue.getMemberId() + ")");
+            }
+
+            Book book = findBookById(conn, copy.getBookId());
+
+            // 2) Fine from the issue in hand; date-only, same as a re-read of returnDate would give
+            java.sql.Date sqlReturn = java.sql.Date.valueOf(LocalDate.now());
+            issue.setReturnDate(sqlReturn);
+
+            double dailyRate = policy.termsFor(member.getDepartment(),
+                    book != null ? book.getCategory() : null).getDailyRate();
+            Fine fine = FineController.computeFine(issue, dailyRate);
+            if (fine != null && fine.getAmount() <= 0) fine = null;
+            if (fine != null) fine.setFineId(ids.nextId("Fines", "fineId"));
+
+            // 3) Close the issue
+            try (PreparedStatement ps = conn.prepareStatement(updateIssueSQL)) {
+                ps.setDate(1, sqlReturn);
+                ps.setInt(2, issue.getIssueId());
+                if (ps.executeUpdate() != 1) return reject(conn, "This book copy is not currently issued");
+            }
+
+            // 4) Set the copy aside for the next hold on the title, or
+            //    mark it available and increase the available quantity
+            Reservation held = reservations.holdReturnedCopy(conn, copy.getCopyId(), copy.getBookId(), holds);
+            if (held == null) {
+                try (PreparedStatement ps = conn.prepareStatement(updateCopySQL)) {
+                    ps.setInt(1, copy.getCopyId());
+                    ps.executeUpdate();
+                }
+
+                try (PreparedStatement ps = conn.prepareStatement(updateBookQtySQL)) {
+                    ps.setInt(1, copy.getBookId());
+                    ps.executeUpdate();
+                }
+            }
+
+            // 5) Record the fine
+            if (fine != null && !FineController.insertFine(conn, fine, fine.getFineId())) {
+                conn.rollback();
+                return CirculationReceipt.failed("Failed to return book");
+            }
+
+            conn.commit();
+            committed = true;
+            evictCirculated(copy.getCopyId(), copy.getBookId());
+            if (fine != null) fines.recordCreated(List.of(fine));
+            loans.returned(member.getMemberId(), copy.getCopyId());
+            overdue.returned(List.of(issue.getIssueId()));
+
+            issue.setStatus("RETURNED");
+            copy.setStatus(held != null ? "RESERVED" : "AVAILABLE");
+            if (book != null && held == null) book.setAvailableQuantity(book.getAvailableQuantity() + 1);
+
+            CirculationReceipt receipt = new CirculationReceipt();
+            receipt.setSuccess(true);
+            receipt.setMessage((fine != null
+                    ? "Book returned with fine: PKR " + fine.getAmount()
+                    : "Book returned successfully. No fine.")
+                    + (held != null ? " Put the copy on the hold shelf." : ""));
+            receipt.setMember(member);
+            receipt.setCopy(copy);
+            receipt.setBook(book);
+            receipt.setIssue(issue);
+            receipt.setFine(fine);
+            receipt.setReservation(held);
+            return receipt;
+
+        } catch (SQLException e) {
+            System.out.println("Error checking in book:");
+            e.printStackTrace();
+            return CirculationReceipt.failed("Failed to return book");
+
+        } finally {
+            reservations.settle(holds, committed);
         }
     }
 
 
 
 
+    // =========================================================================
+    // CART CHECKOUT: several copies to one member, all or nothing
+    // Every barcode is validated in one pass before anything is written; the
+    // writes then go out as JDBC batches in a single transaction.
+    // =========================================================================
+    public CartReceipt checkoutCart(String studentId, List<String> barcodes) {
+        List<String> scanned = distinct(barcodes);
+        if (scanned.isEmpty()) return CartReceipt.failed("No barcodes scanned");
+
+        int[] copyIds = cachedCopyIds(scanned);
+        copyLocks.lockAll(copyIds);
+        try {
+            return checkoutCartCopies(studentId, scanned);
+        } finally {
+            copyLocks.unlockAll(copyIds);
+        }
+    }
+
+    private CartReceipt checkoutCartCopies(String studentId, List<String> barcodes) {
+
+        String insertIssueSQL =
+            "INSERT INTO IssueTransactions (issueId, memberId, copyId, issueDate, dueDate, status) " +
+            "VALUES (?, ?, ?, ?, ?, ?)";
+
+        // Only succeeds if no other desk changed the copy since we read it
+        String updateCopySQL =
+                "UPDATE BookCopies SET status='ISSUED' WHERE copyId=? AND status=?";
+
+        String updateBookQtySQL =
+                "UPDATE Books SET availableQuantity = availableQuantity - ? WHERE bookId=?";
+
+        ReservationController.HoldChanges holds = reservations.newChanges();
+        Member member = null;
+        boolean reserved = false;
+        boolean committed = false;
+
+        try (Connection conn = pool.getConnection()) {
+
+            conn.setAutoCommit(false);
+
+            // 1) Resolve and validate everything
+            member = findMemberByStudentId(conn, studentId);
+            if (member == null) return rejectCart(conn, "Member not found", new ArrayList<>());
+
+            Map<String, BookCopy> found = findCopiesByBarcode(conn, barcodes);
+            Map<Integer, Hold> holdByCopy = new HashMap<>();
+            List<String> problems = new ArrayList<>();
+
+            for (String barcode : barcodes) {
+                BookCopy copy = found.get(barcode);
+                boolean onHoldShelf = copy != null && "RESERVED".equalsIgnoreCase(copy.getStatus());
+
+                if (copy == null) {
+                    problems.add(barcode + ": book copy not found");
+                    continue;
+                }
+                if (!"AVAILABLE".equalsIgnoreCase(copy.getStatus()) && !onHoldShelf) {
+                    problems.add(barcode + ": book copy is not available");
+                    continue;
+                }
+
+                Hold hold = reservations.claimForCheckout(member.getMemberId(), copy.getCopyId(), copy.getBookId(),
+                        onHoldShelf, holds);
+                if (hold != null) {
+                    holdByCopy.put(copy.getCopyId(), hold);
+                } else if (onHoldShelf) {
+                    problems.add(barcode + ": book copy is on hold for another member");
+                }
+            }
+
+            LoanPolicy rules = policy;
+            if (problems.isEmpty()) {
+                int maxLoans = rules.maxLoansFor(member.getDepartment());
+                reserved = loans.reserve(member.getMemberId(), barcodes.size(), maxLoans);
+                if (!reserved) {
+                    problems.add("Member may hold " + maxLoans + " book(s) and already has "
+                            + loans.count(member.getMemberId()));
+                }
+            }
+
+            if (!problems.isEmpty()) return rejectCart(conn, "Nothing issued", problems);
+
+            List<BookCopy> cart = new ArrayList<>();
+            List<BookCopy> fromShelf = new ArrayList<>(); // the rest come off the hold shelf
+            for (String barcode : barcodes) {
+                BookCopy copy = found.get(barcode);
+                cart.add(copy);
+                if ("AVAILABLE".equalsIgnoreCase(copy.getStatus())) fromShelf.add(copy);
+            }
+            Map<Integer, Book> booksById = findBooksById(conn, cart);
+
+            // 2) Claim every copy; one lost race undoes the whole cart
+            try (PreparedStatement ps = conn.prepareStatement(updateCopySQL)) {
+                for (BookCopy copy : cart) {
+                    ps.setInt(1, copy.getCopyId());
+                    ps.setString(2, copy.getStatus());
+                    ps.addBatch();
+                }
+                for (int updated : ps.executeBatch()) {
+                    if (updated != 1) {
+                        return rejectCart(conn, "Nothing issued: a copy was just issued at another desk",
+                                new ArrayList<>());
+                    }
+                }
+            }
+
+            // 3) Insert issue records; the loan period follows each book's category
+            java.sql.Date sqlIssue = new java.sql.Date(new Date().getTime());
+            List<IssueTransaction> issues = new ArrayList<>();
+
+            try (PreparedStatement ps = conn.prepareStatement(insertIssueSQL)) {
+                for (BookCopy copy : cart) {
+                    Book book = booksById.get(copy.getBookId());
+                    java.sql.Date sqlDue = dueDateFor(sqlIssue, rules.termsFor(member.getDepartment(),
+                            book != null ? book.getCategory() : null).getLoanDays());
+
+                    IssueTransaction issue = new IssueTransaction();
+                    issue.setIssueId(ids.nextId("IssueTransactions", "issueId"));
+                    issue.setMemberId(member.getMemberId());
+                    issue.setCopyId(copy.getCopyId());
+                    issue.setIssueDate(sqlIssue);
+                    issue.setDueDate(sqlDue);
+                    issue.setStatus("ISSUED");
+                    issues.add(issue);
+
+                    ps.setInt(1, issue.getIssueId());
+                    ps.setInt(2, issue.getMemberId());
+                    ps.setInt(3, issue.getCopyId());
+                    ps.setDate(4, sqlIssue);
+                    ps.setDate(5, sqlDue);
+                    ps.setString(6, "ISSUED");
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+
+            // 4) Reduce available quantities, one update per title
+            adjustAvailable(conn, updateBookQtySQL, fromShelf);
+
+            // 5) Fulfil the member's holds on these titles
+            for (BookCopy copy : cart) {
+                Hold hold = holdByCopy.get(copy.getCopyId());
+                if (hold != null && !reservations.fulfil(conn, hold, copy.getCopyId(), holds)) {
+                    return rejectCart(conn, "Nothing issued: a hold was just changed at another desk",
+                            new ArrayList<>());
+                }
+            }
+
+            conn.commit();
+            committed = true;
+            for (BookCopy copy : cart) evictCirculated(copy.getCopyId(), copy.getBookId());
+            for (IssueTransaction issue : issues) {
+                loans.issued(member.getMemberId(), issue.getCopyId(), ((java.sql.Date) issue.getDueDate()).toLocalDate());
+            }
+
+            CartReceipt receipt = new CartReceipt();
+            receipt.setSuccess(true);
+            receipt.setMessage(cart.size() == 1 ? "1 book issued successfully" : cart.size() + " books issued successfully");
+            receipt.setMember(member);
+
+            for (int i = 0; i < cart.size(); i++) {
+                BookCopy copy = cart.get(i);
+                Book book = booksById.get(copy.getBookId());
+                if (book != null && fromShelf.contains(copy)) book.setAvailableQuantity(book.getAvailableQuantity() - 1);
+                copy.setStatus("ISSUED");
+
+                CirculationReceipt item = cartItem(member, copy, book, issues.get(i), null);
+                Hold hold = holdByCopy.get(copy.getCopyId());
+                if (hold != null) item.setReservation(reservations.fulfilled(hold, copy.getCopyId()));
+                receipt.getItems().add(item);
+            }
+            return receipt;
+
+        } catch (SQLException e) {
+            System.out.println("Error checking out cart:");
+            e.printStackTrace();
+            return CartReceipt.failed("Failed to issue books");
+
+        } finally {
+            reservations.settle(holds, committed);
+            if (reserved && !committed) loans.release(member.getMemberId(), barcodes.size());
+        }
+    }
+
+
+
+
+    // =========================================================================
+    // CART CHECKIN: several copies from one member, all or nothing, fines included
+    // =========================================================================
+    public CartReceipt checkinCart(String studentId, List<String> barcodes) {
+        List<String> scanned = distinct(barcodes);
+        if (scanned.isEmpty()) return CartReceipt.failed("No barcodes scanned");
+
+        int[] copyIds = cachedCopyIds(scanned);
+        copyLocks.lockAll(copyIds);
+        try {
+            return checkinCartCopies(studentId, scanned);
+        } finally {
+            copyLocks.unlockAll(copyIds);
+        }
+    }
+
+    private CartReceipt checkinCartCopies(String studentId, List<String> barcodes) {
+
+        String updateIssueSQL =
+                "UPDATE IssueTransactions SET returnDate=?, status='RETURNED' WHERE issueId=? AND status='ISSUED'";
+
+        String updateCopySQL =
+                "UPDATE BookCopies SET status='AVAILABLE' WHERE copyId=?";
+
+        String updateBookQtySQL =
+                "UPDATE Books SET availableQuantity = availableQuantity + ? WHERE bookId=?";
+
+        ReservationController.HoldChanges holds = reservations.newChanges();
+        boolean committed = false;
+
+        try (Connection conn = pool.getConnection()) {
+
+            conn.setAutoCommit(false);
+
+            // 1) Resolve and validate everything
+            Member member = findMemberByStudentId(conn, studentId);
+            if (member == null) return rejectCart(conn, "Member not found", new ArrayList<>());
+
+            Map<String, BookCopy> found = findCopiesByBarcode(conn, barcodes);
+            Map<Integer, IssueTransaction> activeByCopy = findActiveIssues(conn, found.values());
+            List<String> problems = new ArrayList<>();
+
+            for (String barcode : barcodes) {
+                BookCopy copy = found.get(barcode);
+                IssueTransaction issue = copy == null ? null : activeByCopy.get(copy.getCopyId());
+
+                if (copy == null) {
+                    problems.add(barcode + ": book copy not found");
+                } else if (issue == null) {
+                    problems.add(barcode + ": this book copy is not currently issued");
+                } else if (issue.getMemberId() != member.getMemberId()) {
+                    problems.add(barcode + ": issued to another member (memberId=" + issue.getMemberId() + ")");
+                }
+            }
+
+            if (!problems.isEmpty()) return rejectCart(conn, "Nothing returned", problems);
+
+            List<BookCopy> cart = new ArrayList<>();
+            for (String barcode : barcodes) cart.add(found.get(barcode));
+            Map<Integer, Book> booksById = findBooksById(conn, cart);
+
+            // 2) Fines from the issues in hand, at the rate for each book's category
+            java.sql.Date sqlReturn = java.sql.Date.valueOf(LocalDate.now());
+            List<IssueTransaction> issues = new ArrayList<>();
+            List<Fine> fines = new ArrayList<>();
+            Map<Integer, Fine> fineByIssue = new HashMap<>();
+            LoanPolicy rules = policy;
+
+            for (BookCopy copy : cart) {
+                IssueTransaction issue = activeByCopy.get(copy.getCopyId());
+                issue.setReturnDate(sqlReturn);
+                issues.add(issue);
+
+                Book book = booksById.get(copy.getBookId());
+                double dailyRate = rules.termsFor(member.getDepartment(),
+                        book != null ? book.getCategory() : null).getDailyRate();
+                Fine fine = FineController.computeFine(issue, dailyRate);
+                if (fine != null && fine.getAmount() > 0) {
+                    fine.setFineId(ids.nextId("Fines", "fineId"));
+                    fines.add(fine);
+                    fineByIssue.put(issue.getIssueId(), fine);
+                }
+            }
+
+            // 3) Close the issues; one already returned elsewhere undoes the whole cart
+            try (PreparedStatement ps = conn.prepareStatement(updateIssueSQL)) {
+                for (IssueTransaction issue : issues) {
+                    ps.setDate(1, sqlReturn);
+                    ps.setInt(2, issue.getIssueId());
+                    ps.addBatch();
+                }
+                for (int updated : ps.executeBatch()) {
+                    if (updated != 1) {
+                        return rejectCart(conn, "Nothing returned: a copy was just returned at another desk",
+                                new ArrayList<>());
+                    }
+                }
+            }
+
+            // 4) Set copies aside for the next holds on their titles
+            Map<Integer, Reservation> heldByCopy = new HashMap<>();
+            List<BookCopy> shelved = new ArrayList<>();
+            for (BookCopy copy : cart) {
+                Reservation held = reservations.holdReturnedCopy(conn, copy.getCopyId(), copy.getBookId(), holds);
+                if (held != null) {
+                    heldByCopy.put(copy.getCopyId(), held);
+                } else {
+                    shelved.add(copy);
+                }
+            }
+
+            // 5) Mark the rest available and increase available quantities, one update per title
+            if (!shelved.isEmpty()) {
+                try (PreparedStatement ps = conn.prepareStatement(updateCopySQL)) {
+                    for (BookCopy copy : shelved) {
+                        ps.setInt(1, copy.getCopyId());
+                        ps.addBatch();
+                    }
+                    ps.executeBatch();
+                }
+                adjustAvailable(conn, updateBookQtySQL, shelved);
+            }
+
+            // 6) Record the fines
+            FineController.insertFines(conn, fines);
+
+            conn.commit();
+            committed = true;
+            for (BookCopy copy : cart) evictCirculated(copy.getCopyId(), copy.getBookId());
+            this.fines.recordCreated(fines);
+            for (BookCopy copy : cart) loans.returned(member.getMemberId(), copy.getCopyId());
+            List<Integer> returnedIds = new ArrayList<>(issues.size());
+            for (IssueTransaction issue : issues) returnedIds.add(issue.getIssueId());
+            overdue.returned(returnedIds);
+
+            CartReceipt receipt = new CartReceipt();
+            receipt.setSuccess(true);
+            receipt.setMember(member);
+
+            for (int i = 0; i < cart.size(); i++) {
+                BookCopy copy = cart.get(i);
+                IssueTransaction issue = issues.get(i);
+                Reservation held = heldByCopy.get(copy.getCopyId());
+                issue.setStatus("RETURNED");
+                copy.setStatus(held != null ? "RESERVED" : "AVAILABLE");
+                Book book = booksById.get(copy.getBookId());
+                if (book != null && held == null) book.setAvailableQuantity(book.getAvailableQuantity() + 1);
+
+                CirculationReceipt item = cartItem(member, copy, book, issue, fineByIssue.get(issue.getIssueId()));
+                item.setReservation(held);
+                receipt.getItems().add(item);
+            }
+
+            String returned = cart.size() == 1 ? "1 book returned" : cart.size() + " books returned";
+            receipt.setMessage((fines.isEmpty()
+                    ? returned + " successfully. No fine."
+                    : returned + " with fines: PKR " + receipt.getTotalFine())
+                    + (heldByCopy.isEmpty() ? "" : " Put " + heldByCopy.size() + " on the hold shelf."));
+            return receipt;
+
+        } catch (SQLException e) {
+            System.out.println("Error checking in cart:");
+            e.printStackTrace();
+            return CartReceipt.failed("Failed to return books");
+
+        } finally {
+            reservations.settle(holds, committed);
+        }
+    }
+
+    // Books shared by several copies in the cart get one update with the combined count
+    private void adjustAvailable(Connection conn, String sql, List<BookCopy> cart) throws SQLException {
+        Map<Integer, Integer> perBook = new LinkedHashMap<>();
+        for (BookCopy copy : cart) perBook.merge(copy.getBookId(), 1, Integer::sum);
+        if (perBook.isEmpty()) return;
+
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            for (Map.Entry<Integer, Integer> e : perBook.entrySet()) {
+                ps.setInt(1, e.getValue());
+                ps.setInt(2, e.getKey());
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
+    private CirculationReceipt cartItem(Member member, BookCopy copy, Book book, IssueTransaction issue, Fine fine) {
+        CirculationReceipt item = new CirculationReceipt();
+        item.setSuccess(true);
+        item.setMember(member);
+        item.setCopy(copy);
+        item.setBook(book);
+        item.setIssue(issue);
+        item.setFine(fine);
+        return item;
+    }
+
+    private CartReceipt rejectCart(Connection conn, String message, List<String> problems) throws SQLException {
+        conn.rollback();
+        return CartReceipt.failed(message, problems);
+    }
+
+    // Trimmed, blanks dropped, each barcode once in the order first scanned
+    private static List<String> distinct(List<String> barcodes) {
+        Set<String> seen = new LinkedHashSet<>();
+        for (String barcode : barcodes) {
+            if (barcode != null && !barcode.trim().isEmpty()) seen.add(barcode.trim());
+        }
+        return new ArrayList<>(seen);
+    }
+
+    private int[] cachedCopyIds(List<String> barcodes) {
+        List<Integer> found = new ArrayList<>();
+        for (String barcode : barcodes) {
+            BookCopy copy = copies.getCopyByBarcode(barcode);
+            if (copy != null) found.add(copy.getCopyId());
+        }
+        return found.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    public LoanPolicy getLoanPolicy() {
+        return policy;
+    }
+
+    // Applies to checkouts and checkins from the next one on (see LibraryContext.setLoanPolicy)
+    void setLoanPolicy(LoanPolicy policy) {
+        this.policy = policy;
+    }
+
+
+
+
     // =========================================================================
     // GET ISSUE TRANSACTION BY ID
     // =========================================================================
     public IssueTransaction getIssueById(int issueId) {
         String sql = "SELECT * FROM IssueTransactions WHERE issueId=?";
 
-        try (Connection conn = DriverManager.getConnection(dbUrl);
+        try (Connection conn = pool.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
 
             ps.setInt(1, issueId);
             ResultSet rs = ps.executeQuery();
 
             if (rs.next()) {
-                IssueTransaction it = new IssueTransaction();
-                it.setIssueId(rs.getInt("issueId"));
-                it.setMemberId(rs.getInt("memberId"));
-                it.setCopyId(rs.getInt("copyId"));
-                it.setIssueDate(rs.getDate("issueDate"));
-                it.setDueDate(rs.getDate("dueDate"));
-                it.setReturnDate(rs.getDate("returnDate"));
-                it.setStatus(rs.getString("status"));
-
-                return it;
+                return buildIssue(rs);
             }
 
         } catch (SQLException e) {
@@ -180,22 +962,14 @@ public class IssueController {
     public IssueTransaction getActiveIssueByCopyId(int copyId) {
         String sql = "SELECT TOP 1 * FROM IssueTransactions WHERE copyId=? AND status='ISSUED' ORDER BY issueDate DESC";
 
-        try (Connection conn = DriverManager.getConnection(dbUrl);
+        try (Connection conn = pool.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
 
             ps.setInt(1, copyId);
             ResultSet rs = ps.executeQuery();
 
             if (rs.next()) {
-                IssueTransaction it = new IssueTransaction();
-                it.setIssueId(rs.getInt("issueId"));
-                it.setMemberId(rs.getInt("memberId"));
-                it.setCopyId(rs.getInt("copyId"));
-                it.setIssueDate(rs.getDate("issueDate"));
-                it.setDueDate(rs.getDate("dueDate"));
-                it.setReturnDate(rs.getDate("returnDate"));
-                it.setStatus(rs.getString("status"));
-                return it;
+                return buildIssue(rs);
             }
 
         } catch (SQLException e) {
@@ -215,7 +989,7 @@ public class IssueController {
     public boolean isCopyAvailable(int copyId) {
         String sql = "SELECT status FROM BookCopies WHERE copyId=?";
 
-        try (Connection conn = DriverManager.getConnection(dbUrl);
+        try (Connection conn = pool.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
 
             ps.setInt(1, copyId);
@@ -240,24 +1014,204 @@ public class IssueController {
     // CHECK IF MEMBER ALREADY HAS AN ACTIVE ISSUE
     // =========================================================================
     public boolean memberHasIssuedBook(int memberId) {
-        String sql = "SELECT COUNT(*) AS cnt FROM IssueTransactions " +
-                     "WHERE memberId=? AND status='ISSUED'";
+        return loans.count(memberId) > 0;
+    }
 
-        try (Connection conn = DriverManager.getConnection(dbUrl);
-             PreparedStatement ps = conn.prepareStatement(sql)) {
+    // Count, copies and earliest due date of what the member has out
+    public MemberLoans.Loans getActiveLoans(int memberId) {
+        return loans.get(memberId);
+    }
 
-            ps.setInt(1, memberId);
-            ResultSet rs = ps.executeQuery();
 
-            if (rs.next()) {
-                return rs.getInt("cnt") > 0;
+
+    // =========================================================================
+    // LOAD THE ACTIVE LOANS (once at startup, before the first issue or return)
+    // =========================================================================
+    public void loadLoans() {
+        String sql = "SELECT memberId, copyId, dueDate FROM IssueTransactions WHERE status='ISSUED'";
+        Map<Integer, Map<Integer, LocalDate>> active = new HashMap<>();
+
+        try (Connection conn = pool.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+
+            ps.setFetchSize(1000);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    java.sql.Date due = rs.getDate("dueDate");
+                    active.computeIfAbsent(rs.getInt("memberId"), m -> new LinkedHashMap<>())
+                          .put(rs.getInt("copyId"), due != null ? due.toLocalDate() : null);
+                }
             }
+            loans.replaceAll(active);
 
         } catch (SQLException e) {
-            System.out.println("Error checking active issues:");
+            System.out.println("Error loading active loans:");
             e.printStackTrace();
         }
+    }
 
-        return false;
+
+
+    // =========================================================================
+    // PER-COPY LOCKS
+    // The conditional updates keep issue/return correct on their own (and across
+    // processes); holding the copy's stripe for the transaction means desks in
+    // this process that race for one copy wait their turn and get a clean
+    // "not available" instead of a write conflict from the database.
+    // =========================================================================
+    private <T> T withCopyLock(int copyId, Supplier<T> work) {
+        copyLocks.lock(copyId);
+        try {
+            return work.get();
+        } finally {
+            copyLocks.unlock(copyId);
+        }
+    }
+
+    // The copyId comes from the barcode cache; should it be stale, only the locking is affected
+    private <T> T withBarcodeLock(String barcode, Supplier<T> work) {
+        BookCopy copy = copies.getCopyByBarcode(barcode);
+        return copy == null ? work.get() : withCopyLock(copy.getCopyId(), work);
+    }
+
+    public LockStats getCopyLockStats() {
+        return copyLocks.stats();
+    }
+
+
+
+    // =========================================================================
+    // LOOKUPS ON AN OPEN CONNECTION (used inside checkout/checkin transactions)
+    // The member comes from the member cache; the copy and book are about to be
+    // written, so they are always read fresh.
+    // =========================================================================
+    private Member findMemberByStudentId(Connection conn, String studentId) throws SQLException {
+        return members.getMemberByStudentId(conn, studentId);
+    }
+
+    // issueBook has only the memberId; the other paths already hold the member
+    private String findDepartment(Connection conn, int memberId) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("SELECT department FROM Members WHERE memberId=?")) {
+            ps.setInt(1, memberId);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getString("department") : null;
+            }
+        }
+    }
+
+    private BookCopy findCopyByBarcode(Connection conn, String barcode) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("SELECT * FROM BookCopies WHERE barcode=?")) {
+            ps.setString(1, barcode);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? BookCopyController.buildCopy(rs) : null;
+            }
+        }
+    }
+
+    private Book findBookById(Connection conn, int bookId) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("SELECT * FROM Books WHERE bookId=?")) {
+            ps.setInt(1, bookId);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? BookController.buildBook(rs) : null;
+            }
+        }
+    }
+
+    private Map<String, BookCopy> findCopiesByBarcode(Connection conn, List<String> barcodes) throws SQLException {
+        Map<String, BookCopy> found = new HashMap<>();
+        String sql = "SELECT * FROM BookCopies WHERE barcode IN (" + placeholders(barcodes.size()) + ")";
+
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            for (int i = 0; i < barcodes.size(); i++) ps.setString(i + 1, barcodes.get(i));
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    BookCopy copy = BookCopyController.buildCopy(rs);
+                    found.put(copy.getBarcode(), copy);
+                }
+            }
+        }
+        return found;
+    }
+
+    private Map<Integer, Book> findBooksById(Connection conn, List<BookCopy> cart) throws SQLException {
+        Map<Integer, Book> found = new HashMap<>();
+        Set<Integer> distinctIds = new LinkedHashSet<>();
+        for (BookCopy copy : cart) distinctIds.add(copy.getBookId());
+        List<Integer> bookIds = new ArrayList<>(distinctIds);
+        String sql = "SELECT * FROM Books WHERE bookId IN (" + placeholders(bookIds.size()) + ")";
+
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            for (int i = 0; i < bookIds.size(); i++) ps.setInt(i + 1, bookIds.get(i));
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    Book book = BookController.buildBook(rs);
+                    found.put(book.getBookId(), book);
+                }
+            }
+        }
+        return found;
+    }
+
+    // Keyed by copyId; if a copy somehow has two open issues the latest wins, as in checkin
+    private Map<Integer, IssueTransaction> findActiveIssues(Connection conn, Collection<BookCopy> cart)
+            throws SQLException {
+        Map<Integer, IssueTransaction> found = new HashMap<>();
+        if (cart.isEmpty()) return found;
+
+        String sql = "SELECT * FROM IssueTransactions WHERE status='ISSUED' AND copyId IN ("
+                + placeholders(cart.size()) + ") ORDER BY issueDate ASC";
+
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            int i = 1;
+            for (BookCopy copy : cart) ps.setInt(i++, copy.getCopyId());
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    IssueTransaction issue = buildIssue(rs);
+                    found.put(issue.getCopyId(), issue);
+                }
+            }
+        }
+        return found;
+    }
+
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+
+    // Called once a transaction that changed the copy's status and the book's quantity commits
+    private void evictCirculated(int copyId, int bookId) {
+        copies.evict(copyId);
+        books.evict(bookId);
+    }
+
+    // returnBook has only the issueId
+    private int findBorrower(Connection conn, int issueId) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("SELECT memberId FROM IssueTransactions WHERE issueId=?")) {
+            ps.setInt(1, issueId);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getInt("memberId") : 0;
+            }
+        }
+    }
+
+    private IssueTransaction buildIssue(ResultSet rs) throws SQLException {
+        IssueTransaction it = new IssueTransaction();
+        it.setIssueId(rs.getInt("issueId"));
+        it.setMemberId(rs.getInt("memberId"));
+        it.setCopyId(rs.getInt("copyId"));
+        it.setIssueDate(rs.getDate("issueDate"));
+        it.setDueDate(rs.getDate("dueDate"));
+        it.setReturnDate(rs.getDate("returnDate"));
+        it.setStatus(rs.getString("status"));
+        return it;
+    }
+
+    private CirculationReceipt reject(Connection conn, String message) throws SQLException {
+        conn.rollback();
+        return CirculationReceipt.failed(message);
+    }
+
+    private static java.sql.Date dueDateFor(java.sql.Date issueDate, int loanDays) {
+        return new java.sql.Date(issueDate.toLocalDate().plusDays(loanDays).toEpochDay() * 86400000);
     }
 }
\ No newline at end of file
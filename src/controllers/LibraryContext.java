@@ -0,0 +1,210 @@
+package controllers;
+
+import cache.CacheConfig;
+import db.AuditPartitions;
+import db.ConnectionPool;
+import db.IdAllocator;
+import db.StorageEngine;
+import java.nio.file.Paths;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import ledger.ReconciliationReport;
+import policy.LoanPolicy;
+
+/**
+ * One shared set of controllers per database file. Every screen asks for the
+ * context of its dbPath instead of building its own controllers, so they all
+ * draw from the same connection pool.
+ */
+public class LibraryContext implements AutoCloseable {
+
+    private static final Map<String, LibraryContext> CONTEXTS = new ConcurrentHashMap<>();
+
+    // When the payment ledger is reconciled each night (local time)
+    private static final LocalTime RECONCILE_AT = LocalTime.of(2, 0);
+
+    private final ConnectionPool pool;
+    private final IdAllocator ids;
+    private final AuditPartitions auditPartitions;
+    private final AuditLogWriter auditLogWriter;
+
+    private final BookController bookController;
+    private final BookCopyController bookCopyController;
+    private final MemberController memberController;
+    private final ReservationController reservationController;
+    private final IssueController issueController;
+    private final FineController fineController;
+    private final OverdueController overdueController;
+    private final AuditLogController auditLogController;
+    private final UserController userController;
+
+    // Nightly and periodic jobs; a daemon thread, stopped by close()
+    private final ScheduledExecutorService scheduler;
+
+    public LibraryContext(ConnectionPool pool) {
+        this(pool, new AuditWriterConfig());
+    }
+
+    public LibraryContext(ConnectionPool pool, AuditWriterConfig auditConfig) {
+        this(pool, auditConfig, new CacheConfig());
+    }
+
+    public LibraryContext(ConnectionPool pool, AuditWriterConfig auditConfig, CacheConfig cacheConfig) {
+        this.pool = pool;
+        this.ids = new IdAllocator(pool);
+        ids.setBlockSize("AuditLog", 500);
+        this.auditPartitions = new AuditPartitions(pool);
+
+        try {
+            // Before the writer starts, so no entry is routed by the startup layout;
+            // this month's and next month's tables are created here, while no transaction is open
+            auditPartitions.prepare();
+        } catch (SQLException e) {
+            System.out.println("Error preparing audit log partitions (entries will go to AuditLog):");
+            e.printStackTrace();
+        }
+        this.auditLogWriter = new AuditLogWriter(pool, auditPartitions, auditConfig);
+
+        bookController = new BookController(pool, ids, cacheConfig);
+        bookCopyController = new BookCopyController(pool, ids, cacheConfig);
+        memberController = new MemberController(pool, ids, cacheConfig);
+        reservationController = new ReservationController(pool, ids, bookController, bookCopyController, memberController);
+        fineController = new FineController(pool, ids);
+        overdueController = new OverdueController(pool);
+        issueController = new IssueController(pool, ids, bookController, bookCopyController, memberController,
+                reservationController, fineController, overdueController);
+        auditLogController = new AuditLogController(pool, ids, auditLogWriter, auditPartitions);
+        userController = new UserController(pool);
+
+        try {
+            ids.ensureSequenceTable();
+        } catch (SQLException e) {
+            System.out.println("Error preparing ID sequences (will retry on first insert):");
+            e.printStackTrace();
+        }
+
+        try {
+            overdueController.prepare();
+        } catch (SQLException e) {
+            System.out.println("Error preparing the overdue index (scans will read more rows):");
+            e.printStackTrace();
+        }
+
+        // Before the first return, which may hand its copy to a waiting hold
+        reservationController.loadQueues();
+
+        // Before the first fine is created or paid, which move the running balances
+        fineController.loadBalances();
+
+        // Before the first issue, whose loan limit is checked against them
+        issueController.loadLoans();
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "slms-nightly");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleAtFixedRate(this::reconcilePayments,
+                untilNext(RECONCILE_AT).toMillis(), TimeUnit.DAYS.toMillis(1), TimeUnit.MILLISECONDS);
+
+        // First scan straight away (in the background), then every few minutes
+        int scanMinutes = overdueController.getConfig().getScanIntervalMinutes();
+        scheduler.scheduleWithFixedDelay(overdueController::scan, 0, scanMinutes, TimeUnit.MINUTES);
+
+        // Searches fall back to SQL until the index is ready, so startup does not wait for it
+        Thread indexer = new Thread(bookController::buildSearchIndex, "slms-search-index");
+        indexer.setDaemon(true);
+        indexer.start();
+    }
+
+    // =========================================================================
+    // SHARED CONTEXT PER DATABASE FILE
+    // The engine follows from the path: an .accdb opens through UCanAccess,
+    // "mem:<name>" as an in-memory one, anything else as an HSQLDB database
+    // (see StorageEngine.forLocation)
+    // =========================================================================
+    public static LibraryContext forDatabase(String dbPath) {
+        String key = StorageEngine.isInMemory(dbPath)
+                ? dbPath
+                : Paths.get(dbPath).toAbsolutePath().normalize().toString();
+        return CONTEXTS.computeIfAbsent(key, path -> {
+            StorageEngine engine = StorageEngine.forLocation(path);
+            ConnectionPool pool = new ConnectionPool(engine.jdbcUrl(path));
+
+            try {
+                engine.prepare(pool);
+            } catch (SQLException e) {
+                System.out.println("Error preparing " + engine.getName() + " database:");
+                e.printStackTrace();
+            }
+            return new LibraryContext(pool);
+        });
+    }
+
+    public static void closeAll() {
+        for (LibraryContext context : CONTEXTS.values()) {
+            context.close();
+        }
+        CONTEXTS.clear();
+    }
+
+    // =========================================================================
+    // SCHEDULED JOBS
+    // =========================================================================
+    private void reconcilePayments() {
+        ReconciliationReport report = fineController.reconcile();
+        if (report != null) {
+            System.out.println("Nightly payment reconciliation: " + report);
+        }
+    }
+
+    private static Duration untilNext(LocalTime at) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime next = now.toLocalDate().atTime(at);
+        if (!next.isAfter(now)) next = next.plusDays(1);
+        return Duration.between(now, next);
+    }
+
+    // Getters
+    public ConnectionPool getConnectionPool() { return pool; }
+    public IdAllocator getIdAllocator() { return ids; }
+    public AuditPartitions getAuditPartitions() { return auditPartitions; }
+    public AuditLogWriter getAuditLogWriter() { return auditLogWriter; }
+
+    public BookController getBookController() { return bookController; }
+    public BookCopyController getBookCopyController() { return bookCopyController; }
+    public MemberController getMemberController() { return memberController; }
+    public ReservationController getReservationController() { return reservationController; }
+    public IssueController getIssueController() { return issueController; }
+    public FineController getFineController() { return fineController; }
+    public OverdueController getOverdueController() { return overdueController; }
+    public AuditLogController getAuditLogController() { return auditLogController; }
+    public UserController getUserController() { return userController; }
+
+    public LoanPolicy getLoanPolicy() { return issueController.getLoanPolicy(); }
+
+    // Checkout, checkin and the overdue scan all switch to the new rules
+    public void setLoanPolicy(LoanPolicy policy) {
+        issueController.setLoanPolicy(policy);
+        overdueController.setLoanPolicy(policy);
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+
+        // Queued audit entries must reach the database before the pool goes away
+        auditLogWriter.close();
+        pool.close();
+
+        // A later forDatabase for the same location starts afresh (an in-memory database is gone by now)
+        CONTEXTS.values().remove(this);
+    }
+}
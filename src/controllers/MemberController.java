@@ -1,5 +1,13 @@
 package controllers;
 
+import cache.CacheConfig;
+import cache.CacheStats;
+import cache.EntityCache;
+import db.ConnectionPool;
+import db.IdAllocator;
+import db.KeysetQuery;
+import db.Page;
+import db.PageRequest;
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
@@ -7,10 +15,20 @@ import models.Member;
 
 public class MemberController {
 
-    private final String dbUrl;
+    private final ConnectionPool pool;
+    private final IdAllocator ids;
 
-    public MemberController(String dbPath) {
-        this.dbUrl = "jdbc:ucanaccess://" + dbPath;
+    // Keyed by studentId, the lookup the circulation desk makes
+    private final EntityCache<String, Member> cache;
+
+    public MemberController(ConnectionPool pool, IdAllocator ids) {
+        this(pool, ids, new CacheConfig());
+    }
+
+    public MemberController(ConnectionPool pool, IdAllocator ids, CacheConfig cacheConfig) {
+        this.pool = pool;
+        this.ids = ids;
+        this.cache = new EntityCache<>("members", cacheConfig);
     }
 
 
@@ -18,23 +36,14 @@ public class MemberController {
     // CREATE MEMBER
     // ============================================================
     public boolean createMember(Member m) {
-        String idSql = "SELECT MAX(memberId) AS maxId FROM Members";
         String insertSql = "INSERT INTO Members (memberId, studentId, firstName, lastName, email, department, status) " +
                            "VALUES (?, ?, ?, ?, ?, ?, ?)";
 
-        try (Connection conn = DriverManager.getConnection(dbUrl);
-             PreparedStatement idStmt = conn.prepareStatement(idSql);
-             ResultSet rs = idStmt.executeQuery()) {
-
-            int nextId = 1;
-            if (rs.next()) {
-                int maxId = rs.getInt("maxId");
-                if (!rs.wasNull()) {
-                    nextId = maxId + 1;
-                }
-            }
+        try {
+            int nextId = ids.nextId("Members", "memberId");
 
-            try (PreparedStatement ps = conn.prepareStatement(insertSql)) {
+            try (Connection conn = pool.getConnection();
+                 PreparedStatement ps = conn.prepareStatement(insertSql)) {
                 ps.setInt(1, nextId);
                 ps.setString(2, m.getStudentId());
                 ps.setString(3, m.getFirstName());
@@ -43,7 +52,10 @@ public class MemberController {
                 ps.setString(6, m.getDepartment());
                 ps.setString(7, m.getStatus());
 
-                return ps.executeUpdate() == 1;
+                if (ps.executeUpdate() != 1) return false;
+
+                m.setMemberId(nextId);
+                return true;
             }
 
         } catch (SQLException e) {
@@ -61,7 +73,7 @@ public class MemberController {
         String sql = "UPDATE Members SET studentId=?, firstName=?, lastName=?, email=?, department=?, status=? " +
                      "WHERE memberId=?";
 
-        try (Connection conn = DriverManager.getConnection(dbUrl);
+        try (Connection conn = pool.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
 
             ps.setString(1, m.getStudentId());
@@ -72,7 +84,11 @@ public class MemberController {
             ps.setString(6, m.getStatus());
             ps.setInt(7, m.getMemberId());
 
-            return ps.executeUpdate() == 1;
+            if (ps.executeUpdate() != 1) return false;
+
+            // The studentId itself may have changed, so match on memberId
+            evict(m.getMemberId());
+            return true;
 
         } catch (SQLException e) {
             System.out.println("Error updating member:");
@@ -88,11 +104,14 @@ public class MemberController {
     public boolean deleteMember(int memberId) {
         String sql = "DELETE FROM Members WHERE memberId=?";
 
-        try (Connection conn = DriverManager.getConnection(dbUrl);
+        try (Connection conn = pool.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
 
             ps.setInt(1, memberId);
-            return ps.executeUpdate() == 1;
+            if (ps.executeUpdate() != 1) return false;
+
+            evict(memberId);
+            return true;
 
         } catch (SQLException e) {
             System.out.println("Error deleting member:");
@@ -108,7 +127,7 @@ public class MemberController {
     public Member getMemberById(int memberId) {
         String sql = "SELECT * FROM Members WHERE memberId=?";
 
-        try (Connection conn = DriverManager.getConnection(dbUrl);
+        try (Connection conn = pool.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
 
             ps.setInt(1, memberId);
@@ -128,20 +147,15 @@ public class MemberController {
 
 
     // ============================================================
-    // GET MEMBER BY StudentID (for issue/return)
+    // GET MEMBER BY StudentID (for issue/return; served from the cache when possible)
     // ============================================================
     public Member getMemberByStudentId(String studentId) {
-        String sql = "SELECT * FROM Members WHERE studentId=?";
-
-        try (Connection conn = DriverManager.getConnection(dbUrl);
-             PreparedStatement ps = conn.prepareStatement(sql)) {
-
-            ps.setString(1, studentId);
-            ResultSet rs = ps.executeQuery();
-
-            if (rs.next()) {
-                return buildMember(rs);
-            }
+        try {
+            return cache.get(studentId, id -> {
+                try (Connection conn = pool.getConnection()) {
+                    return loadMember(conn, id);
+                }
+            });
 
         } catch (SQLException e) {
             e.printStackTrace();
@@ -150,6 +164,28 @@ public class MemberController {
         return null;
     }
 
+    // Cached lookup on a connection the caller already holds, e.g. inside a checkout
+    Member getMemberByStudentId(Connection conn, String studentId) throws SQLException {
+        return cache.get(studentId, id -> loadMember(conn, id));
+    }
+
+    private Member loadMember(Connection conn, String studentId) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("SELECT * FROM Members WHERE studentId=?")) {
+            ps.setString(1, studentId);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? buildMember(rs) : null;
+            }
+        }
+    }
+
+    void evict(int memberId) {
+        cache.invalidateIf(m -> m.getMemberId() == memberId);
+    }
+
+    public CacheStats getCacheStats() {
+        return cache.stats();
+    }
+
 
     // ============================================================
     // GET ALL MEMBERS
@@ -158,7 +194,7 @@ public class MemberController {
         List<Member> list = new ArrayList<>();
         String sql = "SELECT * FROM Members ORDER BY firstName ASC";
 
-        try (Connection conn = DriverManager.getConnection(dbUrl);
+        try (Connection conn = pool.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql);
              ResultSet rs = ps.executeQuery()) {
 
@@ -174,11 +210,28 @@ public class MemberController {
         return list;
     }
 
+    // Same order as getAllMembers, one page at a time (memberId breaks name ties)
+    public Page<Member> getAllMembers(PageRequest request) {
+        KeysetQuery<Member> query = new KeysetQuery<>("Members", MemberController::buildMember)
+                .orderByText("firstName", true, Member::getFirstName)
+                .orderBy("memberId", true, Member::getMemberId);
+
+        try (Connection conn = pool.getConnection()) {
+            return query.fetch(conn, request);
+
+        } catch (SQLException e) {
+            System.out.println("Error fetching page of members:");
+            e.printStackTrace();
+        }
+
+        return Page.empty();
+    }
+
 
     // ============================================================
     // HELPER: BUILD MEMBER FROM ResultSet
     // ============================================================
-    private Member buildMember(ResultSet rs) throws SQLException {
+    static Member buildMember(ResultSet rs) throws SQLException {
         Member m = new Member();
         m.setMemberId(rs.getInt("memberId"));
         m.setStudentId(rs.getString("studentId"));
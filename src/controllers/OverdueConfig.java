@@ -0,0 +1,12 @@
+package controllers;
+
+public class OverdueConfig {
+private int scanIntervalMinutes = 15;
+
+public OverdueConfig() {}
+
+    // Getters & Setters
+    // Minutes between the end of one overdue scan and the start of the next
+    public int getScanIntervalMinutes() { return scanIntervalMinutes; }
+    public void setScanIntervalMinutes(int scanIntervalMinutes) { this.scanIntervalMinutes = scanIntervalMinutes; }
+}
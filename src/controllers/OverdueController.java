@@ -0,0 +1,133 @@
+package controllers;
+
+import db.ConnectionPool;
+import db.Indexes;
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.List;
+import overdue.OverdueList;
+import policy.LoanPolicy;
+import overdue.OverdueList.Item;
+import overdue.OverdueList.ScanResult;
+import overdue.OverdueList.Snapshot;
+
+/**
+ * Books still out past their due date, and the fines they have run up so
+ * far. Nothing is charged until the copy comes back (checkin creates the
+ * real fine); until then this is what the library is owed on loans still
+ * out.
+ *
+ * A background scan (scheduled by LibraryContext) reads only the active
+ * loans already due, through an index on (status, dueDate), so it costs one
+ * row per overdue loan rather than one per loan ever made. Each loan accrues
+ * at the loan policy's rate for its member and book, as checkin would
+ * charge. OverdueList keeps the result between scans and publishes it for
+ * the screens to read.
+ */
+public class OverdueController {
+
+    private static final int FETCH_SIZE = 1000;
+
+    private final ConnectionPool pool;
+    private final OverdueConfig config;
+
+    private final OverdueList overdue = new OverdueList();
+
+    private volatile LoanPolicy policy = LoanPolicy.defaults();
+
+    public OverdueController(ConnectionPool pool) {
+        this(pool, new OverdueConfig());
+    }
+
+    public OverdueController(ConnectionPool pool, OverdueConfig config) {
+        this.pool = pool;
+        this.config = config;
+    }
+
+    // At startup, while no transaction is open (UCanAccess closes them on DDL)
+    public void prepare() throws SQLException {
+        Indexes.ensureIndex(pool, "IssueTransactions", "idxIssuesStatusDue", "status, dueDate");
+    }
+
+
+    // =========================================================================
+    // SCAN THE ACTIVE LOANS ALREADY DUE
+    // =========================================================================
+    public ScanResult scan() {
+        String sql = "SELECT i.issueId, i.memberId, i.copyId, i.dueDate, m.department, b.category " +
+                     "FROM ((IssueTransactions i INNER JOIN Members m ON i.memberId = m.memberId) " +
+                     "INNER JOIN BookCopies c ON i.copyId = c.copyId) " +
+                     "INNER JOIN Books b ON c.bookId = b.bookId " +
+                     "WHERE i.status='ISSUED' AND i.dueDate < ? ORDER BY i.dueDate ASC";
+
+        LocalDate today = LocalDate.now();
+        LoanPolicy rules = policy;
+
+        // One scan at a time; readers keep the last published list meanwhile
+        synchronized (overdue) {
+            overdue.beginScan(today);
+
+            try (Connection conn = pool.getConnection();
+                 PreparedStatement ps = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+
+                ps.setFetchSize(FETCH_SIZE);
+                ps.setDate(1, java.sql.Date.valueOf(today));
+
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        double dailyRate = rules.termsFor(rs.getString("department"), rs.getString("category"))
+                                .getDailyRate();
+                        overdue.seen(rs.getInt("issueId"), rs.getInt("memberId"), rs.getInt("copyId"),
+                                rs.getDate("dueDate").toLocalDate(), dailyRate);
+                    }
+                }
+
+            } catch (SQLException e) {
+                // Nothing is dropped on a failed scan; the next one starts over
+                System.out.println("Error scanning for overdue loans:");
+                e.printStackTrace();
+                return null;
+            }
+
+            return overdue.endScan();
+        }
+    }
+
+    // Checkin tells us once its return has committed
+    void returned(List<Integer> issueIds) {
+        for (int issueId : issueIds) overdue.returned(issueId);
+    }
+
+
+    // =========================================================================
+    // THE PUBLISHED LIST (as of the last scan)
+    // =========================================================================
+
+    // Longest overdue first
+    public List<Item> getOverdueLoans() {
+        return overdue.items();
+    }
+
+    public List<Item> getOverdueLoansForMember(int memberId) {
+        return overdue.forMember(memberId);
+    }
+
+    // What the member's overdue loans would be fined if returned today
+    public double getAccruedFinesForMember(int memberId) {
+        return overdue.accruedFor(memberId);
+    }
+
+    // Date, time and totals of the last scan
+    public Snapshot getLastScan() {
+        return overdue.snapshot();
+    }
+
+    public OverdueConfig getConfig() {
+        return config;
+    }
+
+    // A changed rate shows from the next scan on
+    void setLoanPolicy(LoanPolicy policy) {
+        this.policy = policy;
+    }
+}
@@ -0,0 +1,32 @@
+package controllers;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+public class ReservationConfig {
+private int maxHoldsPerMember = 5;
+private int defaultPriority = 10;
+private Map<String, Integer> departmentPriorities = new HashMap<>();
+
+public ReservationConfig() {}
+
+    // Lower is served first; holds with the same priority are served in the order placed.
+    // Decided when a hold is placed (and again at startup) from the member's department.
+    public int priorityFor(String department) {
+        if (department == null) return defaultPriority;
+        return departmentPriorities.getOrDefault(department.trim().toLowerCase(Locale.ROOT), defaultPriority);
+    }
+
+    public void setDepartmentPriority(String department, int priority) {
+        departmentPriorities.put(department.trim().toLowerCase(Locale.ROOT), priority);
+    }
+
+    // Getters & Setters
+    // Waiting and ready holds together
+    public int getMaxHoldsPerMember() { return maxHoldsPerMember; }
+    public void setMaxHoldsPerMember(int maxHoldsPerMember) { this.maxHoldsPerMember = maxHoldsPerMember; }
+
+    public int getDefaultPriority() { return defaultPriority; }
+    public void setDefaultPriority(int defaultPriority) { this.defaultPriority = defaultPriority; }
+}
@@ -0,0 +1,476 @@
+package controllers;
+
+import db.ConnectionPool;
+import db.IdAllocator;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import models.Book;
+import models.BookCopy;
+import models.CirculationReceipt;
+import models.Member;
+import models.Reservation;
+import reservation.HoldQueues;
+import reservation.HoldQueues.Hold;
+
+/**
+ * Holds on titles. A member who finds no copy of a title on the shelf joins
+ * its queue; when a copy comes back, the return hands it to the head of the
+ * queue in the same transaction: the copy becomes RESERVED instead of
+ * AVAILABLE (so it is not counted in availableQuantity) and the reservation
+ * READY. Checking that copy out to its member fulfils the hold.
+ *
+ * The queues live in memory (HoldQueues), loaded at startup from the
+ * Reservations table and kept in step with it, so checkin only pays for a
+ * map lookup when nobody is waiting. A waiting hold is on the title, but
+ * Reservations.copyId is required, so it names one copy of the title until
+ * a returned copy is set aside, and then that copy.
+ */
+public class ReservationController {
+
+    public static final String WAITING = "WAITING";
+    public static final String READY = "READY";
+    public static final String FULFILLED = "FULFILLED";
+    public static final String CANCELLED = "CANCELLED";
+
+    private final ConnectionPool pool;
+    private final IdAllocator ids;
+    private final BookController books;
+    private final BookCopyController copies;
+    private final MemberController members;
+    private final ReservationConfig config;
+
+    private final HoldQueues queues = new HoldQueues();
+
+    public ReservationController(ConnectionPool pool, IdAllocator ids, BookController books,
+                                 BookCopyController copies, MemberController members) {
+        this(pool, ids, books, copies, members, new ReservationConfig());
+    }
+
+    public ReservationController(ConnectionPool pool, IdAllocator ids, BookController books,
+                                 BookCopyController copies, MemberController members, ReservationConfig config) {
+        this.pool = pool;
+        this.ids = ids;
+        this.books = books;
+        this.copies = copies;
+        this.members = members;
+        this.config = config;
+    }
+
+    // =========================================================================
+    // LOAD THE QUEUES (once at startup)
+    // Priorities are recomputed from each member's department, so a changed
+    // rule applies to holds already waiting.
+    // =========================================================================
+    public void loadQueues() {
+        String sql = "SELECT r.reservationId, r.memberId, r.copyId, r.reservedAt, r.status, c.bookId, m.department " +
+                     "FROM (Reservations r INNER JOIN BookCopies c ON r.copyId = c.copyId) " +
+                     "INNER JOIN Members m ON r.memberId = m.memberId " +
+                     "WHERE r.status IN ('" + WAITING + "', '" + READY + "') " +
+                     "ORDER BY r.reservedAt ASC, r.reservationId ASC";
+
+        try (Connection conn = pool.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql);
+             ResultSet rs = ps.executeQuery()) {
+
+            while (rs.next()) {
+                Timestamp reservedAt = rs.getTimestamp("reservedAt");
+                Hold hold = new Hold(rs.getInt("reservationId"), rs.getInt("memberId"), rs.getInt("bookId"),
+                        config.priorityFor(rs.getString("department")),
+                        reservedAt != null ? reservedAt.getTime() : 0L, rs.getInt("copyId"));
+
+                if (READY.equalsIgnoreCase(rs.getString("status"))) {
+                    queues.addReady(hold);
+                } else {
+                    queues.add(hold);
+                }
+            }
+
+        } catch (SQLException e) {
+            System.out.println("Error loading reservation queues:");
+            e.printStackTrace();
+        }
+    }
+
+
+    // =========================================================================
+    // PLACE A HOLD
+    // The title is given by ISBN or by the barcode of any of its copies. Only
+    // for titles with no copy on the shelf, and one live hold per member per title.
+    // =========================================================================
+    public CirculationReceipt placeHold(String studentId, String isbnOrBarcode) {
+        String insertSql = "INSERT INTO Reservations (reservationId, memberId, copyId, reservedAt, status) " +
+                           "VALUES (?, ?, ?, ?, ?)";
+
+        try (Connection conn = pool.getConnection()) {
+
+            Member member = members.getMemberByStudentId(conn, studentId);
+            if (member == null) return CirculationReceipt.failed("Member not found");
+
+            BookCopy scanned = findCopyByBarcode(conn, isbnOrBarcode);
+            Book book = scanned != null
+                    ? books.getBookById(conn, scanned.getBookId())
+                    : findBookByIsbn(conn, isbnOrBarcode);
+            if (book == null) return CirculationReceipt.failed("Book not found");
+
+            Hold existing = queues.find(member.getMemberId(), book.getBookId());
+            if (existing != null) {
+                int position = queues.position(existing.getReservationId());
+                return CirculationReceipt.failed(position > 0
+                        ? "Member already has a hold on this title (position " + position + ")"
+                        : "Member already has a copy of this title waiting on the hold shelf");
+            }
+
+            if (queues.holdsOf(member.getMemberId()) >= config.getMaxHoldsPerMember()) {
+                return CirculationReceipt.failed("Member may have " + config.getMaxHoldsPerMember()
+                        + " hold(s) at a time");
+            }
+
+            if (memberHasTitle(conn, member.getMemberId(), book.getBookId())) {
+                return CirculationReceipt.failed("Member already has a copy of this title");
+            }
+
+            int onShelf = countAvailableCopies(conn, book.getBookId());
+            if (onShelf > 0) {
+                return CirculationReceipt.failed(onShelf + " copy(ies) of this title are on the shelf; issue one instead");
+            }
+
+            int copyId = scanned != null ? scanned.getCopyId() : firstCopyOf(conn, book.getBookId());
+            if (copyId <= 0) return CirculationReceipt.failed("This title has no copies");
+
+            Date now = new Date();
+            Hold hold = new Hold(ids.nextId("Reservations", "reservationId"), member.getMemberId(),
+                    book.getBookId(), config.priorityFor(member.getDepartment()), now.getTime(), copyId);
+
+            // The queues decide races between desks; the row follows
+            if (!queues.add(hold)) return CirculationReceipt.failed("Member already has a hold on this title");
+
+            try (PreparedStatement ps = conn.prepareStatement(insertSql)) {
+                ps.setInt(1, hold.getReservationId());
+                ps.setInt(2, hold.getMemberId());
+                ps.setInt(3, copyId);
+                ps.setTimestamp(4, new Timestamp(now.getTime()));
+                ps.setString(5, WAITING);
+                ps.executeUpdate();
+
+            } catch (SQLException e) {
+                if (queues.take(hold)) queues.forget(hold);
+                throw e;
+            }
+
+            CirculationReceipt receipt = new CirculationReceipt();
+            receipt.setSuccess(true);
+            receipt.setMessage("Hold placed: position " + queues.position(hold.getReservationId())
+                    + " of " + queues.waitingCount(book.getBookId()) + " in the queue");
+            receipt.setMember(member);
+            receipt.setBook(book);
+            receipt.setReservation(toReservation(hold, copyId, WAITING));
+            return receipt;
+
+        } catch (SQLException e) {
+            System.out.println("Error placing hold:");
+            e.printStackTrace();
+            return CirculationReceipt.failed("Failed to place hold");
+        }
+    }
+
+
+    // =========================================================================
+    // CANCEL A HOLD
+    // A copy already set aside for it goes on to the next hold, or the shelf.
+    // =========================================================================
+    public boolean cancelHold(int reservationId) {
+        Hold hold = queues.get(reservationId);
+        if (hold == null || !queues.take(hold)) return false;
+
+        HoldChanges changes = new HoldChanges();
+        changes.taken.add(hold);
+        boolean committed = false;
+
+        try (Connection conn = pool.getConnection()) {
+
+            conn.setAutoCommit(false);
+
+            if (!finish(conn, hold, CANCELLED, hold.getCopyId())) {
+                conn.rollback();
+                return false;
+            }
+            if (hold.getState() == HoldQueues.State.READY) {
+                releaseCopy(conn, hold.getCopyId(), hold.getBookId(), changes);
+            }
+
+            conn.commit();
+            committed = true;
+            return true;
+
+        } catch (SQLException e) {
+            System.out.println("Error cancelling hold:");
+            e.printStackTrace();
+            return false;
+
+        } finally {
+            settle(changes, committed);
+        }
+    }
+
+
+    // =========================================================================
+    // QUEUE LOOKUPS (in memory)
+    // =========================================================================
+    // 1-based place in the title's queue; 0 once a copy is set aside, or if the hold is not live
+    public int getQueuePosition(int reservationId) {
+        return queues.position(reservationId);
+    }
+
+    public int getQueueLength(int bookId) {
+        return queues.waitingCount(bookId);
+    }
+
+    public boolean hasWaitingHolds(int bookId) {
+        return queues.waitingCount(bookId) > 0;
+    }
+
+    // The title's waiting holds in the order they will be served
+    public List<Reservation> getQueue(int bookId) {
+        List<Reservation> list = new ArrayList<>();
+        for (Hold hold : queues.waiting(bookId)) {
+            list.add(toReservation(hold, hold.getCopyId(), WAITING));
+        }
+        return list;
+    }
+
+    // The ready hold a copy on the hold shelf is set aside for, or null
+    public Reservation getHoldOnCopy(int copyId) {
+        Hold hold = queues.readyOn(copyId);
+        return hold == null ? null : toReservation(hold, copyId, READY);
+    }
+
+
+    // =========================================================================
+    // A MEMBER'S HOLDS, LIVE AND PAST (newest first)
+    // =========================================================================
+    public List<Reservation> getHoldsForMember(int memberId) {
+        List<Reservation> list = new ArrayList<>();
+        String sql = "SELECT * FROM Reservations WHERE memberId=? ORDER BY reservedAt DESC, reservationId DESC";
+
+        try (Connection conn = pool.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+
+            ps.setInt(1, memberId);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) list.add(buildReservation(rs));
+            }
+
+        } catch (SQLException e) {
+            System.out.println("Error loading member holds:");
+            e.printStackTrace();
+        }
+
+        return list;
+    }
+
+
+    // =========================================================================
+    // INSIDE CIRCULATION TRANSACTIONS (IssueController)
+    // Holds are taken out of the queues before their rows are written and
+    // settled once the transaction has committed or rolled back.
+    // =========================================================================
+    static final class HoldChanges {
+        private final List<Hold> taken = new ArrayList<>();
+        private final Map<Hold, Integer> readied = new HashMap<>();
+        private final List<int[]> released = new ArrayList<>(); // copyId, bookId
+    }
+
+    HoldChanges newChanges() {
+        return new HoldChanges();
+    }
+
+    // Return side: sets the copy aside for the first waiting hold on its title. Returns that
+    // reservation, or null when nobody is waiting and the caller should shelve the copy.
+    Reservation holdReturnedCopy(Connection conn, int copyId, int bookId, HoldChanges changes) throws SQLException {
+        Hold hold;
+        while ((hold = queues.takeHead(bookId)) != null) {
+            changes.taken.add(hold);
+
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "UPDATE Reservations SET status=?, copyId=? WHERE reservationId=? AND status=?")) {
+                ps.setString(1, READY);
+                ps.setInt(2, copyId);
+                ps.setInt(3, hold.getReservationId());
+                ps.setString(4, WAITING);
+                if (ps.executeUpdate() == 1) break;
+            }
+            // Otherwise changed by another process; dropped from the queue once this commits
+        }
+        if (hold == null) return null;
+
+        try (PreparedStatement ps = conn.prepareStatement("UPDATE BookCopies SET status='RESERVED' WHERE copyId=?")) {
+            ps.setInt(1, copyId);
+            ps.executeUpdate();
+        }
+
+        changes.readied.put(hold, copyId);
+        return toReservation(hold, copyId, READY);
+    }
+
+    // Checkout side, before any write: the hold this checkout fulfils, taken. For a copy on the
+    // hold shelf that is the member's ready hold on it (null if it is held for someone else);
+    // for a copy from the shelf, the member's hold on the title if they have one.
+    Hold claimForCheckout(int memberId, int copyId, int bookId, boolean onHoldShelf, HoldChanges changes) {
+        Hold hold = onHoldShelf ? queues.readyOn(copyId) : queues.find(memberId, bookId);
+        if (hold == null || hold.getMemberId() != memberId || !queues.take(hold)) return null;
+
+        changes.taken.add(hold);
+        return hold;
+    }
+
+    // False if another process changed the reservation first. A copy set aside for the hold
+    // that is not the one being issued goes on to the next hold, or the shelf.
+    boolean fulfil(Connection conn, Hold hold, int copyId, HoldChanges changes) throws SQLException {
+        if (!finish(conn, hold, FULFILLED, copyId)) return false;
+
+        if (hold.getState() == HoldQueues.State.READY && hold.getCopyId() != copyId) {
+            releaseCopy(conn, hold.getCopyId(), hold.getBookId(), changes);
+        }
+        return true;
+    }
+
+    Reservation fulfilled(Hold hold, int copyId) {
+        return toReservation(hold, copyId, FULFILLED);
+    }
+
+    // Every taken hold is either readied or finished by a commit; a rollback puts them all back
+    void settle(HoldChanges changes, boolean committed) {
+        if (committed) {
+            for (Hold hold : changes.taken) {
+                Integer copyId = changes.readied.get(hold);
+                if (copyId != null) {
+                    queues.markReady(hold, copyId);
+                } else {
+                    queues.forget(hold);
+                }
+            }
+            for (int[] copy : changes.released) {
+                copies.evict(copy[0]);
+                books.evict(copy[1]);
+            }
+        } else {
+            for (int i = changes.taken.size() - 1; i >= 0; i--) {
+                queues.putBack(changes.taken.get(i));
+            }
+        }
+    }
+
+    private boolean finish(Connection conn, Hold hold, String status, int copyId) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(
+                "UPDATE Reservations SET status=?, copyId=? WHERE reservationId=? AND status=?")) {
+            ps.setString(1, status);
+            ps.setInt(2, copyId);
+            ps.setInt(3, hold.getReservationId());
+            ps.setString(4, hold.getState().name());
+            return ps.executeUpdate() == 1;
+        }
+    }
+
+    // A set-aside copy its hold no longer needs
+    private void releaseCopy(Connection conn, int copyId, int bookId, HoldChanges changes) throws SQLException {
+        changes.released.add(new int[] {copyId, bookId});
+        if (holdReturnedCopy(conn, copyId, bookId, changes) != null) return;
+
+        try (PreparedStatement ps = conn.prepareStatement(
+                "UPDATE BookCopies SET status='AVAILABLE' WHERE copyId=? AND status='RESERVED'")) {
+            ps.setInt(1, copyId);
+            if (ps.executeUpdate() != 1) return;
+        }
+        try (PreparedStatement ps = conn.prepareStatement(
+                "UPDATE Books SET availableQuantity = availableQuantity + 1 WHERE bookId=?")) {
+            ps.setInt(1, bookId);
+            ps.executeUpdate();
+        }
+    }
+
+
+    // =========================================================================
+    // HELPERS
+    // =========================================================================
+    private BookCopy findCopyByBarcode(Connection conn, String barcode) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("SELECT * FROM BookCopies WHERE barcode=?")) {
+            ps.setString(1, barcode);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? BookCopyController.buildCopy(rs) : null;
+            }
+        }
+    }
+
+    // As typed first, then without the spaces and hyphens ISBNs are often written with
+    private Book findBookByIsbn(Connection conn, String isbn) throws SQLException {
+        Book book = findBookByExactIsbn(conn, isbn);
+        String compact = isbn.replaceAll("[\\s-]", "");
+        if (book == null && !compact.isEmpty() && !compact.equals(isbn)) book = findBookByExactIsbn(conn, compact);
+        return book;
+    }
+
+    private Book findBookByExactIsbn(Connection conn, String isbn) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("SELECT * FROM Books WHERE ISBN=?")) {
+            ps.setString(1, isbn);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? BookController.buildBook(rs) : null;
+            }
+        }
+    }
+
+    private boolean memberHasTitle(Connection conn, int memberId, int bookId) throws SQLException {
+        String sql = "SELECT COUNT(*) AS cnt FROM IssueTransactions i INNER JOIN BookCopies c ON i.copyId = c.copyId " +
+                     "WHERE i.memberId=? AND i.status='ISSUED' AND c.bookId=?";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, memberId);
+            ps.setInt(2, bookId);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() && rs.getInt("cnt") > 0;
+            }
+        }
+    }
+
+    private int countAvailableCopies(Connection conn, int bookId) throws SQLException {
+        String sql = "SELECT COUNT(*) AS cnt FROM BookCopies WHERE bookId=? AND status='AVAILABLE'";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, bookId);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getInt("cnt") : 0;
+            }
+        }
+    }
+
+    private int firstCopyOf(Connection conn, int bookId) throws SQLException {
+        String sql = "SELECT MIN(copyId) AS copyId FROM BookCopies WHERE bookId=?";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, bookId);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getInt("copyId") : 0;
+            }
+        }
+    }
+
+    private static Reservation toReservation(Hold hold, int copyId, String status) {
+        Reservation r = new Reservation();
+        r.setReservationId(hold.getReservationId());
+        r.setMemberId(hold.getMemberId());
+        r.setCopyId(copyId);
+        r.setReservedAt(new Date(hold.getReservedAt()));
+        r.setStatus(status);
+        return r;
+    }
+
+    private static Reservation buildReservation(ResultSet rs) throws SQLException {
+        Reservation r = new Reservation();
+        r.setReservationId(rs.getInt("reservationId"));
+        r.setMemberId(rs.getInt("memberId"));
+        r.setCopyId(rs.getInt("copyId"));
+        r.setReservedAt(rs.getTimestamp("reservedAt"));
+        r.setStatus(rs.getString("status"));
+        return r;
+    }
+}
@@ -1,5 +1,9 @@
 package controllers;
 
+import db.ConnectionPool;
+import db.KeysetQuery;
+import db.Page;
+import db.PageRequest;
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
@@ -10,10 +14,10 @@ import models.Users;
 
 public class UserController {
 
-    private final String dbUrl;
+    private final ConnectionPool pool;
 
-    public UserController(String dbPath) {
-        this.dbUrl = "jdbc:ucanaccess://" + dbPath;
+    public UserController(ConnectionPool pool) {
+        this.pool = pool;
     }
 
     // -----------------------------
@@ -22,7 +26,7 @@ public class UserController {
     public Users login(String username, String passwordHash) {
         String sql = "SELECT * FROM Users WHERE username=? AND passwordHash=?";
 
-        try (Connection conn = DriverManager.getConnection(dbUrl);
+        try (Connection conn = pool.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
 
             ps.setString(1, username);
@@ -55,7 +59,7 @@ public class UserController {
     public boolean createUser(Users user) {
         String sql = "INSERT INTO Users (username, passwordHash, fullName, role, shift, isActive) VALUES (?, ?, ?, ?, ?, ?)";
 
-        try (Connection conn = DriverManager.getConnection(dbUrl);
+        try (Connection conn = pool.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
 
             ps.setString(1, user.getUsername());
@@ -80,7 +84,7 @@ public class UserController {
     public boolean updateUser(Users user) {
         String sql = "UPDATE Users SET username=?, passwordHash=?, fullName=?, role=?, shift=?, isActive=? WHERE userId=?";
 
-        try (Connection conn = DriverManager.getConnection(dbUrl);
+        try (Connection conn = pool.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
 
             ps.setString(1, user.getUsername());
@@ -106,7 +110,7 @@ public class UserController {
     public boolean deleteUser(int userId) {
         String sql = "DELETE FROM Users WHERE userId=?";
 
-        try (Connection conn = DriverManager.getConnection(dbUrl);
+        try (Connection conn = pool.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
 
             ps.setInt(1, userId);
@@ -125,7 +129,7 @@ public class UserController {
     public Users getUserById(int userId) {
         String sql = "SELECT * FROM Users WHERE userId=?";
 
-        try (Connection conn = DriverManager.getConnection(dbUrl);
+        try (Connection conn = pool.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
 
             ps.setInt(1, userId);
@@ -159,22 +163,14 @@ public class UserController {
         List<Users> list = new ArrayList<>();
         String sql = "SELECT * FROM Users WHERE role=? ORDER BY username ASC";
 
-        try (Connection conn = DriverManager.getConnection(dbUrl);
+        try (Connection conn = pool.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
 
             ps.setString(1, role);
             ResultSet rs = ps.executeQuery();
 
             while (rs.next()) {
-                Users user = new Users();
-                user.setUserId(rs.getInt("userId"));
-                user.setUsername(rs.getString("username"));
-                user.setPasswordHash(rs.getString("passwordHash"));
-                user.setFullName(rs.getString("fullName"));
-                user.setRole(rs.getString("role"));
-                user.setShift(rs.getString("shift"));
-                user.setActive(rs.getBoolean("isActive"));
-                list.add(user);
+                list.add(buildUser(rs));
             }
 
         } catch (SQLException e) {
@@ -185,13 +181,43 @@ public class UserController {
         return list;
     }
 
+    // Same order as getUsersByRole, one page at a time
+    public Page<Users> getUsersByRole(String role, PageRequest request) {
+        KeysetQuery<Users> query = new KeysetQuery<>("Users", UserController::buildUser)
+                .where("role = ?", role)
+                .orderByText("username", true, Users::getUsername)
+                .orderBy("userId", true, Users::getUserId);
+
+        try (Connection conn = pool.getConnection()) {
+            return query.fetch(conn, request);
+
+        } catch (SQLException e) {
+            System.out.println("Error retrieving page of users by role:");
+            e.printStackTrace();
+        }
+
+        return Page.empty();
+    }
+
+    private static Users buildUser(ResultSet rs) throws SQLException {
+        Users user = new Users();
+        user.setUserId(rs.getInt("userId"));
+        user.setUsername(rs.getString("username"));
+        user.setPasswordHash(rs.getString("passwordHash"));
+        user.setFullName(rs.getString("fullName"));
+        user.setRole(rs.getString("role"));
+        user.setShift(rs.getString("shift"));
+        user.setActive(rs.getBoolean("isActive"));
+        return user;
+    }
+
     // -----------------------------
     // RESET PASSWORD (STORES HASH)
     // -----------------------------
     public boolean resetPassword(int userId, String newPasswordPlain) {
         String sql = "UPDATE Users SET passwordHash=? WHERE userId=?";
 
-        try (Connection conn = DriverManager.getConnection(dbUrl);
+        try (Connection conn = pool.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
 
             ps.setString(1, hashPassword(newPasswordPlain));
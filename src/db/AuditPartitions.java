@@ -0,0 +1,484 @@
+package db;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Splits the audit trail into monthly tables (AuditLog_202610, ...) so that
+ * writes go to a small current table and date-range reads only touch the
+ * months they cover. The original AuditLog table stays as the oldest
+ * segment: it holds everything before the first monthly table, which after
+ * an upgrade is the whole existing history (--split moves that into monthly
+ * tables too).
+ *
+ * Segments are contiguous and never overlap: each covers [rangeStart, the
+ * next one's rangeStart), the first is open towards the past and the last
+ * towards the future, so every timestamp belongs to exactly one of them.
+ * Their layout is kept in the AuditPartitions table.
+ *
+ * Creating and dropping tables is DDL, which UCanAccess only tolerates while
+ * no transaction is open, so tables are only created at startup (this month
+ * and next, so the app can run across a month end) and by the maintenance
+ * commands below, which are run with the application closed:
+ *
+ *     java db.AuditPartitions --db=./SLMS-DB.accdb [--list]
+ *     java db.AuditPartitions --db=... --split
+ *     java db.AuditPartitions --db=... --archive-before=2025-01 --dir=./archive
+ *     java db.AuditPartitions --db=... --drop-before=2025-01
+ */
+public class AuditPartitions {
+
+    public static final String BASE_TABLE = "AuditLog";
+
+    private static final String CATALOGUE = "AuditPartitions";
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.ofPattern("yyyyMM");
+    private static final String STATUS_ACTIVE = "ACTIVE";
+    private static final String STATUS_ARCHIVED = "ARCHIVED";
+
+    private final ConnectionPool pool;
+
+    // Live segments, oldest first; replaced as a whole whenever the layout changes
+    private volatile List<Segment> segments = Collections.singletonList(new Segment(BASE_TABLE, Long.MIN_VALUE));
+
+    public AuditPartitions(ConnectionPool pool) {
+        this.pool = pool;
+    }
+
+    private static final class Segment {
+        final String table;
+        final long start; // inclusive; the segment ends where the next one starts
+
+        Segment(String table, long start) {
+            this.table = table;
+            this.start = start;
+        }
+    }
+
+    public static void main(String[] args) throws IOException, SQLException {
+        String db = option(args, "db", null);
+        if (db == null) {
+            System.out.println("Usage: java db.AuditPartitions --db=<path> [--list | --split | "
+                    + "--archive-before=YYYY-MM --dir=<folder> | --drop-before=YYYY-MM]");
+            return;
+        }
+
+        StorageEngine engine = StorageEngine.forLocation(db);
+        try (ConnectionPool pool = new ConnectionPool(engine.jdbcUrl(db))) {
+            engine.prepare(pool);
+            AuditPartitions partitions = new AuditPartitions(pool);
+            partitions.prepare();
+
+            String archiveBefore = option(args, "archive-before", null);
+            String dropBefore = option(args, "drop-before", null);
+
+            // Before any entry moves or goes: the app seeds new log IDs from the highest one left
+            if (hasFlag(args, "--split") || archiveBefore != null || dropBefore != null) {
+                IdAllocator ids = new IdAllocator(pool);
+                ids.ensureSequenceTable();
+                ids.ensureSequence(BASE_TABLE, "logId");
+            }
+
+            if (hasFlag(args, "--split")) {
+                partitions.splitBaseTable();
+            } else if (archiveBefore != null) {
+                String dir = option(args, "dir", ".");
+                partitions.archiveBefore(monthStart(YearMonth.parse(archiveBefore)), Paths.get(dir));
+            } else if (dropBefore != null) {
+                partitions.archiveBefore(monthStart(YearMonth.parse(dropBefore)), null);
+            }
+
+            partitions.printLayout();
+        }
+    }
+
+
+    // =========================================================================
+    // STARTUP: catalogue, base table index, this month's and next month's tables
+    // =========================================================================
+    public synchronized void prepare() throws SQLException {
+        ensureCatalogue();
+        // Keyset paging of the audit log seeks on (logTime, logId)
+        Indexes.ensureIndex(pool, BASE_TABLE, "idxAuditLogTime", "logTime, logId");
+
+        load();
+        YearMonth now = YearMonth.now();
+        ensureMonths(now, now.plusMonths(1));
+    }
+
+    private void ensureCatalogue() throws SQLException {
+        try (Connection conn = pool.getConnection()) {
+            if (tableExists(conn.getMetaData(), CATALOGUE)) return;
+
+            try (Statement st = conn.createStatement()) {
+                st.execute("CREATE TABLE " + CATALOGUE + " (" +
+                           "partitionName VARCHAR(64) PRIMARY KEY, " +
+                           "rangeStart TIMESTAMP NOT NULL, " +
+                           "status VARCHAR(20) NOT NULL, " +
+                           "archiveFile VARCHAR(255))");
+            }
+        }
+    }
+
+    // The live tables of a database that may never have been prepared, oldest first
+    static List<String> liveTables(ConnectionPool pool) throws SQLException {
+        AuditPartitions partitions = new AuditPartitions(pool);
+        try (Connection conn = pool.getConnection()) {
+            if (!tableExists(conn.getMetaData(), CATALOGUE)) return partitions.tablesOldestFirst();
+        }
+        partitions.load();
+        return partitions.tablesOldestFirst();
+    }
+
+    private void load() throws SQLException {
+        List<Segment> loaded = new ArrayList<>();
+        loaded.add(new Segment(BASE_TABLE, Long.MIN_VALUE));
+
+        try (Connection conn = pool.getConnection();
+             PreparedStatement ps = conn.prepareStatement(
+                     "SELECT partitionName, rangeStart FROM " + CATALOGUE + " WHERE status=? ORDER BY rangeStart ASC")) {
+            ps.setString(1, STATUS_ACTIVE);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    loaded.add(new Segment(rs.getString("partitionName"), rs.getTimestamp("rangeStart").getTime()));
+                }
+            }
+        }
+        segments = Collections.unmodifiableList(loaded);
+    }
+
+
+    // =========================================================================
+    // ROUTING AND PRUNING (no database access)
+    // =========================================================================
+    // The table an entry logged at this time belongs in
+    public String tableFor(Date logTime) {
+        List<Segment> current = segments;
+        long t = logTime.getTime();
+        for (int i = current.size() - 1; i > 0; i--) {
+            if (current.get(i).start <= t) return current.get(i).table;
+        }
+        return BASE_TABLE;
+    }
+
+    // Tables that can hold entries in [start, end], newest first
+    public List<String> tablesBetween(Date start, Date end) {
+        List<Segment> current = segments;
+        List<String> tables = new ArrayList<>();
+
+        for (int i = current.size() - 1; i >= 0; i--) {
+            Segment s = current.get(i);
+            long segmentEnd = i + 1 < current.size() ? current.get(i + 1).start : Long.MAX_VALUE;
+            if (s.start <= end.getTime() && segmentEnd > start.getTime()) tables.add(s.table);
+        }
+        return tables;
+    }
+
+    public List<String> tablesNewestFirst() {
+        List<Segment> current = segments;
+        List<String> tables = new ArrayList<>(current.size());
+        for (int i = current.size() - 1; i >= 0; i--) tables.add(current.get(i).table);
+        return tables;
+    }
+
+    public List<String> tablesOldestFirst() {
+        List<String> tables = tablesNewestFirst();
+        Collections.reverse(tables);
+        return tables;
+    }
+
+
+    // =========================================================================
+    // CREATE MONTHLY TABLES (DDL: startup or maintenance only)
+    // A month is added after the newest segment once that segment holds nothing
+    // from the month on, or before the first monthly table while the base table
+    // holds nothing from it; months that would split existing rows are skipped.
+    // =========================================================================
+    public synchronized void ensureMonths(YearMonth from, YearMonth to) throws SQLException {
+        // Backwards from the first monthly table: this is how a fresh database gets its history months
+        if (segments.size() > 1) {
+            YearMonth first = YearMonth.from(toLocal(segments.get(1).start));
+            Date baseNewest = newestLogTime(BASE_TABLE);
+            for (YearMonth m = first.minusMonths(1); !m.isBefore(from); m = m.minusMonths(1)) {
+                long start = monthStart(m).getTime();
+                if (baseNewest != null && baseNewest.getTime() >= start) break;
+                createPartition(m);
+            }
+        }
+
+        // Forwards from the newest segment
+        for (YearMonth m = from; !m.isAfter(to); m = m.plusMonths(1)) {
+            Segment last = segments.get(segments.size() - 1);
+            long start = monthStart(m).getTime();
+            if (start <= last.start) continue;
+
+            Date lastNewest = newestLogTime(last.table);
+            if (lastNewest != null && lastNewest.getTime() >= start) continue;
+            createPartition(m);
+        }
+    }
+
+    private void createPartition(YearMonth month) throws SQLException {
+        String table = BASE_TABLE + "_" + month.format(SUFFIX);
+        if (hasPartition(table)) return; // archived months are not brought back
+
+        createTable(table);
+        Indexes.ensureIndex(pool, table, "idx" + table + "Time", "logTime, logId");
+
+        try (Connection conn = pool.getConnection();
+             PreparedStatement ps = conn.prepareStatement(
+                     "INSERT INTO " + CATALOGUE + " (partitionName, rangeStart, status) VALUES (?, ?, ?)")) {
+            ps.setString(1, table);
+            ps.setTimestamp(2, monthStart(month));
+            ps.setString(3, STATUS_ACTIVE);
+            ps.executeUpdate();
+        }
+        load();
+    }
+
+    private boolean hasPartition(String table) throws SQLException {
+        try (Connection conn = pool.getConnection();
+             PreparedStatement ps = conn.prepareStatement(
+                     "SELECT partitionName FROM " + CATALOGUE + " WHERE partitionName=?")) {
+            ps.setString(1, table);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+
+    // =========================================================================
+    // SPLIT THE BASE TABLE INTO MONTHS (maintenance)
+    // Peels the newest month off the base table until it is empty, so the
+    // segments stay contiguous after every step; each month is one transaction.
+    // =========================================================================
+    public synchronized void splitBaseTable() throws SQLException {
+        Date newest;
+        while ((newest = newestLogTime(BASE_TABLE)) != null) {
+            YearMonth month = YearMonth.from(toLocal(newest.getTime()));
+            Timestamp start = monthStart(month);
+            String table = BASE_TABLE + "_" + month.format(SUFFIX);
+
+            if (segments.size() > 1 && segments.get(1).start <= start.getTime()) {
+                throw new SQLException("Base table holds entries newer than " + segments.get(1).table);
+            }
+            if (hasPartition(table)) {
+                throw new SQLException(table + " was archived; archive the base table's older months first");
+            }
+
+            createTable(table);
+            int moved;
+            try (Connection conn = pool.getConnection()) {
+                conn.setAutoCommit(false);
+                try (PreparedStatement copy = conn.prepareStatement(
+                             "INSERT INTO " + table + " (logId, userId, action, targetType, logTime) " +
+                             "SELECT logId, userId, action, targetType, logTime FROM " + BASE_TABLE + " WHERE logTime >= ?");
+                     PreparedStatement delete = conn.prepareStatement(
+                             "DELETE FROM " + BASE_TABLE + " WHERE logTime >= ?")) {
+                    copy.setTimestamp(1, start);
+                    moved = copy.executeUpdate();
+                    delete.setTimestamp(1, start);
+                    if (delete.executeUpdate() != moved) throw new SQLException("Rows changed while splitting " + table);
+                    conn.commit();
+
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                } finally {
+                    conn.setAutoCommit(true);
+                }
+            }
+
+            createPartition(month);
+            System.out.println(table + ": " + moved + " entries moved");
+        }
+    }
+
+    // Same columns and user key as the base table
+    private void createTable(String table) throws SQLException {
+        try (Connection conn = pool.getConnection()) {
+            if (tableExists(conn.getMetaData(), table)) return;
+            try (Statement st = conn.createStatement()) {
+                st.execute("CREATE TABLE " + table + " (" +
+                           "logId INTEGER PRIMARY KEY, " +
+                           "userId INTEGER NOT NULL, " +
+                           "action VARCHAR(255) NOT NULL, " +
+                           "targetType VARCHAR(50) NOT NULL, " +
+                           "logTime TIMESTAMP, " +
+                           "CONSTRAINT FK_" + table + "_Users FOREIGN KEY (userId) REFERENCES Users (userId))");
+            }
+        }
+    }
+
+
+    // =========================================================================
+    // ARCHIVE / DROP OLD SEGMENTS (maintenance)
+    // Whole segments that end on or before the cutoff, oldest first. Each is
+    // exported to <dir>/<table>.csv.gz (skipped when dir is null) and then
+    // dropped; the base table is emptied instead, as it is never dropped.
+    // Returns the number of entries removed.
+    // =========================================================================
+    public synchronized long archiveBefore(Date cutoff, Path dir) throws IOException, SQLException {
+        if (dir != null) Files.createDirectories(dir);
+        long removed = 0;
+
+        // The base table ends where the first monthly table starts
+        List<Segment> current = segments;
+        long baseEnd = current.size() > 1 ? current.get(1).start : Long.MAX_VALUE;
+        if (baseEnd > cutoff.getTime()) {
+            if (newestLogTime(BASE_TABLE) != null) {
+                System.out.println(BASE_TABLE + " holds entries past the cutoff; run --split first to archive it month by month");
+            }
+            return removed;
+        }
+
+        if (newestLogTime(BASE_TABLE) != null) {
+            String file = export(BASE_TABLE, BASE_TABLE + "-before-" + toLocal(baseEnd).format(SUFFIX), dir);
+            try (Connection conn = pool.getConnection();
+                 Statement st = conn.createStatement()) {
+                removed += st.executeUpdate("DELETE FROM " + BASE_TABLE);
+            }
+            System.out.println(BASE_TABLE + ": emptied" + (file == null ? "" : ", archived to " + file));
+        }
+
+        // Then monthly tables, oldest first
+        while (segments.size() > 1) {
+            current = segments;
+            Segment oldest = current.get(1);
+            long end = current.size() > 2 ? current.get(2).start : Long.MAX_VALUE;
+            if (end > cutoff.getTime()) break;
+
+            String file = export(oldest.table, oldest.table, dir);
+            try (Connection conn = pool.getConnection();
+                 Statement st = conn.createStatement()) {
+                removed += countRows(conn, oldest.table);
+                st.execute("DROP TABLE " + oldest.table);
+
+                try (PreparedStatement ps = conn.prepareStatement(
+                        "UPDATE " + CATALOGUE + " SET status=?, archiveFile=? WHERE partitionName=?")) {
+                    ps.setString(1, STATUS_ARCHIVED);
+                    ps.setString(2, file);
+                    ps.setString(3, oldest.table);
+                    ps.executeUpdate();
+                }
+            }
+            System.out.println(oldest.table + ": dropped" + (file == null ? "" : ", archived to " + file));
+            load();
+        }
+
+        return removed;
+    }
+
+    // Returns the file written, or null when only dropping
+    private String export(String table, String name, Path dir) throws IOException, SQLException {
+        if (dir == null) return null;
+        Path file = dir.resolve(name + ".csv.gz");
+        new TableExporter(pool).exportQuery("SELECT * FROM " + table + " ORDER BY logTime ASC, logId ASC",
+                TableExporter.Format.CSV, file, true);
+        return file.toString();
+    }
+
+
+    // =========================================================================
+    // LAYOUT REPORT
+    // =========================================================================
+    public void printLayout() throws SQLException {
+        DateTimeFormatter day = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+        List<Segment> current = segments;
+
+        try (Connection conn = pool.getConnection()) {
+            for (int i = 0; i < current.size(); i++) {
+                Segment s = current.get(i);
+                String from = s.start == Long.MIN_VALUE ? "..." : toLocal(s.start).format(day);
+                String to = i + 1 < current.size() ? toLocal(current.get(i + 1).start).format(day) : "...";
+                System.out.printf("%-20s %-10s to %-10s %10d entries%n", s.table, from, to, countRows(conn, s.table));
+            }
+
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "SELECT partitionName, archiveFile FROM " + CATALOGUE + " WHERE status=? ORDER BY rangeStart ASC")) {
+                ps.setString(1, STATUS_ARCHIVED);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        String file = rs.getString("archiveFile");
+                        System.out.printf("%-20s %s%n", rs.getString("partitionName"),
+                                file == null ? "dropped" : "archived to " + file);
+                    }
+                }
+            }
+        }
+    }
+
+
+    // =========================================================================
+    // HELPERS
+    // =========================================================================
+    // Newest entry's time, or null if the table is empty; served by the (logTime, logId) index
+    private Date newestLogTime(String table) throws SQLException {
+        try (Connection conn = pool.getConnection();
+             PreparedStatement ps = conn.prepareStatement(
+                     "SELECT TOP 1 logTime FROM " + table + " WHERE logTime IS NOT NULL ORDER BY logTime DESC");
+             ResultSet rs = ps.executeQuery()) {
+            return rs.next() ? rs.getTimestamp("logTime") : null;
+        }
+    }
+
+    private static long countRows(Connection conn, String table) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("SELECT COUNT(*) AS cnt FROM " + table);
+             ResultSet rs = ps.executeQuery()) {
+            return rs.next() ? rs.getLong("cnt") : 0;
+        }
+    }
+
+    // UCanAccess reports names as created, HSQLDB in upper case
+    private static boolean tableExists(DatabaseMetaData md, String table) throws SQLException {
+        for (String name : new String[]{table.toUpperCase(Locale.ROOT), table}) {
+            try (ResultSet rs = md.getTables(null, null, name, new String[]{"TABLE"})) {
+                if (rs.next()) return true;
+            }
+        }
+        return false;
+    }
+
+    static Timestamp monthStart(YearMonth month) {
+        return Timestamp.valueOf(month.atDay(1).atStartOfDay());
+    }
+
+    private static LocalDateTime toLocal(long millis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+    }
+
+    private static boolean hasFlag(String[] args, String flag) {
+        for (String arg : args) {
+            if (arg.equals(flag)) return true;
+        }
+        return false;
+    }
+
+    // --name=value, or the default when absent
+    private static String option(String[] args, String name, String defaultValue) {
+        String prefix = "--" + name + "=";
+        for (String arg : args) {
+            if (arg.startsWith(prefix)) return arg.substring(prefix.length());
+        }
+        return defaultValue;
+    }
+}
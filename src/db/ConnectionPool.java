@@ -0,0 +1,458 @@
+package db;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded pool of JDBC connections shared by all controllers.
+ * Connections handed out are proxies: close() returns the physical
+ * connection to the pool instead of closing it, so UCanAccess only
+ * opens and parses the database file once.
+ *
+ * Each physical connection also keeps its most recently used prepared
+ * statements open. Controllers prepare the same few statements over and
+ * over, and compiling them (and, for UCanAccess, translating the SQL)
+ * costs more than running them.
+ */
+public class ConnectionPool implements AutoCloseable {
+
+    private final String jdbcUrl;
+    private final PoolConfig config;
+
+    // Most recently used first, so warm connections are reused and cold ones age out
+    private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    private final Set<PooledConnection> leased = ConcurrentHashMap.newKeySet();
+    private final Semaphore permits;
+    private final ScheduledExecutorService housekeeper;
+
+    private final AtomicLong borrowCount = new AtomicLong();
+    private final AtomicLong createdCount = new AtomicLong();
+    private final AtomicLong destroyedCount = new AtomicLong();
+    private final AtomicLong timeoutCount = new AtomicLong();
+    private final AtomicLong leakCount = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong statementHitCount = new AtomicLong();
+    private final AtomicLong statementMissCount = new AtomicLong();
+
+    private volatile boolean closed;
+
+    public ConnectionPool(String jdbcUrl) {
+        this(jdbcUrl, new PoolConfig());
+    }
+
+    public ConnectionPool(String jdbcUrl, PoolConfig config) {
+        this.jdbcUrl = jdbcUrl;
+        this.config = config;
+        this.permits = new Semaphore(config.getMaxSize(), true);
+
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "slms-pool-housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        long interval = config.getHousekeepingIntervalMs();
+        housekeeper.scheduleWithFixedDelay(this::housekeep, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    public String getJdbcUrl() {
+        return jdbcUrl;
+    }
+
+
+    // =========================================================================
+    // BORROW A CONNECTION (close() on the returned object gives it back)
+    // =========================================================================
+    public Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(config.getConnectionTimeoutMs(), TimeUnit.MILLISECONDS)) {
+                timeoutCount.incrementAndGet();
+                throw new SQLException("Timed out after " + config.getConnectionTimeoutMs()
+                        + "ms waiting for a connection (" + getStats() + ")");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a connection", e);
+        }
+        totalWaitNanos.addAndGet(System.nanoTime() - start);
+
+        try {
+            PooledConnection pc = takeIdleOrCreate();
+            pc.borrowedAt = System.currentTimeMillis();
+            pc.borrowedBy = config.getLeakDetectionThresholdMs() > 0
+                    ? new Throwable("Connection borrowed here by " + Thread.currentThread().getName())
+                    : null;
+            pc.leakReported = false;
+            leased.add(pc);
+            borrowCount.incrementAndGet();
+            return pc.newHandle();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private PooledConnection takeIdleOrCreate() throws SQLException {
+        PooledConnection pc;
+        while ((pc = idle.pollFirst()) != null) {
+            long idleFor = System.currentTimeMillis() - pc.lastUsed;
+            if (idleFor < config.getValidationIntervalMs() || isValid(pc)) {
+                return pc;
+            }
+            destroy(pc);
+        }
+
+        Connection raw = DriverManager.getConnection(jdbcUrl);
+        createdCount.incrementAndGet();
+        return new PooledConnection(raw);
+    }
+
+    private boolean isValid(PooledConnection pc) {
+        try {
+            return pc.raw.isValid(config.getValidationTimeoutSeconds());
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+
+    // =========================================================================
+    // RETURN A CONNECTION (called from the proxy's close())
+    // =========================================================================
+    private void release(PooledConnection pc) {
+        if (!leased.remove(pc)) {
+            return;
+        }
+
+        try {
+            if (closed) {
+                destroy(pc);
+                return;
+            }
+
+            // Never hand the next borrower someone else's half-finished transaction
+            try {
+                if (!pc.raw.getAutoCommit()) {
+                    pc.raw.rollback();
+                    pc.raw.setAutoCommit(true);
+                }
+            } catch (SQLException e) {
+                destroy(pc);
+                return;
+            }
+
+            // Statements the borrower left open go back to the cache; their handles stop working
+            pc.releaseStatements();
+
+            pc.lastUsed = System.currentTimeMillis();
+            pc.borrowedBy = null;
+            idle.offerFirst(pc);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void destroy(PooledConnection pc) {
+        try {
+            pc.raw.close();
+        } catch (SQLException e) {
+            System.out.println("Error closing pooled connection:");
+            e.printStackTrace();
+        }
+        destroyedCount.incrementAndGet();
+    }
+
+
+    // =========================================================================
+    // HOUSEKEEPING: IDLE EVICTION + LEAK DETECTION
+    // =========================================================================
+    private void housekeep() {
+        long now = System.currentTimeMillis();
+
+        // Oldest idle connections sit at the tail of the deque
+        Iterator<PooledConnection> it = idle.descendingIterator();
+        while (it.hasNext() && idle.size() > config.getMinIdle()) {
+            PooledConnection pc = it.next();
+            if (now - pc.lastUsed > config.getIdleTimeoutMs() && idle.remove(pc)) {
+                destroy(pc);
+            }
+        }
+
+        long threshold = config.getLeakDetectionThresholdMs();
+        if (threshold > 0) {
+            for (PooledConnection pc : leased) {
+                if (!pc.leakReported && now - pc.borrowedAt > threshold) {
+                    pc.leakReported = true;
+                    leakCount.incrementAndGet();
+                    System.out.println("Possible connection leak: connection held for "
+                            + (now - pc.borrowedAt) + "ms");
+                    if (pc.borrowedBy != null) {
+                        pc.borrowedBy.printStackTrace(System.out);
+                    }
+                }
+            }
+        }
+    }
+
+
+    // =========================================================================
+    // METRICS
+    // =========================================================================
+    public PoolStats getStats() {
+        int idleNow = idle.size();
+        int activeNow = leased.size();
+        return new PoolStats(
+                idleNow + activeNow,
+                idleNow,
+                activeNow,
+                permits.getQueueLength(),
+                borrowCount.get(),
+                createdCount.get(),
+                destroyedCount.get(),
+                timeoutCount.get(),
+                leakCount.get(),
+                totalWaitNanos.get(),
+                statementHitCount.get(),
+                statementMissCount.get()
+        );
+    }
+
+
+    // =========================================================================
+    // SHUTDOWN
+    // =========================================================================
+    @Override
+    public void close() {
+        if (closed) return;
+        closed = true;
+        housekeeper.shutdownNow();
+
+        PooledConnection pc;
+        while ((pc = idle.pollFirst()) != null) {
+            destroy(pc);
+        }
+        // Leased connections are destroyed as their borrowers give them back
+    }
+
+
+    // =========================================================================
+    // PHYSICAL CONNECTION + BOOKKEEPING
+    // =========================================================================
+    private final class PooledConnection {
+        final Connection raw;
+        volatile long lastUsed = System.currentTimeMillis();
+        volatile long borrowedAt;
+        volatile Throwable borrowedBy;
+        volatile boolean leakReported;
+
+        // Only touched by the connection's current borrower, so needs no locking
+        private final Map<String, CachedStatement> statements =
+                new LinkedHashMap<String, CachedStatement>(16, 0.75f, true) {
+                    @Override
+                    protected boolean removeEldestEntry(Map.Entry<String, CachedStatement> eldest) {
+                        if (size() <= config.getStatementCacheSize()) return false;
+                        eldest.getValue().evict();
+                        return true;
+                    }
+                };
+
+        PooledConnection(Connection raw) {
+            this.raw = raw;
+        }
+
+        PreparedStatement prepare(String sql) throws SQLException {
+            CachedStatement cached = statements.get(sql);
+            if (cached != null && cached.handle == null) {
+                statementHitCount.incrementAndGet();
+                return cached.lease();
+            }
+
+            statementMissCount.incrementAndGet();
+            PreparedStatement ps = raw.prepareStatement(sql);
+
+            // The same SQL is already open on this connection (e.g. nested use): hand out a plain statement
+            if (cached != null) return ps;
+
+            cached = new CachedStatement(ps);
+            statements.put(sql, cached);
+            return cached.lease();
+        }
+
+        void releaseStatements() {
+            for (CachedStatement cached : statements.values()) {
+                if (cached.handle != null) cached.handle.close();
+            }
+        }
+
+        Connection newHandle() {
+            return (Connection) Proxy.newProxyInstance(
+                    ConnectionPool.class.getClassLoader(),
+                    new Class<?>[]{Connection.class},
+                    new Handle(this));
+        }
+    }
+
+    // One handle per borrow, so a stale reference cannot touch the next borrower's session
+    private final class Handle implements InvocationHandler {
+        private final PooledConnection pc;
+        private boolean returned;
+
+        Handle(PooledConnection pc) {
+            this.pc = pc;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!returned) {
+                        returned = true;
+                        release(pc);
+                    }
+                    return null;
+                case "isClosed":
+                    return returned || pc.raw.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Pooled[" + pc.raw + "]";
+                default:
+                    break;
+            }
+
+            if (returned) {
+                throw new SQLException("Connection has already been returned to the pool");
+            }
+
+            if ("prepareStatement".equals(method.getName()) && args.length == 1
+                    && config.getStatementCacheSize() > 0) {
+                return pc.prepare((String) args[0]);
+            }
+
+            try {
+                return method.invoke(pc.raw, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+
+    // =========================================================================
+    // CACHED PREPARED STATEMENT
+    // =========================================================================
+    private static final class CachedStatement {
+        final PreparedStatement raw;
+        StatementHandle handle;
+        boolean evicted;
+
+        CachedStatement(PreparedStatement raw) {
+            this.raw = raw;
+        }
+
+        PreparedStatement lease() {
+            handle = new StatementHandle(this);
+            return (PreparedStatement) Proxy.newProxyInstance(
+                    ConnectionPool.class.getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class},
+                    handle);
+        }
+
+        // Pushed out of the cache: close now, or once the current user is done with it
+        void evict() {
+            evicted = true;
+            if (handle == null) closeQuietly();
+        }
+
+        void closeQuietly() {
+            try {
+                raw.close();
+            } catch (SQLException e) {
+                System.out.println("Error closing cached statement:");
+                e.printStackTrace();
+            }
+        }
+    }
+
+    // One handle per lease; close() resets the statement for the next user instead of closing it
+    private static final class StatementHandle implements InvocationHandler {
+        private final CachedStatement cached;
+        private ResultSet lastResult;
+        private boolean closed;
+
+        StatementHandle(CachedStatement cached) {
+            this.cached = cached;
+        }
+
+        void close() {
+            if (closed) return;
+            closed = true;
+
+            try {
+                if (lastResult != null) lastResult.close();
+                cached.raw.clearParameters();
+                cached.raw.clearBatch();
+            } catch (SQLException e) {
+                cached.evicted = true;
+            }
+
+            cached.handle = null;
+            if (cached.evicted) cached.closeQuietly();
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    close();
+                    return null;
+                case "isClosed":
+                    return closed || cached.raw.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Cached[" + cached.raw + "]";
+                default:
+                    break;
+            }
+
+            if (closed) {
+                throw new SQLException("Statement is closed");
+            }
+
+            try {
+                Object result = method.invoke(cached.raw, args);
+                if (result instanceof ResultSet) lastResult = (ResultSet) result;
+                return result;
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
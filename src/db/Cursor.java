@@ -0,0 +1,34 @@
+package db;
+
+import java.util.Arrays;
+
+/**
+ * Position in a keyset-paginated listing: the sort key values of one row,
+ * ending with its primary key. Callers treat it as opaque and pass it back
+ * in the next PageRequest.
+ */
+public final class Cursor {
+
+    private final Object[] keys;
+
+    private Cursor(Object[] keys) {
+        this.keys = keys;
+    }
+
+    public static Cursor of(Object... keys) {
+        return new Cursor(keys.clone());
+    }
+
+    public int size() {
+        return keys.length;
+    }
+
+    public Object getKey(int index) {
+        return keys[index];
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(keys);
+    }
+}
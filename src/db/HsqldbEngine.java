@@ -0,0 +1,173 @@
+package db;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Locale;
+
+/**
+ * Embedded HSQLDB file database. Unlike UCanAccess it writes changes to its
+ * own log instead of rewriting the Access file, uses row-level MVCC, and
+ * allows DDL while other connections have transactions open.
+ *
+ * A new database is created with the same tables, keys and constraints as
+ * SLMS-DB.accdb; SchemaCopier moves existing data across.
+ *
+ * In-memory databases ("mem:<name>") hold everything in the heap and vanish
+ * when their pool closes. They run exactly the same SQL as the file and
+ * Access databases, so tests and benchmarks exercise the real controller
+ * code without any file I/O.
+ */
+public class HsqldbEngine implements StorageEngine {
+
+    public static final String MEMORY_PREFIX = "mem:";
+
+    // Parents before children, so the foreign keys resolve
+    static final String[][] TABLES = {
+        {"Users",
+            "CREATE TABLE Users (" +
+            "userId INTEGER PRIMARY KEY, " +
+            "username VARCHAR(50) NOT NULL, " +
+            "passwordHash VARCHAR(255) NOT NULL, " +
+            "fullName VARCHAR(100) NOT NULL, " +
+            "role VARCHAR(20) NOT NULL, " +
+            "shift VARCHAR(50), " +
+            "isActive BOOLEAN, " +
+            "CONSTRAINT UQ_Users_username UNIQUE (username))"},
+        {"Books",
+            "CREATE TABLE Books (" +
+            "bookId INTEGER PRIMARY KEY, " +
+            "title VARCHAR(255) NOT NULL, " +
+            "author VARCHAR(255), " +
+            "ISBN VARCHAR(50) NOT NULL, " +
+            "category VARCHAR(100), " +
+            "totalQuantity INTEGER, " +
+            "availableQuantity INTEGER, " +
+            "status VARCHAR(20), " +
+            "CONSTRAINT UQ_Books_ISBN UNIQUE (ISBN))"},
+        {"Members",
+            "CREATE TABLE Members (" +
+            "memberId INTEGER PRIMARY KEY, " +
+            "studentId VARCHAR(50) NOT NULL, " +
+            "firstName VARCHAR(50) NOT NULL, " +
+            "lastName VARCHAR(50) NOT NULL, " +
+            "email VARCHAR(100) NOT NULL, " +
+            "department VARCHAR(100), " +
+            "status VARCHAR(20), " +
+            "CONSTRAINT UQ_Members_studentId UNIQUE (studentId), " +
+            "CONSTRAINT UQ_Members_email UNIQUE (email))"},
+        {"BookCopies",
+            "CREATE TABLE BookCopies (" +
+            "copyId INTEGER PRIMARY KEY, " +
+            "bookId INTEGER NOT NULL, " +
+            "copyNumber INTEGER NOT NULL, " +
+            "barcode VARCHAR(100) NOT NULL, " +
+            "location VARCHAR(100), " +
+            "status VARCHAR(20), " +
+            "CONSTRAINT UQ_BookCopies_barcode UNIQUE (barcode), " +
+            "CONSTRAINT FK_BookCopies_Books FOREIGN KEY (bookId) REFERENCES Books (bookId))"},
+        {"IssueTransactions",
+            "CREATE TABLE IssueTransactions (" +
+            "issueId INTEGER PRIMARY KEY, " +
+            "memberId INTEGER NOT NULL, " +
+            "copyId INTEGER NOT NULL, " +
+            "issueDate TIMESTAMP NOT NULL, " +
+            "dueDate TIMESTAMP NOT NULL, " +
+            "returnDate TIMESTAMP, " +
+            "status VARCHAR(20), " +
+            "CONSTRAINT FK_Issues_Members FOREIGN KEY (memberId) REFERENCES Members (memberId), " +
+            "CONSTRAINT FK_Issues_Copies FOREIGN KEY (copyId) REFERENCES BookCopies (copyId))"},
+        {"Fines",
+            "CREATE TABLE Fines (" +
+            "fineId INTEGER PRIMARY KEY, " +
+            "issueId INTEGER NOT NULL, " +
+            "memberId INTEGER NOT NULL, " +
+            "amount DECIMAL(19, 4), " +
+            "dailyRate DECIMAL(19, 4), " +
+            "overdueDays INTEGER, " +
+            "status VARCHAR(20), " +
+            "CONSTRAINT FK_Fines_Issues FOREIGN KEY (issueId) REFERENCES IssueTransactions (issueId), " +
+            "CONSTRAINT FK_Fines_Members FOREIGN KEY (memberId) REFERENCES Members (memberId))"},
+        {"PaymentTransactions",
+            "CREATE TABLE PaymentTransactions (" +
+            "paymentId INTEGER PRIMARY KEY, " +
+            "fineId INTEGER NOT NULL, " +
+            "amountPaid DECIMAL(19, 4) NOT NULL, " +
+            "paymentDate TIMESTAMP, " +
+            "CONSTRAINT FK_Payments_Fines FOREIGN KEY (fineId) REFERENCES Fines (fineId))"},
+        {"Reservations",
+            "CREATE TABLE Reservations (" +
+            "reservationId INTEGER PRIMARY KEY, " +
+            "memberId INTEGER NOT NULL, " +
+            "copyId INTEGER NOT NULL, " +
+            "reservedAt TIMESTAMP, " +
+            "status VARCHAR(20), " +
+            "CONSTRAINT FK_Reservations_Members FOREIGN KEY (memberId) REFERENCES Members (memberId), " +
+            "CONSTRAINT FK_Reservations_Copies FOREIGN KEY (copyId) REFERENCES BookCopies (copyId))"},
+        {"AuditLog",
+            "CREATE TABLE AuditLog (" +
+            "logId INTEGER PRIMARY KEY, " +
+            "userId INTEGER NOT NULL, " +
+            "action VARCHAR(255) NOT NULL, " +
+            "targetType VARCHAR(50) NOT NULL, " +
+            "logTime TIMESTAMP, " +
+            "CONSTRAINT FK_Logs_Users FOREIGN KEY (userId) REFERENCES Users (userId))"},
+    };
+
+    // Secondary indexes for the desk lookups; ISBN, barcode and studentId are already indexed by their unique keys
+    static final String[][] INDEXES = {
+        {"IssueTransactions", "idxIssuesMemberStatus", "memberId, status"},
+        {"IssueTransactions", "idxIssuesCopyStatus", "copyId, status"},
+        {"Fines", "idxFinesMemberStatus", "memberId, status"},
+    };
+
+    private final boolean inMemory;
+
+    public HsqldbEngine(boolean inMemory) {
+        this.inMemory = inMemory;
+    }
+
+    @Override
+    public String getName() {
+        return inMemory ? "HSQLDB (in-memory)" : "HSQLDB";
+    }
+
+    // shutdown=true checkpoints and closes the files when the pool closes its last connection;
+    // cached tables keep only the working set in memory, so the database can outgrow the heap
+    @Override
+    public String jdbcUrl(String location) {
+        if (inMemory) {
+            return "jdbc:hsqldb:mem:" + location.substring(MEMORY_PREFIX.length()) + ";shutdown=true;hsqldb.tx=mvcc";
+        }
+        return "jdbc:hsqldb:file:" + location + ";shutdown=true;hsqldb.tx=mvcc;hsqldb.default_table_type=cached";
+    }
+
+
+    // =========================================================================
+    // CREATE ANY MISSING TABLES AND INDEXES
+    // =========================================================================
+    @Override
+    public void prepare(ConnectionPool pool) throws SQLException {
+        try (Connection conn = pool.getConnection();
+             Statement st = conn.createStatement()) {
+
+            DatabaseMetaData md = conn.getMetaData();
+            for (String[] table : TABLES) {
+                if (!tableExists(md, table[0])) st.execute(table[1]);
+            }
+        }
+
+        for (String[] index : INDEXES) {
+            Indexes.ensureIndex(pool, index[0], index[1], index[2]);
+        }
+    }
+
+    // Unquoted names are stored upper-case
+    private static boolean tableExists(DatabaseMetaData md, String table) throws SQLException {
+        try (ResultSet rs = md.getTables(null, null, table.toUpperCase(Locale.ROOT), new String[]{"TABLE"})) {
+            return rs.next();
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package db;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Hi/lo primary key allocator. Each table gets a block of IDs reserved in the
+ * Sequences table; IDs inside the block are handed out from memory, so inserts
+ * no longer run SELECT MAX(id) first. Blocks are claimed with a compare-and-set
+ * on the stored high-water mark, which keeps several app instances on the same
+ * database from ever receiving the same range. The next block is claimed in
+ * the background once a block is three quarters used, so callers normally
+ * never wait on a refill.
+ */
+public class IdAllocator {
+
+    public static final int DEFAULT_BLOCK_SIZE = 50;
+
+    private static final int MAX_CLAIM_ATTEMPTS = 20;
+
+    private final ConnectionPool pool;
+    private final int blockSize;
+    private final Map<String, Block> blocks = new ConcurrentHashMap<>();
+    private final Map<String, Integer> blockSizes = new ConcurrentHashMap<>();
+    private final ExecutorService refiller = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "slms-id-refill");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private volatile boolean tableReady;
+
+    public IdAllocator(ConnectionPool pool) {
+        this(pool, DEFAULT_BLOCK_SIZE);
+    }
+
+    public IdAllocator(ConnectionPool pool, int blockSize) {
+        this.pool = pool;
+        this.blockSize = blockSize;
+    }
+
+    // Busy tables such as AuditLog can reserve larger blocks
+    public void setBlockSize(String table, int size) {
+        blockSizes.put(table, size);
+    }
+
+
+    // =========================================================================
+    // NEXT ID FOR A TABLE (no database access unless the block is used up)
+    // =========================================================================
+    public int nextId(String table, String idColumn) throws SQLException {
+        Block block = blocks.computeIfAbsent(table, t -> new Block(t, idColumn));
+        return block.next();
+    }
+
+    private final class Block {
+        private final String table;
+        private final String idColumn;
+        private int next;
+        private int limit;
+        private Future<Integer> prefetched;
+        private int prefetchedSize;
+
+        Block(String table, String idColumn) {
+            this.table = table;
+            this.idColumn = idColumn;
+        }
+
+        synchronized int next() throws SQLException {
+            int size = blockSizes.getOrDefault(table, blockSize);
+
+            if (next >= limit) {
+                // Taken off first: a failed prefetch is given up, never awaited again
+                Future<Integer> pending = prefetched;
+                prefetched = null;
+
+                Integer start = pending != null ? awaitPrefetched(pending) : null;
+                if (start != null) {
+                    next = start;
+                    limit = start + prefetchedSize;
+                } else {
+                    next = claimBlock(table, idColumn, size);
+                    limit = next + size;
+                }
+            }
+
+            if (prefetched == null && limit - next <= size / 4) {
+                prefetchedSize = size;
+                prefetched = refiller.submit(() -> claimBlock(table, idColumn, size));
+            }
+            return next++;
+        }
+
+        // Null if the background claim failed; the caller then claims on its own thread
+        private Integer awaitPrefetched(Future<Integer> pending) throws SQLException {
+            try {
+                return pending.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted while waiting for an ID block for " + table, e);
+            } catch (ExecutionException e) {
+                System.out.println("Error reserving the next ID block for " + table + " (retrying now):");
+                e.getCause().printStackTrace();
+                return null;
+            }
+        }
+    }
+
+
+    // Seeds the table's sequence from its data if it has none yet, without reserving any IDs.
+    // For maintenance that is about to move or remove the rows the seed would be read from.
+    public void ensureSequence(String table, String idColumn) throws SQLException {
+        claimBlock(table, idColumn, 0);
+    }
+
+
+    // =========================================================================
+    // CLAIM A NEW BLOCK: returns the first ID of [start, start + size)
+    // =========================================================================
+    private int claimBlock(String table, String idColumn, int size) throws SQLException {
+        ensureSequenceTable();
+
+        String selectSql = "SELECT nextValue FROM Sequences WHERE seqName=?";
+        String updateSql = "UPDATE Sequences SET nextValue=? WHERE seqName=? AND nextValue=?";
+
+        for (int attempt = 0; attempt < MAX_CLAIM_ATTEMPTS; attempt++) {
+            try (Connection conn = pool.getConnection()) {
+
+                Integer current = null;
+                try (PreparedStatement ps = conn.prepareStatement(selectSql)) {
+                    ps.setString(1, table);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        if (rs.next()) current = rs.getInt("nextValue");
+                    }
+                }
+
+                if (current == null) {
+                    // First use of this table: seed once from the existing data
+                    int start = maxId(conn, table, idColumn) + 1;
+                    if (insertSequence(conn, table, start + size)) {
+                        return start;
+                    }
+                    continue;
+                }
+
+                try (PreparedStatement ps = conn.prepareStatement(updateSql)) {
+                    ps.setInt(1, current + size);
+                    ps.setString(2, table);
+                    ps.setInt(3, current);
+                    if (ps.executeUpdate() == 1) {
+                        return current;
+                    }
+                }
+                // Another instance moved the mark between our read and write; retry
+            }
+        }
+
+        throw new SQLException("Could not reserve an ID block for " + table
+                + " after " + MAX_CLAIM_ATTEMPTS + " attempts");
+    }
+
+    // The audit trail's IDs run on across its monthly tables, whichever of them hold entries
+    private int maxId(Connection conn, String table, String idColumn) throws SQLException {
+        if (!AuditPartitions.BASE_TABLE.equals(table)) return maxIdIn(conn, table, idColumn);
+
+        int max = 0;
+        for (String segment : AuditPartitions.liveTables(pool)) {
+            max = Math.max(max, maxIdIn(conn, segment, idColumn));
+        }
+        return max;
+    }
+
+    private int maxIdIn(Connection conn, String table, String idColumn) throws SQLException {
+        String sql = "SELECT MAX(" + idColumn + ") AS maxId FROM " + table;
+
+        try (PreparedStatement ps = conn.prepareStatement(sql);
+             ResultSet rs = ps.executeQuery()) {
+
+            if (rs.next()) {
+                int maxId = rs.getInt("maxId");
+                if (!rs.wasNull()) return maxId;
+            }
+        }
+        return 0;
+    }
+
+    private boolean insertSequence(Connection conn, String table, int nextValue) throws SQLException {
+        String sql = "INSERT INTO Sequences (seqName, nextValue) VALUES (?, ?)";
+
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, table);
+            ps.setInt(2, nextValue);
+            return ps.executeUpdate() == 1;
+        } catch (SQLException e) {
+            // Unique key violation: another instance seeded it first
+            if ("23505".equals(e.getSQLState())) return false;
+            throw e;
+        }
+    }
+
+
+    // =========================================================================
+    // CREATE THE SEQUENCES TABLE ON FIRST USE
+    // Call at startup: UCanAccess closes every connection that has a transaction
+    // open when DDL runs, so the table must not be created mid-checkout.
+    // =========================================================================
+    public void ensureSequenceTable() throws SQLException {
+        if (tableReady) return;
+
+        synchronized (this) {
+            if (tableReady) return;
+
+            try (Connection conn = pool.getConnection()) {
+                DatabaseMetaData md = conn.getMetaData();
+                boolean exists;
+                try (ResultSet rs = md.getTables(null, null, "SEQUENCES", new String[]{"TABLE"})) {
+                    exists = rs.next();
+                }
+                if (!exists) {
+                    try (ResultSet rs = md.getTables(null, null, "Sequences", new String[]{"TABLE"})) {
+                        exists = rs.next();
+                    }
+                }
+
+                if (!exists) {
+                    try (Statement st = conn.createStatement()) {
+                        st.execute("CREATE TABLE Sequences (seqName VARCHAR(64) PRIMARY KEY, nextValue INTEGER NOT NULL)");
+                    }
+                }
+            }
+            tableReady = true;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package db;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Locale;
+
+/**
+ * Creates secondary indexes the queries rely on but the shipped database
+ * does not have. Like the Sequences table, these must be created at startup:
+ * UCanAccess closes every connection with an open transaction when DDL runs.
+ */
+public final class Indexes {
+
+    private Indexes() {}
+
+    // columns is the column list as written in CREATE INDEX, e.g. "logTime, logId"
+    public static void ensureIndex(ConnectionPool pool, String table, String indexName, String columns)
+            throws SQLException {
+
+        try (Connection conn = pool.getConnection()) {
+            if (exists(conn.getMetaData(), table, indexName)) return;
+
+            try (Statement st = conn.createStatement()) {
+                st.execute("CREATE INDEX " + indexName + " ON " + table + " (" + columns + ")");
+            }
+        }
+    }
+
+    // The mirror database reports the index as TABLE_INDEXNAME in upper case
+    private static boolean exists(DatabaseMetaData md, String table, String indexName) throws SQLException {
+        String wanted = indexName.toUpperCase(Locale.ROOT);
+
+        for (String name : new String[]{table.toUpperCase(Locale.ROOT), table}) {
+            try (ResultSet rs = md.getIndexInfo(null, null, name, false, false)) {
+                while (rs.next()) {
+                    String found = rs.getString("INDEX_NAME");
+                    if (found != null && found.toUpperCase(Locale.ROOT).endsWith(wanted)) return true;
+                }
+            }
+        }
+        return false;
+    }
+}
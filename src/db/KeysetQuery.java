@@ -0,0 +1,147 @@
+package db;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Keyset ("seek") pagination over one table. Each page is found by comparing
+ * the sort columns with the cursor row's values instead of skipping an
+ * offset, so later pages cost the same as the first. The last sort column
+ * must be the primary key, which makes every row's position unique.
+ *
+ * Text columns are compared through COALESCE(col, '') so rows with a NULL
+ * sort value still land in a fixed place.
+ */
+public final class KeysetQuery<T> {
+
+    public interface RowMapper<T> {
+        T map(ResultSet rs) throws SQLException;
+    }
+
+    private final String table;
+    private final RowMapper<T> mapper;
+
+    private final List<String> sortExprs = new ArrayList<>();
+    private final List<Boolean> ascending = new ArrayList<>();
+    private final List<Function<T, Object>> keyGetters = new ArrayList<>();
+
+    private String condition;
+    private Object[] conditionParams = new Object[0];
+
+    public KeysetQuery(String table, RowMapper<T> mapper) {
+        this.table = table;
+        this.mapper = mapper;
+    }
+
+    // Fixed filter ANDed into every page, e.g. "role = ?"
+    public KeysetQuery<T> where(String condition, Object... params) {
+        this.condition = condition;
+        this.conditionParams = params;
+        return this;
+    }
+
+    public KeysetQuery<T> orderBy(String column, boolean asc, Function<T, Object> key) {
+        sortExprs.add(column);
+        ascending.add(asc);
+        keyGetters.add(key);
+        return this;
+    }
+
+    public KeysetQuery<T> orderByText(String column, boolean asc, Function<T, String> key) {
+        sortExprs.add("COALESCE(" + column + ", '')");
+        ascending.add(asc);
+        keyGetters.add(row -> {
+            String value = key.apply(row);
+            return value == null ? "" : value;
+        });
+        return this;
+    }
+
+
+    // =========================================================================
+    // FETCH ONE PAGE
+    // =========================================================================
+    public Page<T> fetch(Connection conn, PageRequest request) throws SQLException {
+        Cursor cursor = request.getCursor();
+        if (cursor != null && cursor.size() != sortExprs.size()) {
+            throw new IllegalArgumentException("Cursor " + cursor + " does not match the sort of " + table);
+        }
+
+        boolean backward = request.isBackward();
+        List<Object> params = new ArrayList<>();
+        Collections.addAll(params, conditionParams);
+
+        // One extra row tells whether another page exists
+        StringBuilder sql = new StringBuilder("SELECT TOP ").append(request.getSize() + 1)
+                .append(" * FROM ").append(table).append(" WHERE 1=1");
+
+        if (condition != null) sql.append(" AND (").append(condition).append(")");
+        if (cursor != null) sql.append(" AND (").append(seekPredicate(cursor, backward, params)).append(")");
+
+        sql.append(" ORDER BY ");
+        for (int i = 0; i < sortExprs.size(); i++) {
+            if (i > 0) sql.append(", ");
+            boolean asc = ascending.get(i) != backward;
+            sql.append(sortExprs.get(i)).append(asc ? " ASC" : " DESC");
+        }
+
+        List<T> rows = new ArrayList<>();
+        try (PreparedStatement ps = conn.prepareStatement(sql.toString())) {
+            for (int i = 0; i < params.size(); i++) {
+                ps.setObject(i + 1, params.get(i));
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    rows.add(mapper.map(rs));
+                }
+            }
+        }
+
+        // Walking backwards reads nearest-first; put the page back in display order
+        if (backward) Collections.reverse(rows);
+
+        return Page.fromFetch(rows, request, this::keysOf);
+    }
+
+    // (a > ?) OR (a = ? AND b > ?) OR ... with each comparison following its column's direction
+    private String seekPredicate(Cursor cursor, boolean backward, List<Object> params) {
+        StringBuilder sb = new StringBuilder();
+
+        for (int i = 0; i < sortExprs.size(); i++) {
+            if (i > 0) sb.append(" OR ");
+            sb.append("(");
+            for (int j = 0; j < i; j++) {
+                sb.append(sortExprs.get(j)).append(" = ? AND ");
+                params.add(bindable(cursor.getKey(j)));
+            }
+            boolean forwardIsGreater = ascending.get(i) != backward;
+            sb.append(sortExprs.get(i)).append(forwardIsGreater ? " > ?" : " < ?");
+            params.add(bindable(cursor.getKey(i)));
+            sb.append(")");
+        }
+        return sb.toString();
+    }
+
+    private Object[] keysOf(T row) {
+        Object[] keys = new Object[keyGetters.size()];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = keyGetters.get(i).apply(row);
+        }
+        return keys;
+    }
+
+    // setObject does not accept java.util.Date
+    private static Object bindable(Object key) {
+        if (key instanceof java.util.Date && !(key instanceof java.sql.Date) && !(key instanceof Timestamp)) {
+            return new Timestamp(((java.util.Date) key).getTime());
+        }
+        return key;
+    }
+}
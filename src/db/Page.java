@@ -0,0 +1,62 @@
+package db;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * One page of a keyset-paginated listing, in display order. The next and
+ * previous cursors are null when there is nothing further in that direction.
+ */
+public final class Page<T> {
+
+    private final List<T> items;
+    private final Cursor nextCursor;
+    private final Cursor previousCursor;
+
+    private Page(List<T> items, Cursor nextCursor, Cursor previousCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+        this.previousCursor = previousCursor;
+    }
+
+    public static <T> Page<T> empty() {
+        return new Page<>(Collections.emptyList(), null, null);
+    }
+
+    /**
+     * Builds a page from rows fetched for the request, in display order, with
+     * one extra row (beyond request.getSize()) if more exist in the direction
+     * of travel. keysOf gives the cursor key values of a row.
+     */
+    public static <T> Page<T> fromFetch(List<T> fetched, PageRequest request, Function<T, Object[]> keysOf) {
+        boolean backward = request.isBackward();
+        boolean more = fetched.size() > request.getSize();
+
+        List<T> items = fetched;
+        if (more) {
+            // The extra row sits at the far end from the cursor
+            items = backward
+                    ? fetched.subList(fetched.size() - request.getSize(), fetched.size())
+                    : fetched.subList(0, request.getSize());
+        }
+        if (items.isEmpty()) return empty();
+
+        Cursor first = Cursor.of(keysOf.apply(items.get(0)));
+        Cursor last = Cursor.of(keysOf.apply(items.get(items.size() - 1)));
+
+        // Coming from a cursor means rows exist on that side
+        boolean cameFromCursor = request.getCursor() != null;
+        Cursor next = backward ? last : (more ? last : null);
+        Cursor previous = backward ? (more ? first : null) : (cameFromCursor ? first : null);
+
+        return new Page<>(Collections.unmodifiableList(items), next, previous);
+    }
+
+    public List<T> getItems() { return items; }
+    public Cursor getNextCursor() { return nextCursor; }
+    public Cursor getPreviousCursor() { return previousCursor; }
+
+    public boolean hasNext() { return nextCursor != null; }
+    public boolean hasPrevious() { return previousCursor != null; }
+}
@@ -0,0 +1,41 @@
+package db;
+
+/**
+ * Which page of a listing to fetch: up to size rows after (NEXT) or before
+ * (PREVIOUS) the cursor, or the first page when there is no cursor.
+ */
+public final class PageRequest {
+
+    public enum Direction { NEXT, PREVIOUS }
+
+    private final int size;
+    private final Cursor cursor;
+    private final Direction direction;
+
+    private PageRequest(int size, Cursor cursor, Direction direction) {
+        if (size <= 0) throw new IllegalArgumentException("Page size must be positive: " + size);
+        this.size = size;
+        this.cursor = cursor;
+        this.direction = direction;
+    }
+
+    public static PageRequest first(int size) {
+        return new PageRequest(size, null, Direction.NEXT);
+    }
+
+    public static PageRequest after(Cursor cursor, int size) {
+        return new PageRequest(size, cursor, Direction.NEXT);
+    }
+
+    public static PageRequest before(Cursor cursor, int size) {
+        return new PageRequest(size, cursor, Direction.PREVIOUS);
+    }
+
+    public int getSize() { return size; }
+    public Cursor getCursor() { return cursor; }
+    public Direction getDirection() { return direction; }
+
+    public boolean isBackward() {
+        return cursor != null && direction == Direction.PREVIOUS;
+    }
+}
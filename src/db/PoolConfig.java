@@ -0,0 +1,46 @@
+package db;
+
+public class PoolConfig {
+private int maxSize = 8;
+private int minIdle = 1;
+private long connectionTimeoutMs = 5000;
+private int validationTimeoutSeconds = 2;
+private long validationIntervalMs = 30000;
+private long idleTimeoutMs = 600000;
+private long leakDetectionThresholdMs = 60000;
+private long housekeepingIntervalMs = 30000;
+private int statementCacheSize = 64;
+
+public PoolConfig() {}
+
+    // Getters & Setters
+    public int getMaxSize() { return maxSize; }
+    public void setMaxSize(int maxSize) { this.maxSize = maxSize; }
+
+    public int getMinIdle() { return minIdle; }
+    public void setMinIdle(int minIdle) { this.minIdle = minIdle; }
+
+    public long getConnectionTimeoutMs() { return connectionTimeoutMs; }
+    public void setConnectionTimeoutMs(long connectionTimeoutMs) { this.connectionTimeoutMs = connectionTimeoutMs; }
+
+    // Idle connections older than the validation interval are checked with isValid() before reuse
+    public int getValidationTimeoutSeconds() { return validationTimeoutSeconds; }
+    public void setValidationTimeoutSeconds(int validationTimeoutSeconds) { this.validationTimeoutSeconds = validationTimeoutSeconds; }
+
+    public long getValidationIntervalMs() { return validationIntervalMs; }
+    public void setValidationIntervalMs(long validationIntervalMs) { this.validationIntervalMs = validationIntervalMs; }
+
+    public long getIdleTimeoutMs() { return idleTimeoutMs; }
+    public void setIdleTimeoutMs(long idleTimeoutMs) { this.idleTimeoutMs = idleTimeoutMs; }
+
+    // 0 disables leak detection
+    public long getLeakDetectionThresholdMs() { return leakDetectionThresholdMs; }
+    public void setLeakDetectionThresholdMs(long leakDetectionThresholdMs) { this.leakDetectionThresholdMs = leakDetectionThresholdMs; }
+
+    public long getHousekeepingIntervalMs() { return housekeepingIntervalMs; }
+    public void setHousekeepingIntervalMs(long housekeepingIntervalMs) { this.housekeepingIntervalMs = housekeepingIntervalMs; }
+
+    // Prepared statements kept open per connection for reuse; 0 disables the cache
+    public int getStatementCacheSize() { return statementCacheSize; }
+    public void setStatementCacheSize(int statementCacheSize) { this.statementCacheSize = statementCacheSize; }
+}
@@ -0,0 +1,60 @@
+package db;
+
+public class PoolStats {
+private final int totalConnections;
+private final int idleConnections;
+private final int activeConnections;
+private final int waitingThreads;
+private final long borrowCount;
+private final long createdCount;
+private final long destroyedCount;
+private final long timeoutCount;
+private final long leakCount;
+private final long totalWaitNanos;
+private final long statementHitCount;
+private final long statementMissCount;
+
+public PoolStats(int totalConnections, int idleConnections, int activeConnections, int waitingThreads,
+                 long borrowCount, long createdCount, long destroyedCount, long timeoutCount,
+                 long leakCount, long totalWaitNanos, long statementHitCount, long statementMissCount) {
+    this.totalConnections = totalConnections;
+    this.idleConnections = idleConnections;
+    this.activeConnections = activeConnections;
+    this.waitingThreads = waitingThreads;
+    this.borrowCount = borrowCount;
+    this.createdCount = createdCount;
+    this.destroyedCount = destroyedCount;
+    this.timeoutCount = timeoutCount;
+    this.leakCount = leakCount;
+    this.totalWaitNanos = totalWaitNanos;
+    this.statementHitCount = statementHitCount;
+    this.statementMissCount = statementMissCount;
+}
+
+    // Getters
+    public int getTotalConnections() { return totalConnections; }
+    public int getIdleConnections() { return idleConnections; }
+    public int getActiveConnections() { return activeConnections; }
+    public int getWaitingThreads() { return waitingThreads; }
+    public long getBorrowCount() { return borrowCount; }
+    public long getCreatedCount() { return createdCount; }
+    public long getDestroyedCount() { return destroyedCount; }
+    public long getTimeoutCount() { return timeoutCount; }
+    public long getLeakCount() { return leakCount; }
+    public long getStatementHitCount() { return statementHitCount; }
+    public long getStatementMissCount() { return statementMissCount; }
+
+    public double getAverageWaitMs() {
+        return borrowCount == 0 ? 0.0 : (totalWaitNanos / 1_000_000.0) / borrowCount;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "total=%d idle=%d active=%d waiting=%d borrowed=%d created=%d destroyed=%d timeouts=%d leaks=%d avgWait=%.3fms"
+                        + " stmtHits=%d stmtMisses=%d",
+                totalConnections, idleConnections, activeConnections, waitingThreads,
+                borrowCount, createdCount, destroyedCount, timeoutCount, leakCount, getAverageWaitMs(),
+                statementHitCount, statementMissCount);
+    }
+}
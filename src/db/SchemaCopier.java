@@ -0,0 +1,130 @@
+package db;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+
+/**
+ * Copies every table from one database to another, e.g. from SLMS-DB.accdb
+ * into a new HSQLDB database. Tables that already hold rows in the target
+ * are skipped, so an interrupted copy can simply be run again.
+ *
+ * Usage: java db.SchemaCopier ./SLMS-DB.accdb ./data/slms
+ */
+public class SchemaCopier {
+
+    private static final int BATCH_SIZE = 1000;
+
+    private final ConnectionPool source;
+    private final ConnectionPool target;
+
+    public SchemaCopier(ConnectionPool source, ConnectionPool target) {
+        this.source = source;
+        this.target = target;
+    }
+
+    public static void main(String[] args) throws SQLException {
+        if (args.length != 2) {
+            System.out.println("Usage: java db.SchemaCopier <from> <to>");
+            return;
+        }
+
+        StorageEngine fromEngine = StorageEngine.forLocation(args[0]);
+        StorageEngine toEngine = StorageEngine.forLocation(args[1]);
+
+        try (ConnectionPool from = new ConnectionPool(fromEngine.jdbcUrl(args[0]));
+             ConnectionPool to = new ConnectionPool(toEngine.jdbcUrl(args[1]))) {
+
+            toEngine.prepare(to);
+            new SchemaCopier(from, to).copyAll();
+        }
+    }
+
+
+    // =========================================================================
+    // COPY ALL TABLES (parents first)
+    // =========================================================================
+    public void copyAll() throws SQLException {
+        for (String[] table : HsqldbEngine.TABLES) {
+            int copied = table[0].equals(AuditPartitions.BASE_TABLE) ? copyAuditLog() : copyTable(table[0]);
+            System.out.println(table[0] + ": " + (copied < 0 ? "already populated, skipped" : copied + " rows"));
+        }
+    }
+
+    // Returns the number of rows copied, or -1 if the target table was not empty
+    public int copyTable(String table) throws SQLException {
+        if (!isEmpty(table)) return -1;
+        return copyRows(table, table);
+    }
+
+    // Every live monthly table of the source goes into the target's AuditLog;
+    // the target lays out its own months at startup (or with --split)
+    private int copyAuditLog() throws SQLException {
+        if (!isEmpty(AuditPartitions.BASE_TABLE)) return -1;
+
+        int copied = 0;
+        for (String table : AuditPartitions.liveTables(source)) {
+            copied += copyRows(table, AuditPartitions.BASE_TABLE);
+        }
+        return copied;
+    }
+
+    private boolean isEmpty(String table) throws SQLException {
+        try (Connection to = target.getConnection();
+             PreparedStatement ps = to.prepareStatement("SELECT COUNT(*) AS cnt FROM " + table);
+             ResultSet rs = ps.executeQuery()) {
+            return !rs.next() || rs.getInt("cnt") == 0;
+        }
+    }
+
+    private int copyRows(String fromTable, String toTable) throws SQLException {
+        try (Connection from = source.getConnection();
+             Connection to = target.getConnection()) {
+
+            try (PreparedStatement select = from.prepareStatement("SELECT * FROM " + fromTable);
+                 ResultSet rs = select.executeQuery()) {
+
+                ResultSetMetaData md = rs.getMetaData();
+                int columns = md.getColumnCount();
+
+                StringBuilder names = new StringBuilder();
+                StringBuilder marks = new StringBuilder();
+                for (int i = 1; i <= columns; i++) {
+                    if (i > 1) {
+                        names.append(", ");
+                        marks.append(", ");
+                    }
+                    names.append(md.getColumnName(i));
+                    marks.append("?");
+                }
+
+                String insertSql = "INSERT INTO " + toTable + " (" + names + ") VALUES (" + marks + ")";
+                to.setAutoCommit(false);
+
+                int copied = 0;
+                try (PreparedStatement insert = to.prepareStatement(insertSql)) {
+                    while (rs.next()) {
+                        for (int i = 1; i <= columns; i++) {
+                            insert.setObject(i, rs.getObject(i));
+                        }
+                        insert.addBatch();
+
+                        if (++copied % BATCH_SIZE == 0) {
+                            insert.executeBatch();
+                            to.commit();
+                        }
+                    }
+                    if (copied % BATCH_SIZE != 0) insert.executeBatch();
+                    to.commit();
+
+                } catch (SQLException e) {
+                    to.rollback();
+                    throw e;
+                }
+                return copied;
+            }
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package db;
+
+import java.sql.SQLException;
+import java.util.Locale;
+
+/**
+ * The database product behind a ConnectionPool. Controllers only ever talk
+ * to the pool, and the SQL they issue is accepted by every engine here, so
+ * an engine just has to say how to connect and how to bring a fresh
+ * database up to the expected schema.
+ */
+public interface StorageEngine {
+
+    String getName();
+
+    String jdbcUrl(String location);
+
+    // Runs once at startup, before any controller uses the pool
+    void prepare(ConnectionPool pool) throws SQLException;
+
+    // Access files (.accdb/.mdb) open through UCanAccess, "mem:<name>" is an in-memory
+    // HSQLDB database, and any other path is an HSQLDB file database
+    static StorageEngine forLocation(String location) {
+        if (isInMemory(location)) {
+            return new HsqldbEngine(true);
+        }
+        String lower = location.toLowerCase(Locale.ROOT);
+        if (lower.endsWith(".accdb") || lower.endsWith(".mdb")) {
+            return new UCanAccessEngine();
+        }
+        return new HsqldbEngine(false);
+    }
+
+    static boolean isInMemory(String location) {
+        return location.startsWith(HsqldbEngine.MEMORY_PREFIX);
+    }
+}
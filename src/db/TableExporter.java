@@ -0,0 +1,422 @@
+package db;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Streams a table (or any SELECT) to a CSV or JSON file in constant memory.
+ * Rows come through a forward-only, read-only cursor with a fetch size, so
+ * the driver never holds more than one fetch; each row is written straight
+ * into a buffered writer over the file channel, gzip-compressed when asked.
+ * The file is written under a temporary name and moved into place at the
+ * end, so a failed export never leaves a truncated file behind.
+ *
+ * CSV follows RFC 4180 with a header row. JSON is an array holding one
+ * object per line; numbers and booleans stay unquoted, timestamps are
+ * written as ISO-8601 text.
+ *
+ * Usage: java db.TableExporter --db=./SLMS-DB.accdb --table=AuditLog --out=audit.csv.gz
+ *            [--format=csv|json] [--fetch=1000]
+ * (format and compression otherwise follow the file name: .json, .gz)
+ */
+public class TableExporter {
+
+    public enum Format { CSV, JSON }
+
+    public static final int DEFAULT_FETCH_SIZE = 1000;
+
+    private static final int BUFFER_BYTES = 1 << 16;
+    private static final long PROGRESS_EVERY = 100_000;
+
+    // Both engines report unquoted names in upper case; headers use the schema's spelling instead
+    private static final Map<String, String> COLUMN_NAMES = new HashMap<>();
+    static {
+        Pattern column = Pattern.compile("(\\w+) (?:INTEGER|VARCHAR|TIMESTAMP|DECIMAL|BOOLEAN)");
+        for (String[] table : HsqldbEngine.TABLES) {
+            Matcher m = column.matcher(table[1]);
+            while (m.find()) COLUMN_NAMES.put(m.group(1).toUpperCase(Locale.ROOT), m.group(1));
+        }
+    }
+
+    private final ConnectionPool pool;
+    private final int fetchSize;
+
+    public TableExporter(ConnectionPool pool) {
+        this(pool, DEFAULT_FETCH_SIZE);
+    }
+
+    public TableExporter(ConnectionPool pool, int fetchSize) {
+        this.pool = pool;
+        this.fetchSize = fetchSize;
+    }
+
+    public static void main(String[] args) throws IOException, SQLException {
+        String db = option(args, "db", null);
+        String table = option(args, "table", null);
+        String out = option(args, "out", null);
+        if (db == null || table == null || out == null) {
+            System.out.println("Usage: java db.TableExporter --db=<path> --table=<name> --out=<file[.gz]> "
+                    + "[--format=csv|json] [--fetch=N]");
+            return;
+        }
+
+        Path file = Paths.get(out);
+        String format = option(args, "format", null);
+        int fetch = Integer.parseInt(option(args, "fetch", String.valueOf(DEFAULT_FETCH_SIZE)));
+
+        StorageEngine engine = StorageEngine.forLocation(db);
+        try (ConnectionPool pool = new ConnectionPool(engine.jdbcUrl(db))) {
+            long started = System.nanoTime();
+            long rows = new TableExporter(pool, fetch).exportTable(table,
+                    format == null ? formatOf(file) : Format.valueOf(format.toUpperCase(Locale.ROOT)),
+                    file, isGzip(file));
+            System.out.printf("Exported %d rows of %s to %s in %.1fs%n",
+                    rows, table, file, (System.nanoTime() - started) / 1e9);
+        }
+    }
+
+    // .json / .json.gz are JSON, anything else CSV
+    public static Format formatOf(Path file) {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (name.endsWith(".gz")) name = name.substring(0, name.length() - 3);
+        return name.endsWith(".json") ? Format.JSON : Format.CSV;
+    }
+
+    public static boolean isGzip(Path file) {
+        return file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".gz");
+    }
+
+
+    // =========================================================================
+    // EXPORT A WHOLE TABLE (one of the application's tables)
+    // AuditLog means the whole audit trail: every live partition, oldest first.
+    // =========================================================================
+    public long exportTable(String table, Format format, Path file, boolean gzip) throws IOException, SQLException {
+        String name = knownTable(table);
+        if (!AuditPartitions.BASE_TABLE.equals(name)) {
+            return exportQuery("SELECT * FROM " + name, format, file, gzip);
+        }
+
+        List<String> queries = new ArrayList<>();
+        for (String segment : AuditPartitions.liveTables(pool)) {
+            queries.add("SELECT * FROM " + segment + " ORDER BY logTime ASC, logId ASC");
+        }
+        return exportQueries(queries, format, file, gzip);
+    }
+
+    // The name is spliced into SQL, so only the schema's own tables are accepted
+    private static String knownTable(String table) throws SQLException {
+        for (String[] t : HsqldbEngine.TABLES) {
+            if (t[0].equalsIgnoreCase(table)) return t[0];
+        }
+        throw new SQLException("Unknown table: " + table);
+    }
+
+
+    // =========================================================================
+    // EXPORT THE RESULT OF A QUERY; returns the number of rows written
+    // =========================================================================
+    public long exportQuery(String sql, Format format, Path file, boolean gzip, Object... params)
+            throws IOException, SQLException {
+        return toFile(file, gzip, out -> exportQuery(sql, format, out, params));
+    }
+
+    // Writes to a caller-supplied writer, which the caller flushes and closes
+    public long exportQuery(String sql, Format format, Writer out, Object... params) throws IOException, SQLException {
+        return exportQueries(Collections.singletonList(sql), format, out, params);
+    }
+
+
+    // =========================================================================
+    // EXPORT SEVERAL QUERIES AS ONE FILE, in the order given (e.g. the monthly
+    // partitions of one table); they must all return the same columns
+    // =========================================================================
+    public long exportQueries(List<String> sqls, Format format, Path file, boolean gzip)
+            throws IOException, SQLException {
+        return toFile(file, gzip, out -> exportQueries(sqls, format, out));
+    }
+
+    private long exportQueries(List<String> sqls, Format format, Writer out, Object... params)
+            throws IOException, SQLException {
+        RowWriter rows = format == Format.CSV ? new CsvRowWriter(out) : new JsonRowWriter(out);
+
+        try (Connection conn = pool.getConnection()) {
+            // Some drivers only honour the fetch size (rather than reading everything) inside a transaction
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+
+            try {
+                for (String sql : sqls) {
+                    try (PreparedStatement ps = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                        ps.setFetchSize(fetchSize);
+                        for (int i = 0; i < params.length; i++) ps.setObject(i + 1, params[i]);
+
+                        try (ResultSet rs = ps.executeQuery()) {
+                            if (!rows.started()) rows.begin(rs.getMetaData());
+                            while (rs.next()) {
+                                rows.write(rs);
+                                progress(rows.count());
+                            }
+                        }
+                    }
+                }
+            } finally {
+                conn.rollback(); // read only; just ends the transaction
+                conn.setAutoCommit(autoCommit);
+            }
+        }
+
+        rows.end();
+        return rows.count();
+    }
+
+    private interface Export {
+        long writeTo(Writer out) throws IOException, SQLException;
+    }
+
+    // Buffered writer over the file channel (gzip in between when asked), under a temporary name until complete
+    private static long toFile(Path file, boolean gzip, Export export) throws IOException, SQLException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".part");
+        long rows;
+
+        try (OutputStream out = open(tmp, gzip);
+             Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_BYTES)) {
+            rows = export.writeTo(writer);
+
+        } catch (IOException | SQLException | RuntimeException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+        return rows;
+    }
+
+    private static OutputStream open(Path file, boolean gzip) throws IOException {
+        OutputStream out = Files.newOutputStream(file);
+        return gzip ? new GZIPOutputStream(out, BUFFER_BYTES) : out;
+    }
+
+    private abstract static class RowWriter {
+        final Writer out;
+        String[] names;
+        long count;
+
+        RowWriter(Writer out) {
+            this.out = out;
+        }
+
+        boolean started() { return names != null; }
+        long count() { return count; }
+
+        void begin(ResultSetMetaData md) throws IOException, SQLException {
+            names = new String[md.getColumnCount() + 1];
+            for (int i = 1; i < names.length; i++) names[i] = columnName(md, i);
+        }
+
+        abstract void write(ResultSet rs) throws IOException, SQLException;
+
+        abstract void end() throws IOException;
+    }
+
+
+    // =========================================================================
+    // CSV
+    // =========================================================================
+    private static final class CsvRowWriter extends RowWriter {
+        CsvRowWriter(Writer out) {
+            super(out);
+        }
+
+        @Override
+        void begin(ResultSetMetaData md) throws IOException, SQLException {
+            super.begin(md);
+            for (int i = 1; i < names.length; i++) {
+                if (i > 1) out.write(',');
+                writeCsvField(out, names[i]);
+            }
+            out.write("\r\n");
+        }
+
+        @Override
+        void write(ResultSet rs) throws IOException, SQLException {
+            for (int i = 1; i < names.length; i++) {
+                if (i > 1) out.write(',');
+                String value = text(rs.getObject(i));
+                if (value != null) writeCsvField(out, value);
+            }
+            out.write("\r\n");
+            count++;
+        }
+
+        @Override
+        void end() {
+            // nothing after the last row
+        }
+    }
+
+    // Quoted only when it has to be
+    private static void writeCsvField(Writer out, String value) throws IOException {
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\r' || c == '\n';
+        }
+
+        if (!quote) {
+            out.write(value);
+            return;
+        }
+
+        out.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') out.write('"');
+            out.write(c);
+        }
+        out.write('"');
+    }
+
+
+    // =========================================================================
+    // JSON
+    // =========================================================================
+    private static final class JsonRowWriter extends RowWriter {
+        private final StringBuilder row = new StringBuilder(256);
+        private boolean[] bare; // numbers and booleans are written without quotes
+
+        JsonRowWriter(Writer out) {
+            super(out);
+        }
+
+        @Override
+        void begin(ResultSetMetaData md) throws IOException, SQLException {
+            super.begin(md);
+            bare = new boolean[names.length];
+            for (int i = 1; i < names.length; i++) {
+                StringBuilder name = new StringBuilder();
+                appendJsonString(name, names[i]);
+                names[i] = name.append(':').toString();
+                bare[i] = isBare(md.getColumnType(i));
+            }
+            out.write('[');
+        }
+
+        @Override
+        void write(ResultSet rs) throws IOException, SQLException {
+            row.setLength(0);
+            row.append(count == 0 ? "\n{" : ",\n{");
+
+            for (int i = 1; i < names.length; i++) {
+                if (i > 1) row.append(',');
+                row.append(names[i]);
+
+                Object value = rs.getObject(i);
+                if (value == null) {
+                    row.append("null");
+                } else if (bare[i]) {
+                    row.append(text(value));
+                } else {
+                    appendJsonString(row, text(value));
+                }
+            }
+
+            out.append(row).append('}');
+            count++;
+        }
+
+        @Override
+        void end() throws IOException {
+            if (!started()) out.write('[');
+            out.write(count == 0 ? "]\n" : "\n]\n");
+        }
+    }
+
+    private static boolean isBare(int sqlType) {
+        switch (sqlType) {
+            case Types.TINYINT: case Types.SMALLINT: case Types.INTEGER: case Types.BIGINT:
+            case Types.DECIMAL: case Types.NUMERIC: case Types.REAL: case Types.FLOAT: case Types.DOUBLE:
+            case Types.BOOLEAN: case Types.BIT:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static void appendJsonString(StringBuilder sb, String s) {
+        sb.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"': sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                case '\t': sb.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+        sb.append('"');
+    }
+
+
+    // =========================================================================
+    // HELPERS
+    // =========================================================================
+    // One text form per value for both formats; timestamps as ISO-8601, money without exponent
+    private static String text(Object value) {
+        if (value == null) return null;
+        if (value instanceof Timestamp) return ((Timestamp) value).toLocalDateTime().toString();
+        if (value instanceof java.sql.Date) return value.toString();
+        if (value instanceof BigDecimal) return ((BigDecimal) value).toPlainString();
+        return value.toString();
+    }
+
+    private static String columnName(ResultSetMetaData md, int column) throws SQLException {
+        String label = md.getColumnLabel(column);
+        return COLUMN_NAMES.getOrDefault(label.toUpperCase(Locale.ROOT), label);
+    }
+
+    private static void progress(long rows) {
+        if (rows % PROGRESS_EVERY == 0) System.out.println("... " + rows + " rows");
+    }
+
+    // --name=value, or the default when absent
+    private static String option(String[] args, String name, String defaultValue) {
+        String prefix = "--" + name + "=";
+        for (String arg : args) {
+            if (arg.startsWith(prefix)) return arg.substring(prefix.length());
+        }
+        return defaultValue;
+    }
+}
@@ -0,0 +1,22 @@
+package db;
+
+/**
+ * Microsoft Access files via UCanAccess. The schema ships inside the
+ * .accdb, so there is nothing to prepare.
+ */
+public class UCanAccessEngine implements StorageEngine {
+
+    @Override
+    public String getName() {
+        return "UCanAccess";
+    }
+
+    @Override
+    public String jdbcUrl(String location) {
+        return "jdbc:ucanaccess://" + location;
+    }
+
+    @Override
+    public void prepare(ConnectionPool pool) {
+    }
+}
@@ -0,0 +1,501 @@
+package importer;
+
+import db.ConnectionPool;
+import db.IdAllocator;
+import db.StorageEngine;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.Set;
+import models.Book;
+import models.BookCopy;
+
+/**
+ * Bulk catalogue import from CSV or MARC21 files. Records are streamed from
+ * the file, validated, de-duplicated by ISBN (against the catalogue and
+ * earlier in the file) and written with batched prepared statements: the
+ * Books row plus one BookCopies row per copy. Every batchSize records the
+ * batch is committed and a checkpoint is saved next to the input file, so
+ * an interrupted import picks up after the last committed batch when it is
+ * run again. A batch the database rejects is retried record by record, so
+ * one bad row costs only itself.
+ *
+ * Usage: java importer.CatalogueImporter --db=./SLMS-DB.accdb --file=catalogue.csv
+ *            [--batch=1000] [--copies=1] [--location=GROUND-SHELF-A] [--prefix=IMP]
+ * (files ending in .mrc or .marc are read as MARC21, anything else as CSV)
+ */
+public class CatalogueImporter {
+
+    // Called after every committed batch, on the importing thread
+    public interface ProgressListener {
+        void progress(ImportStats stats);
+    }
+
+    // Receives the last record number of each committed batch
+    public interface CheckpointWriter {
+        void committed(long recordNumber) throws IOException;
+    }
+
+    private static final String CHECKPOINT_SUFFIX = ".checkpoint";
+    private static final int TITLE_LENGTH = 255;
+    private static final int AUTHOR_LENGTH = 255;
+    private static final int ISBN_LENGTH = 50;
+    private static final int CATEGORY_LENGTH = 100;
+    private static final int BARCODE_LENGTH = 100;
+    private static final int LOCATION_LENGTH = 100;
+
+    private final ConnectionPool pool;
+    private final ImportConfig config;
+    private final IdAllocator ids;
+
+    // Normalized ISBNs already in the catalogue or accepted from this file
+    private final Set<String> knownIsbns = new HashSet<>();
+    // Barcodes in use that an imported barcode could collide with
+    private final Set<String> knownBarcodes = new HashSet<>();
+
+    public CatalogueImporter(ConnectionPool pool, ImportConfig config) {
+        this.pool = pool;
+        this.config = config;
+        this.ids = new IdAllocator(pool, config.getBatchSize());
+    }
+
+    public static void main(String[] args) throws IOException, SQLException {
+        String db = option(args, "db", null);
+        String file = option(args, "file", null);
+        if (db == null || file == null) {
+            System.out.println("Usage: java importer.CatalogueImporter --db=<path> --file=<catalogue.csv|.mrc> "
+                    + "[--batch=N] [--copies=N] [--location=SHELF] [--prefix=IMP]");
+            return;
+        }
+
+        ImportConfig config = new ImportConfig();
+        config.setBatchSize(Integer.parseInt(option(args, "batch", String.valueOf(config.getBatchSize()))));
+        config.setDefaultCopies(Integer.parseInt(option(args, "copies", String.valueOf(config.getDefaultCopies()))));
+        config.setDefaultLocation(option(args, "location", config.getDefaultLocation()));
+        config.setBarcodePrefix(option(args, "prefix", config.getBarcodePrefix()));
+
+        StorageEngine engine = StorageEngine.forLocation(db);
+        try (ConnectionPool pool = new ConnectionPool(engine.jdbcUrl(db))) {
+            engine.prepare(pool);
+
+            ImportStats stats = new CatalogueImporter(pool, config)
+                    .importFile(Paths.get(file), s -> System.out.println("... " + s));
+
+            System.out.println("Import finished: " + stats);
+            for (String problem : stats.getProblems()) System.out.println("  " + problem);
+        }
+    }
+
+
+    // =========================================================================
+    // IMPORT A FILE (format from its extension; resumes from a checkpoint)
+    // =========================================================================
+    public ImportStats importFile(Path file, ProgressListener listener) throws IOException, SQLException {
+        Path checkpoint = file.resolveSibling(file.getFileName() + CHECKPOINT_SUFFIX);
+        long resumeAfter = readCheckpoint(file, checkpoint);
+
+        try (RecordReader reader = openReader(file)) {
+            ImportStats stats = importRecords(reader, resumeAfter,
+                    committed -> writeCheckpoint(file, checkpoint, committed), listener);
+            Files.deleteIfExists(checkpoint);
+            return stats;
+        }
+    }
+
+    public static RecordReader openReader(Path file) throws IOException {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (name.endsWith(".mrc") || name.endsWith(".marc")) {
+            return new MarcRecordReader(Files.newInputStream(file));
+        }
+        Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8);
+        try {
+            return new CsvRecordReader(reader);
+        } catch (IOException e) {
+            reader.close();
+            throw e;
+        }
+    }
+
+
+    // =========================================================================
+    // IMPORT A STREAM OF RECORDS
+    // Records numbered up to resumeAfter were committed by an earlier run and
+    // are skipped; onCommit receives the last record number of each batch.
+    // =========================================================================
+    public ImportStats importRecords(RecordReader reader, long resumeAfter,
+                                     CheckpointWriter onCommit, ProgressListener listener)
+            throws IOException, SQLException {
+
+        // DDL must not run while our transaction is open (UCanAccess would close it)
+        ids.ensureSequenceTable();
+        loadKnownKeys();
+
+        ImportStats stats = new ImportStats();
+        stats.setResumedAfter(resumeAfter);
+        long started = System.nanoTime();
+
+        try (Connection conn = pool.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement books = conn.prepareStatement(
+                         "INSERT INTO Books (bookId, title, author, ISBN, category, totalQuantity, availableQuantity, status) " +
+                         "VALUES (?, ?, ?, ?, ?, ?, ?, ?)");
+                 PreparedStatement copies = conn.prepareStatement(
+                         "INSERT INTO BookCopies (copyId, bookId, copyNumber, barcode, location, status) " +
+                         "VALUES (?, ?, ?, ?, ?, ?)")) {
+
+                List<PendingBook> batch = new ArrayList<>();
+                long lastRecord = resumeAfter;
+                int consumed = 0;
+
+                ImportRecord r;
+                while ((r = reader.next()) != null) {
+                    if (r.getRecordNumber() <= resumeAfter) continue;
+
+                    stats.recordRead();
+                    lastRecord = r.getRecordNumber();
+                    consumed++;
+
+                    PendingBook pending = prepare(r, stats);
+                    if (pending != null) batch.add(pending);
+
+                    if (consumed == config.getBatchSize()) {
+                        commitBatch(conn, books, copies, batch, stats);
+                        onCommit.committed(lastRecord);
+                        stats.setElapsedNanos(System.nanoTime() - started);
+                        if (listener != null) listener.progress(stats);
+                        batch.clear();
+                        consumed = 0;
+                    }
+                }
+
+                if (consumed > 0) {
+                    commitBatch(conn, books, copies, batch, stats);
+                    onCommit.committed(lastRecord);
+                }
+                stats.setElapsedNanos(System.nanoTime() - started);
+                if (listener != null) listener.progress(stats);
+
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+
+        return stats;
+    }
+
+    // =========================================================================
+    // VALIDATE ONE RECORD AND ASSIGN ITS IDS (null when rejected)
+    // =========================================================================
+    private PendingBook prepare(ImportRecord r, ImportStats stats) throws SQLException {
+        String title = clean(r.getTitle());
+        String author = clean(r.getAuthor());
+        String category = clean(r.getCategory());
+        String location = clean(r.getLocation());
+        if (location == null) location = config.getDefaultLocation();
+
+        String isbn = normalizeIsbn(r.getIsbn());
+        String problem = null;
+        if (r.getProblem() != null) {
+            problem = r.getProblem();
+        } else if (isbn == null) {
+            problem = "missing ISBN";
+        } else if (isbn.length() > ISBN_LENGTH || !isbn.matches("[0-9A-Z]+")) {
+            problem = "malformed ISBN " + r.getIsbn();
+        } else if (!checksumValid(isbn)) {
+            problem = "bad ISBN check digit " + r.getIsbn();
+        } else if (title == null) {
+            problem = "missing title";
+        } else if (title.length() > TITLE_LENGTH) {
+            problem = "title longer than " + TITLE_LENGTH + " characters";
+        } else if (author != null && author.length() > AUTHOR_LENGTH) {
+            problem = "author longer than " + AUTHOR_LENGTH + " characters";
+        } else if (category != null && category.length() > CATEGORY_LENGTH) {
+            problem = "category longer than " + CATEGORY_LENGTH + " characters";
+        } else if (location.length() > LOCATION_LENGTH) {
+            problem = "location longer than " + LOCATION_LENGTH + " characters";
+        }
+
+        int copyCount = config.getDefaultCopies();
+        String copiesText = clean(r.getCopies());
+        if (problem == null && copiesText != null) {
+            try {
+                copyCount = Integer.parseInt(copiesText);
+            } catch (NumberFormatException e) {
+                copyCount = -1;
+            }
+            if (copyCount < 1 || copyCount > config.getMaxCopies()) {
+                problem = "copies must be 1.." + config.getMaxCopies() + ", not " + copiesText;
+            }
+        }
+
+        if (problem != null) {
+            stats.rejected(r.getRecordNumber(), problem, false, config.getMaxProblems());
+            return null;
+        }
+
+        if (!knownIsbns.add(isbn)) {
+            stats.rejected(r.getRecordNumber(), "duplicate ISBN " + isbn, true, config.getMaxProblems());
+            return null;
+        }
+
+        Book b = new Book();
+        b.setBookId(ids.nextId("Books", "bookId"));
+        b.setTitle(title);
+        b.setAuthor(author);
+        b.setISBN(isbn);
+        b.setCategory(category);
+        b.setTotalQuantity(copyCount);
+        b.setAvailableQuantity(copyCount);
+        b.setStatus("AVAILABLE");
+
+        PendingBook pending = new PendingBook(r.getRecordNumber(), b);
+        for (int n = 1; n <= copyCount; n++) {
+            BookCopy c = new BookCopy();
+            c.setCopyId(ids.nextId("BookCopies", "copyId"));
+            c.setBookId(b.getBookId());
+            c.setCopyNumber(n);
+            c.setBarcode(newBarcode(c.getCopyId()));
+            c.setLocation(location);
+            c.setStatus("AVAILABLE");
+            pending.copies.add(c);
+        }
+        return pending;
+    }
+
+    // <prefix><copyId>, suffixed in the unlikely case a hand-made barcode already has that form
+    private String newBarcode(int copyId) {
+        String base = config.getBarcodePrefix() + copyId;
+        String barcode = base;
+        for (int n = 2; barcode.length() > BARCODE_LENGTH || !knownBarcodes.add(barcode); n++) {
+            barcode = base + "-" + n;
+        }
+        return barcode;
+    }
+
+
+    // =========================================================================
+    // WRITE AND COMMIT ONE BATCH
+    // =========================================================================
+    private void commitBatch(Connection conn, PreparedStatement books, PreparedStatement copies,
+                             List<PendingBook> batch, ImportStats stats) throws SQLException {
+        if (batch.isEmpty()) return; // an empty executeBatch fails on UCanAccess
+
+        try {
+            for (PendingBook p : batch) {
+                bindBook(books, p.book);
+                books.addBatch();
+                for (BookCopy c : p.copies) {
+                    bindCopy(copies, c);
+                    copies.addBatch();
+                }
+            }
+            books.executeBatch();
+            copies.executeBatch();
+            conn.commit();
+
+            for (PendingBook p : batch) stats.bookImported(p.copies.size());
+            return;
+
+        } catch (SQLException e) {
+            conn.rollback();
+            books.clearBatch();
+            copies.clearBatch();
+        }
+
+        // Something in the batch was refused (e.g. an ISBN added at the desk meanwhile):
+        // write each record on its own so only the offending ones are lost
+        for (PendingBook p : batch) {
+            try {
+                bindBook(books, p.book);
+                books.executeUpdate();
+                for (BookCopy c : p.copies) {
+                    bindCopy(copies, c);
+                    copies.addBatch();
+                }
+                copies.executeBatch();
+                conn.commit();
+                stats.bookImported(p.copies.size());
+
+            } catch (SQLException e) {
+                conn.rollback();
+                copies.clearBatch();
+                stats.rejected(p.recordNumber, "rejected by the database: " + e.getMessage(), false,
+                        config.getMaxProblems());
+            }
+        }
+    }
+
+    private static void bindBook(PreparedStatement ps, Book b) throws SQLException {
+        ps.setInt(1, b.getBookId());
+        ps.setString(2, b.getTitle());
+        ps.setString(3, b.getAuthor());
+        ps.setString(4, b.getISBN());
+        ps.setString(5, b.getCategory());
+        ps.setInt(6, b.getTotalQuantity());
+        ps.setInt(7, b.getAvailableQuantity());
+        ps.setString(8, b.getStatus());
+    }
+
+    private static void bindCopy(PreparedStatement ps, BookCopy c) throws SQLException {
+        ps.setInt(1, c.getCopyId());
+        ps.setInt(2, c.getBookId());
+        ps.setInt(3, c.getCopyNumber());
+        ps.setString(4, c.getBarcode());
+        ps.setString(5, c.getLocation());
+        ps.setString(6, c.getStatus());
+    }
+
+    private static final class PendingBook {
+        final long recordNumber;
+        final Book book;
+        final List<BookCopy> copies = new ArrayList<>();
+
+        PendingBook(long recordNumber, Book book) {
+            this.recordNumber = recordNumber;
+            this.book = book;
+        }
+    }
+
+
+    // =========================================================================
+    // EXISTING KEYS (one streaming read each, before the first batch)
+    // =========================================================================
+    private void loadKnownKeys() throws SQLException {
+        knownIsbns.clear();
+        knownBarcodes.clear();
+
+        try (Connection conn = pool.getConnection()) {
+            try (PreparedStatement ps = conn.prepareStatement("SELECT ISBN FROM Books")) {
+                ps.setFetchSize(config.getBatchSize());
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        String isbn = normalizeIsbn(rs.getString("ISBN"));
+                        if (isbn != null) knownIsbns.add(isbn);
+                    }
+                }
+            }
+
+            try (PreparedStatement ps = conn.prepareStatement("SELECT barcode FROM BookCopies WHERE barcode LIKE ?")) {
+                ps.setString(1, config.getBarcodePrefix() + "%");
+                ps.setFetchSize(config.getBatchSize());
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) knownBarcodes.add(rs.getString("barcode"));
+                }
+            }
+        }
+    }
+
+
+    // =========================================================================
+    // ISBN RULES
+    // Hyphens and spaces are dropped and letters upper-cased, so "0-13-468599-X"
+    // and "013468599x" are the same book. Ten-digit and 978/979 thirteen-digit
+    // values must carry a correct check digit; anything else is taken as a local
+    // accession code (e.g. CS12345) and only has to be alphanumeric.
+    // =========================================================================
+    public static String normalizeIsbn(String raw) {
+        if (raw == null) return null;
+        String isbn = raw.replaceAll("[\\s-]", "").toUpperCase(Locale.ROOT);
+        return isbn.isEmpty() ? null : isbn;
+    }
+
+    static boolean checksumValid(String isbn) {
+        if (isbn.length() == 10 && isbn.matches("[0-9]{9}[0-9X]")) {
+            int sum = 0;
+            for (int i = 0; i < 10; i++) {
+                char ch = isbn.charAt(i);
+                sum += (10 - i) * (ch == 'X' ? 10 : ch - '0');
+            }
+            return sum % 11 == 0;
+        }
+
+        if (isbn.length() == 13 && isbn.matches("97[89][0-9]{10}")) {
+            int sum = 0;
+            for (int i = 0; i < 13; i++) {
+                sum += (i % 2 == 0 ? 1 : 3) * (isbn.charAt(i) - '0');
+            }
+            return sum % 10 == 0;
+        }
+
+        return true;
+    }
+
+
+    // =========================================================================
+    // CHECKPOINTS (<file>.checkpoint; only trusted while the file is unchanged)
+    // =========================================================================
+    private static long readCheckpoint(Path file, Path checkpoint) throws IOException {
+        if (!Files.exists(checkpoint)) return 0;
+
+        Properties p = new Properties();
+        try (InputStream in = Files.newInputStream(checkpoint)) {
+            p.load(in);
+        }
+
+        String size = String.valueOf(Files.size(file));
+        String modified = String.valueOf(Files.getLastModifiedTime(file).toMillis());
+        if (!size.equals(p.getProperty("size")) || !modified.equals(p.getProperty("modified"))) {
+            System.out.println("Import file changed since the last checkpoint; starting from the beginning");
+            return 0;
+        }
+
+        long committed = Long.parseLong(p.getProperty("records", "0"));
+        if (committed > 0) System.out.println("Resuming import after record " + committed);
+        return committed;
+    }
+
+    // Written to a temporary file and moved into place, so a crash never leaves half a checkpoint
+    private static void writeCheckpoint(Path file, Path checkpoint, long records) throws IOException {
+        Properties p = new Properties();
+        p.setProperty("file", file.toAbsolutePath().toString());
+        p.setProperty("size", String.valueOf(Files.size(file)));
+        p.setProperty("modified", String.valueOf(Files.getLastModifiedTime(file).toMillis()));
+        p.setProperty("records", String.valueOf(records));
+
+        Path tmp = checkpoint.resolveSibling(checkpoint.getFileName() + ".tmp");
+        try (OutputStream out = Files.newOutputStream(tmp)) {
+            p.store(out, "SLMS catalogue import: records committed so far");
+        }
+
+        try {
+            Files.move(tmp, checkpoint, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp, checkpoint, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+
+    // =========================================================================
+    // HELPERS
+    // =========================================================================
+    private static String clean(String s) {
+        if (s == null) return null;
+        String trimmed = s.trim();
+        return trimmed.isEmpty() ? null : trimmed;
+    }
+
+    // --name=value, or the default when absent
+    private static String option(String[] args, String name, String defaultValue) {
+        String prefix = "--" + name + "=";
+        for (String arg : args) {
+            if (arg.startsWith(prefix)) return arg.substring(prefix.length());
+        }
+        return defaultValue;
+    }
+}
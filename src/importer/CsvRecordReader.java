@@ -0,0 +1,120 @@
+package importer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Reads a CSV catalogue (RFC 4180: comma separated, fields optionally in
+ * double quotes, "" for a quote, line breaks allowed inside quotes). The
+ * first row names the columns, in any order and case:
+ *
+ *     title, author, isbn, category, copies, location
+ *
+ * Only title and isbn are required; "quantity" is accepted for copies.
+ */
+public class CsvRecordReader implements RecordReader {
+
+    private final BufferedReader in;
+    private final Map<String, Integer> columns = new HashMap<>();
+    private long recordNumber;
+
+    public CsvRecordReader(Reader reader) throws IOException {
+        this.in = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+
+        List<String> header = readRow();
+        if (header == null) throw new IOException("CSV file is empty");
+
+        for (int i = 0; i < header.size(); i++) {
+            String name = header.get(i).trim().toLowerCase(Locale.ROOT);
+            if (name.startsWith("\uFEFF")) name = name.substring(1); // UTF-8 byte order mark
+            if (name.equals("quantity")) name = "copies";
+            columns.putIfAbsent(name, i);
+        }
+
+        if (!columns.containsKey("title") || !columns.containsKey("isbn")) {
+            throw new IOException("CSV header must name at least the title and isbn columns");
+        }
+    }
+
+    @Override
+    public ImportRecord next() throws IOException {
+        List<String> row;
+        do {
+            row = readRow();
+            if (row == null) return null;
+        } while (row.size() == 1 && row.get(0).trim().isEmpty()); // blank line
+
+        ImportRecord r = new ImportRecord();
+        r.setRecordNumber(++recordNumber);
+        r.setTitle(column(row, "title"));
+        r.setAuthor(column(row, "author"));
+        r.setIsbn(column(row, "isbn"));
+        r.setCategory(column(row, "category"));
+        r.setCopies(column(row, "copies"));
+        r.setLocation(column(row, "location"));
+        return r;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private String column(List<String> row, String name) {
+        Integer index = columns.get(name);
+        if (index == null || index >= row.size()) return null;
+        String value = row.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    // One row of fields, or null at the end of input
+    private List<String> readRow() throws IOException {
+        int c = in.read();
+        if (c == -1) return null;
+
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+
+        while (c != -1) {
+            if (quoted) {
+                if (c == '"') {
+                    in.mark(1);
+                    int peek = in.read();
+                    if (peek == '"') {
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                        if (peek == -1) break;
+                        in.reset();
+                    }
+                } else {
+                    field.append((char) c);
+                }
+            } else if (c == '"' && field.length() == 0) {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\n') {
+                break;
+            } else if (c == '\r') {
+                in.mark(1);
+                if (in.read() != '\n') in.reset();
+                break;
+            } else {
+                field.append((char) c);
+            }
+            c = in.read();
+        }
+
+        fields.add(field.toString());
+        return fields;
+    }
+}
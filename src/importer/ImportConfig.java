@@ -0,0 +1,36 @@
+package importer;
+
+public class ImportConfig {
+private int batchSize = 1000;
+private int defaultCopies = 1;
+private int maxCopies = 100;
+private String defaultLocation = "GROUND-SHELF-A";
+private String barcodePrefix = "IMP";
+private int maxProblems = 100;
+
+public ImportConfig() {}
+
+    // Getters & Setters
+    // Records per JDBC batch; each batch is committed (and checkpointed) on its own
+    public int getBatchSize() { return batchSize; }
+    public void setBatchSize(int batchSize) { this.batchSize = batchSize; }
+
+    // Copies created when a record does not say how many
+    public int getDefaultCopies() { return defaultCopies; }
+    public void setDefaultCopies(int defaultCopies) { this.defaultCopies = defaultCopies; }
+
+    // Larger counts are treated as a data error rather than creating thousands of rows
+    public int getMaxCopies() { return maxCopies; }
+    public void setMaxCopies(int maxCopies) { this.maxCopies = maxCopies; }
+
+    public String getDefaultLocation() { return defaultLocation; }
+    public void setDefaultLocation(String defaultLocation) { this.defaultLocation = defaultLocation; }
+
+    // Imported copies get barcodes of the form <prefix><copyId>
+    public String getBarcodePrefix() { return barcodePrefix; }
+    public void setBarcodePrefix(String barcodePrefix) { this.barcodePrefix = barcodePrefix; }
+
+    // Rejected records beyond this many are counted but not described
+    public int getMaxProblems() { return maxProblems; }
+    public void setMaxProblems(int maxProblems) { this.maxProblems = maxProblems; }
+}
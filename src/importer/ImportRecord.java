@@ -0,0 +1,43 @@
+package importer;
+
+// One catalogue entry as read from an import file, before validation
+public class ImportRecord {
+private long recordNumber;
+private String title;
+private String author;
+private String isbn;
+private String category;
+private String copies;
+private String location;
+private String problem;
+
+public ImportRecord() {}
+
+    // Getters & Setters
+    // 1-based position in the file (data rows for CSV, records for MARC)
+    public long getRecordNumber() { return recordNumber; }
+    public void setRecordNumber(long recordNumber) { this.recordNumber = recordNumber; }
+
+    public String getTitle() { return title; }
+    public void setTitle(String title) { this.title = title; }
+
+    public String getAuthor() { return author; }
+    public void setAuthor(String author) { this.author = author; }
+
+    public String getIsbn() { return isbn; }
+    public void setIsbn(String isbn) { this.isbn = isbn; }
+
+    public String getCategory() { return category; }
+    public void setCategory(String category) { this.category = category; }
+
+    // Number of copies to create, as text; blank means the configured default
+    public String getCopies() { return copies; }
+    public void setCopies(String copies) { this.copies = copies; }
+
+    public String getLocation() { return location; }
+    public void setLocation(String location) { this.location = location; }
+
+    // Set by the reader when the entry could not be parsed; the importer rejects it
+    public String getProblem() { return problem; }
+    public void setProblem(String problem) { this.problem = problem; }
+}
@@ -0,0 +1,54 @@
+package importer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Running totals of one import; passed to the progress listener after every commit
+public class ImportStats {
+private long recordsRead;
+private long booksImported;
+private long copiesCreated;
+private long duplicates;
+private long invalid;
+private long resumedAfter;
+private long elapsedNanos;
+private final List<String> problems = new ArrayList<>();
+
+ImportStats() {}
+
+    // Getters
+    // Records taken from the file in this run (skipped checkpointed records not included)
+    public long getRecordsRead() { return recordsRead; }
+    public long getBooksImported() { return booksImported; }
+    public long getCopiesCreated() { return copiesCreated; }
+    // Records whose ISBN is already in the catalogue or earlier in the file
+    public long getDuplicates() { return duplicates; }
+    public long getInvalid() { return invalid; }
+    // Records already imported by an earlier, interrupted run
+    public long getResumedAfter() { return resumedAfter; }
+    public long getElapsedNanos() { return elapsedNanos; }
+    // "record N: reason" for the first ImportConfig.maxProblems rejections
+    public List<String> getProblems() { return problems; }
+
+    public double getRecordsPerSecond() {
+        return elapsedNanos == 0 ? 0.0 : recordsRead / (elapsedNanos / 1e9);
+    }
+
+    void recordRead() { recordsRead++; }
+    void bookImported(int copies) { booksImported++; copiesCreated += copies; }
+    void setResumedAfter(long resumedAfter) { this.resumedAfter = resumedAfter; }
+    void setElapsedNanos(long elapsedNanos) { this.elapsedNanos = elapsedNanos; }
+
+    void rejected(long recordNumber, String reason, boolean duplicate, int maxProblems) {
+        if (duplicate) duplicates++; else invalid++;
+        if (problems.size() < maxProblems) problems.add("record " + recordNumber + ": " + reason);
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "read=%d imported=%d copies=%d duplicates=%d invalid=%d resumedAfter=%d (%.1fs, %.0f records/s)",
+                recordsRead, booksImported, copiesCreated, duplicates, invalid, resumedAfter,
+                elapsedNanos / 1e9, getRecordsPerSecond());
+    }
+}
@@ -0,0 +1,189 @@
+package importer;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads MARC21 bibliographic records in ISO 2709 (binary .mrc) form, one
+ * record at a time. Fields used:
+ *
+ *     020 $a  ISBN (qualifiers such as "(pbk.)" dropped)
+ *     245 $a $b  title
+ *     100 $a, else 110 $a, else 700 $a  author
+ *     650 $a  category (first subject heading)
+ *     952 / 852  holdings: one copy per field, location from 952 $c or 852 $b
+ *
+ * Records flagged as Unicode (leader position 9 = 'a') are decoded as UTF-8;
+ * anything else (MARC-8) is read as Latin-1, which keeps plain ASCII intact.
+ */
+public class MarcRecordReader implements RecordReader {
+
+    private static final int LEADER_LENGTH = 24;
+    private static final int DIRECTORY_ENTRY_LENGTH = 12;
+    private static final byte FIELD_TERMINATOR = 0x1E;
+    private static final byte SUBFIELD_DELIMITER = 0x1F;
+
+    private final InputStream in;
+    private long recordNumber;
+
+    public MarcRecordReader(InputStream in) {
+        this.in = in instanceof BufferedInputStream ? in : new BufferedInputStream(in);
+    }
+
+    @Override
+    public ImportRecord next() throws IOException {
+        byte[] record = readRecord();
+        if (record == null) return null;
+
+        ImportRecord r = new ImportRecord();
+        r.setRecordNumber(++recordNumber);
+
+        // The length was good, so the next record still starts in the right place; only this one is lost
+        try {
+            parse(record, r);
+        } catch (NumberFormatException e) {
+            r.setProblem("damaged MARC21 leader or directory");
+        }
+        return r;
+    }
+
+    private void parse(byte[] record, ImportRecord r) {
+        Charset charset = record[9] == 'a' ? StandardCharsets.UTF_8 : StandardCharsets.ISO_8859_1;
+        int baseAddress = Integer.parseInt(ascii(record, 12, 5).trim());
+        if (baseAddress < LEADER_LENGTH || baseAddress > record.length) {
+            throw new NumberFormatException("base address " + baseAddress);
+        }
+
+        List<String> authors700 = new ArrayList<>();
+        int holdings = 0;
+
+        for (int entry = LEADER_LENGTH;
+             entry + DIRECTORY_ENTRY_LENGTH <= record.length && record[entry] != FIELD_TERMINATOR;
+             entry += DIRECTORY_ENTRY_LENGTH) {
+
+            String tag = ascii(record, entry, 3);
+            int length = Integer.parseInt(ascii(record, entry + 3, 4));
+            int start = baseAddress + Integer.parseInt(ascii(record, entry + 7, 5));
+            if (tag.startsWith("00") || length < 1 || start < baseAddress || start + length > record.length) {
+                continue; // control field or damaged
+            }
+
+            byte[] field = new byte[Math.max(0, length - 1)]; // drop the field terminator
+            System.arraycopy(record, start, field, 0, field.length);
+
+            switch (tag) {
+                case "020":
+                    if (r.getIsbn() == null) r.setIsbn(firstToken(subfield(field, 'a', charset)));
+                    break;
+                case "245":
+                    r.setTitle(joinTitle(subfield(field, 'a', charset), subfield(field, 'b', charset)));
+                    break;
+                case "100":
+                case "110":
+                    if (r.getAuthor() == null) r.setAuthor(trimPunctuation(subfield(field, 'a', charset)));
+                    break;
+                case "700":
+                    authors700.add(trimPunctuation(subfield(field, 'a', charset)));
+                    break;
+                case "650":
+                    if (r.getCategory() == null) r.setCategory(trimPunctuation(subfield(field, 'a', charset)));
+                    break;
+                case "952":
+                case "852":
+                    holdings++;
+                    if (r.getLocation() == null) {
+                        r.setLocation(subfield(field, tag.equals("952") ? 'c' : 'b', charset));
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        if (r.getAuthor() == null && !authors700.isEmpty()) r.setAuthor(authors700.get(0));
+        if (holdings > 0) r.setCopies(String.valueOf(holdings));
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    // The raw bytes of the next record, or null at the end of input
+    private byte[] readRecord() throws IOException {
+        int c;
+        do {
+            c = in.read();
+            if (c == -1) return null;
+        } while (Character.isWhitespace(c)); // some exports put a line break between records
+
+        byte[] lengthBytes = new byte[5];
+        lengthBytes[0] = (byte) c;
+        readFully(lengthBytes, 1, 4);
+
+        int length;
+        try {
+            length = Integer.parseInt(new String(lengthBytes, StandardCharsets.US_ASCII));
+        } catch (NumberFormatException e) {
+            throw new IOException("Not a MARC21 record at record " + (recordNumber + 1));
+        }
+        if (length < LEADER_LENGTH + 1) {
+            throw new IOException("Bad MARC21 record length " + length + " at record " + (recordNumber + 1));
+        }
+
+        byte[] record = new byte[length];
+        System.arraycopy(lengthBytes, 0, record, 0, 5);
+        readFully(record, 5, length - 5);
+        return record;
+    }
+
+    private void readFully(byte[] buffer, int offset, int length) throws IOException {
+        while (length > 0) {
+            int n = in.read(buffer, offset, length);
+            if (n == -1) throw new EOFException("MARC21 file ends inside record " + (recordNumber + 1));
+            offset += n;
+            length -= n;
+        }
+    }
+
+    // First subfield with the given code, or null
+    private static String subfield(byte[] field, char code, Charset charset) {
+        for (int i = 0; i < field.length - 1; i++) {
+            if (field[i] != SUBFIELD_DELIMITER || field[i + 1] != code) continue;
+
+            int end = i + 2;
+            while (end < field.length && field[end] != SUBFIELD_DELIMITER && field[end] != FIELD_TERMINATOR) end++;
+            String value = new String(field, i + 2, end - i - 2, charset).trim();
+            return value.isEmpty() ? null : value;
+        }
+        return null;
+    }
+
+    private static String ascii(byte[] record, int offset, int length) {
+        return new String(record, offset, length, StandardCharsets.US_ASCII);
+    }
+
+    private static String firstToken(String s) {
+        if (s == null) return null;
+        return s.split("[\\s(]+")[0];
+    }
+
+    private static String joinTitle(String a, String b) {
+        if (a == null) return null;
+        String title = trimPunctuation(a);
+        return b == null ? title : title + ": " + trimPunctuation(b);
+    }
+
+    // ISBD punctuation that ends MARC subfields (" /", " :", ",", ".")
+    private static String trimPunctuation(String s) {
+        if (s == null) return null;
+        String trimmed = s.replaceAll("[\\s/:;,.=]+$", "");
+        return trimmed.isEmpty() ? null : trimmed;
+    }
+}
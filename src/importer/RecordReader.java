@@ -0,0 +1,16 @@
+package importer;
+
+import java.io.IOException;
+
+/**
+ * Streams records out of an import file one at a time, so a catalogue of
+ * any size is read in constant memory.
+ */
+public interface RecordReader extends AutoCloseable {
+
+    // The next record, or null at the end of the file
+    ImportRecord next() throws IOException;
+
+    @Override
+    void close() throws IOException;
+}
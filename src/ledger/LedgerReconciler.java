@@ -0,0 +1,197 @@
+package ledger;
+
+import db.ConnectionPool;
+import db.StorageEngine;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Checks the payment ledger against Fines in one streaming pass: both
+ * tables are read in fineId order through forward-only cursors and merged,
+ * so memory holds one fine and its payments at a time (plus one balance per
+ * member who owes something), whatever the size of the history.
+ *
+ * Per fine: no payment may be zero or negative, payments may not exceed the
+ * fine, an UNPAID fine must still have something left to pay, and a PAID
+ * one must be paid in full (or, if it was settled before the ledger
+ * existed, have no payments at all). Payments for fines that do not exist
+ * are reported too. The member balances it sums are compared with the
+ * running ones and replace them, unless they changed during the pass.
+ *
+ * The app runs this every night; it can also be run on its own (e.g. from
+ * cron), exiting with status 1 if anything is wrong:
+ *
+ *     java ledger.LedgerReconciler --db=./SLMS-DB.accdb
+ */
+public class LedgerReconciler {
+
+    public static final int FETCH_SIZE = 1000;
+
+    private static final String FINES_SQL =
+            "SELECT fineId, memberId, amount, status FROM Fines ORDER BY fineId ASC";
+    private static final String PAYMENTS_SQL =
+            "SELECT paymentId, fineId, amountPaid FROM PaymentTransactions ORDER BY fineId ASC, paymentId ASC";
+
+    private final ConnectionPool pool;
+
+    public LedgerReconciler(ConnectionPool pool) {
+        this.pool = pool;
+    }
+
+    public static void main(String[] args) throws SQLException {
+        String db = null;
+        for (String arg : args) {
+            if (arg.startsWith("--db=")) db = arg.substring("--db=".length());
+        }
+        if (db == null) {
+            System.out.println("Usage: java ledger.LedgerReconciler --db=<path>");
+            return;
+        }
+
+        StorageEngine engine = StorageEngine.forLocation(db);
+        ReconciliationReport report;
+        try (ConnectionPool pool = new ConnectionPool(engine.jdbcUrl(db))) {
+            report = new LedgerReconciler(pool).run(null);
+        }
+
+        System.out.println(report);
+        if (!report.isClean()) System.exit(1);
+    }
+
+
+    // =========================================================================
+    // ONE PASS; balances may be null (checked and corrected when given)
+    // =========================================================================
+    public ReconciliationReport run(MemberBalances balances) throws SQLException {
+        long started = System.currentTimeMillis();
+        long versionBefore = balances != null ? balances.version() : 0;
+
+        ReconciliationReport report = new ReconciliationReport();
+        Map<Integer, BigDecimal> owed = new HashMap<>();
+        BigDecimal totalFined = BigDecimal.ZERO.setScale(MemberBalances.SCALE);
+        BigDecimal totalPaid = BigDecimal.ZERO.setScale(MemberBalances.SCALE);
+        long fines = 0, payments = 0, paidBeforeLedger = 0;
+
+        try (Connection conn = pool.getConnection();
+             PreparedStatement finesPs = conn.prepareStatement(FINES_SQL, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+             PreparedStatement paymentsPs = conn.prepareStatement(PAYMENTS_SQL, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+
+            finesPs.setFetchSize(FETCH_SIZE);
+            paymentsPs.setFetchSize(FETCH_SIZE);
+
+            try (ResultSet f = finesPs.executeQuery();
+                 ResultSet p = paymentsPs.executeQuery()) {
+
+                boolean morePayments = p.next();
+
+                while (f.next()) {
+                    int fineId = f.getInt("fineId");
+                    int memberId = f.getInt("memberId");
+                    BigDecimal amount = scaled(f.getBigDecimal("amount"));
+                    String status = f.getString("status");
+                    fines++;
+                    totalFined = totalFined.add(amount);
+
+                    // This fine's payments, and any left over from fines that do not exist
+                    BigDecimal paid = BigDecimal.ZERO;
+                    int count = 0;
+                    while (morePayments && p.getInt("fineId") <= fineId) {
+                        payments++;
+                        int paymentId = p.getInt("paymentId");
+                        BigDecimal amountPaid = scaled(p.getBigDecimal("amountPaid"));
+
+                        if (p.getInt("fineId") < fineId) {
+                            report.problem("Payment #" + paymentId + " is for fine #" + p.getInt("fineId")
+                                    + ", which does not exist");
+                        } else {
+                            if (amountPaid.signum() <= 0) {
+                                report.problem("Payment #" + paymentId + " on fine #" + fineId
+                                        + " is for PKR " + amountPaid.toPlainString());
+                            }
+                            paid = paid.add(amountPaid);
+                            count++;
+                        }
+                        totalPaid = totalPaid.add(amountPaid);
+                        morePayments = p.next();
+                    }
+
+                    if (paid.compareTo(amount) > 0) {
+                        report.problem("Fine #" + fineId + " is overpaid: PKR " + paid.toPlainString()
+                                + " paid on PKR " + amount.toPlainString());
+                    }
+
+                    if ("UNPAID".equalsIgnoreCase(status)) {
+                        BigDecimal left = amount.subtract(paid);
+                        if (left.signum() <= 0) {
+                            report.problem("Fine #" + fineId + " is paid in full but still UNPAID");
+                        } else {
+                            owed.merge(memberId, left, BigDecimal::add);
+                        }
+                    } else if ("PAID".equalsIgnoreCase(status)) {
+                        if (count == 0) {
+                            paidBeforeLedger++;
+                        } else if (paid.compareTo(amount) < 0) {
+                            report.problem("Fine #" + fineId + " is PAID but only PKR " + paid.toPlainString()
+                                    + " of PKR " + amount.toPlainString() + " was paid");
+                        }
+                    } else if (!"WAIVED".equalsIgnoreCase(status)) {
+                        report.problem("Fine #" + fineId + " has unknown status " + status);
+                    }
+                }
+
+                // Past the last fine
+                while (morePayments) {
+                    payments++;
+                    report.problem("Payment #" + p.getInt("paymentId") + " is for fine #" + p.getInt("fineId")
+                            + ", which does not exist");
+                    totalPaid = totalPaid.add(scaled(p.getBigDecimal("amountPaid")));
+                    morePayments = p.next();
+                }
+            }
+        }
+
+        BigDecimal outstanding = BigDecimal.ZERO.setScale(MemberBalances.SCALE);
+        for (BigDecimal left : owed.values()) outstanding = outstanding.add(left);
+
+        report.setFinesChecked(fines);
+        report.setPaymentsChecked(payments);
+        report.setPaidBeforeLedger(paidBeforeLedger);
+        report.setTotalFined(totalFined);
+        report.setTotalPaid(totalPaid);
+        report.setTotalOutstanding(outstanding);
+
+        if (balances != null) {
+            report.setMembersDrifted(countDrift(balances.snapshot(), owed));
+            // A payment during the pass may or may not be in the sums; leave the running balances alone then
+            if (balances.replaceIfUnchanged(versionBefore, owed)) {
+                report.setBalancesCorrected(report.getMembersDrifted() > 0);
+            }
+        }
+
+        report.setElapsedMs(System.currentTimeMillis() - started);
+        return report;
+    }
+
+    private static int countDrift(Map<Integer, BigDecimal> running, Map<Integer, BigDecimal> summed) {
+        int drifted = 0;
+        for (Map.Entry<Integer, BigDecimal> e : summed.entrySet()) {
+            BigDecimal had = running.get(e.getKey());
+            if (had == null || had.compareTo(e.getValue()) != 0) drifted++;
+        }
+        for (Integer memberId : running.keySet()) {
+            if (!summed.containsKey(memberId)) drifted++;
+        }
+        return drifted;
+    }
+
+    private static BigDecimal scaled(BigDecimal amount) {
+        return amount == null ? BigDecimal.ZERO.setScale(MemberBalances.SCALE)
+                              : amount.setScale(MemberBalances.SCALE, RoundingMode.HALF_UP);
+    }
+}
@@ -0,0 +1,68 @@
+package ledger;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * What each member still owes (unpaid fines less what has been paid on
+ * them), kept up to date as fines are created, paid and waived, so showing
+ * a balance never re-sums the ledger. Loaded once at startup; the nightly
+ * reconciliation recomputes it from scratch and corrects any drift.
+ *
+ * Amounts are kept at the scale of the database columns (DECIMAL(19, 4)).
+ *
+ * Changes take one lock, so a reconciliation can swap in its totals only if
+ * nothing moved since it started; readers take no lock and see either the
+ * old balances or the new ones, never a half-filled map.
+ */
+public class MemberBalances {
+
+    public static final int SCALE = 4;
+
+    private volatile Map<Integer, BigDecimal> owed = new ConcurrentHashMap<>();
+
+    // Bumped on every change (under the lock), so a reconciliation can tell whether balances moved under it
+    private volatile long version;
+
+    public static BigDecimal money(double amount) {
+        return BigDecimal.valueOf(amount).setScale(SCALE, RoundingMode.HALF_UP);
+    }
+
+    public BigDecimal get(int memberId) {
+        return owed.getOrDefault(memberId, BigDecimal.ZERO.setScale(SCALE));
+    }
+
+    // Positive when a fine is created, negative when one is paid or waived
+    public synchronized void add(int memberId, BigDecimal delta) {
+        if (delta.signum() == 0) return;
+        owed.compute(memberId, (m, current) -> {
+            BigDecimal next = current == null ? delta.setScale(SCALE, RoundingMode.HALF_UP) : current.add(delta);
+            return next.signum() == 0 ? null : next;
+        });
+        version++;
+    }
+
+    // Replaces every balance with freshly summed ones, unless any balance changed since
+    // expectedVersion was read; false, and nothing replaced, if one did
+    public synchronized boolean replaceIfUnchanged(long expectedVersion, Map<Integer, BigDecimal> balances) {
+        if (version != expectedVersion) return false;
+
+        Map<Integer, BigDecimal> next = new ConcurrentHashMap<>();
+        for (Map.Entry<Integer, BigDecimal> e : balances.entrySet()) {
+            if (e.getValue().signum() != 0) next.put(e.getKey(), e.getValue().setScale(SCALE, RoundingMode.HALF_UP));
+        }
+        owed = next;
+        version++;
+        return true;
+    }
+
+    public Map<Integer, BigDecimal> snapshot() {
+        return new ConcurrentHashMap<>(owed);
+    }
+
+    public long version() {
+        return version;
+    }
+}
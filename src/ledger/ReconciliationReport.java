@@ -0,0 +1,92 @@
+package ledger;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+// Outcome of one pass of LedgerReconciler over Fines and PaymentTransactions
+public class ReconciliationReport {
+
+    // Only the first problems are kept; problemCount has them all
+    static final int MAX_PROBLEMS = 100;
+
+private long finesChecked;
+private long paymentsChecked;
+private long paidBeforeLedger;
+private BigDecimal totalFined = BigDecimal.ZERO;
+private BigDecimal totalPaid = BigDecimal.ZERO;
+private BigDecimal totalOutstanding = BigDecimal.ZERO;
+private long problemCount;
+private List<String> problems = new ArrayList<>();
+private int membersDrifted;
+private boolean balancesCorrected;
+private long elapsedMs;
+
+public ReconciliationReport() {}
+
+    void problem(String message) {
+        problemCount++;
+        if (problems.size() < MAX_PROBLEMS) problems.add(message);
+    }
+
+    public boolean isClean() {
+        return problemCount == 0 && membersDrifted == 0;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%d fines, %d payments checked in %.1fs%n",
+                finesChecked, paymentsChecked, elapsedMs / 1000.0));
+        sb.append("  fined PKR ").append(totalFined.toPlainString())
+          .append(", paid PKR ").append(totalPaid.toPlainString())
+          .append(", outstanding PKR ").append(totalOutstanding.toPlainString()).append('\n');
+        if (paidBeforeLedger > 0) {
+            sb.append("  ").append(paidBeforeLedger).append(" fine(s) marked PAID before the ledger (no payments)\n");
+        }
+        sb.append("  ").append(problemCount).append(" problem(s)");
+        if (membersDrifted > 0) {
+            sb.append(", ").append(membersDrifted).append(" member balance(s) drifted")
+              .append(balancesCorrected ? " (corrected)" : " (changed during the pass; not corrected)");
+        }
+        for (String p : problems) sb.append('\n').append("    ").append(p);
+        if (problemCount > problems.size()) sb.append('\n').append("    ...");
+        return sb.toString();
+    }
+
+    // Getters & Setters
+    public long getFinesChecked() { return finesChecked; }
+    public void setFinesChecked(long finesChecked) { this.finesChecked = finesChecked; }
+
+    public long getPaymentsChecked() { return paymentsChecked; }
+    public void setPaymentsChecked(long paymentsChecked) { this.paymentsChecked = paymentsChecked; }
+
+    // PAID fines with no payment rows: settled by the old status-only "mark paid"
+    public long getPaidBeforeLedger() { return paidBeforeLedger; }
+    public void setPaidBeforeLedger(long paidBeforeLedger) { this.paidBeforeLedger = paidBeforeLedger; }
+
+    public BigDecimal getTotalFined() { return totalFined; }
+    public void setTotalFined(BigDecimal totalFined) { this.totalFined = totalFined; }
+
+    public BigDecimal getTotalPaid() { return totalPaid; }
+    public void setTotalPaid(BigDecimal totalPaid) { this.totalPaid = totalPaid; }
+
+    public BigDecimal getTotalOutstanding() { return totalOutstanding; }
+    public void setTotalOutstanding(BigDecimal totalOutstanding) { this.totalOutstanding = totalOutstanding; }
+
+    public long getProblemCount() { return problemCount; }
+    public void setProblemCount(long problemCount) { this.problemCount = problemCount; }
+
+    public List<String> getProblems() { return problems; }
+    public void setProblems(List<String> problems) { this.problems = problems; }
+
+    // Members whose running balance differed from the recomputed one
+    public int getMembersDrifted() { return membersDrifted; }
+    public void setMembersDrifted(int membersDrifted) { this.membersDrifted = membersDrifted; }
+
+    public boolean isBalancesCorrected() { return balancesCorrected; }
+    public void setBalancesCorrected(boolean balancesCorrected) { this.balancesCorrected = balancesCorrected; }
+
+    public long getElapsedMs() { return elapsedMs; }
+    public void setElapsedMs(long elapsedMs) { this.elapsedMs = elapsedMs; }
+}
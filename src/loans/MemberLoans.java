@@ -0,0 +1,128 @@
+package loans;
+
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * What each member has on loan right now: how many copies, which ones, and
+ * the earliest due date among them. Kept up to date by the issue and return
+ * paths, so deciding whether a member may borrow another book is a map
+ * lookup instead of counting their rows in IssueTransactions. Loaded once at
+ * startup; the database stays the record.
+ *
+ * A checkout first reserves a slot for each copy (reserve fails if that
+ * would take the member past their limit), so two desks serving the same
+ * member cannot both pass the check. Once the transaction commits each slot
+ * becomes a loan (issued); on a rollback the slots are released.
+ *
+ * Each member's loans are one immutable value, replaced whole on every
+ * change, so readers never see a half-made update and never wait.
+ */
+public class MemberLoans {
+
+    public static final class Loans {
+        static final Loans NONE = new Loans(Collections.emptyMap(), 0);
+
+        private final Map<Integer, LocalDate> dueByCopy;
+        private final int reserved;
+        private final LocalDate oldestDueDate;
+
+        private Loans(Map<Integer, LocalDate> dueByCopy, int reserved) {
+            this.dueByCopy = dueByCopy;
+            this.reserved = reserved;
+
+            LocalDate oldest = null;
+            for (LocalDate due : dueByCopy.values()) {
+                if (due != null && (oldest == null || due.isBefore(oldest))) oldest = due;
+            }
+            this.oldestDueDate = oldest;
+        }
+
+        public int getCount() { return dueByCopy.size(); }
+        public Set<Integer> getCopyIds() { return dueByCopy.keySet(); }
+        public boolean holds(int copyId) { return dueByCopy.containsKey(copyId); }
+
+        // Null when the member has nothing out
+        public LocalDate getOldestDueDate() { return oldestDueDate; }
+
+        // Slots held by checkouts that have not committed yet
+        public int getReserved() { return reserved; }
+
+        private static Loans of(Map<Integer, LocalDate> dueByCopy, int reserved) {
+            if (dueByCopy.isEmpty() && reserved == 0) return null; // drops the member from the map
+            return new Loans(Collections.unmodifiableMap(dueByCopy), reserved);
+        }
+    }
+
+    private final Map<Integer, Loans> byMember = new ConcurrentHashMap<>();
+
+    public Loans get(int memberId) {
+        return byMember.getOrDefault(memberId, Loans.NONE);
+    }
+
+    public int count(int memberId) {
+        return get(memberId).getCount();
+    }
+
+
+    // =========================================================================
+    // CHANGES (each one atomic for its member)
+    // =========================================================================
+
+    // False, and nothing reserved, if the member would end up with more than limit loans
+    public boolean reserve(int memberId, int slots, int limit) {
+        boolean[] granted = new boolean[1];
+        byMember.compute(memberId, (m, had) -> {
+            Loans loans = had != null ? had : Loans.NONE;
+            if ((long) loans.getCount() + loans.reserved + slots > limit) return had;
+
+            granted[0] = true;
+            return Loans.of(new LinkedHashMap<>(loans.dueByCopy), loans.reserved + slots);
+        });
+        return granted[0];
+    }
+
+    // A rolled-back checkout gives its slots back
+    public void release(int memberId, int slots) {
+        byMember.computeIfPresent(memberId, (m, loans) ->
+                Loans.of(new LinkedHashMap<>(loans.dueByCopy), Math.max(0, loans.reserved - slots)));
+    }
+
+    // After the checkout commits: one reserved slot becomes the loan of copyId
+    public void issued(int memberId, int copyId, LocalDate dueDate) {
+        byMember.compute(memberId, (m, had) -> {
+            Loans loans = had != null ? had : Loans.NONE;
+            Map<Integer, LocalDate> dueByCopy = new LinkedHashMap<>(loans.dueByCopy);
+            dueByCopy.put(copyId, dueDate);
+            return Loans.of(dueByCopy, Math.max(0, loans.reserved - 1));
+        });
+    }
+
+    // After the return commits
+    public void returned(int memberId, int copyId) {
+        byMember.computeIfPresent(memberId, (m, loans) -> {
+            if (!loans.holds(copyId)) return loans;
+            Map<Integer, LocalDate> dueByCopy = new LinkedHashMap<>(loans.dueByCopy);
+            dueByCopy.remove(copyId);
+            return Loans.of(dueByCopy, loans.reserved);
+        });
+    }
+
+    // Replaces every member's loans (memberId -> copyId -> due date), e.g. with a fresh read
+    // of the active loans; slots reserved by checkouts still in flight are kept
+    public void replaceAll(Map<Integer, Map<Integer, LocalDate>> active) {
+        Set<Integer> memberIds = new HashSet<>(byMember.keySet());
+        memberIds.addAll(active.keySet());
+
+        for (Integer memberId : memberIds) {
+            Map<Integer, LocalDate> dueByCopy = active.getOrDefault(memberId, Collections.emptyMap());
+            byMember.compute(memberId, (m, had) ->
+                    Loans.of(new LinkedHashMap<>(dueByCopy), had != null ? had.reserved : 0));
+        }
+    }
+}
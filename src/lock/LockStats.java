@@ -0,0 +1,40 @@
+package lock;
+
+public class LockStats {
+private final String name;
+private final int stripes;
+private final long acquisitionCount;
+private final long contendedCount;
+private final long waitNanos;
+
+public LockStats(String name, int stripes, long acquisitionCount, long contendedCount, long waitNanos) {
+    this.name = name;
+    this.stripes = stripes;
+    this.acquisitionCount = acquisitionCount;
+    this.contendedCount = contendedCount;
+    this.waitNanos = waitNanos;
+}
+
+    // Getters
+    public String getName() { return name; }
+    public int getStripes() { return stripes; }
+    public long getAcquisitionCount() { return acquisitionCount; }
+    // Acquisitions that found the stripe already held and had to wait
+    public long getContendedCount() { return contendedCount; }
+    public long getWaitNanos() { return waitNanos; }
+
+    public double getContentionRate() {
+        return acquisitionCount == 0 ? 0.0 : (double) contendedCount / acquisitionCount;
+    }
+
+    public double getAverageWaitMs() {
+        return contendedCount == 0 ? 0.0 : waitNanos / 1e6 / contendedCount;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "%s: stripes=%d acquired=%d contended=%d (%.2f%%) avgWait=%.3fms",
+                name, stripes, acquisitionCount, contendedCount, getContentionRate() * 100, getAverageWaitMs());
+    }
+}
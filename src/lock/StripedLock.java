@@ -0,0 +1,85 @@
+package lock;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A fixed set of locks shared out by key hash, so each key (e.g. a copyId)
+ * can be locked without a lock object per key. Two keys on the same stripe
+ * wait for each other, which is harmless as long as holders only hold one
+ * stripe and keep it for a single short transaction.
+ *
+ * Counts how often a lock was found already held, and the time spent waiting.
+ */
+public class StripedLock {
+
+    private final String name;
+    private final ReentrantLock[] stripes;
+    private final int mask;
+
+    private final LongAdder acquisitionCount = new LongAdder();
+    private final LongAdder contendedCount = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+
+    // stripes is rounded up to a power of two
+    public StripedLock(String name, int stripes) {
+        int size = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+        this.name = name;
+        this.stripes = new ReentrantLock[size];
+        this.mask = size - 1;
+        for (int i = 0; i < size; i++) this.stripes[i] = new ReentrantLock();
+    }
+
+    // Blocks until the key's stripe is held; release it with unlock(key) in a finally block
+    public void lock(int key) {
+        acquire(stripeFor(key));
+    }
+
+    public void unlock(int key) {
+        stripeFor(key).unlock();
+    }
+
+    // Several keys at once (e.g. a cart of copies); stripes are taken in index order,
+    // so two callers locking overlapping sets cannot deadlock
+    public void lockAll(int[] keys) {
+        for (int stripe : stripesFor(keys)) acquire(stripes[stripe]);
+    }
+
+    public void unlockAll(int[] keys) {
+        int[] held = stripesFor(keys);
+        for (int i = held.length - 1; i >= 0; i--) stripes[held[i]].unlock();
+    }
+
+    public LockStats stats() {
+        return new LockStats(name, stripes.length,
+                acquisitionCount.sum(), contendedCount.sum(), waitNanos.sum());
+    }
+
+    private void acquire(ReentrantLock lock) {
+        if (!lock.tryLock()) {
+            contendedCount.increment();
+            long start = System.nanoTime();
+            lock.lock();
+            waitNanos.add(System.nanoTime() - start);
+        }
+        acquisitionCount.increment();
+    }
+
+    private ReentrantLock stripeFor(int key) {
+        return stripes[indexFor(key)];
+    }
+
+    private int indexFor(int key) {
+        // Fibonacci hashing spreads consecutive IDs across stripes
+        int h = key * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    // Distinct stripe indexes for the keys, ascending
+    private int[] stripesFor(int[] keys) {
+        int[] indexes = new int[keys.length];
+        for (int i = 0; i < keys.length; i++) indexes[i] = indexFor(keys[i]);
+        return Arrays.stream(indexes).sorted().distinct().toArray();
+    }
+}
@@ -0,0 +1,54 @@
+package models;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Outcome of a cart checkout or checkin: every item went through, or none did
+public class CartReceipt {
+private boolean success;
+private String message;
+private Member member;
+private List<CirculationReceipt> items = new ArrayList<>();
+private List<String> problems = new ArrayList<>();
+
+public CartReceipt() {}
+
+    public static CartReceipt failed(String message) {
+        CartReceipt r = new CartReceipt();
+        r.setSuccess(false);
+        r.setMessage(message);
+        return r;
+    }
+
+    public static CartReceipt failed(String message, List<String> problems) {
+        CartReceipt r = failed(message);
+        r.setProblems(problems);
+        return r;
+    }
+
+    public double getTotalFine() {
+        double total = 0;
+        for (CirculationReceipt item : items) {
+            if (item.getFine() != null) total += item.getFine().getAmount();
+        }
+        return total;
+    }
+
+    // Getters & Setters
+    public boolean isSuccess() { return success; }
+    public void setSuccess(boolean success) { this.success = success; }
+
+    public String getMessage() { return message; }
+    public void setMessage(String message) { this.message = message; }
+
+    public Member getMember() { return member; }
+    public void setMember(Member member) { this.member = member; }
+
+    // One per copy, in the order scanned (copy, book, issue and any fine)
+    public List<CirculationReceipt> getItems() { return items; }
+    public void setItems(List<CirculationReceipt> items) { this.items = items; }
+
+    // Why a rejected cart was rejected, one line per offending barcode
+    public List<String> getProblems() { return problems; }
+    public void setProblems(List<String> problems) { this.problems = problems; }
+}
@@ -0,0 +1,49 @@
+package models;
+
+// Outcome of a checkout or checkin at the circulation desk
+public class CirculationReceipt {
+private boolean success;
+private String message;
+private Member member;
+private BookCopy copy;
+private Book book;
+private IssueTransaction issue;
+private Fine fine;
+private Reservation reservation;
+
+public CirculationReceipt() {}
+
+    public static CirculationReceipt failed(String message) {
+        CirculationReceipt r = new CirculationReceipt();
+        r.setSuccess(false);
+        r.setMessage(message);
+        return r;
+    }
+
+    // Getters & Setters
+    public boolean isSuccess() { return success; }
+    public void setSuccess(boolean success) { this.success = success; }
+
+    public String getMessage() { return message; }
+    public void setMessage(String message) { this.message = message; }
+
+    public Member getMember() { return member; }
+    public void setMember(Member member) { this.member = member; }
+
+    public BookCopy getCopy() { return copy; }
+    public void setCopy(BookCopy copy) { this.copy = copy; }
+
+    public Book getBook() { return book; }
+    public void setBook(Book book) { this.book = book; }
+
+    public IssueTransaction getIssue() { return issue; }
+    public void setIssue(IssueTransaction issue) { this.issue = issue; }
+
+    // Only set by a checkin that produced a fine
+    public Fine getFine() { return fine; }
+    public void setFine(Fine fine) { this.fine = fine; }
+
+    // Set when a hold was placed, a checkout fulfilled one, or a checkin set the copy aside for one
+    public Reservation getReservation() { return reservation; }
+    public void setReservation(Reservation reservation) { this.reservation = reservation; }
+}
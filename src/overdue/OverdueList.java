@@ -0,0 +1,220 @@
+package overdue;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The loans that are past due, each with the fine it has accrued so far (the
+ * fine a return today would create). Kept in memory between scans: a scan
+ * reports every overdue loan it reads with seen(), and only the loans that
+ * are new, were renewed, or have gained a day since the last scan get a new
+ * entry; loans no longer reported are dropped when the scan ends. A scan
+ * costs one step per overdue loan, however long the loan history.
+ *
+ * Readers get the list published by the last scan (a Snapshot, never
+ * changed once published), so reading it never waits for a scan. A return
+ * between scans takes its loan out of what readers see straight away.
+ */
+public class OverdueList {
+
+    public static final class Item {
+        private final int issueId;
+        private final int memberId;
+        private final int copyId;
+        private final LocalDate dueDate;
+        private final int overdueDays;
+        private final double dailyRate;
+
+        public Item(int issueId, int memberId, int copyId, LocalDate dueDate, int overdueDays, double dailyRate) {
+            this.issueId = issueId;
+            this.memberId = memberId;
+            this.copyId = copyId;
+            this.dueDate = dueDate;
+            this.overdueDays = overdueDays;
+            this.dailyRate = dailyRate;
+        }
+
+        public int getIssueId() { return issueId; }
+        public int getMemberId() { return memberId; }
+        public int getCopyId() { return copyId; }
+        public LocalDate getDueDate() { return dueDate; }
+        public int getOverdueDays() { return overdueDays; }
+        public double getDailyRate() { return dailyRate; }
+
+        // Provisional: what checkin would charge if the copy came back today
+        public double getAccruedFine() { return overdueDays * dailyRate; }
+    }
+
+    public static final class Snapshot {
+        private final LocalDate asOf;
+        private final long scannedAt;
+        private final List<Item> items;
+        private final Map<Integer, List<Item>> byMember;
+        private final double totalAccrued;
+
+        private Snapshot(LocalDate asOf, long scannedAt, List<Item> items) {
+            this.asOf = asOf;
+            this.scannedAt = scannedAt;
+            this.items = Collections.unmodifiableList(items);
+
+            Map<Integer, List<Item>> members = new HashMap<>();
+            double total = 0;
+            for (Item item : items) {
+                members.computeIfAbsent(item.memberId, m -> new ArrayList<>()).add(item);
+                total += item.getAccruedFine();
+            }
+            this.byMember = members;
+            this.totalAccrued = total;
+        }
+
+        public LocalDate getAsOf() { return asOf; }
+        public long getScannedAt() { return scannedAt; }
+
+        // Longest overdue first
+        public List<Item> getItems() { return items; }
+        public double getTotalAccrued() { return totalAccrued; }
+    }
+
+    // What one scan changed
+    public static final class ScanResult {
+        private final int overdue;
+        private final int added;
+        private final int accrued;
+        private final int removed;
+
+        ScanResult(int overdue, int added, int accrued, int removed) {
+            this.overdue = overdue;
+            this.added = added;
+            this.accrued = accrued;
+            this.removed = removed;
+        }
+
+        public int getOverdue() { return overdue; }
+        public int getAdded() { return added; }
+        public int getAccrued() { return accrued; }
+        public int getRemoved() { return removed; }
+
+        @Override
+        public String toString() {
+            return overdue + " overdue (" + added + " new, " + accrued + " accrued, " + removed + " gone)";
+        }
+    }
+
+    private static final class Tracked {
+        Item item;
+        long seenInScan;
+
+        Tracked(Item item, long seenInScan) {
+            this.item = item;
+            this.seenInScan = seenInScan;
+        }
+    }
+
+    // Only the scanning thread touches these (scans are synchronized)
+    private final Map<Integer, Tracked> tracked = new HashMap<>();
+    private long scan;
+    private LocalDate asOf;
+    private int added, accrued;
+
+    private volatile Snapshot published = new Snapshot(LocalDate.now(), 0L, new ArrayList<>());
+
+    // Returned since the last scan; hidden from readers until a scan drops them
+    private final Set<Integer> returned = ConcurrentHashMap.newKeySet();
+
+    public synchronized void beginScan(LocalDate asOf) {
+        this.scan++;
+        this.asOf = asOf;
+        this.added = 0;
+        this.accrued = 0;
+    }
+
+    // An active loan due before asOf
+    public synchronized void seen(int issueId, int memberId, int copyId, LocalDate dueDate, double dailyRate) {
+        int days = (int) ChronoUnit.DAYS.between(dueDate, asOf);
+        Tracked t = tracked.get(issueId);
+
+        if (t == null) {
+            tracked.put(issueId, new Tracked(new Item(issueId, memberId, copyId, dueDate, days, dailyRate), scan));
+            added++;
+            return;
+        }
+
+        t.seenInScan = scan;
+        Item had = t.item;
+        if (had.overdueDays != days || !had.dueDate.equals(dueDate) || had.dailyRate != dailyRate) {
+            t.item = new Item(issueId, memberId, copyId, dueDate, days, dailyRate);
+            accrued++;
+        }
+    }
+
+    // Drops the loans this scan did not see and publishes the result
+    public synchronized ScanResult endScan() {
+        int removed = 0;
+        for (var it = tracked.values().iterator(); it.hasNext(); ) {
+            if (it.next().seenInScan != scan) {
+                it.remove();
+                removed++;
+            }
+        }
+
+        List<Item> items = new ArrayList<>(tracked.size());
+        for (Tracked t : tracked.values()) items.add(t.item);
+        items.sort(Comparator.comparing(Item::getDueDate).thenComparingInt(Item::getIssueId));
+        published = new Snapshot(asOf, System.currentTimeMillis(), items);
+
+        // A loan the scan read just before its return committed stays hidden until the next scan drops it
+        returned.removeIf(issueId -> !tracked.containsKey(issueId));
+
+        return new ScanResult(tracked.size(), added, accrued, removed);
+    }
+
+    // Called after a return commits
+    public void returned(int issueId) {
+        returned.add(issueId);
+    }
+
+
+    // =========================================================================
+    // READING THE PUBLISHED LIST
+    // =========================================================================
+    public Snapshot snapshot() {
+        return published;
+    }
+
+    // Longest overdue first, without loans returned since the scan
+    public List<Item> items() {
+        Snapshot s = published;
+        if (returned.isEmpty()) return s.items;
+
+        List<Item> live = new ArrayList<>(s.items.size());
+        for (Item item : s.items) {
+            if (!returned.contains(item.issueId)) live.add(item);
+        }
+        return live;
+    }
+
+    public List<Item> forMember(int memberId) {
+        List<Item> items = published.byMember.get(memberId);
+        if (items == null) return Collections.emptyList();
+
+        List<Item> live = new ArrayList<>(items.size());
+        for (Item item : items) {
+            if (!returned.contains(item.issueId)) live.add(item);
+        }
+        return live;
+    }
+
+    public double accruedFor(int memberId) {
+        double total = 0;
+        for (Item item : forMember(memberId)) total += item.getAccruedFine();
+        return total;
+    }
+}
@@ -0,0 +1,196 @@
+package policy;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * How many books a member may hold, for how long, and what a late return
+ * costs, by member department and book category.
+ *
+ * The rules are compiled once into a decision table with a row per
+ * department and a column per category named in any rule (plus a row and a
+ * column for everything else), every cell already resolved. For each of
+ * limit, period and rate the most specific rule that sets it wins:
+ * department and category, then department, then category, then the rule
+ * for everyone, then the built-in defaults (the old desk rules: one book,
+ * 15 days, PKR 10 a day). Deciding a checkout is two map lookups.
+ *
+ * A policy never changes once compiled; to change the rules, compile a new
+ * one and hand it to LibraryContext.setLoanPolicy.
+ *
+ * Rules files have one rule per line, blank fields inherited:
+ *
+ *     # department      | category  | maxLoans | loanDays | dailyRate
+ *     *                 | *         | 1        | 15       | 10.0
+ *     Computer Science  | *         | 3        |          |
+ *     *                 | Reference |          | 3        | 50.0
+ */
+public final class LoanPolicy {
+
+    public static final String ANY = "*";
+
+    public static final int DEFAULT_MAX_LOANS = 1;
+    public static final int DEFAULT_LOAN_DAYS = 15;
+    public static final double DEFAULT_DAILY_RATE = 10.0;
+
+    private static final LoanPolicy DEFAULTS = compile(Collections.emptyList());
+
+    private final List<LoanRule> rules;
+    private final Map<String, Integer> rows;    // department -> row; row 0 is every other department
+    private final Map<String, Integer> columns; // category -> column; column 0 is every other category
+    private final LoanTerms[][] table;
+
+    private LoanPolicy(List<LoanRule> rules, Map<String, Integer> rows, Map<String, Integer> columns,
+                       LoanTerms[][] table) {
+        this.rules = rules;
+        this.rows = rows;
+        this.columns = columns;
+        this.table = table;
+    }
+
+    public static LoanPolicy defaults() {
+        return DEFAULTS;
+    }
+
+
+    // =========================================================================
+    // DECIDE
+    // =========================================================================
+    public LoanTerms termsFor(String department, String category) {
+        return table[rows.getOrDefault(key(department), 0)][columns.getOrDefault(key(category), 0)];
+    }
+
+    // Limits are per department, whatever the books
+    public int maxLoansFor(String department) {
+        return table[rows.getOrDefault(key(department), 0)][0].getMaxLoans();
+    }
+
+    // False when every department gets the same terms, so callers need not look the department up
+    public boolean hasDepartmentRules() {
+        return rows.size() > 1;
+    }
+
+    public List<LoanRule> getRules() {
+        return rules;
+    }
+
+
+    // =========================================================================
+    // COMPILE
+    // Throws IllegalArgumentException for a rule that cannot be applied.
+    // =========================================================================
+    public static LoanPolicy compile(List<LoanRule> rules) {
+        Map<String, LoanRule> byKey = new HashMap<>();
+        Map<String, Integer> rows = new LinkedHashMap<>();
+        Map<String, Integer> columns = new LinkedHashMap<>();
+        rows.put(ANY, 0);
+        columns.put(ANY, 0);
+
+        for (LoanRule rule : rules) {
+            String department = key(rule.getDepartment());
+            String category = key(rule.getCategory());
+            String where = "Loan rule for " + rule.getDepartment() + " / " + rule.getCategory();
+
+            if (byKey.putIfAbsent(department + "|" + category, rule) != null) {
+                throw new IllegalArgumentException(where + " appears twice");
+            }
+            if (rule.getMaxLoans() != null && !ANY.equals(category)) {
+                throw new IllegalArgumentException(where + ": loan limits apply to all categories");
+            }
+            if (rule.getMaxLoans() != null && rule.getMaxLoans() < 0
+                    || rule.getLoanDays() != null && rule.getLoanDays() < 0
+                    || rule.getDailyRate() != null && rule.getDailyRate() < 0) {
+                throw new IllegalArgumentException(where + ": values may not be negative");
+            }
+
+            rows.putIfAbsent(department, rows.size());
+            columns.putIfAbsent(category, columns.size());
+        }
+
+        LoanTerms[][] table = new LoanTerms[rows.size()][columns.size()];
+        for (Map.Entry<String, Integer> row : rows.entrySet()) {
+            for (Map.Entry<String, Integer> column : columns.entrySet()) {
+                table[row.getValue()][column.getValue()] = resolve(byKey, row.getKey(), column.getKey());
+            }
+        }
+
+        return new LoanPolicy(Collections.unmodifiableList(new ArrayList<>(rules)), rows, columns, table);
+    }
+
+    // Most specific first: department and category, department, category, everyone
+    private static LoanTerms resolve(Map<String, LoanRule> byKey, String department, String category) {
+        LoanRule[] chain = {
+            byKey.get(department + "|" + category),
+            byKey.get(department + "|" + ANY),
+            byKey.get(ANY + "|" + category),
+            byKey.get(ANY + "|" + ANY),
+        };
+
+        Integer maxLoans = null, loanDays = null;
+        Double dailyRate = null;
+        for (LoanRule rule : chain) {
+            if (rule == null) continue;
+            if (maxLoans == null) maxLoans = rule.getMaxLoans();
+            if (loanDays == null) loanDays = rule.getLoanDays();
+            if (dailyRate == null) dailyRate = rule.getDailyRate();
+        }
+
+        return new LoanTerms(
+                maxLoans != null ? maxLoans : DEFAULT_MAX_LOANS,
+                loanDays != null ? loanDays : DEFAULT_LOAN_DAYS,
+                dailyRate != null ? dailyRate : DEFAULT_DAILY_RATE);
+    }
+
+    private static String key(String name) {
+        if (name == null || name.trim().isEmpty()) return ANY;
+        return name.trim().toLowerCase(Locale.ROOT);
+    }
+
+
+    // =========================================================================
+    // LOAD A RULES FILE
+    // =========================================================================
+    public static LoanPolicy load(Path file) throws IOException {
+        List<LoanRule> rules = new ArrayList<>();
+
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNo = 0;
+            while ((line = in.readLine()) != null) {
+                lineNo++;
+                String text = line.trim();
+                if (text.isEmpty() || text.startsWith("#")) continue;
+
+                String[] fields = text.split("\\|", -1);
+                if (fields.length != 5) {
+                    throw new IllegalArgumentException(file + " line " + lineNo
+                            + ": expected department | category | maxLoans | loanDays | dailyRate");
+                }
+
+                try {
+                    LoanRule rule = new LoanRule();
+                    rule.setDepartment(fields[0].trim());
+                    rule.setCategory(fields[1].trim());
+                    if (!fields[2].isBlank()) rule.setMaxLoans(Integer.parseInt(fields[2].trim()));
+                    if (!fields[3].isBlank()) rule.setLoanDays(Integer.parseInt(fields[3].trim()));
+                    if (!fields[4].isBlank()) rule.setDailyRate(Double.parseDouble(fields[4].trim()));
+                    rules.add(rule);
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException(file + " line " + lineNo + ": " + e.getMessage());
+                }
+            }
+        }
+
+        return compile(rules);
+    }
+}
@@ -0,0 +1,33 @@
+package policy;
+
+// One row of the loan policy; LoanPolicy.ANY matches every department or category,
+// and a null limit, period or rate is taken from the next more general rule
+public class LoanRule {
+private String department = LoanPolicy.ANY;
+private String category = LoanPolicy.ANY;
+private Integer maxLoans;
+private Integer loanDays;
+private Double dailyRate;
+
+public LoanRule() {}
+
+    // Getters & Setters
+    // The member's department
+    public String getDepartment() { return department; }
+    public void setDepartment(String department) { this.department = department; }
+
+    // The book's category
+    public String getCategory() { return category; }
+    public void setCategory(String category) { this.category = category; }
+
+    // Copies a member may hold at once; only on rules for every category
+    public Integer getMaxLoans() { return maxLoans; }
+    public void setMaxLoans(Integer maxLoans) { this.maxLoans = maxLoans; }
+
+    public Integer getLoanDays() { return loanDays; }
+    public void setLoanDays(Integer loanDays) { this.loanDays = loanDays; }
+
+    // PKR per day late
+    public Double getDailyRate() { return dailyRate; }
+    public void setDailyRate(Double dailyRate) { this.dailyRate = dailyRate; }
+}
@@ -0,0 +1,24 @@
+package policy;
+
+// What the policy decided for one member department and book category
+public final class LoanTerms {
+
+    private final int maxLoans;
+    private final int loanDays;
+    private final double dailyRate;
+
+    public LoanTerms(int maxLoans, int loanDays, double dailyRate) {
+        this.maxLoans = maxLoans;
+        this.loanDays = loanDays;
+        this.dailyRate = dailyRate;
+    }
+
+    public int getMaxLoans() { return maxLoans; }
+    public int getLoanDays() { return loanDays; }
+    public double getDailyRate() { return dailyRate; }
+
+    @Override
+    public String toString() {
+        return "up to " + maxLoans + " book(s), " + loanDays + " days, PKR " + dailyRate + "/day late";
+    }
+}
@@ -0,0 +1,301 @@
+package reservation;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * In-memory hold queues, one per title. Each queue has a lane per priority
+ * (lower is served first) and every lane is first come, first served. The
+ * database is the record; these queues decide who is next and answer
+ * "where am I in the queue" without a query.
+ *
+ * A hold is in one of three places: waiting in its title's queue, ready
+ * (a returned copy is set aside for it), or taken by a transaction that is
+ * about to change it. take() is what stops two desks from acting on the
+ * same hold; the taker later calls markReady, forget or putBack once its
+ * transaction has committed or rolled back.
+ *
+ * Looking up a position, the queue length or the hold on a copy is O(1)
+ * (plus one step per priority lane ahead, of which there are a handful);
+ * taking the head is O(1), and only a cancellation or a rollback from the
+ * middle of a lane renumbers the holds behind it.
+ */
+public class HoldQueues {
+
+    public enum State { WAITING, READY, TAKEN }
+
+    public static final class Hold {
+        private final int reservationId;
+        private final int memberId;
+        private final int bookId;
+        private final int priority;
+        private final long reservedAt;
+
+        private State state = State.WAITING;
+        private State takenFrom;
+        private int copyId;
+        private int index; // slot in its lane while waiting
+
+        public Hold(int reservationId, int memberId, int bookId, int priority, long reservedAt, int copyId) {
+            this.reservationId = reservationId;
+            this.memberId = memberId;
+            this.bookId = bookId;
+            this.priority = priority;
+            this.reservedAt = reservedAt;
+            this.copyId = copyId;
+        }
+
+        public int getReservationId() { return reservationId; }
+        public int getMemberId() { return memberId; }
+        public int getBookId() { return bookId; }
+        public int getPriority() { return priority; }
+        public long getReservedAt() { return reservedAt; }
+
+        // While waiting, the copy recorded with the reservation; once ready, the copy set aside
+        public int getCopyId() { return copyId; }
+
+        // What the hold was before it was taken, for a taken hold
+        public State getState() { return state == State.TAKEN ? takenFrom : state; }
+
+        // Queue order within a lane: earliest reservation first, id breaks ties
+        private boolean before(Hold other) {
+            if (reservedAt != other.reservedAt) return reservedAt < other.reservedAt;
+            return reservationId < other.reservationId;
+        }
+    }
+
+    // Live slots are [head, items.size()); popped slots are nulled and reclaimed now and then
+    private static final class Lane {
+        final List<Hold> items = new ArrayList<>();
+        int head;
+
+        int size() {
+            return items.size() - head;
+        }
+
+        Hold peek() {
+            return size() == 0 ? null : items.get(head);
+        }
+
+        Hold pop() {
+            Hold h = items.get(head);
+            items.set(head++, null);
+            if (head > 32 && head * 2 > items.size()) compact();
+            return h;
+        }
+
+        void insert(Hold h) {
+            int at = items.size();
+            while (at > head && h.before(items.get(at - 1))) at--;
+
+            if (at == head && head > 0) {
+                items.set(--head, h);
+                h.index = head;
+                return;
+            }
+            items.add(at, h);
+            renumber(at);
+        }
+
+        void remove(Hold h) {
+            items.remove(h.index);
+            renumber(h.index);
+        }
+
+        private void compact() {
+            items.subList(0, head).clear();
+            head = 0;
+            renumber(0);
+        }
+
+        private void renumber(int from) {
+            for (int i = from; i < items.size(); i++) items.get(i).index = i;
+        }
+    }
+
+    private static final class TitleQueue {
+        final TreeMap<Integer, Lane> lanes = new TreeMap<>();
+        int waiting;
+
+        Lane lane(int priority) {
+            return lanes.computeIfAbsent(priority, p -> new Lane());
+        }
+
+        Hold head() {
+            for (Lane lane : lanes.values()) {
+                if (lane.size() > 0) return lane.peek();
+            }
+            return null;
+        }
+    }
+
+    private final Map<Integer, TitleQueue> queues = new HashMap<>();            // bookId
+    private final Map<Integer, Hold> byReservation = new HashMap<>();          // every live hold
+    private final Map<Long, Hold> byMemberAndTitle = new HashMap<>();          // one live hold per member per title
+    private final Map<Integer, Hold> readyByCopy = new HashMap<>();            // copyId set aside -> hold
+    private final Map<Integer, Integer> holdsPerMember = new HashMap<>();
+
+
+    // =========================================================================
+    // ADD (a new hold, or one loaded at startup in queue order)
+    // False if the member already has a live hold on the title.
+    // =========================================================================
+    public synchronized boolean add(Hold h) {
+        Long key = memberTitle(h.memberId, h.bookId);
+        if (byMemberAndTitle.containsKey(key)) return false;
+
+        byReservation.put(h.reservationId, h);
+        byMemberAndTitle.put(key, h);
+        holdsPerMember.merge(h.memberId, 1, Integer::sum);
+
+        enqueue(h);
+        return true;
+    }
+
+    // A hold loaded at startup that already has a copy set aside
+    public synchronized boolean addReady(Hold h) {
+        Long key = memberTitle(h.memberId, h.bookId);
+        if (byMemberAndTitle.containsKey(key) || readyByCopy.containsKey(h.copyId)) return false;
+
+        byReservation.put(h.reservationId, h);
+        byMemberAndTitle.put(key, h);
+        holdsPerMember.merge(h.memberId, 1, Integer::sum);
+
+        h.state = State.READY;
+        readyByCopy.put(h.copyId, h);
+        return true;
+    }
+
+
+    // =========================================================================
+    // LOOKUPS
+    // =========================================================================
+    // 1-based place in the title's queue, or 0 if the hold is not waiting
+    public synchronized int position(int reservationId) {
+        Hold h = byReservation.get(reservationId);
+        if (h == null || h.state != State.WAITING) return 0;
+
+        TitleQueue queue = queues.get(h.bookId);
+        int ahead = 0;
+        for (Lane lane : queue.lanes.headMap(h.priority).values()) ahead += lane.size();
+        return ahead + (h.index - queue.lanes.get(h.priority).head) + 1;
+    }
+
+    public synchronized int waitingCount(int bookId) {
+        TitleQueue queue = queues.get(bookId);
+        return queue == null ? 0 : queue.waiting;
+    }
+
+    public synchronized Hold get(int reservationId) {
+        return byReservation.get(reservationId);
+    }
+
+    public synchronized Hold find(int memberId, int bookId) {
+        return byMemberAndTitle.get(memberTitle(memberId, bookId));
+    }
+
+    // The ready hold a copy is set aside for, if any
+    public synchronized Hold readyOn(int copyId) {
+        return readyByCopy.get(copyId);
+    }
+
+    public synchronized int holdsOf(int memberId) {
+        return holdsPerMember.getOrDefault(memberId, 0);
+    }
+
+    // The title's waiting holds in the order they will be served
+    public synchronized List<Hold> waiting(int bookId) {
+        List<Hold> list = new ArrayList<>();
+        TitleQueue queue = queues.get(bookId);
+        if (queue == null) return list;
+
+        for (Lane lane : queue.lanes.values()) {
+            list.addAll(lane.items.subList(lane.head, lane.items.size()));
+        }
+        return list;
+    }
+
+
+    // =========================================================================
+    // TAKE AND SETTLE
+    // =========================================================================
+    // The first waiting hold on the title, taken; null when nobody is waiting
+    public synchronized Hold takeHead(int bookId) {
+        TitleQueue queue = queues.get(bookId);
+        if (queue == null || queue.waiting == 0) return null;
+
+        Hold h = queue.head();
+        take(h);
+        return h;
+    }
+
+    // False if the hold is gone or another transaction has it
+    public synchronized boolean take(Hold h) {
+        if (h.state == State.TAKEN || byReservation.get(h.reservationId) != h) return false;
+
+        if (h.state == State.WAITING) {
+            dequeue(h);
+        } else {
+            readyByCopy.remove(h.copyId);
+        }
+        h.takenFrom = h.state;
+        h.state = State.TAKEN;
+        return true;
+    }
+
+    // The taking transaction committed and set the copy aside for the hold
+    public synchronized void markReady(Hold h, int copyId) {
+        h.state = State.READY;
+        h.copyId = copyId;
+        readyByCopy.put(copyId, h);
+    }
+
+    // The taking transaction committed and the hold is finished (fulfilled or cancelled)
+    public synchronized void forget(Hold h) {
+        byReservation.remove(h.reservationId);
+        byMemberAndTitle.remove(memberTitle(h.memberId, h.bookId));
+        holdsPerMember.computeIfPresent(h.memberId, (m, n) -> n > 1 ? n - 1 : null);
+    }
+
+    // The taking transaction rolled back; the hold goes back where it was, in its old place
+    public synchronized void putBack(Hold h) {
+        h.state = h.takenFrom;
+        if (h.state == State.WAITING) {
+            enqueue(h);
+        } else {
+            readyByCopy.put(h.copyId, h);
+        }
+    }
+
+
+    // =========================================================================
+    // HELPERS
+    // =========================================================================
+    private void enqueue(Hold h) {
+        h.state = State.WAITING;
+        TitleQueue queue = queues.computeIfAbsent(h.bookId, b -> new TitleQueue());
+        queue.lane(h.priority).insert(h);
+        queue.waiting++;
+    }
+
+    private void dequeue(Hold h) {
+        TitleQueue queue = queues.get(h.bookId);
+        Lane lane = queue.lanes.get(h.priority);
+        if (lane.peek() == h) {
+            lane.pop();
+        } else {
+            lane.remove(h);
+        }
+
+        queue.waiting--;
+        if (lane.size() == 0) queue.lanes.remove(h.priority);
+        if (queue.waiting == 0) queues.remove(h.bookId);
+    }
+
+    private static Long memberTitle(int memberId, int bookId) {
+        return ((long) memberId << 32) | (bookId & 0xffffffffL);
+    }
+}
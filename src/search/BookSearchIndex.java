@@ -0,0 +1,455 @@
+package search;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+import models.Book;
+
+/**
+ * In-memory inverted index over book title, author, ISBN and category.
+ * Text is case- and accent-folded and split into words; every query word is
+ * matched as a prefix, all words must match, and results are ranked by which
+ * fields matched and whether the match was a whole word.
+ */
+public class BookSearchIndex {
+
+    private static final int TITLE = 1;
+    private static final int AUTHOR = 2;
+    private static final int ISBN = 4;
+    private static final int CATEGORY = 8;
+
+    // Postings pack (bookId << 4 | field mask) into one int
+    private static final int MASK_BITS = 4;
+    private static final int MAX_BOOK_ID = (1 << (31 - MASK_BITS)) - 1;
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern ISBN_LIKE = Pattern.compile("[0-9Xx\\- ]+");
+
+    // term -> books containing it, sorted by bookId
+    private final TreeMap<String, Postings> terms = new TreeMap<>();
+    // bookId -> its terms, so an update or delete can unlink the old ones
+    private DocTerms[] docs = new DocTerms[1024];
+    private int docCount;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Books changed by put/remove while a bulk load is running; the load must not overwrite them
+    private Set<Integer> touchedDuringLoad;
+    private volatile boolean ready;
+
+
+    // =========================================================================
+    // INCREMENTAL UPDATES (createBook / updateBook / deleteBook)
+    // =========================================================================
+    public void put(Book b) {
+        lock.writeLock().lock();
+        try {
+            if (touchedDuringLoad != null) touchedDuringLoad.add(b.getBookId());
+            unlink(b.getBookId());
+            link(b);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(int bookId) {
+        lock.writeLock().lock();
+        try {
+            if (touchedDuringLoad != null) touchedDuringLoad.add(bookId);
+            unlink(bookId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+
+    // =========================================================================
+    // BULK LOAD AT STARTUP
+    // =========================================================================
+    public void beginLoad() {
+        lock.writeLock().lock();
+        try {
+            touchedDuringLoad = new HashSet<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Skips books that were changed after the load started; their live version is already indexed
+    public void load(List<Book> chunk) {
+        lock.writeLock().lock();
+        try {
+            for (Book b : chunk) {
+                if (touchedDuringLoad != null && touchedDuringLoad.contains(b.getBookId())) continue;
+                unlink(b.getBookId());
+                link(b);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void finishLoad() {
+        lock.writeLock().lock();
+        try {
+            touchedDuringLoad = null;
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Load failed: keep answering from the SQL fallback
+    public void abortLoad() {
+        lock.writeLock().lock();
+        try {
+            touchedDuringLoad = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return docCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+
+    // =========================================================================
+    // SEARCH: ranked book IDs, best first
+    // =========================================================================
+    public List<Integer> search(String query, int limit) {
+        List<String> words = queryWords(query);
+        if (words.isEmpty() || limit <= 0) return Collections.emptyList();
+
+        lock.readLock().lock();
+        try {
+            // Walk the postings of the rarest word only; check every word per book
+            String driver = null;
+            long driverCount = Long.MAX_VALUE;
+            for (String w : words) {
+                long count = countPostings(w, driverCount);
+                if (count < driverCount) {
+                    driverCount = count;
+                    driver = w;
+                }
+            }
+            if (driverCount == 0) return Collections.emptyList();
+
+            // Min-heap of (score << 32 | inverted bookId); the root is the weakest result kept so far
+            long[] heap = new long[(int) Math.min(limit, driverCount)];
+            int heapSize = 0;
+
+            for (Postings p : prefixRange(driver).values()) {
+                for (int i = 0; i < p.size; i++) {
+                    int bookId = p.entries[i] >>> MASK_BITS;
+                    DocTerms doc = docs[bookId];
+
+                    // A book with several words under this prefix is scored once, from its first one
+                    if (!doc.isFirstMatch(p, driver)) continue;
+
+                    int total = 0;
+                    for (String w : words) {
+                        int best = doc.bestScore(w);
+                        if (best == 0) {
+                            total = 0;
+                            break;
+                        }
+                        total += best;
+                    }
+                    if (total == 0) continue;
+
+                    long key = ((long) total << 32) | (MAX_BOOK_ID - bookId);
+                    if (heapSize < heap.length) {
+                        heap[heapSize] = key;
+                        siftUp(heap, heapSize++);
+                    } else if (key > heap[0]) {
+                        heap[0] = key;
+                        siftDown(heap, heapSize);
+                    }
+                }
+            }
+
+            Arrays.sort(heap, 0, heapSize);
+            List<Integer> ranked = new ArrayList<>(heapSize);
+            for (int i = heapSize - 1; i >= 0; i--) {
+                ranked.add(MAX_BOOK_ID - (int) heap[i]);
+            }
+            return ranked;
+
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private long countPostings(String prefix, long stopAbove) {
+        long count = 0;
+        for (Postings p : prefixRange(prefix).values()) {
+            count += p.size;
+            if (count >= stopAbove) break;
+        }
+        return count;
+    }
+
+    private NavigableMap<String, Postings> prefixRange(String prefix) {
+        return terms.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+    }
+
+    private static int score(int mask, boolean exact) {
+        int s = 0;
+        if ((mask & ISBN) != 0) s += 6;
+        if ((mask & TITLE) != 0) s += 4;
+        if ((mask & AUTHOR) != 0) s += 3;
+        if ((mask & CATEGORY) != 0) s += 1;
+        return exact ? s * 2 : s;
+    }
+
+    private static void siftUp(long[] heap, int i) {
+        long key = heap[i];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (heap[parent] <= key) break;
+            heap[i] = heap[parent];
+            i = parent;
+        }
+        heap[i] = key;
+    }
+
+    private static void siftDown(long[] heap, int size) {
+        long key = heap[0];
+        int i = 0;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) break;
+            if (child + 1 < size && heap[child + 1] < heap[child]) child++;
+            if (key <= heap[child]) break;
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = key;
+    }
+
+
+    // =========================================================================
+    // TEXT FOLDING + TOKENIZING
+    // =========================================================================
+    public static String fold(String s) {
+        if (s == null) return "";
+
+        for (int i = 0; i < s.length(); i++) {
+            if (s.charAt(i) >= 0x80) {
+                // Only non-ASCII text pays for decomposition: "Brontë" -> "bronte"
+                String stripped = MARKS.matcher(Normalizer.normalize(s, Normalizer.Form.NFD)).replaceAll("");
+                return stripped.toLowerCase(Locale.ROOT);
+            }
+        }
+        return s.toLowerCase(Locale.ROOT);
+    }
+
+    private static List<String> words(String s) {
+        String folded = fold(s);
+        List<String> out = new ArrayList<>();
+
+        int start = -1;
+        for (int i = 0; i <= folded.length(); i++) {
+            boolean wordChar = i < folded.length() && Character.isLetterOrDigit(folded.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                out.add(folded.substring(start, i));
+                start = -1;
+            }
+        }
+        return out;
+    }
+
+    private static String compactIsbn(String s) {
+        String folded = fold(s);
+        StringBuilder sb = new StringBuilder(folded.length());
+        for (int i = 0; i < folded.length(); i++) {
+            char c = folded.charAt(i);
+            if (Character.isLetterOrDigit(c)) sb.append(c);
+        }
+        return sb.toString();
+    }
+
+    static List<String> queryWords(String query) {
+        if (query == null) return Collections.emptyList();
+        String trimmed = query.trim();
+
+        // "978-0-13-468599-1" should find the ISBN however it was typed
+        if (!trimmed.isEmpty() && ISBN_LIKE.matcher(trimmed).matches()) {
+            String compact = compactIsbn(trimmed);
+            return compact.isEmpty() ? Collections.emptyList() : Collections.singletonList(compact);
+        }
+
+        // De-duplicate so "java java" is not scored twice
+        return new ArrayList<>(new LinkedHashSet<>(words(trimmed)));
+    }
+
+
+    // =========================================================================
+    // INDEX MAINTENANCE (caller holds the write lock)
+    // =========================================================================
+    private void link(Book b) {
+        int bookId = b.getBookId();
+        if (bookId < 0 || bookId > MAX_BOOK_ID) {
+            throw new IllegalArgumentException("bookId out of range for the search index: " + bookId);
+        }
+
+        List<String> words = new ArrayList<>();
+        List<Integer> masks = new ArrayList<>();
+        addWords(words, masks, words(b.getTitle()), TITLE);
+        addWords(words, masks, words(b.getAuthor()), AUTHOR);
+        addWords(words, masks, words(b.getISBN()), ISBN);
+        addWords(words, masks, words(b.getCategory()), CATEGORY);
+        addWords(words, masks, Collections.singletonList(compactIsbn(b.getISBN())), ISBN);
+
+        Postings[] docPostings = new Postings[words.size()];
+        byte[] docMasks = new byte[words.size()];
+        for (int i = 0; i < docPostings.length; i++) {
+            String term = words.get(i);
+            int mask = masks.get(i);
+
+            Postings p = terms.get(term);
+            if (p == null) {
+                p = new Postings(term);
+                terms.put(term, p);
+            }
+            p.add((bookId << MASK_BITS) | mask);
+            docPostings[i] = p;
+            docMasks[i] = (byte) mask;
+        }
+
+        if (bookId >= docs.length) {
+            docs = Arrays.copyOf(docs, Math.max(bookId + 1, docs.length * 2));
+        }
+        docs[bookId] = new DocTerms(docPostings, docMasks);
+        docCount++;
+    }
+
+    private void unlink(int bookId) {
+        if (bookId < 0 || bookId >= docs.length || docs[bookId] == null) return;
+
+        DocTerms old = docs[bookId];
+        docs[bookId] = null;
+        docCount--;
+
+        for (Postings p : old.postings) {
+            p.remove(bookId);
+            if (p.size == 0) terms.remove(p.term);
+        }
+    }
+
+    // The same word in two fields becomes one term with both field bits set
+    private static void addWords(List<String> words, List<Integer> masks, List<String> add, int field) {
+        for (String w : add) {
+            if (w.isEmpty()) continue;
+            int at = words.indexOf(w);
+            if (at >= 0) {
+                masks.set(at, masks.get(at) | field);
+            } else {
+                words.add(w);
+                masks.add(field);
+            }
+        }
+    }
+
+
+    // =========================================================================
+    // STORAGE: packed int postings and per-book term lists
+    // =========================================================================
+    private static final class Postings {
+        final String term;
+        int[] entries = new int[1];
+        int size;
+
+        Postings(String term) {
+            this.term = term;
+        }
+
+        void add(int entry) {
+            int bookId = entry >>> MASK_BITS;
+
+            // Bulk loads arrive in id order, so appending is the common case
+            int pos = (size == 0 || (entries[size - 1] >>> MASK_BITS) < bookId) ? size : find(bookId);
+            if (pos < size && (entries[pos] >>> MASK_BITS) == bookId) {
+                entries[pos] |= entry;
+                return;
+            }
+            if (size == entries.length) {
+                entries = Arrays.copyOf(entries, size + (size >> 1) + 1);
+            }
+            System.arraycopy(entries, pos, entries, pos + 1, size - pos);
+            entries[pos] = entry;
+            size++;
+        }
+
+        void remove(int bookId) {
+            int pos = find(bookId);
+            if (pos >= size || (entries[pos] >>> MASK_BITS) != bookId) return;
+            System.arraycopy(entries, pos + 1, entries, pos, size - pos - 1);
+            size--;
+        }
+
+        // First position whose bookId is >= the one given
+        private int find(int bookId) {
+            int lo = 0, hi = size;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if ((entries[mid] >>> MASK_BITS) < bookId) lo = mid + 1;
+                else hi = mid;
+            }
+            return lo;
+        }
+    }
+
+    private static final class DocTerms {
+        final Postings[] postings;
+        final byte[] masks;
+
+        DocTerms(Postings[] postings, byte[] masks) {
+            this.postings = postings;
+            this.masks = masks;
+        }
+
+        int bestScore(String word) {
+            int best = 0;
+            for (int i = 0; i < postings.length; i++) {
+                String term = postings[i].term;
+                if (term.startsWith(word)) {
+                    best = Math.max(best, score(masks[i], term.length() == word.length()));
+                }
+            }
+            return best;
+        }
+
+        // False if another of this book's terms under the prefix sorts before the given one
+        boolean isFirstMatch(Postings current, String prefix) {
+            for (Postings p : postings) {
+                if (p != current && p.term.startsWith(prefix) && p.term.compareTo(current.term) < 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}